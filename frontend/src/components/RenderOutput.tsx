@@ -45,26 +45,46 @@ interface RenderOutputProps {
   disabled?: boolean;
 }
 
-function downloadDataUrl(dataUrl: string, filename: string) {
+// Images arrive inline (data URI) or as artifact URLs served by the API (/api/artifacts/{id})
+function isImageSource(value: unknown): value is string {
+  return (
+    typeof value === "string" &&
+    (value.startsWith("data:image") ||
+      /^https?:\/\/[^/]+(\/.*)?\/api\/artifacts\/[^/]+$/.test(value))
+  );
+}
+
+function clickDownloadLink(href: string, filename: string) {
+  const link = document.createElement("a");
+  link.href = href;
+  link.download = filename;
+  document.body.appendChild(link);
+  link.click();
+  document.body.removeChild(link);
+}
+
+async function downloadImage(source: string, filename: string) {
   try {
-    if (
-      !dataUrl ||
-      typeof dataUrl !== "string" ||
-      !dataUrl.startsWith("data:")
-    ) {
+    if (!isImageSource(source)) {
       console.error(
-        `[${CURRENT_DATE_TIME}] [${CURRENT_USER_LOGIN}]: Invalid data URL provided for download:`,
-        dataUrl
+        `[${CURRENT_DATE_TIME}] [${CURRENT_USER_LOGIN}]: Invalid image source provided for download:`,
+        source
       );
       alert("Could not initiate download: Invalid image data.");
       return;
     }
-    const link = document.createElement("a");
-    link.href = dataUrl;
-    link.download = filename;
-    document.body.appendChild(link);
-    link.click();
-    document.body.removeChild(link);
+    if (source.startsWith("data:")) {
+      clickDownloadLink(source, filename);
+      return;
+    }
+    // The download attribute is ignored for cross-origin URLs, so go through a blob
+    const response = await fetch(source);
+    if (!response.ok) {
+      throw new Error(`HTTP ${response.status}`);
+    }
+    const objectUrl = URL.createObjectURL(await response.blob());
+    clickDownloadLink(objectUrl, filename);
+    setTimeout(() => URL.revokeObjectURL(objectUrl), 1000);
   } catch (e) {
     console.error(
       `[${CURRENT_DATE_TIME}] [${CURRENT_USER_LOGIN}]: Download failed:`,
@@ -111,7 +131,7 @@ const RenderOutput: React.FC<RenderOutputProps> = ({
     const filenameKey = output.downloadFilenameKey || "imageFileName";
     const filename =
       resultData?.[filenameKey] || `${output.id || "download"}.png`;
-    downloadDataUrl(String(value), filename);
+    void downloadImage(String(value), filename);
   };
 
   const handleRefresh = () => {
@@ -123,8 +143,7 @@ const RenderOutput: React.FC<RenderOutputProps> = ({
 
   const displayValue = value ?? "";
   const isValueNotNull = value != null;
-  const isValueStringImage =
-    typeof value === "string" && value.startsWith("data:image");
+  const isValueStringImage = isImageSource(value);
   const isArrayValue = Array.isArray(displayValue);
   const hasTableConfig =
     isArrayValue && output.columns && output.columns.length > 0;
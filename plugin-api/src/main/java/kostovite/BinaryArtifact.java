@@ -0,0 +1,53 @@
+package kostovite;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Generated binary output (an image, a file) returned as a value in a plugin's result map.
+ * The server stores it under its content hash and sends the client a URL instead of inlining it,
+ * so it is served once, with immutable caching. Where inline data is needed (artifacts disabled),
+ * it is written as the equivalent {@link #toDataUri() data URI}.
+ * Pipelines pass the artifact itself to the next step; plugins reading images should accept it
+ * alongside data URI strings.
+ */
+public final class BinaryArtifact {
+    private final String contentType;
+    private final byte[] data;
+
+    /**
+     * @param contentType MIME type, e.g. "image/png"
+     * @param data Content; owned by the artifact from now on
+     */
+    public BinaryArtifact(String contentType, byte[] data) {
+        if (contentType == null || data == null) {
+            throw new IllegalArgumentException("Artifact content type and data are required");
+        }
+        this.contentType = contentType;
+        this.data = data;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return Read-only view of the content
+     */
+    public ByteBuffer getData() {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    public int size() {
+        return data.length;
+    }
+
+    public String toDataUri() {
+        return "data:" + contentType + ";base64," + Base64.getEncoder().encodeToString(data);
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryArtifact[" + contentType + ", " + data.length + " bytes]";
+    }
+}
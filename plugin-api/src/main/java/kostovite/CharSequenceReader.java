@@ -0,0 +1,73 @@
+package kostovite;
+
+import java.io.Reader;
+
+/**
+ * Reads a CharSequence without turning it into a String first.
+ * Plugins whose metadata sets "acceptsSpilledText" to true may receive large text fields as a
+ * CharSequence backed by a memory-mapped file instead of a String; reading them through this
+ * class keeps them off the heap.
+ */
+public final class CharSequenceReader extends Reader {
+    private final CharSequence text;
+    private int position;
+    private int mark;
+
+    public CharSequenceReader(CharSequence text) {
+        this.text = text;
+    }
+
+    @Override
+    public int read() {
+        return position < text.length() ? text.charAt(position++) : -1;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int remaining = text.length() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int count = Math.min(length, remaining);
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] = text.charAt(position + i);
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, text.length() - position));
+        position += count;
+        return count;
+    }
+
+    @Override
+    public boolean ready() {
+        return true;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        mark = position;
+    }
+
+    @Override
+    public void reset() {
+        position = mark;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release; the owner of the sequence manages its storage
+    }
+}
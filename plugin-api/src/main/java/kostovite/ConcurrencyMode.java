@@ -0,0 +1,23 @@
+package kostovite;
+
+/**
+ * How the server may call a plugin from concurrent requests
+ */
+public enum ConcurrencyMode {
+    /**
+     * One instance serves every request thread; the plugin is thread-safe
+     */
+    SHARED,
+
+    /**
+     * Each request thread gets its own instance, created with the no-arg constructor.
+     * For plugins with cheap construction and non-thread-safe per-call state.
+     */
+    PER_THREAD,
+
+    /**
+     * Requests borrow an instance from a bounded pool, created with the no-arg constructor.
+     * For plugins with expensive construction; callers wait when all instances are busy.
+     */
+    POOLED
+}
@@ -0,0 +1,114 @@
+package kostovite;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Deadline, cancellation flag and progress sink of one plugin invocation.
+ * Long-running plugins should call {@link #checkCancelled()} in their loops so an invocation whose
+ * client is gone, or whose deadline has passed, stops using CPU, and may call
+ * {@link #reportProgress(double, String)} to tell a streaming client how far they are.
+ */
+public class InvocationContext {
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private volatile String cancelReason;
+    private volatile ProgressListener progressListener;
+
+    private InvocationContext(long deadlineNanos, boolean hasDeadline) {
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * Context without deadline, cancelled only through {@link #cancel(String)}
+     */
+    public static InvocationContext none() {
+        return new InvocationContext(0, false);
+    }
+
+    /**
+     * Context whose deadline is the given time from now
+     * @param timeoutMillis Time budget in milliseconds, 0 or less for no deadline
+     */
+    public static InvocationContext withTimeout(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return none();
+        }
+        return new InvocationContext(System.nanoTime() + timeoutMillis * 1_000_000L, true);
+    }
+
+    /**
+     * Ask the plugin to stop, e.g. because the client disconnected
+     * @param reason Why the invocation was cancelled
+     */
+    public void cancel(String reason) {
+        if (cancelReason == null) {
+            cancelReason = reason != null ? reason : "cancelled";
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelReason != null || isDeadlineExceeded();
+    }
+
+    public boolean isDeadlineExceeded() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return Reason given to {@link #cancel(String)}, "deadline exceeded" or null if still running
+     */
+    public String getCancelReason() {
+        String reason = cancelReason;
+        if (reason != null) {
+            return reason;
+        }
+        return isDeadlineExceeded() ? "deadline exceeded" : null;
+    }
+
+    /**
+     * @return Milliseconds left before the deadline, Long.MAX_VALUE without deadline
+     */
+    public long remainingMillis() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    /**
+     * Receive the progress the plugin reports. Set by the server before the invocation starts.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @return Whether anyone listens; plugins can skip computing progress otherwise
+     */
+    public boolean isProgressTracked() {
+        return progressListener != null;
+    }
+
+    /**
+     * Report progress. Cheap when nobody listens, so it may be called from inner loops.
+     * @param fraction Share of the work done, clamped to [0, 1]
+     * @param stage Short name of the current stage
+     */
+    public void reportProgress(double fraction, String stage) {
+        ProgressListener listener = progressListener;
+        if (listener != null) {
+            listener.onProgress(Math.max(0.0, Math.min(1.0, fraction)), stage);
+        }
+    }
+
+    /**
+     * Throw if the invocation was cancelled or ran past its deadline
+     * @throws CancellationException with the cancel reason as message
+     */
+    public void checkCancelled() throws CancellationException {
+        if (isCancelled()) {
+            throw new CancellationException(getCancelReason());
+        }
+    }
+}
@@ -25,4 +25,44 @@ public interface PluginInterface {
      * @return Map containing processed output data
      */
     Map<String, Object> process(Map<String, Object> input);
-}
\ No newline at end of file
+
+    /**
+     * Process data with a deadline and cancellation flag.
+     * Plugins with long-running work override this and check the context in their loops;
+     * the default ignores the context.
+     * @param input Map containing input data
+     * @param context Deadline and cancellation of this invocation
+     * @return Map containing processed output data
+     */
+    default Map<String, Object> process(Map<String, Object> input, InvocationContext context) {
+        return process(input);
+    }
+
+    /**
+     * Declare whether the plugin can be called concurrently.
+     * Plugins that are not thread-safe must have a public no-arg constructor so the server can
+     * create extra instances; static state is still shared between those instances.
+     * @return Concurrency mode, SHARED by default
+     */
+    default ConcurrencyMode getConcurrencyMode() {
+        return ConcurrencyMode.SHARED;
+    }
+
+    /**
+     * Warm state worth keeping across restarts, such as lazily built lookup tables.
+     * The server asks for it on graceful shutdown and hands it back to the same plugin build
+     * (same JAR content) after the next start.
+     * @return Serialized state, or null (the default) when there is nothing to keep
+     */
+    default byte[] saveSnapshot() {
+        return null;
+    }
+
+    /**
+     * Restore state written by {@link #saveSnapshot()}. Called once in the background after startup,
+     * possibly while requests are already served; data that cannot be read should be ignored.
+     * @param snapshot Bytes returned by saveSnapshot of the same plugin build
+     */
+    default void restoreSnapshot(byte[] snapshot) {
+    }
+}
@@ -0,0 +1,13 @@
+package kostovite;
+
+/**
+ * Receives progress of a long-running plugin invocation
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * @param fraction Share of the work done, between 0 and 1
+     * @param stage Short name of the current stage (e.g. "decode", "filter")
+     */
+    void onProgress(double fraction, String stage);
+}
@@ -7,12 +7,14 @@ import java.util.stream.Collectors;
 
 public class Chronometer implements PluginInterface {
 
-    private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss.SSS");
     private static final TimeZone UTC_ZONE = TimeZone.getTimeZone("UTC");
     private static final Map<String, ChronoSession> activeSessions = new ConcurrentHashMap<>();
 
-    static {
-        TIME_FORMAT.setTimeZone(UTC_ZONE);
+    // SimpleDateFormat is not thread-safe: one per instance, and the server gives each thread its own instance
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+
+    public Chronometer() {
+        timeFormat.setTimeZone(UTC_ZONE);
     }
 
     @Override
@@ -20,6 +22,11 @@ public class Chronometer implements PluginInterface {
         return "Chronometer";
     }
 
+    @Override
+    public ConcurrencyMode getConcurrencyMode() {
+        return ConcurrencyMode.PER_THREAD;
+    }
+
     @Override
     public void execute() {
         System.out.println("Chronometer Plugin executed (standalone test)");
@@ -403,9 +410,7 @@ public class Chronometer implements PluginInterface {
 
     private String formatTime(long timeInMillis) {
         if (timeInMillis < 0) return "00:00:00.000";
-        synchronized (TIME_FORMAT) {
-            return TIME_FORMAT.format(new Date(timeInMillis));
-        }
+        return timeFormat.format(new Date(timeInMillis));
     }
 
     // --- Inner Classes (ChronoSession, ChronoLap) ---
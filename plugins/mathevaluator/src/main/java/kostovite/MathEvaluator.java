@@ -13,6 +13,7 @@ import java.text.DecimalFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import javax.imageio.ImageIO;
 
 import org.mariuszgromada.math.mxparser.Expression;
@@ -56,6 +57,15 @@ public class MathEvaluator implements PluginInterface {
         return "MathEvaluator";
     }
 
+    /**
+     * decimalFormat is reconfigured per call (precision), so instances must not be shared between threads.
+     * Construction confirms the mXparser license and touches the file system, hence a pool rather than one per thread.
+     */
+    @Override
+    public ConcurrencyMode getConcurrencyMode() {
+        return ConcurrencyMode.POOLED;
+    }
+
     /**
      * Standalone execution for testing.
      */
@@ -278,6 +288,16 @@ public class MathEvaluator implements PluginInterface {
      */
     @Override
     public Map<String, Object> process(Map<String, Object> input) {
+        return process(input, InvocationContext.none());
+    }
+
+    /**
+     * Same as process(input), stopping between parsing, calculation and image rendering once the
+     * invocation is cancelled or past its deadline. mXparser's calculate() itself cannot be
+     * interrupted per call (its cancel switch is global), so a single evaluation still runs to the end.
+     */
+    @Override
+    public Map<String, Object> process(Map<String, Object> input, InvocationContext context) {
         // Read the operation using the ID defined in UI metadata
         String uiOperation = getStringParam(input, "uiOperation", "evaluate"); // Default to evaluate
         String errorOutputId = "errorMessage"; // Matches the error output field ID
@@ -289,7 +309,7 @@ public class MathEvaluator implements PluginInterface {
             Map<String, Object> result;
             // Route based on the selected UI operation
             switch (uiOperation.toLowerCase()) {
-                case "evaluate" -> result = evaluateExpression(processingInput);
+                case "evaluate" -> result = evaluateExpression(processingInput, context);
                 case "getfunctions" -> result = getSupportedFunctions();
                 default -> {
                     return Map.of("success", false, errorOutputId, "Unsupported operation: " + uiOperation);
@@ -312,6 +332,8 @@ public class MathEvaluator implements PluginInterface {
                 return result; // Return error as is
             }
 
+        } catch (CancellationException e) {
+            throw e; // Let the server report the cancellation, the result is not wanted any more
         } catch (IllegalArgumentException e) { // Catch validation errors
             return Map.of("success", false, errorOutputId, e.getMessage());
         } catch (Exception e) { // Catch unexpected errors
@@ -328,7 +350,7 @@ public class MathEvaluator implements PluginInterface {
     /**
      * Evaluate a mathematical expression using mXparser.
      */
-    private Map<String, Object> evaluateExpression(Map<String, Object> input) {
+    private Map<String, Object> evaluateExpression(Map<String, Object> input, InvocationContext context) {
         Map<String, Object> result = new HashMap<>();
         String errorOutputId = "errorMessage";
         String parserErrorId = "parserErrorMessage"; // Specific ID for parser errors
@@ -358,7 +380,9 @@ public class MathEvaluator implements PluginInterface {
             }
 
             // Calculate the result
+            context.checkCancelled();
             double calculatedResult = expr.calculate();
+            context.checkCancelled();
 
             // Check for calculation errors (NaN usually indicates issues like div by zero, log neg, etc.)
             if (Double.isNaN(calculatedResult)) {
@@ -397,6 +421,8 @@ public class MathEvaluator implements PluginInterface {
                 }
             }
 
+        } catch (CancellationException e) {
+            throw e;
         } catch (IllegalArgumentException e) { // Catch our own validation errors
             result.put("success", false);
             result.put(errorOutputId, e.getMessage());
@@ -488,17 +514,15 @@ public class MathEvaluator implements PluginInterface {
             g2d.dispose();
         }
 
-        // Convert to Base64
+        // Encode as PNG; the server serves it as an artifact URL (or inlines it as a data URI)
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         if (!ImageIO.write(image, "png", baos)) {
             throw new IOException("Failed to write generated image to byte stream.");
         }
-        String base64Image = Base64.getEncoder().encodeToString(baos.toByteArray());
-        String dataUri = "data:image/png;base64," + base64Image;
 
         String fileName = "math_result_" + LocalDateTime.now().format(formatter) + ".png";
 
-        imageResult.put("imageBase64", dataUri);
+        imageResult.put("imageBase64", new BinaryArtifact("image/png", baos.toByteArray()));
         imageResult.put("fileName", fileName);
 
         return imageResult;
@@ -5,11 +5,13 @@ import org.imgscalr.Scalr; // Import imgscalr
 import javax.imageio.ImageIO;
 import java.awt.*; // Import missing AWT classes
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 // Assuming PluginInterface is standard
 public class MediaTools implements PluginInterface {
@@ -49,6 +51,10 @@ public class MediaTools implements PluginInterface {
         metadata.put("icon", "Image");
         metadata.put("category", "Media");
         metadata.put("customUI", false);
+        metadata.put("supportsProgress", true); // Reports progress on the streaming endpoint
+        metadata.put("acceptsBinaryInput", true); // Upload endpoints may pass the image as a ByteBuffer
+        metadata.put("acceptsSpilledText", true); // Large Base64 bodies may arrive as a CharSequence
+        metadata.put("memoryCostPerInputByte", 24); // Decoded image is ~10x the compressed bytes, plus output copies
         metadata.put("triggerUpdateOnChange", false); // Requires manual submit
 
         // --- Sections ---
@@ -241,6 +247,15 @@ public class MediaTools implements PluginInterface {
      */
     @Override
     public Map<String, Object> process(Map<String, Object> input) {
+        return process(input, InvocationContext.none());
+    }
+
+    /**
+     * Same as process(input), stopping between stages and between pixel rows once the
+     * invocation is cancelled or past its deadline.
+     */
+    @Override
+    public Map<String, Object> process(Map<String, Object> input, InvocationContext context) {
         String errorOutputId = "errorMessage";
         String uiOperation = getStringParam(input, "uiOperation", "info"); // Default operation
 
@@ -248,11 +263,13 @@ public class MediaTools implements PluginInterface {
             // --- Get Image Data ---
             // ** CRITICAL: Assumes frontend sends base64 data with this key **
             // ** Modify if frontend sends data differently **
-            byte[] imageData = getImageDataFromBase64(input); // Expect base64 key
+            ByteBuffer imageData = getImageData(input); // Base64 string, or raw bytes from the upload endpoints
 
-            if (imageData == null || imageData.length == 0) {
+            if (imageData == null || !imageData.hasRemaining()) {
                 throw new IllegalArgumentException("No image data provided or failed to decode. Please upload an image.");
             }
+            context.checkCancelled();
+            context.reportProgress(0.1, uiOperation.toLowerCase());
 
             Map<String, Object> result;
             // Route based on the selected UI operation
@@ -271,7 +288,7 @@ public class MediaTools implements PluginInterface {
 
                 case "filter":
                     String filter = getStringParam(input, "filterType", "grayscale"); // Use new ID
-                    result = applyFilter(imageData, filter);
+                    result = applyFilter(imageData, filter, context);
                     break;
 
                 case "info":
@@ -282,14 +299,16 @@ public class MediaTools implements PluginInterface {
                     return Map.of("success", false, errorOutputId, "Unsupported operation: " + uiOperation);
             }
 
+            context.checkCancelled();
+            context.reportProgress(0.95, "finish");
             Map<String, Object> finalResult = new HashMap<>(result); // Start with specific results
             finalResult.put("success", !result.containsKey("error")); // Determine success
             finalResult.put("uiOperation", uiOperation); // Add operation context
 
             // Rename result keys to match output IDs
-            if (finalResult.containsKey("base64")) {
-                finalResult.put("processedImageBase64", "data:image/" + finalResult.getOrDefault("format","png") + ";base64," + finalResult.get("base64"));
-                finalResult.remove("base64"); // Remove original key
+            if (finalResult.containsKey("image")) {
+                // Served by the server as an artifact URL (or inlined as a data URI)
+                finalResult.put("processedImageBase64", finalResult.remove("image"));
                 // Suggest a filename for download
                 finalResult.put("outputFileName", "processed_image." + finalResult.getOrDefault("format","png"));
             }
@@ -328,6 +347,8 @@ public class MediaTools implements PluginInterface {
 
             return finalResult;
 
+        } catch (CancellationException e) {
+            throw e; // Let the server report the cancellation, the result is not wanted any more
         } catch (IllegalArgumentException e) {
             return Map.of("success", false, errorOutputId, e.getMessage());
         } catch (IOException e) {
@@ -341,23 +362,70 @@ public class MediaTools implements PluginInterface {
         }
     }
 
+    private static String imageContentType(String format) {
+        String type = format.toLowerCase();
+        return "image/" + ("jpg".equals(type) ? "jpeg" : type);
+    }
+
     /**
-     * Helper method to extract image data from Base64 string in input.
-     * Assumes frontend sends Base64 string with key "imageBase64".
+     * Helper method to extract image data from input key "imageUpload".
+     * The JSON endpoints send a Base64 string (a CharSequence when the body was large); the upload endpoints pass the raw bytes as a
+     * ByteBuffer (byte[] once it has crossed to a worker JVM), which is read in place; a pipeline step passes a BinaryArtifact.
      */
-    private byte[] getImageDataFromBase64(Map<String, Object> input) {
+    private ByteBuffer getImageData(Map<String, Object> input) {
         Object data = input.get("imageUpload");
-        if (data instanceof String base64Data) {
+        if (data instanceof ByteBuffer buffer) {
+            return buffer.duplicate();
+        } else if (data instanceof BinaryArtifact artifact) {
+            return artifact.getData(); // Output of a previous pipeline step
+        } else if (data instanceof byte[] bytes) {
+            return ByteBuffer.wrap(bytes);
+        } else if (data instanceof String base64Data) {
             try {
                 // Remove data URI header if present (e.g., "data:image/png;base64,")
                 if (base64Data.startsWith("data:image")) {
                     base64Data = base64Data.substring(base64Data.indexOf(',') + 1);
                 }
-                return Base64.getDecoder().decode(base64Data);
+                return ByteBuffer.wrap(Base64.getDecoder().decode(base64Data));
             } catch (IllegalArgumentException e) {
                 System.err.println("Invalid Base64 data received for key '" + "imageUploadBase64" + "'");
                 throw new IllegalArgumentException("Invalid image data format received (expecting Base64).");
             }
+        } else if (data instanceof CharSequence base64Text) {
+            // Large JSON bodies arrive as a file-backed CharSequence: decode it as a stream, never as one String
+            int start = 0;
+            if (base64Text.length() > 10 && "data:image".contentEquals(base64Text.subSequence(0, 10))) {
+                while (start < base64Text.length() && base64Text.charAt(start) != ',') {
+                    start++;
+                }
+                start++;
+            }
+            int offset = Math.min(start, base64Text.length());
+            InputStream chars = new InputStream() {
+                private int position = offset;
+
+                @Override
+                public int read() {
+                    return position < base64Text.length() ? base64Text.charAt(position++) & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] buffer, int off, int len) {
+                    int count = Math.min(len, base64Text.length() - position);
+                    if (count <= 0) {
+                        return len == 0 ? 0 : -1;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        buffer[off + i] = (byte) base64Text.charAt(position++);
+                    }
+                    return count;
+                }
+            };
+            try (InputStream decoded = Base64.getDecoder().wrap(chars)) {
+                return ByteBuffer.wrap(decoded.readAllBytes());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid image data format received (expecting Base64).");
+            }
         } else if (data != null) {
             System.err.println("Unexpected data type received for image key '" + "imageUploadBase64" + "': " + data.getClass().getName());
             throw new IllegalArgumentException("Incorrect image data type received.");
@@ -372,9 +440,9 @@ public class MediaTools implements PluginInterface {
     /**
      * Resize an image using imgscalr.
      */
-    public Map<String, Object> resizeImage(byte[] imageData, int width, int height, String format) throws IOException {
+    public Map<String, Object> resizeImage(ByteBuffer imageData, int width, int height, String format) throws IOException {
         Map<String, Object> result = new HashMap<>();
-        BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(imageData));
+        BufferedImage originalImage = ImageIO.read(new ByteBufferInputStream(imageData));
         if (originalImage == null) throw new IOException("Could not decode input image data.");
 
         // Use Scalr for quality resizing
@@ -387,7 +455,7 @@ public class MediaTools implements PluginInterface {
         }
         byte[] resizedData = baos.toByteArray();
 
-        result.put("base64", Base64.getEncoder().encodeToString(resizedData));
+        result.put("image", new BinaryArtifact(imageContentType(format), resizedData));
         result.put("format", format);
         result.put("width", resizedImage.getWidth()); // Actual width after resize
         result.put("height", resizedImage.getHeight()); // Actual height
@@ -398,9 +466,9 @@ public class MediaTools implements PluginInterface {
     /**
      * Convert image format.
      */
-    public Map<String, Object> convertImageFormat(byte[] imageData, String targetFormat) throws IOException {
+    public Map<String, Object> convertImageFormat(ByteBuffer imageData, String targetFormat) throws IOException {
         Map<String, Object> result = new HashMap<>();
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
+        BufferedImage image = ImageIO.read(new ByteBufferInputStream(imageData));
         if (image == null) throw new IOException("Could not decode input image data.");
 
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -426,7 +494,7 @@ public class MediaTools implements PluginInterface {
         }
         byte[] convertedData = baos.toByteArray();
 
-        result.put("base64", Base64.getEncoder().encodeToString(convertedData));
+        result.put("image", new BinaryArtifact(imageContentType(targetFormat), convertedData));
         result.put("format", targetFormat);
         result.put("width", image.getWidth());
         result.put("height", image.getHeight());
@@ -436,28 +504,38 @@ public class MediaTools implements PluginInterface {
     /**
      * Apply a filter to an image.
      */
-    public Map<String, Object> applyFilter(byte[] imageData, String filter) throws IOException {
+    public Map<String, Object> applyFilter(ByteBuffer imageData, String filter) throws IOException {
+        return applyFilter(imageData, filter, InvocationContext.none());
+    }
+
+    /**
+     * Apply a filter to an image, checking the context between pixel rows.
+     */
+    public Map<String, Object> applyFilter(ByteBuffer imageData, String filter, InvocationContext context) throws IOException {
         Map<String, Object> result = new HashMap<>();
-        BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(imageData));
+        BufferedImage originalImage = ImageIO.read(new ByteBufferInputStream(imageData));
         if (originalImage == null) throw new IOException("Could not decode input image data.");
 
         BufferedImage filteredImage;
         String outputFormat = "png"; // Filters often best saved as PNG
+        context.reportProgress(0.2, "filter");
 
         filteredImage = switch (filter.toLowerCase()) {
             case "grayscale" -> toGrayscale(originalImage);
-            case "invert" -> invertColors(originalImage);
-            case "sepia" -> toSepia(originalImage);
+            case "invert" -> invertColors(originalImage, context);
+            case "sepia" -> toSepia(originalImage, context);
             default -> throw new IllegalArgumentException("Unknown filter type: " + filter);
         };
 
+        context.checkCancelled();
+        context.reportProgress(0.8, "encode");
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         if (!ImageIO.write(filteredImage, outputFormat, baos)) {
             throw new IOException("No writer found for format: " + outputFormat);
         }
         byte[] filteredData = baos.toByteArray();
 
-        result.put("base64", Base64.getEncoder().encodeToString(filteredData));
+        result.put("image", new BinaryArtifact(imageContentType(outputFormat), filteredData));
         result.put("format", outputFormat); // Indicate the format saved in
         result.put("filter", filter);
         result.put("width", filteredImage.getWidth());
@@ -468,9 +546,9 @@ public class MediaTools implements PluginInterface {
     /**
      * Get information about an image.
      */
-    public Map<String, Object> getImageInfo(byte[] imageData) throws IOException {
+    public Map<String, Object> getImageInfo(ByteBuffer imageData) throws IOException {
         Map<String, Object> result = new HashMap<>();
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
+        BufferedImage image = ImageIO.read(new ByteBufferInputStream(imageData));
         if (image == null) throw new IOException("Could not decode input image data.");
 
         result.put("width", image.getWidth());
@@ -492,9 +570,11 @@ public class MediaTools implements PluginInterface {
         return gray;
     }
 
-    private BufferedImage invertColors(BufferedImage original) {
+    private BufferedImage invertColors(BufferedImage original, InvocationContext context) {
         BufferedImage inverted = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_INT_RGB);
         for (int y = 0; y < original.getHeight(); y++) {
+            context.checkCancelled();
+            context.reportProgress(0.2 + 0.6 * y / original.getHeight(), "filter");
             for (int x = 0; x < original.getWidth(); x++) {
                 int rgba = original.getRGB(x, y);
                 Color col = new Color(rgba, true);
@@ -505,9 +585,11 @@ public class MediaTools implements PluginInterface {
         return inverted;
     }
 
-    private BufferedImage toSepia(BufferedImage original) {
+    private BufferedImage toSepia(BufferedImage original, InvocationContext context) {
         BufferedImage sepia = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_INT_RGB);
         for (int y = 0; y < original.getHeight(); y++) {
+            context.checkCancelled();
+            context.reportProgress(0.2 + 0.6 * y / original.getHeight(), "filter");
             for (int x = 0; x < original.getWidth(); x++) {
                 int rgba = original.getRGB(x, y);
                 Color col = new Color(rgba, true);
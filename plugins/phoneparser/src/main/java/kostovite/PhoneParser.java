@@ -8,6 +8,11 @@ import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberType;
 import com.google.i18n.phonenumbers.Phonenumber.PhoneNumber;
 import com.google.i18n.phonenumbers.geocoding.PhoneNumberOfflineGeocoder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors; // For stream operations
 
@@ -396,19 +401,7 @@ public class PhoneParser implements PluginInterface {
         Map<String, Object> result = new HashMap<>();
         String errorOutputId = "errorMessage";
         try {
-            List<Map<String, Object>> regionList = COUNTRY_DISPLAY_NAMES_CACHE.entrySet().stream()
-                    .map(entry -> {
-                        String code = entry.getKey();
-                        String name = entry.getValue();
-                        int callingCode = phoneUtil.getCountryCodeForRegion(code);
-                        return Map.<String, Object>of(
-                                "code", code,
-                                "name", name,
-                                "callingCode", "+" + callingCode // Add '+' for display
-                        );
-                    })
-                    .sorted(Comparator.comparing(map -> (String) map.get("name"))) // Sort by name
-                    .collect(Collectors.toList());
+            List<Map<String, Object>> regionList = regionTable();
 
             result.put("success", true);
             result.put("regions_list", regionList); // Matches table output ID
@@ -422,6 +415,69 @@ public class PhoneParser implements PluginInterface {
         return result;
     }
 
+    // Region table sorted by name, built on first use (or restored from the server's snapshot); read-only once built
+    private static volatile List<Map<String, Object>> regionTable;
+
+    private List<Map<String, Object>> regionTable() {
+        List<Map<String, Object>> table = regionTable;
+        if (table == null) {
+            table = COUNTRY_DISPLAY_NAMES_CACHE.entrySet().stream()
+                    .map(entry -> regionRow(entry.getKey(), entry.getValue(), phoneUtil.getCountryCodeForRegion(entry.getKey())))
+                    .sorted(Comparator.comparing(map -> (String) map.get("name"))) // Sort by name
+                    .collect(Collectors.toUnmodifiableList());
+            regionTable = table;
+        }
+        return table;
+    }
+
+    private static Map<String, Object> regionRow(String code, String name, int callingCode) {
+        return Map.of(
+                "code", code,
+                "name", name,
+                "callingCode", "+" + callingCode // Add '+' for display
+        );
+    }
+
+    /**
+     * Region table as count, then code, name and calling code per row
+     */
+    @Override
+    public byte[] saveSnapshot() {
+        List<Map<String, Object>> table = regionTable;
+        if (table == null) {
+            return null; // Never built, nothing to keep
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(table.size());
+            for (Map<String, Object> row : table) {
+                out.writeUTF((String) row.get("code"));
+                out.writeUTF((String) row.get("name"));
+                out.writeInt(Integer.parseInt(((String) row.get("callingCode")).substring(1)));
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void restoreSnapshot(byte[] snapshot) {
+        if (regionTable != null) {
+            return; // Already built by a request
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            int count = in.readInt();
+            List<Map<String, Object>> table = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                table.add(regionRow(in.readUTF(), in.readUTF(), in.readInt()));
+            }
+            regionTable = Collections.unmodifiableList(table);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable region table snapshot: " + e.getMessage());
+        }
+    }
+
     private Map<String, Object> getExampleNumber(Map<String, Object> input) {
         Map<String, Object> result = new HashMap<>();
         String errorOutputId = "errorMessage";
@@ -106,6 +106,8 @@ public class QRCodeGenerator implements PluginInterface {
         // Assuming endpoint is derived by the framework, or add it if needed:
         // metadata.put("endpoint", "/api/debug/QRCodeGenerator/process");
         metadata.put("customUI", false);
+        metadata.put("coalesceRequests", true); // Same text and options always encode to the same image
+        metadata.put("cacheable", true); // ...so any replica may answer for another
 
         // --- Sections ---
         List<Map<String, Object>> sections = new ArrayList<>();
@@ -331,17 +333,17 @@ public class QRCodeGenerator implements PluginInterface {
 
             // --- Prepare Output ---
 
-            // Convert image to Base64 Data URI for inline display
+            // Encode the image as PNG
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             if (!ImageIO.write(qrImage, "png", baos)) {
                 throw new IOException("Failed to write QR code image to byte stream.");
             }
-            String base64Image = Base64.getEncoder().encodeToString(baos.toByteArray());
-            String dataUri = "data:image/png;base64," + base64Image;
+            // Served as a content-addressed artifact URL (or inlined as a data URI by the server)
+            BinaryArtifact qrArtifact = new BinaryArtifact("image/png", baos.toByteArray());
 
             // --- Build Result Map (matching NEW metadata output IDs) ---
             result.put("success", true);
-            result.put("qrImage", dataUri);             // Matches output ID "qrImage"
+            result.put("qrImage", qrArtifact);             // Matches output ID "qrImage"
             result.put("inputText", text);              // Matches output ID "inputText"
             result.put("generatedFileName", finalFileName); // Matches output ID "generatedFileName"
             // Include the filename also for the download button functionality if needed frontend side
@@ -341,13 +341,13 @@ public class WifiQRCodeGenerator implements PluginInterface {
             if (!ImageIO.write(qrImage, "png", baos)) {
                 throw new IOException("Failed to write QR code image to byte stream.");
             }
-            String base64Image = Base64.getEncoder().encodeToString(baos.toByteArray());
-            String dataUri = "data:image/png;base64," + base64Image;
+            // Served as a content-addressed artifact URL (or inlined as a data URI by the server)
+            BinaryArtifact qrArtifact = new BinaryArtifact("image/png", baos.toByteArray());
 
             // Build result map matching NEW output IDs
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
-            result.put("qrImage", dataUri);             // Matches output ID "qrImage"
+            result.put("qrImage", qrArtifact);             // Matches output ID "qrImage"
             result.put("networkInfo", ssid + (isHidden ? " (Hidden)" : "")); // Matches output ID
             result.put("securityInfo", SUPPORTED_ENCRYPTION_TYPES.getOrDefault(encryptionType, encryptionType)); // Matches output ID
             result.put("wifiString", wifiString);       // Matches output ID
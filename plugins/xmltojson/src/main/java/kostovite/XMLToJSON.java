@@ -1,7 +1,10 @@
 package kostovite;
 
-import java.io.StringReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import javax.xml.parsers.*;
 import org.w3c.dom.*;
 import org.xml.sax.InputSource;
@@ -68,6 +71,9 @@ public class XMLToJSON implements PluginInterface {
         metadata.put("description", "Convert XML to JSON");
         metadata.put("id", "XMLToJSON");
         metadata.put("category", "Converter");
+        metadata.put("supportsProgress", true); // Reports progress on the streaming endpoint
+        metadata.put("acceptsSpilledText", true); // Reads inputXML as a CharSequence
+        metadata.put("memoryCostPerInputByte", 12); // DOM tree plus the JSON result
 
         // --- Sections ---
         List<Map<String, Object>> sections = new ArrayList<>();
@@ -131,26 +137,37 @@ public class XMLToJSON implements PluginInterface {
 
     @Override
     public Map<String, Object> process(Map<String, Object> input) {
+        return process(input, InvocationContext.none());
+    }
+
+    /**
+     * Same as process(input), stopping while parsing and between elements once the
+     * invocation is cancelled or past its deadline.
+     */
+    @Override
+    public Map<String, Object> process(Map<String, Object> input, InvocationContext context) {
         try {
-            String xmlString = getStringParam(input, "inputXML", null);
+            // Large inputs may arrive as a file-backed CharSequence; trimming takes a view, not a copy
+            CharSequence xmlString = trim(getTextParam(input, "inputXML"));
 
             // Validation
-            if (xmlString == null || xmlString.trim().isEmpty()) {
+            if (xmlString == null || xmlString.length() == 0) {
                 return Map.of("success", false, ERROR_OUTPUT_ID, "XML input is required.");
             }
 
-            xmlString = xmlString.trim();
-
             // Check if input is valid XML
             Document document;
             try {
-                document = parseXML(xmlString);
+                document = parseXML(xmlString, context);
             } catch (Exception e) {
+                context.checkCancelled(); // A cancelled parse is not an XML error
                 return Map.of("success", false, ERROR_OUTPUT_ID, "Invalid XML format. Please check your input: " + e.getMessage());
             }
 
             // Convert XML to JSON
-            String jsonString = convertXmlToJson(document);
+            context.reportProgress(0.6, "convert");
+            String jsonString = convertXmlToJson(document, context);
+            context.reportProgress(0.95, "finish");
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -158,6 +175,8 @@ public class XMLToJSON implements PluginInterface {
 
             return result;
 
+        } catch (CancellationException e) {
+            throw e; // Let the server report the cancellation, the result is not wanted any more
         } catch (Exception e) {
             System.err.println("[2025-05-06 21:27:55] [hanhihofix] Error processing XML to JSON conversion: " + e.getMessage());
             e.printStackTrace();
@@ -166,29 +185,49 @@ public class XMLToJSON implements PluginInterface {
     }
 
     // Parse XML string to Document
-    private Document parseXML(String xmlString) throws Exception {
+    private Document parseXML(CharSequence xmlString, InvocationContext context) throws Exception {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
-        return builder.parse(new InputSource(new StringReader(xmlString)));
+        // The parser pulls the document in chunks; checking on every read stops a huge parse early
+        // and lets the read position double as parse progress
+        long totalChars = Math.max(1, xmlString.length());
+        Reader reader = new FilterReader(new CharSequenceReader(xmlString)) {
+            private long charsRead;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                context.checkCancelled();
+                int count = super.read(buffer, offset, length);
+                if (count > 0) {
+                    charsRead += count;
+                    context.reportProgress(0.6 * charsRead / totalChars, "parse");
+                }
+                return count;
+            }
+        };
+        return builder.parse(new InputSource(reader));
     }
 
     // Convert XML Document to JSON string
-    private String convertXmlToJson(Document document) {
+    private String convertXmlToJson(Document document, InvocationContext context) {
         try {
             // Start building JSON
             StringBuilder jsonBuilder = new StringBuilder();
             Element rootElement = document.getDocumentElement();
             jsonBuilder.append("{\n");
-            processElement(rootElement, jsonBuilder, 2);
+            processElement(rootElement, jsonBuilder, 2, context);
             jsonBuilder.append("\n}");
             return jsonBuilder.toString();
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Error converting XML to JSON: " + e.getMessage(), e);
         }
     }
 
     // Process an XML element and its children to build JSON
-    private void processElement(Element element, StringBuilder jsonBuilder, int indent) {
+    private void processElement(Element element, StringBuilder jsonBuilder, int indent, InvocationContext context) {
+        context.checkCancelled();
         String indentStr = " ".repeat(indent);
         String elementName = element.getNodeName();
 
@@ -257,7 +296,7 @@ public class XMLToJSON implements PluginInterface {
                         jsonBuilder.append(indentStr + "  \"")
                                 .append(childName)
                                 .append("\": {");
-                        processElement(childElement, new StringBuilder(), indent + 4);
+                        processElement(childElement, new StringBuilder(), indent + 4, context);
                         jsonBuilder.append(indentStr + "  }");
                     }
                 } else {
@@ -276,7 +315,7 @@ public class XMLToJSON implements PluginInterface {
                                     .append(escapeJsonString(content))
                                     .append("\"");
                         } else {
-                            processElement(childElement, new StringBuilder(), indent + 6);
+                            processElement(childElement, new StringBuilder(), indent + 6, context);
                         }
 
                         jsonBuilder.append(i < elements.size() - 1 ? "},\n" : "}\n");
@@ -479,14 +518,26 @@ public class XMLToJSON implements PluginInterface {
     }
 
     // Helper method to get string parameters
-    private String getStringParam(Map<String, Object> input, String key, String defaultValue) {
+    private CharSequence getTextParam(Map<String, Object> input, String key) {
         Object value = input.get(key);
         if (value == null) {
-            if (defaultValue == null) {
-                return null;
-            }
-            return defaultValue;
+            return null;
+        }
+        return value instanceof CharSequence text ? text : value.toString();
+    }
+
+    private static CharSequence trim(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
         }
-        return value.toString();
+        return text.subSequence(start, end);
     }
 }
\ No newline at end of file
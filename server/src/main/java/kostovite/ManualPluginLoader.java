@@ -6,88 +6,350 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.ServiceLoader;
 import java.util.Optional;
 
 @Component
 public class ManualPluginLoader {
     private static final Logger log = LoggerFactory.getLogger(ManualPluginLoader.class);
-    private final List<PluginInterface> loadedPlugins = new ArrayList<>();
+    private final List<PluginInterface> loadedPlugins = new CopyOnWriteArrayList<>();
     private final Map<String, PluginInterface> pluginsByName = new ConcurrentHashMap<>();
     private final Map<String, PluginInterface> pluginsById = new ConcurrentHashMap<>(); // New: map to access plugins by ID
+    private final Map<Path, PluginJar> jarsByPath = new ConcurrentHashMap<>(); // JAR path -> hash, class loader, plugins it provides
+    private final Map<String, Path> jarPathByPluginName = new ConcurrentHashMap<>();
+    private final Map<Path, PluginJar> candidatesByTarget = new ConcurrentHashMap<>(); // Target JAR path -> canary build loaded beside it
+    private final Map<String, PluginInterface> candidatesByName = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong(); // Bumped whenever the loaded plugin set changes
+    private final PluginClassLoaderTracker classLoaderTracker;
+
+    public ManualPluginLoader(PluginClassLoaderTracker classLoaderTracker) {
+        this.classLoaderTracker = classLoaderTracker;
+    }
 
-    public List<PluginInterface> loadPlugins(Path pluginsDir) {
-        loadedPlugins.clear();
-        pluginsByName.clear();
-        pluginsById.clear(); // Clear ID mapping as well
-
+    /**
+     * Synchronize loaded plugins with the JARs in a directory.
+     * JARs whose path and SHA-256 are already indexed keep their class loader; only new,
+     * changed or removed JARs are loaded or unloaded. A JAR whose size and modification time match
+     * the index is not hashed again, and the generation only moves when the loaded set changed.
+     * @param pluginsDir Directory containing plugin JARs
+     * @return All loaded plugins
+     */
+    public synchronized List<PluginInterface> loadPlugins(Path pluginsDir) {
         // Get all jar files in the plugins directory
         File dir = pluginsDir.toFile();
         File[] files = dir.listFiles(file -> file.isFile() && file.getName().toLowerCase().endsWith(".jar"));
+        Set<Path> presentJars = new HashSet<>();
 
         if (files == null || files.length == 0) {
             log.info("[{}] No plugins found in directory: {}", getCurrentTimestamp(), pluginsDir);
-            return loadedPlugins;
-        }
-
-        // Process each jar file
-        for (File file : files) {
-            try {
-                log.info("[{}] Loading plugin from: {}", getCurrentTimestamp(), file.getAbsolutePath());
-
-                // Create a new class loader for this jar
-                URL[] urls = new URL[] { file.toURI().toURL() };
-                URLClassLoader classLoader = new URLClassLoader(urls, Thread.currentThread().getContextClassLoader());
-
-                // Use Java ServiceLoader to find all PluginInterface implementations
-                ServiceLoader<PluginInterface> serviceLoader = ServiceLoader.load(PluginInterface.class, classLoader);
-
-                // Add all found plugins to our list
-                for (PluginInterface plugin : serviceLoader) {
-                    log.info("[{}] Found plugin: {}", getCurrentTimestamp(), plugin.getName());
-                    loadedPlugins.add(plugin);
-                    pluginsByName.put(plugin.getName(), plugin);
-
-                    // Store by ID as well (if it's an ExtendedPluginInterface with metadata)
-                    if (plugin instanceof ExtendedPluginInterface) {
-                        try {
-                            Map<String, Object> metadata = plugin.getMetadata();
-                            if (metadata != null && metadata.containsKey("id")) {
-                                String pluginId = String.valueOf(metadata.get("id"));
-                                if (pluginId != null && !pluginId.isEmpty() && !pluginId.equals("null")) {
-                                    log.info("[{}] Registering plugin by ID: {}", getCurrentTimestamp(), pluginId);
-                                    pluginsById.put(pluginId, plugin);
-                                }
-                            }
-                        } catch (Exception e) {
-                            log.warn("[{}] Error getting metadata for plugin {}: {}", getCurrentTimestamp(), plugin.getName(), e.getMessage());
-                        }
+        } else {
+            for (File file : files) {
+                Path jarPath = file.toPath().toAbsolutePath().normalize();
+                presentJars.add(jarPath);
+                PluginJar indexed = jarsByPath.get(jarPath);
+                if (indexed != null && indexed.matches(file.length(), file.lastModified())) {
+                    continue;
+                }
+                try {
+                    if (loadJar(jarPath, sha256(jarPath)).status() != JarLoadStatus.UNCHANGED) {
+                        generation.incrementAndGet();
                     }
+                } catch (Exception e) {
+                    log.error("[{}] Error loading plugin from file: {}", getCurrentTimestamp(), file.getName(), e);
                 }
+            }
+        }
 
-            } catch (Exception e) {
-                log.error("[{}] Error loading plugin from file: {}", getCurrentTimestamp(), file.getName(), e);
+        // Drop JARs that disappeared from the directory
+        for (Path indexedJar : new ArrayList<>(jarsByPath.keySet())) {
+            if (indexedJar.startsWith(pluginsDir.toAbsolutePath().normalize()) && !presentJars.contains(indexedJar)) {
+                log.info("[{}] JAR no longer present, unloading: {}", getCurrentTimestamp(), indexedJar);
+                unloadJar(indexedJar); // Moves the generation
             }
         }
 
-        return loadedPlugins;
+        return getLoadedPlugins();
+    }
+
+    /**
+     * Load (or upgrade) the plugins of a single JAR without touching any other class loader.
+     * @param jarPath Path of the JAR file
+     * @return Outcome of the load and the names of the plugins the JAR provides
+     */
+    public synchronized JarLoadResult loadPluginJar(Path jarPath) throws IOException {
+        Path normalized = jarPath.toAbsolutePath().normalize();
+        JarLoadResult result = loadJar(normalized, sha256(normalized));
+        if (result.status() != JarLoadStatus.UNCHANGED) {
+            generation.incrementAndGet();
+        }
+        return result;
+    }
+
+    private JarLoadResult loadJar(Path jarPath, String sha256) throws IOException {
+        PluginJar existing = jarsByPath.get(jarPath);
+        if (existing != null && !existing.partial() && existing.sha256().equals(sha256)) {
+            log.debug("[{}] JAR unchanged (sha256 {}), keeping class loader: {}", getCurrentTimestamp(), sha256, jarPath);
+            // Only touched: remember the new size and time so the next scan skips hashing
+            jarsByPath.put(jarPath, existing.withStamp(jarPath));
+            return new JarLoadResult(JarLoadStatus.UNCHANGED, sha256, existing.pluginNames());
+        }
+        if (existing != null) {
+            log.info("[{}] JAR content changed, replacing plugins from: {}", getCurrentTimestamp(), jarPath);
+            unloadJar(jarPath);
+        }
+
+        log.info("[{}] Loading plugin from: {}", getCurrentTimestamp(), jarPath);
+
+        // Create a new class loader for this jar
+        URL[] urls = new URL[] { jarPath.toUri().toURL() };
+        URLClassLoader classLoader = new URLClassLoader(urls, Thread.currentThread().getContextClassLoader());
+
+        // Use Java ServiceLoader to find all PluginInterface implementations
+        ServiceLoader<PluginInterface> serviceLoader = ServiceLoader.load(PluginInterface.class, classLoader);
+
+        List<PluginInterface> jarPlugins = new ArrayList<>();
+        List<String> pluginIds = new ArrayList<>();
+        for (PluginInterface plugin : serviceLoader) {
+            log.info("[{}] Found plugin: {}", getCurrentTimestamp(), plugin.getName());
+            jarPlugins.add(plugin);
+            registerPlugin(plugin, jarPath, pluginIds);
+        }
+
+        List<String> pluginNames = jarPlugins.stream().map(PluginInterface::getName).toList();
+        jarsByPath.put(jarPath, new PluginJar(jarPath, sha256, classLoader, List.copyOf(jarPlugins), List.copyOf(pluginIds))
+                .withStamp(jarPath));
+        return new JarLoadResult(existing != null ? JarLoadStatus.UPGRADED : JarLoadStatus.LOADED, sha256, pluginNames);
+    }
+
+    private void registerPlugin(PluginInterface plugin, Path jarPath, List<String> pluginIds) {
+        loadedPlugins.add(plugin);
+        pluginsByName.put(plugin.getName(), plugin);
+        jarPathByPluginName.put(plugin.getName(), jarPath);
+
+        // Store by ID as well, taken from the plugin's metadata
+        try {
+            Map<String, Object> metadata = plugin.getMetadata();
+            if (metadata != null && metadata.containsKey("id")) {
+                String pluginId = String.valueOf(metadata.get("id"));
+                if (!pluginId.isEmpty() && !pluginId.equals("null")) {
+                    log.info("[{}] Registering plugin by ID: {}", getCurrentTimestamp(), pluginId);
+                    pluginsById.put(pluginId, plugin);
+                    pluginIds.add(pluginId);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[{}] Error getting metadata for plugin {}: {}", getCurrentTimestamp(), plugin.getName(), e.getMessage());
+        }
+        pluginIds.add(plugin.getName());
+    }
+
+    /**
+     * Unload every plugin of one JAR and close its class loader.
+     * @param jarPath Indexed path of the JAR
+     * @return true if the JAR was indexed
+     */
+    private boolean unloadJar(Path jarPath) {
+        PluginJar jar = jarsByPath.remove(jarPath);
+        if (jar == null) {
+            return false;
+        }
+        for (PluginInterface plugin : jar.plugins()) {
+            loadedPlugins.remove(plugin);
+            pluginsByName.remove(plugin.getName(), plugin);
+            jarPathByPluginName.remove(plugin.getName(), jarPath);
+        }
+        pluginsById.values().removeIf(jar.plugins()::contains);
+        closeClassLoader(jar);
+        generation.incrementAndGet();
+        return true;
+    }
+
+    private void closeClassLoader(PluginJar jar) {
+        try {
+            jar.classLoader().close();
+            log.info("[{}] Closed ClassLoader for JAR: {}", getCurrentTimestamp(), jar.path().getFileName());
+        } catch (IOException e) {
+            log.warn("[{}] Could not close ClassLoader for JAR: {}", getCurrentTimestamp(), jar.path().getFileName(), e);
+        }
+        // No System.gc(): the tracker notices the collection whenever it happens and reports loaders that stay alive
+        List<Class<?>> pluginClasses = jar.plugins().stream().<Class<?>>map(Object::getClass).toList();
+        classLoaderTracker.track(jar.path().getFileName().toString(), jar.sha256(), jar.classLoader(), pluginClasses);
+    }
+
+    /**
+     * Load a new build of an indexed JAR beside the current one, without registering its plugins.
+     * The candidate keeps its own class loader until it is promoted or discarded; it is only
+     * reachable through {@link #getCandidatePlugin(String)}. A previous candidate for the same target is discarded.
+     * @param candidateFile Where the new build is stored until promotion (not named *.jar, so directory scans skip it)
+     * @param targetPath Indexed JAR the candidate would replace
+     * @return Content hash and plugin names of the candidate
+     */
+    public synchronized JarLoadResult loadCandidateJar(Path candidateFile, Path targetPath) throws IOException {
+        Path target = targetPath.toAbsolutePath().normalize();
+        discardCandidate(target);
+        String sha256 = sha256(candidateFile);
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { candidateFile.toUri().toURL() },
+                Thread.currentThread().getContextClassLoader());
+        List<PluginInterface> jarPlugins = new ArrayList<>();
+        for (PluginInterface plugin : ServiceLoader.load(PluginInterface.class, classLoader)) {
+            log.info("[{}] Found candidate plugin: {}", getCurrentTimestamp(), plugin.getName());
+            jarPlugins.add(plugin);
+        }
+        PluginJar candidate = new PluginJar(candidateFile, sha256, classLoader, List.copyOf(jarPlugins), List.of());
+        candidatesByTarget.put(target, candidate);
+        jarPlugins.forEach(plugin -> candidatesByName.put(plugin.getName(), plugin));
+        return new JarLoadResult(JarLoadStatus.LOADED, sha256, candidate.pluginNames());
+    }
+
+    /**
+     * Replace the target JAR with its candidate: the candidate file is moved over the target and
+     * its already loaded plugins are registered in place of the old ones
+     * @param targetPath Indexed JAR the candidate replaces
+     * @return Outcome of the replacement, or null if the target has no candidate
+     */
+    public synchronized JarLoadResult promoteCandidate(Path targetPath) throws IOException {
+        Path target = targetPath.toAbsolutePath().normalize();
+        PluginJar candidate = candidatesByTarget.remove(target);
+        if (candidate == null) {
+            return null;
+        }
+        candidate.plugins().forEach(plugin -> candidatesByName.remove(plugin.getName(), plugin));
+        Files.move(candidate.path(), target, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        boolean upgraded = unloadJar(target);
+        List<String> pluginIds = new ArrayList<>();
+        for (PluginInterface plugin : candidate.plugins()) {
+            registerPlugin(plugin, target, pluginIds);
+        }
+        jarsByPath.put(target, new PluginJar(target, candidate.sha256(), candidate.classLoader(), candidate.plugins(), List.copyOf(pluginIds))
+                .withStamp(target));
+        generation.incrementAndGet();
+        log.info("[{}] Promoted candidate (sha256 {}) to: {}", getCurrentTimestamp(), candidate.sha256(), target);
+        return new JarLoadResult(upgraded ? JarLoadStatus.UPGRADED : JarLoadStatus.LOADED, candidate.sha256(), candidate.pluginNames());
+    }
+
+    /**
+     * Drop the candidate of a target JAR: close its class loader and delete its file
+     * @param targetPath Indexed JAR the candidate would have replaced
+     * @return true if there was a candidate
+     */
+    public synchronized boolean discardCandidate(Path targetPath) {
+        PluginJar candidate = candidatesByTarget.remove(targetPath.toAbsolutePath().normalize());
+        if (candidate == null) {
+            return false;
+        }
+        candidate.plugins().forEach(plugin -> candidatesByName.remove(plugin.getName(), plugin));
+        closeClassLoader(candidate);
+        try {
+            Files.deleteIfExists(candidate.path());
+        } catch (IOException e) {
+            log.warn("[{}] Could not delete candidate JAR: {}", getCurrentTimestamp(), candidate.path(), e);
+        }
+        // Moves the generation so per-instance state kept for the candidate's plugins is dropped
+        generation.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Get the candidate build of a loaded plugin, if one is being rolled out
+     * @param pluginName Name of the loaded plugin
+     * @return The candidate's instance, or null
+     */
+    public PluginInterface getCandidatePlugin(String pluginName) {
+        return candidatesByName.get(pluginName);
+    }
+
+    /**
+     * Check whether a JAR path is in the index
+     * @param jarPath Path of the JAR file
+     */
+    public boolean isJarIndexed(Path jarPath) {
+        return jarsByPath.containsKey(jarPath.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Check whether a JAR with the given content is already loaded
+     * @param sha256 Hex SHA-256 of the JAR content
+     * @return Path of the loaded JAR with that content, if any
+     */
+    public Optional<Path> findJarBySha256(String sha256) {
+        return jarsByPath.values().stream()
+                .filter(jar -> !jar.partial() && jar.sha256().equals(sha256))
+                .map(PluginJar::path)
+                .findFirst();
     }
 
     /**
-     * Deletes a plugin by name or ID
+     * @param pluginName Name of a loaded plugin
+     * @return Hex SHA-256 of the JAR that provides it, if it was loaded from a JAR
+     */
+    public Optional<String> getJarSha256(String pluginName) {
+        Path jarPath = jarPathByPluginName.get(pluginName);
+        PluginJar jar = jarPath != null ? jarsByPath.get(jarPath) : null;
+        return jar != null ? Optional.of(jar.sha256()) : Optional.empty();
+    }
+
+    /**
+     * Describe the JAR index: path, SHA-256 and the plugin IDs each JAR provides
+     * @return One entry per loaded JAR
+     */
+    public List<Map<String, Object>> getJarIndex() {
+        List<Map<String, Object>> index = new ArrayList<>();
+        for (PluginJar jar : jarsByPath.values()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("path", jar.path().toString());
+            entry.put("sha256", jar.sha256());
+            entry.put("pluginIds", jar.pluginIds());
+            entry.put("pluginNames", jar.pluginNames());
+            index.add(entry);
+        }
+        return index;
+    }
+
+    /**
+     * Compute the hex SHA-256 of a file
+     * @param file File to hash
+     * @return Lowercase hex digest
+     */
+    public static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Deletes a plugin by name or ID, together with every other plugin packaged in the same JAR
      * @param pluginNameOrId The name or ID of the plugin to delete
      * @return true if the plugin was deleted, false otherwise
      */
-    public boolean deletePlugin(String pluginNameOrId) {
+    public synchronized boolean deletePlugin(String pluginNameOrId) {
         log.info("[{}] Attempting to delete plugin with identifier: {}", getCurrentTimestamp(), pluginNameOrId);
 
         // First try to find the plugin by ID, then by name
@@ -104,63 +366,41 @@ public class ManualPluginLoader {
 
         // Get the actual plugin name for unloading and logging
         String pluginName = plugin.getName();
-        log.info("[{}] Found plugin: {} by identifier: {}", getCurrentTimestamp(), pluginName, pluginNameOrId);
-
-        // First unload the plugin
-        boolean unloaded = unloadPlugin(pluginName);
-        if (!unloaded) {
-            log.warn("[{}] Could not unload plugin: {}", getCurrentTimestamp(), pluginName);
-            // Continue anyway, we'll try to delete the file
+        Path jarPath = jarPathByPluginName.get(pluginName);
+        if (jarPath == null) {
+            log.warn("[{}] Could not find JAR file for plugin: {}", getCurrentTimestamp(), pluginName);
+            return false;
         }
+        log.info("[{}] Found plugin: {} by identifier: {} in JAR {}", getCurrentTimestamp(), pluginName, pluginNameOrId, jarPath.getFileName());
 
-        try {
-            // Get plugins directory
-            Path pluginsDirectory = Paths.get(System.getProperty("user.dir"), "plugins-deploy");
-            File[] jarFiles = pluginsDirectory.toFile().listFiles((dir, name) -> name.toLowerCase().endsWith(".jar"));
+        // Unload every plugin of that JAR and close its class loader before deleting the file
+        unloadJar(jarPath);
 
-            if (jarFiles == null) {
-                log.error("[{}] No JAR files found in plugins directory", getCurrentTimestamp());
-                return false;
-            }
+        File file = jarPath.toFile();
+        if (file.delete()) {
+            log.info("[{}] Successfully deleted plugin file: {}", getCurrentTimestamp(), file.getName());
+        } else {
+            log.warn("[{}] Could not delete plugin file: {}", getCurrentTimestamp(), file.getName());
 
-            // Try to find and delete the JAR file
-            for (File file : jarFiles) {
-                try {
-                    // Check if this JAR file corresponds to our plugin
-                    // This is a simple approach - we're just checking if the file name contains the plugin name
-                    // A more robust approach would be to load the JAR and verify the plugin name
-                    if (file.getName().toLowerCase().contains(pluginName.toLowerCase())) {
-                        log.info("[{}] Found matching JAR file for plugin {}: {}", getCurrentTimestamp(), pluginName, file.getName());
-
-                        // Try to delete the file
-                        if (file.delete()) {
-                            log.info("[{}] Successfully deleted plugin file: {}", getCurrentTimestamp(), file.getName());
-                        } else {
-                            log.warn("[{}] Could not delete plugin file: {}", getCurrentTimestamp(), file.getName());
-
-                            // Try force delete on JVM exit
-                            file.deleteOnExit();
-                            log.info("[{}] Scheduled plugin file for deletion on JVM exit: {}", getCurrentTimestamp(), file.getName());
-                        }
-                        return true;
-                    }
-                } catch (Exception e) {
-                    log.error("[{}] Error checking plugin file {}: {}", getCurrentTimestamp(), file.getName(), e.getMessage());
-                }
-            }
-
-            log.warn("[{}] Could not find JAR file for plugin: {}", getCurrentTimestamp(), pluginName);
-            return false;
-        } catch (Exception e) {
-            log.error("[{}] Error deleting plugin {}: {}", getCurrentTimestamp(), pluginName, e.getMessage(), e);
-            return false;
+            // Try force delete on JVM exit
+            file.deleteOnExit();
+            log.info("[{}] Scheduled plugin file for deletion on JVM exit: {}", getCurrentTimestamp(), file.getName());
         }
+        return true;
     }
 
     public List<PluginInterface> getLoadedPlugins() {
         return new ArrayList<>(loadedPlugins);
     }
 
+    /**
+     * Get a counter that changes every time plugins are loaded or unloaded
+     * @return Current generation of the loaded plugin set
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
     /**
      * Find a plugin by name or ID
      * @param nameOrId Name or ID of the plugin to find
@@ -252,7 +492,7 @@ public class ManualPluginLoader {
      * @param pluginName Name of the plugin to unload
      * @return true if the plugin was successfully unloaded, false otherwise
      */
-    public boolean unloadPlugin(String pluginName) {
+    public synchronized boolean unloadPlugin(String pluginName) {
         PluginInterface plugin = pluginsByName.get(pluginName);
         if (plugin == null) {
             log.warn("[{}] Cannot unload plugin '{}': Plugin not found", getCurrentTimestamp(), pluginName);
@@ -274,23 +514,20 @@ public class ManualPluginLoader {
             // Remove from collections
             loadedPlugins.remove(plugin);
             pluginsByName.remove(pluginName);
-
-            // Get the ClassLoader that loaded this plugin
-            ClassLoader pluginClassLoader = plugin.getClass().getClassLoader();
-
-            // If it's a URLClassLoader, try to close it
-            if (pluginClassLoader instanceof URLClassLoader) {
-                try {
-                    ((URLClassLoader) pluginClassLoader).close();
-                    log.info("[{}] Closed ClassLoader for plugin: {}", getCurrentTimestamp(), pluginName);
-                } catch (IOException e) {
-                    log.warn("[{}] Could not close ClassLoader for plugin: {}", getCurrentTimestamp(), pluginName, e);
-                }
+            generation.incrementAndGet();
+
+            // Close the JAR's class loader once none of its plugins is loaded any more.
+            // Otherwise its siblings keep running, but the JAR no longer counts as unchanged:
+            // the next loadPlugins() replaces it as a whole and brings the unloaded plugin back.
+            Path jarPath = jarPathByPluginName.remove(pluginName);
+            PluginJar jar = jarPath != null ? jarsByPath.get(jarPath) : null;
+            if (jar != null && jar.plugins().stream().noneMatch(loadedPlugins::contains)) {
+                jarsByPath.remove(jarPath);
+                closeClassLoader(jar);
+            } else if (jar != null) {
+                jarsByPath.put(jarPath, jar.asPartial());
             }
 
-            // Suggest garbage collection (though no guarantee it will run)
-            System.gc();
-
             log.info("[{}] Successfully unloaded plugin: {}", getCurrentTimestamp(), pluginName);
             return true;
         } catch (Exception e) {
@@ -303,12 +540,19 @@ public class ManualPluginLoader {
      * Unload all plugins
      * @return Number of plugins unloaded
      */
-    public int unloadAllPlugins() {
+    public synchronized int unloadAllPlugins() {
         int count = loadedPlugins.size();
         try {
+            new ArrayList<>(candidatesByTarget.keySet()).forEach(this::discardCandidate);
+            for (PluginJar jar : jarsByPath.values()) {
+                closeClassLoader(jar);
+            }
             loadedPlugins.clear();
             pluginsByName.clear();
             pluginsById.clear(); // Clear ID mapping as well
+            jarsByPath.clear();
+            jarPathByPluginName.clear();
+            generation.incrementAndGet();
             log.info("[{}] Successfully unloaded {} plugins", getCurrentTimestamp(), count);
             return count;
         } catch (Exception e) {
@@ -324,4 +568,42 @@ public class ManualPluginLoader {
     private String getCurrentTimestamp() {
         return "2025-05-06 19:06:12"; // You might want to replace this with actual timestamp generation
     }
+
+    /**
+     * Outcome of loading a single JAR
+     */
+    public enum JarLoadStatus { LOADED, UPGRADED, UNCHANGED }
+
+    public record JarLoadResult(JarLoadStatus status, String sha256, List<String> pluginNames) {}
+
+    /**
+     * One indexed JAR: its content hash, class loader and the plugins it provides.
+     * Size and modification time are what the hash was computed for; partial marks a JAR
+     * some of whose plugins were unloaded one by one.
+     */
+    private record PluginJar(Path path, String sha256, URLClassLoader classLoader,
+                             List<PluginInterface> plugins, List<String> pluginIds,
+                             long size, long lastModified, boolean partial) {
+        PluginJar(Path path, String sha256, URLClassLoader classLoader,
+                  List<PluginInterface> plugins, List<String> pluginIds) {
+            this(path, sha256, classLoader, plugins, pluginIds, -1, -1, false);
+        }
+
+        List<String> pluginNames() {
+            return plugins.stream().map(PluginInterface::getName).toList();
+        }
+
+        boolean matches(long fileSize, long fileLastModified) {
+            return !partial && size == fileSize && lastModified == fileLastModified;
+        }
+
+        PluginJar withStamp(Path file) {
+            File jarFile = file.toFile();
+            return new PluginJar(path, sha256, classLoader, plugins, pluginIds, jarFile.length(), jarFile.lastModified(), partial);
+        }
+
+        PluginJar asPartial() {
+            return new PluginJar(path, sha256, classLoader, plugins, pluginIds, size, lastModified, true);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package kostovite;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows closed plugin class loaders through weak references.
+ * A loader that is still reachable long after its JAR was unloaded is reported as leaked, together
+ * with what probably keeps it alive. Nothing here triggers a GC: loaders are seen as collected
+ * whenever the collector gets to them on its own.
+ */
+@Component
+public class PluginClassLoaderTracker {
+    private static final Logger log = LoggerFactory.getLogger(PluginClassLoaderTracker.class);
+    private static final int MAX_ROOTS_PER_LOADER = 20;
+
+    private final long leakThresholdMillis;
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    private final Set<TrackedLoader> tracked = ConcurrentHashMap.newKeySet();
+    private final AtomicLong collectedCount = new AtomicLong();
+    private final AtomicLong totalCollectionDelayMillis = new AtomicLong();
+
+    public PluginClassLoaderTracker(@Value("${plugins.classloader.leak-threshold-ms:300000}") long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    /**
+     * Start following a loader that has just been closed.
+     * Static fields of the plugin classes are inspected now, while they are still reachable;
+     * only their descriptions are kept so the tracker itself holds no strong reference.
+     * @param jarName File name of the JAR the loader served
+     * @param sha256 Content hash of that JAR
+     * @param classLoader The closed loader
+     * @param pluginClasses Classes of the plugins the JAR provided
+     */
+    public void track(String jarName, String sha256, ClassLoader classLoader, Collection<Class<?>> pluginClasses) {
+        drainQueue();
+        List<String> staticRoots = describeStaticRoots(classLoader, pluginClasses);
+        tracked.add(new TrackedLoader(classLoader, queue, jarName, sha256, System.currentTimeMillis(), staticRoots));
+        if (!staticRoots.isEmpty()) {
+            log.info("Unloaded JAR {} has static state that may keep its class loader alive: {}", jarName, staticRoots);
+        }
+    }
+
+    /**
+     * Loaders unloaded but not yet collected, split into pending (younger than the leak threshold)
+     * and leaked (older). Leaked entries list their suspected GC roots.
+     */
+    public Map<String, Object> getReport() {
+        drainQueue();
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> pending = new ArrayList<>();
+        List<Map<String, Object>> leaked = new ArrayList<>();
+
+        for (TrackedLoader entry : tracked) {
+            ClassLoader loader = entry.get();
+            if (loader == null) {
+                continue; // Collected, not enqueued yet
+            }
+            long ageMillis = now - entry.unloadedAtMillis;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("jar", entry.jarName);
+            item.put("sha256", entry.sha256);
+            item.put("loader", loader.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(loader)));
+            item.put("ageMs", ageMillis);
+            if (ageMillis >= leakThresholdMillis) {
+                List<String> roots = new ArrayList<>(entry.staticRoots);
+                roots.addAll(describeThreadRoots(loader));
+                item.put("suspectedRoots", roots);
+                leaked.add(item);
+            } else {
+                pending.add(item);
+            }
+        }
+        Comparator<Map<String, Object>> oldestFirst = Comparator.comparingLong(item -> -(Long) item.get("ageMs"));
+        pending.sort(oldestFirst);
+        leaked.sort(oldestFirst);
+
+        long collected = collectedCount.get();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("leakThresholdMs", leakThresholdMillis);
+        report.put("collected", collected);
+        report.put("meanCollectionDelayMs", collected > 0 ? totalCollectionDelayMillis.get() / collected : 0);
+        report.put("pendingCount", pending.size());
+        report.put("leakedCount", leaked.size());
+        report.put("pending", pending);
+        report.put("leaked", leaked);
+        return report;
+    }
+
+    private void drainQueue() {
+        Reference<? extends ClassLoader> reference;
+        long now = System.currentTimeMillis();
+        while ((reference = queue.poll()) != null) {
+            if (reference instanceof TrackedLoader entry && tracked.remove(entry)) {
+                collectedCount.incrementAndGet();
+                totalCollectionDelayMillis.addAndGet(now - entry.unloadedAtMillis);
+                log.debug("Class loader of JAR {} collected {} ms after unload", entry.jarName, now - entry.unloadedAtMillis);
+            }
+        }
+    }
+
+    /**
+     * Non-null static reference fields of the plugin classes and their nested classes,
+     * e.g. "kostovite.Chronometer.activeSessions (ConcurrentHashMap, 3 entries)".
+     */
+    private static List<String> describeStaticRoots(ClassLoader loader, Collection<Class<?>> pluginClasses) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (Class<?> pluginClass : pluginClasses) {
+            classes.add(pluginClass);
+            try {
+                for (Class<?> nested : pluginClass.getDeclaredClasses()) {
+                    classes.add(nested);
+                }
+            } catch (Throwable ignored) {
+                // The closed loader may fail to resolve nested classes it had not loaded yet
+            }
+        }
+
+        List<String> roots = new ArrayList<>();
+        for (Class<?> type : classes) {
+            if (type.getClassLoader() != loader) {
+                continue;
+            }
+            Field[] fields;
+            try {
+                fields = type.getDeclaredFields();
+            } catch (Throwable e) {
+                continue;
+            }
+            for (Field field : fields) {
+                if (!Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()
+                        || field.getType() == String.class || field.isSynthetic()) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    Object value = field.get(null);
+                    if (value != null) {
+                        roots.add(type.getName() + "." + field.getName() + " (" + describeValue(value) + ")");
+                    }
+                } catch (Throwable ignored) {
+                    // Inaccessible field, skip it
+                }
+                if (roots.size() >= MAX_ROOTS_PER_LOADER) {
+                    return roots;
+                }
+            }
+        }
+        return roots;
+    }
+
+    private static String describeValue(Object value) {
+        String type = value.getClass().getSimpleName();
+        if (value instanceof Map<?, ?> map) {
+            return type + ", " + map.size() + " entries";
+        }
+        if (value instanceof Collection<?> collection) {
+            return type + ", " + collection.size() + " elements";
+        }
+        return type;
+    }
+
+    /**
+     * Live threads that still point at the loader: as context class loader, or because the
+     * thread class itself came from the plugin JAR.
+     */
+    private static List<String> describeThreadRoots(ClassLoader loader) {
+        List<String> roots = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getContextClassLoader() == loader) {
+                roots.add("thread '" + thread.getName() + "' (context class loader)");
+            } else if (thread.getClass().getClassLoader() == loader) {
+                roots.add("thread '" + thread.getName() + "' (" + thread.getClass().getName() + ")");
+            }
+        }
+        return roots;
+    }
+
+    private static final class TrackedLoader extends WeakReference<ClassLoader> {
+        final String jarName;
+        final String sha256;
+        final long unloadedAtMillis;
+        final List<String> staticRoots;
+
+        TrackedLoader(ClassLoader loader, ReferenceQueue<ClassLoader> queue, String jarName, String sha256,
+                      long unloadedAtMillis, List<String> staticRoots) {
+            super(loader, queue);
+            this.jarName = jarName;
+            this.sha256 = sha256;
+            this.unloadedAtMillis = unloadedAtMillis;
+            this.staticRoots = List.copyOf(staticRoots);
+        }
+    }
+}
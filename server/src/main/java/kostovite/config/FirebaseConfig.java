@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
@@ -56,7 +57,9 @@ public class FirebaseConfig {
     }
 
     // --- ADD Firestore Bean ---
+    // Lazy: only the 'firestore' status store backend asks for it
     @Bean
+    @Lazy
     public Firestore firestore(FirebaseApp firebaseApp) {
         // Get the Firestore instance associated with the initialized FirebaseApp
         // This ensures it uses the same project and credentials
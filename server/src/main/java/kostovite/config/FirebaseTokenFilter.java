@@ -1,12 +1,6 @@
 // src/main/java/kostovite/config/FirebaseTokenFilter.java
 package kostovite.config;
 
-// Keep Firestore imports
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
-// Remove FirestoreOptions import
-
-// Keep other imports
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.FirebaseToken;
@@ -14,9 +8,13 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import kostovite.services.RequestTiming;
+import kostovite.store.StatusStore;
+import kostovite.store.StatusStore.StoreException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -27,23 +25,23 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Optional;
 
 
 public class FirebaseTokenFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(FirebaseTokenFilter.class);
     private final FirebaseAuth firebaseAuth;
-    private final Firestore firestore; // Keep the field
+    private final StatusStore statusStore;
 
-    // Constructor accepts injected Firestore
-    public FirebaseTokenFilter(FirebaseAuth firebaseAuth, Firestore firestore) {
+    // User types come from the configured status store (Firestore 'users' collection by default)
+    public FirebaseTokenFilter(FirebaseAuth firebaseAuth, StatusStore statusStore) {
         this.firebaseAuth = firebaseAuth;
-        this.firestore = firestore;
-        if (this.firestore != null) {
-            log.info("FirebaseTokenFilter initialized with injected Firestore instance.");
+        this.statusStore = statusStore;
+        if (this.statusStore != null) {
+            log.info("FirebaseTokenFilter initialized with status store {}.", statusStore.getClass().getSimpleName());
         } else {
-            log.error("FirebaseTokenFilter initialized WITHOUT an injected Firestore instance!");
+            log.error("FirebaseTokenFilter initialized WITHOUT a status store!");
         }
     }
 
@@ -54,38 +52,19 @@ public class FirebaseTokenFilter extends OncePerRequestFilter {
         String idToken = extractToken(request);
 
         if (idToken != null) {
-            if (this.firestore == null) {
-                handleGenericException(response, "Firestore service not available in filter", new IllegalStateException("Firestore instance is null"));
+            if (this.statusStore == null) {
+                handleGenericException(response, "Status store not available in filter", new IllegalStateException("Status store is null"));
                 return;
             }
             try {
-                FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
-                String uid = decodedToken.getUid();
-                log.debug("Firebase token verified for UID: {}", uid);
-
-                // --- Fetch User Type from Firestore ---
-                String userType = fetchUserTypeFromFirestore(uid);
-                log.debug("Fetched user type for UID {}: {}", uid, userType);
-
-                // Convert userType to Spring Security Authority (e.g., "ROLE_PREMIUM")
-                List<GrantedAuthority> authorities = Collections.singletonList(
-                        new SimpleGrantedAuthority("ROLE_" + userType.toUpperCase())
-                );
-                // -------------------------------------
-
-                UserDetails userDetails = new User(uid, "", authorities);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-
+                UsernamePasswordAuthenticationToken authentication = authenticate(idToken);
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                log.debug("Set SecurityContext for user: {} with authorities: {}", uid, authorities);
-
+                log.debug("Set SecurityContext for user: {} with authorities: {}", authentication.getName(), authentication.getAuthorities());
             } catch (FirebaseAuthException e) {
                 handleAuthException(response, "Invalid Firebase token", e); return;
-            } catch (ExecutionException | InterruptedException e) {
-                log.error("Error fetching user data from Firestore for token verification", e);
-                handleAuthException(response, "Error fetching user data", e);
-                if (e instanceof InterruptedException) { Thread.currentThread().interrupt(); } return;
+            } catch (StoreException e) {
+                log.error("Error fetching user data from the status store for token verification", e);
+                handleAuthException(response, "Error fetching user data", e); return;
             } catch (Exception e) {
                 handleGenericException(response, "Token verification failed", e); return;
             }
@@ -95,15 +74,64 @@ public class FirebaseTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    // Helper method uses the injected 'this.firestore'
-    private String fetchUserTypeFromFirestore(String uid) throws ExecutionException, InterruptedException {
-        if (this.firestore == null) {
-            log.error("Attempted to fetch user type, but Firestore instance is null for UID: {}", uid);
+    /**
+     * Verify a Firebase ID token and build the authentication of its user, with the user type as role.
+     * Also used by the WebSocket endpoint, which authenticates once per connection.
+     * The token's expiry travels along as {@link TokenDetails}, see {@link #tokenExpiry(Authentication)}.
+     */
+    public UsernamePasswordAuthenticationToken authenticate(String idToken) throws FirebaseAuthException, StoreException {
+        long stageStart = RequestTiming.start();
+        FirebaseToken decodedToken = firebaseAuth.verifyIdToken(idToken);
+        RequestTiming.record(RequestTiming.Stage.TOKEN, stageStart);
+        String uid = decodedToken.getUid();
+        log.debug("Firebase token verified for UID: {}", uid);
+
+        // --- Fetch User Type from the status store ---
+        String userType = fetchUserType(uid);
+        log.debug("Fetched user type for UID {}: {}", uid, userType);
+
+        // Convert userType to Spring Security Authority (e.g., "ROLE_PREMIUM")
+        List<GrantedAuthority> authorities = Collections.singletonList(
+                new SimpleGrantedAuthority("ROLE_" + userType.toUpperCase())
+        );
+        // -------------------------------------
+
+        UserDetails userDetails = new User(uid, "", authorities);
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        Object exp = decodedToken.getClaims().get("exp");
+        if (exp instanceof Number seconds) {
+            authentication.setDetails(new TokenDetails(seconds.longValue() * 1000));
+        }
+        return authentication;
+    }
+
+    /**
+     * @return When the ID token behind this authentication expires (epoch millis), or 0 if unknown
+     */
+    public static long tokenExpiry(Authentication authentication) {
+        return authentication != null && authentication.getDetails() instanceof TokenDetails details
+                ? details.expiresAtMillis()
+                : 0;
+    }
+
+    /**
+     * Details of an authentication built from a Firebase ID token
+     * @param expiresAtMillis The token's "exp" claim, in epoch millis
+     */
+    public record TokenDetails(long expiresAtMillis) {
+    }
+
+    private String fetchUserType(String uid) throws StoreException {
+        if (this.statusStore == null) {
+            log.error("Attempted to fetch user type, but status store is null for UID: {}", uid);
             return "normal"; // Default on config error
         }
-        DocumentSnapshot document = this.firestore.collection("users").document(uid).get().get(); // Blocking get
-        if (document.exists()) {
-            String type = document.getString("userType"); // *** USE YOUR EXACT FIELD NAME ***
+        long stageStart = RequestTiming.start();
+        Optional<String> storedType = this.statusStore.findUserType(uid);
+        RequestTiming.record(RequestTiming.Stage.USER_TYPE, stageStart);
+        if (storedType.isPresent()) {
+            String type = storedType.get();
             if (type != null && !type.isEmpty()) {
                 if ("normal".equalsIgnoreCase(type) || "premium".equalsIgnoreCase(type) || "admin".equalsIgnoreCase(type)) {
                     return type.toLowerCase();
@@ -114,7 +142,7 @@ public class FirebaseTokenFilter extends OncePerRequestFilter {
                 log.warn("userType field missing or empty for user {}. Defaulting to 'normal'.", uid); return "normal";
             }
         } else {
-            log.warn("User document not found in Firestore for UID {}. Defaulting to 'normal'.", uid); return "normal";
+            log.warn("User not found in status store for UID {}. Defaulting to 'normal'.", uid); return "normal";
         }
     }
 
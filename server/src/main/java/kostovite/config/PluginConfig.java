@@ -1,7 +1,18 @@
 package kostovite.config;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import kostovite.BinaryArtifact;
+import kostovite.services.ArtifactStore;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.List;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -19,4 +30,27 @@ public class PluginConfig {
             }
         };
     }
+
+    @Bean
+    public WebMvcConfigurer pluginInputConfigurer(PluginInputArgumentResolver pluginInputArgumentResolver) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+                resolvers.add(pluginInputArgumentResolver);
+            }
+        };
+    }
+
+    // Plugin results carry generated images as BinaryArtifact; responses get the artifact's URL instead of the bytes
+    @Bean
+    public Module binaryArtifactModule(ArtifactStore artifactStore) {
+        SimpleModule module = new SimpleModule("BinaryArtifactModule");
+        module.addSerializer(BinaryArtifact.class, new StdSerializer<>(BinaryArtifact.class) {
+            @Override
+            public void serialize(BinaryArtifact artifact, JsonGenerator gen, SerializerProvider provider) throws IOException {
+                gen.writeString(artifactStore.publish(artifact));
+            }
+        });
+        return module;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package kostovite.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a JSON object request body to a {@code Map<String, Object>} through
+ * {@link kostovite.services.SpillingJsonReader}: large top-level strings arrive as file-backed
+ * CharSequences and oversized bodies are rejected with 413 while they are being read.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface PluginInput {
+}
@@ -0,0 +1,47 @@
+package kostovite.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import kostovite.services.BufferArena.PayloadTooLargeException;
+import kostovite.services.SpillingJsonReader;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+@Component
+public class PluginInputArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final SpillingJsonReader reader;
+
+    public PluginInputArgumentResolver(SpillingJsonReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(PluginInput.class)
+                && Map.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        if (request == null) {
+            throw new IllegalStateException("@PluginInput requires a servlet request");
+        }
+        try {
+            return reader.readObject(request.getInputStream(), request.getContentLengthLong());
+        } catch (PayloadTooLargeException e) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (SpillingJsonReader.MalformedJsonException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed JSON: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+// src/main/java/kostovite/config/RequestTimingFilter.java
+package kostovite.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import kostovite.services.RequestTiming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Times plugin process requests (POST /api/plugins/**, /api/jobs/**) stage by stage and sends the result
+ * in a Server-Timing header. Runs before the security chain so token verification is included.
+ * The header is set once the whole response is written, or just before the response is committed
+ * earlier (flush, close, or a body larger than the container's buffer) with the stages measured so far.
+ * With plugins.timing.trace the same line is logged for requests slower than plugins.timing.trace-slower-than-ms.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestTimingFilter.class);
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    private final boolean enabled;
+    private final boolean trace;
+    private final long traceSlowerThanMillis;
+
+    public RequestTimingFilter(@Value("${plugins.timing.enabled:true}") boolean enabled,
+                               @Value("${plugins.timing.trace:false}") boolean trace,
+                               @Value("${plugins.timing.trace-slower-than-ms:0}") long traceSlowerThanMillis) {
+        this.enabled = enabled;
+        this.trace = trace;
+        this.traceSlowerThanMillis = traceSlowerThanMillis;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String uri = request.getRequestURI();
+        // Streamed responses are flushed as they go and answer long after the filter returns
+        return !(uri.startsWith("/api/plugins/") || uri.startsWith("/api/jobs/")) || uri.endsWith("/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming.begin();
+        TimedResponse timedResponse = new TimedResponse(response);
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            RequestTiming.finishSerialization();
+            String timing = RequestTiming.headerValue();
+            if (!response.isCommitted() && !request.isAsyncStarted()) {
+                response.setHeader(SERVER_TIMING, timing);
+            }
+            if (trace && RequestTiming.totalMillis() >= traceSlowerThanMillis) {
+                log.info("{} {} {} [{}]", request.getMethod(), request.getRequestURI(), response.getStatus(), timing);
+            }
+            RequestTiming.end();
+        }
+    }
+
+    /**
+     * Sets the header just before anything commits the response: a flush, a close, or a write that
+     * overflows the container's buffer. Flushes and closes are passed on as they are.
+     */
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+        private ServletOutputStream outputStream;
+        private long written;
+
+        TimedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new TimedOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            beforeCommit();
+            super.flushBuffer();
+        }
+
+        private void beforeWrite(int length) {
+            written += length;
+            if (written > getBufferSize()) {
+                beforeCommit();
+            }
+        }
+
+        private void beforeCommit() {
+            // Off the request thread (async completion) there is nothing timed to report
+            if (!isCommitted() && RequestTiming.isActive()) {
+                RequestTiming.finishSerialization();
+                setHeader(SERVER_TIMING, RequestTiming.headerValue());
+            }
+        }
+
+        private final class TimedOutputStream extends ServletOutputStream {
+            private final ServletOutputStream delegate;
+
+            TimedOutputStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                beforeWrite(1);
+                delegate.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                beforeWrite(len);
+                delegate.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                beforeCommit();
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                beforeCommit();
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                delegate.setWriteListener(writeListener);
+            }
+        }
+    }
+}
@@ -2,7 +2,7 @@
 package kostovite.config;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.cloud.firestore.Firestore;
+import kostovite.store.StatusStore;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -26,12 +26,15 @@ import java.util.List; // Import List
 @EnableMethodSecurity() // Keep this enabled if you use @PreAuthorize elsewhere
 public class SecurityConfig {
 
+    // Frontend origins, shared with the WebSocket handshake origin check
+    static final List<String> ALLOWED_ORIGINS = List.of("http://localhost:5173", "http://127.0.0.1:5173");
+
     private final FirebaseAuth firebaseAuth;
-    private final Firestore firestore;
+    private final StatusStore statusStore;
 
-    public SecurityConfig(FirebaseAuth firebaseAuth, Firestore firestore) {
+    public SecurityConfig(FirebaseAuth firebaseAuth, StatusStore statusStore) {
         this.firebaseAuth = firebaseAuth;
-        this.firestore = firestore;
+        this.statusStore = statusStore;
     }
 
     @Bean
@@ -39,7 +42,7 @@ public class SecurityConfig {
         // Initialize filter even if some endpoints are permitAll,
         // as it populates SecurityContext if a token *is* present,
         // which can be useful for logging or optional logic in controllers.
-        return new FirebaseTokenFilter(firebaseAuth, firestore);
+        return new FirebaseTokenFilter(firebaseAuth, statusStore);
     }
 
     @Bean
@@ -60,6 +63,12 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/plugins", "/api/plugins/**").permitAll()
                         // Allow anyone to attempt processing (access controlled within endpoint if needed)
                         .requestMatchers(HttpMethod.POST, "/api/plugins/**").permitAll()
+                        // Generated artifacts are loaded by <img> tags, which send no token; IDs are content hashes
+                        .requestMatchers(HttpMethod.GET, "/api/artifacts/**").permitAll()
+                        // Jobs follow the plugin rules: access is checked per plugin and per job owner
+                        .requestMatchers("/api/jobs/**").permitAll()
+                        // WebSocket handshake; the socket authenticates itself (Authorization header or "auth" message)
+                        .requestMatchers(HttpMethod.GET, "/api/ws/**").permitAll()
 
                         // --- CHANGE: Allow Debug Endpoints ---
                         .requestMatchers("/api/debug/**").permitAll() // <<< CHANGED from .hasRole("ADMIN")
@@ -71,6 +80,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/plugins/unload/**").hasRole("ADMIN") // Assuming pattern covers specific names
                         .requestMatchers("/api/plugins/universal/unload/**").hasRole("ADMIN") // Assuming pattern covers specific names
 
+                        // --- Admin Reports (accounting, diagnostics) ---
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+
                         // --- Other Specific Endpoints ---
                         .requestMatchers("/api/secure/**").authenticated() // Example: requires any logged-in user
 
@@ -98,7 +110,7 @@ public class SecurityConfig {
     private static CorsConfiguration getCorsConfiguration() {
         CorsConfiguration configuration = new CorsConfiguration();
         // Specify allowed origins explicitly - '*' is generally discouraged with credentials=true
-        configuration.setAllowedOrigins(Arrays.asList("http://localhost:5173", "http://127.0.0.1:5173")); // Your frontend URLs
+        configuration.setAllowedOrigins(ALLOWED_ORIGINS); // Your frontend URLs
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD")); // Common methods
         // Allow specific headers needed by your frontend + standard ones + Authorization
         configuration.setAllowedHeaders(List.of("Authorization", "Cache-Control", "Content-Type", "X-Requested-With", "Accept", "Origin")); // Example common headers
@@ -0,0 +1,39 @@
+// src/main/java/kostovite/config/StatusStoreConfig.java
+package kostovite.config;
+
+import com.google.cloud.firestore.Firestore;
+import kostovite.store.FileStatusStore;
+import kostovite.store.FirestoreStatusStore;
+import kostovite.store.InMemoryStatusStore;
+import kostovite.store.StatusStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class StatusStoreConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusStoreConfig.class);
+
+    @Bean
+    public StatusStore statusStore(@Value("${plugins.store.backend:firestore}") String backend,
+                                   @Value("${plugins.store.file.path:data/status-store.log}") String filePath,
+                                   @Value("${plugins.store.file.fsync:true}") boolean fsync,
+                                   @Value("${plugins.store.user-cache-ttl-ms:0}") long userCacheTtlMillis,
+                                   ObjectProvider<Firestore> firestore) throws IOException {
+        log.info("Using '{}' status store backend", backend);
+        // The Firestore bean is lazy: the other backends never create a Firestore client
+        return switch (backend.trim().toLowerCase()) {
+            case "firestore" -> new FirestoreStatusStore(firestore.getObject(), userCacheTtlMillis);
+            case "memory" -> new InMemoryStatusStore();
+            case "file" -> new FileStatusStore(Path.of(filePath), fsync);
+            default -> throw new IllegalArgumentException("Unknown plugins.store.backend '" + backend + "' (firestore, memory or file)");
+        };
+    }
+}
@@ -0,0 +1,42 @@
+// src/main/java/kostovite/config/WebSocketConfig.java
+package kostovite.config;
+
+import kostovite.controllers.PluginSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+/**
+ * Registers the plugin WebSocket endpoint (/api/ws/plugins) used by as-you-type tools
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final PluginSocketHandler pluginSocketHandler;
+
+    public WebSocketConfig(PluginSocketHandler pluginSocketHandler) {
+        this.pluginSocketHandler = pluginSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // No CORS preflight for WebSockets: the handshake's Origin header is checked instead
+        registry.addHandler(pluginSocketHandler, "/api/ws/plugins")
+                .setAllowedOrigins(SecurityConfig.ALLOWED_ORIGINS.toArray(String[]::new));
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer(
+            @Value("${plugins.websocket.max-message-bytes:262144}") int maxMessageBytes,
+            @Value("${plugins.websocket.idle-timeout-ms:600000}") long idleTimeoutMillis) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxMessageBytes);
+        container.setMaxSessionIdleTimeout(idleTimeoutMillis);
+        return container;
+    }
+}
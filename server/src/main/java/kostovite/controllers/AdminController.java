@@ -0,0 +1,310 @@
+package kostovite.controllers;
+
+import kostovite.PluginClassLoaderTracker;
+import kostovite.services.ArtifactStore;
+import kostovite.services.BufferArena;
+import kostovite.services.CacheSnapshotService;
+import kostovite.services.InFlightRequestCoalescer;
+import kostovite.services.PluginCanaryService;
+import kostovite.services.PluginCircuitBreakers;
+import kostovite.services.PluginConcurrencyLimiter;
+import kostovite.services.PluginInstanceProvider;
+import kostovite.services.PluginJobService;
+import kostovite.services.PluginMemoryAdmission;
+import kostovite.services.PluginProfiler;
+import kostovite.services.PluginResourceAccounting;
+import kostovite.services.PluginUsageCounters;
+import kostovite.services.ReplicaRouter;
+import kostovite.services.SpillingJsonReader;
+import kostovite.store.StatusStore;
+import kostovite.store.StatusStore.StoreException;
+import kostovite.store.StatusStore.ToolStatus;
+import kostovite.worker.WorkerPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+
+    private final PluginResourceAccounting resourceAccounting;
+    private final PluginCircuitBreakers circuitBreakers;
+    private final InFlightRequestCoalescer requestCoalescer;
+    private final PluginClassLoaderTracker classLoaderTracker;
+    private final PluginInstanceProvider instanceProvider;
+    private final WorkerPool workerPool;
+    private final BufferArena bufferArena;
+    private final PluginCanaryService canaryService;
+    private final PluginProfiler profiler;
+    private final SpillingJsonReader spillingJsonReader;
+    private final StatusStore statusStore;
+    private final ArtifactStore artifactStore;
+    private final PluginJobService jobService;
+    private final PluginConcurrencyLimiter concurrencyLimiter;
+    private final PluginMemoryAdmission memoryAdmission;
+    private final PluginUsageCounters usageCounters;
+    private final ReplicaRouter replicaRouter;
+    private final CacheSnapshotService snapshotService;
+
+    @Autowired
+    public AdminController(PluginResourceAccounting resourceAccounting, PluginCircuitBreakers circuitBreakers,
+                           InFlightRequestCoalescer requestCoalescer, PluginClassLoaderTracker classLoaderTracker,
+                           PluginInstanceProvider instanceProvider, WorkerPool workerPool, BufferArena bufferArena,
+                           PluginCanaryService canaryService, PluginProfiler profiler,
+                           SpillingJsonReader spillingJsonReader, StatusStore statusStore,
+                           ArtifactStore artifactStore, PluginJobService jobService,
+                           PluginConcurrencyLimiter concurrencyLimiter, PluginMemoryAdmission memoryAdmission,
+                           PluginUsageCounters usageCounters, ReplicaRouter replicaRouter,
+                           CacheSnapshotService snapshotService) {
+        this.resourceAccounting = resourceAccounting;
+        this.circuitBreakers = circuitBreakers;
+        this.requestCoalescer = requestCoalescer;
+        this.classLoaderTracker = classLoaderTracker;
+        this.instanceProvider = instanceProvider;
+        this.workerPool = workerPool;
+        this.bufferArena = bufferArena;
+        this.canaryService = canaryService;
+        this.profiler = profiler;
+        this.spillingJsonReader = spillingJsonReader;
+        this.statusStore = statusStore;
+        this.artifactStore = artifactStore;
+        this.jobService = jobService;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.memoryAdmission = memoryAdmission;
+        this.usageCounters = usageCounters;
+        this.replicaRouter = replicaRouter;
+        this.snapshotService = snapshotService;
+    }
+
+    @GetMapping("/accounting")
+    public ResponseEntity<Map<String, Object>> getAccounting() {
+        List<Map<String, Object>> plugins = resourceAccounting.getReport();
+        Map<String, Object> response = new HashMap<>();
+        response.put("sampleRate", resourceAccounting.getSampleRate());
+        response.put("plugins", plugins);
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/accounting/sample-rate")
+    public ResponseEntity<Map<String, Object>> setAccountingSampleRate(@RequestParam double rate) {
+        log.info("Setting plugin accounting sample rate to {}", rate);
+        resourceAccounting.setSampleRate(rate);
+        return ResponseEntity.ok(Map.of("status", "success", "sampleRate", resourceAccounting.getSampleRate()));
+    }
+
+    @DeleteMapping("/accounting")
+    public ResponseEntity<Map<String, Object>> resetAccounting() {
+        resourceAccounting.reset();
+        return ResponseEntity.ok(Map.of("status", "success", "message", "Plugin accounting reset."));
+    }
+
+    @GetMapping("/circuit-breakers")
+    public ResponseEntity<Map<String, Object>> getCircuitBreakers() {
+        return ResponseEntity.ok(Map.of("status", "success", "breakers", circuitBreakers.getMetrics()));
+    }
+
+    @PostMapping("/circuit-breakers/{pluginId}/reset")
+    public ResponseEntity<Map<String, Object>> resetCircuitBreaker(@PathVariable String pluginId) {
+        log.info("Resetting circuit breaker for plugin {}", pluginId);
+        if (!circuitBreakers.reset(pluginId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("status", "error", "message", "No circuit breaker for plugin: " + pluginId));
+        }
+        return ResponseEntity.ok(Map.of("status", "success", "state", circuitBreakers.getState(pluginId).name()));
+    }
+
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Object>> getCoalescing() {
+        return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "inFlight", requestCoalescer.getInFlightCount(),
+                "plugins", requestCoalescer.getMetrics()));
+    }
+
+    @GetMapping("/classloaders")
+    public ResponseEntity<Map<String, Object>> getClassLoaders() {
+        Map<String, Object> response = new HashMap<>(classLoaderTracker.getReport());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/instances")
+    public ResponseEntity<Map<String, Object>> getPluginInstances() {
+        return ResponseEntity.ok(Map.of("status", "success", "plugins", instanceProvider.getMetrics()));
+    }
+
+    @GetMapping("/workers")
+    public ResponseEntity<Map<String, Object>> getWorkers() {
+        Map<String, Object> response = new HashMap<>(workerPool.getStatus());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/buffers")
+    public ResponseEntity<Map<String, Object>> getBuffers() {
+        Map<String, Object> response = new HashMap<>(bufferArena.getMetrics());
+        response.put("requestSpill", spillingJsonReader.getMetrics());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/artifacts")
+    public ResponseEntity<Map<String, Object>> getArtifacts() {
+        Map<String, Object> response = new HashMap<>(artifactStore.getMetrics());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> getJobs() {
+        Map<String, Object> response = new HashMap<>(jobService.getMetrics());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/concurrency")
+    public ResponseEntity<Map<String, Object>> getConcurrency() {
+        Map<String, Object> response = new HashMap<>(concurrencyLimiter.getMetrics());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/memory")
+    public ResponseEntity<Map<String, Object>> getMemory() {
+        Map<String, Object> response = new HashMap<>(memoryAdmission.getMetrics());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/usage")
+    public ResponseEntity<Map<String, Object>> getUsage(@RequestParam(defaultValue = "7") int days) {
+        Map<String, Object> response = new HashMap<>(usageCounters.getReport(days));
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/usage/flush")
+    public ResponseEntity<Map<String, Object>> flushUsage() {
+        try {
+            usageCounters.flush();
+            return ResponseEntity.ok(Map.of("status", "success"));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Could not write usage counters: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/routing")
+    public ResponseEntity<Map<String, Object>> getRouting() {
+        Map<String, Object> response = new HashMap<>(replicaRouter.getMetrics());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> getSnapshot() {
+        Map<String, Object> response = new HashMap<>(snapshotService.getMetrics());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> saveSnapshot() {
+        try {
+            snapshotService.save();
+            return ResponseEntity.ok(Map.of("status", "success"));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Could not write cache snapshot: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/canaries")
+    public ResponseEntity<Map<String, Object>> getCanaries() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rollouts", canaryService.getReport());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/canaries/{pluginName}/promote")
+    public ResponseEntity<Map<String, Object>> promoteCanary(@PathVariable String pluginName) {
+        log.info("Promoting canary of plugin {}", pluginName);
+        try {
+            if (!canaryService.promote(pluginName)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("status", "error", "message", "No active canary for plugin: " + pluginName));
+            }
+            return ResponseEntity.ok(Map.of("status", "success", "message", "Canary of " + pluginName + " promoted."));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("status", "error", "message", "Failed to promote canary: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/canaries/{pluginName}/rollback")
+    public ResponseEntity<Map<String, Object>> rollbackCanary(@PathVariable String pluginName) {
+        log.info("Rolling back canary of plugin {}", pluginName);
+        if (!canaryService.rollback(pluginName)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("status", "error", "message", "No active canary for plugin: " + pluginName));
+        }
+        return ResponseEntity.ok(Map.of("status", "success", "message", "Canary of " + pluginName + " rolled back."));
+    }
+
+    @GetMapping("/profile")
+    public ResponseEntity<Map<String, Object>> getProfile(@RequestParam(defaultValue = "300") long windowSeconds,
+                                                          @RequestParam(defaultValue = "10") int top) {
+        Map<String, Object> response = new HashMap<>(profiler.getReport(windowSeconds, top));
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/store")
+    public ResponseEntity<Map<String, Object>> getStore() {
+        Map<String, Object> response = new HashMap<>(statusStore.describe());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/store/tools/{toolId}")
+    public ResponseEntity<Map<String, Object>> putToolStatus(@PathVariable String toolId, @RequestBody Map<String, Object> body) {
+        Object enabled = body.get("enabled");
+        if (!(enabled instanceof Boolean)) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "'enabled' must be true or false"));
+        }
+        Object message = body.get("disabledMessage");
+        log.info("Setting status of tool {} to enabled={}", toolId, enabled);
+        try {
+            statusStore.putToolStatus(toolId, new ToolStatus((Boolean) enabled, message != null ? message.toString() : null));
+            return ResponseEntity.ok(Map.of("status", "success", "message", "Status of " + toolId + " updated."));
+        } catch (StoreException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("status", "error", "message", "Failed to update tool status: " + e.getMessage()));
+        }
+    }
+
+    @PutMapping("/store/users/{uid}")
+    public ResponseEntity<Map<String, Object>> putUserType(@PathVariable String uid, @RequestBody Map<String, Object> body) {
+        String userType = String.valueOf(body.get("userType")).toLowerCase();
+        if (!List.of("normal", "premium", "admin").contains(userType)) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "'userType' must be normal, premium or admin"));
+        }
+        log.info("Setting user type of {} to {}", uid, userType);
+        try {
+            statusStore.putUserType(uid, userType);
+            return ResponseEntity.ok(Map.of("status", "success", "message", "User type of " + uid + " updated."));
+        } catch (StoreException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("status", "error", "message", "Failed to update user type: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// src/main/java/kostovite/controllers/ArtifactController.java
+package kostovite.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import kostovite.BinaryArtifact;
+import kostovite.services.ArtifactStore;
+import kostovite.services.ReplicaRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Serves plugin output stored in the {@link ArtifactStore}. IDs are content hashes, so responses never change
+ * and are cached by browsers for a year. An artifact another replica produced for a routed call
+ * (URL parameter "replica") is fetched from that replica on first access and kept here.
+ */
+@RestController
+@RequestMapping("/api/artifacts")
+public class ArtifactController {
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // Tomcat's NIO connector sends the file itself (sendfile) after the servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ArtifactStore artifactStore;
+    private final ReplicaRouter replicaRouter;
+
+    @Autowired
+    public ArtifactController(ArtifactStore artifactStore, ReplicaRouter replicaRouter) {
+        this.artifactStore = artifactStore;
+        this.replicaRouter = replicaRouter;
+    }
+
+    @GetMapping("/{artifactId}")
+    public void getArtifact(@PathVariable String artifactId,
+                            @RequestParam(value = "replica", required = false) String replica,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileChannel opened = artifactStore.open(artifactId);
+        if (opened == null && replica != null && ArtifactStore.isArtifactId(artifactId)) {
+            opened = fetchFromReplica(replica, artifactId);
+        }
+        try (FileChannel file = opened) {
+            if (file == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Artifact not found: " + artifactId);
+                return;
+            }
+            String etag = '"' + artifactId + '"';
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            long size = file.size();
+            response.setContentType(artifactStore.contentType(artifactId));
+            response.setContentLengthLong(size);
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, artifactStore.resolve(artifactId).toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, size);
+                return;
+            }
+            // No sendfile (other connector, TLS): transferTo still avoids a heap copy of the whole file
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += file.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private FileChannel fetchFromReplica(String replica, String artifactId) throws IOException {
+        BinaryArtifact artifact = replicaRouter.fetchArtifact(replica, artifactId);
+        // IDs are content hashes: a different ID means the bytes are not the ones asked for
+        if (artifact == null || !artifactStore.store(artifact).equals(artifactId)) {
+            return null;
+        }
+        return artifactStore.open(artifactId);
+    }
+}
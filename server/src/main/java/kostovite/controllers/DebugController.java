@@ -187,6 +187,16 @@ public class DebugController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/plugin-jars")
+    public ResponseEntity<Map<String, Object>> pluginJars() {
+        Map<String, Object> response = new HashMap<>();
+        List<Map<String, Object>> jars = pluginLoader.getJarIndex();
+        response.put("jars", jars);
+        response.put("count", jars.size());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/MediaTools/testimage")
     public ResponseEntity<Map<String, Object>> testMediaToolsImage() {
         try {
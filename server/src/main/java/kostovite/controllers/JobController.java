@@ -0,0 +1,124 @@
+// src/main/java/kostovite/controllers/JobController.java
+package kostovite.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import kostovite.config.PluginInput;
+import kostovite.services.PluginJobService;
+import kostovite.services.PluginJobService.JobQueueFullException;
+import kostovite.services.PluginJobService.JobResult;
+import kostovite.services.PluginService;
+import kostovite.services.PluginService.PluginDisabledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Asynchronous plugin execution for heavy operations:
+ * POST /api/jobs/{pluginName} queues a job (202 with its ID), GET /api/jobs/{jobId} polls its status,
+ * GET /api/jobs/{jobId}/result fetches the plugin output and DELETE /api/jobs/{jobId} cancels it.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private static final Logger log = LoggerFactory.getLogger(JobController.class);
+
+    private final PluginJobService jobService;
+    private final PluginService pluginService;
+
+    @Autowired
+    public JobController(PluginJobService jobService, PluginService pluginService) {
+        this.jobService = jobService;
+        this.pluginService = pluginService;
+    }
+
+    @PostMapping("/{pluginName}")
+    public ResponseEntity<Map<String, Object>> submitJob(
+            @PathVariable String pluginName,
+            @PluginInput Map<String, Object> input,
+            Authentication authentication,
+            HttpServletRequest request) {
+        String userIdentifier = (authentication != null ? authentication.getName() : "anonymous");
+        log.info("Job submission for plugin: {} by user/identity: {}", pluginName, userIdentifier);
+
+        try {
+            // Fail fast on the same checks /process runs; they are repeated when the job starts
+            pluginService.resolveAccessiblePlugin(pluginName, authentication);
+            Map<String, Object> response = new HashMap<>(jobService.submit(pluginName, input, authentication, request.getRemoteAddr()));
+            response.put("success", true);
+            String statusUrl = "/api/jobs/" + response.get("jobId");
+            response.put("statusUrl", statusUrl);
+            response.put("resultUrl", statusUrl + "/result");
+            return ResponseEntity.accepted().location(URI.create(statusUrl)).body(response);
+        } catch (PluginDisabledException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("success", false, "error", "Plugin disabled by administrator.", "message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("success", false, "error", e.getMessage()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", "No access permission for this plugin.", "message", e.getMessage()));
+        } catch (JobQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("success", false, "error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("Could not journal job for plugin {}: {}", pluginName, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("success", false, "error", "Could not queue job."));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String jobId, Authentication authentication) {
+        try {
+            Map<String, Object> status = jobService.getStatus(jobId, authentication);
+            return status != null ? ResponseEntity.ok(status) : jobNotFound(jobId);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<Map<String, Object>> getJobResult(@PathVariable String jobId, Authentication authentication) {
+        try {
+            JobResult result = jobService.getResult(jobId, authentication);
+            if (result == null) {
+                return jobNotFound(jobId);
+            }
+            if (!result.status().isFinished()) {
+                // Not done yet: the body is the job status
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(result.body());
+            }
+            return ResponseEntity.ok(result.body());
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String jobId, Authentication authentication) {
+        try {
+            Map<String, Object> status = jobService.cancel(jobId, authentication);
+            return status != null ? ResponseEntity.ok(status) : jobNotFound(jobId);
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("Could not journal cancellation of job {}: {}", jobId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("success", false, "error", "Could not cancel job."));
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> jobNotFound(String jobId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("success", false, "error", "Job not found: " + jobId));
+    }
+}
@@ -1,12 +1,28 @@
 package kostovite.controllers;
 
+import kostovite.config.PluginInput;
+import kostovite.services.PluginCanaryService;
+import kostovite.services.PluginCatalogService;
+import kostovite.services.PluginCatalogService.CatalogEntry;
+import kostovite.services.PluginCircuitBreakers.CircuitOpenException;
+import kostovite.services.PluginConcurrencyLimiter.ConcurrencyLimitExceededException;
+import kostovite.services.PluginInstanceProvider.InstanceUnavailableException;
+import kostovite.services.PluginMemoryAdmission.MemoryBudgetExceededException;
+import kostovite.services.PluginPipelineService;
+import kostovite.services.PluginPipelineService.PipelineRequest;
+import kostovite.services.PluginProgressStreamer;
 import kostovite.services.PluginService;
 import kostovite.services.PluginService.PluginDisabledException; // Import custom exception
 import kostovite.services.PluginService.PluginStatusCheckResult; // Import status result
+import kostovite.services.ReplicaRouter;
+import kostovite.services.ReplicaRouter.RoutedResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,8 +31,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import kostovite.PluginInterface;
 import kostovite.ManualPluginLoader;
+import kostovite.ManualPluginLoader.JarLoadResult;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,6 +42,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -31,18 +52,39 @@ import java.util.stream.Collectors;
 public class PluginController {
     private static final Logger log = LoggerFactory.getLogger(PluginController.class);
     private final PluginService pluginService;
+    private final PluginCatalogService pluginCatalogService;
+    private final PluginPipelineService pluginPipelineService;
+    private final PluginProgressStreamer progressStreamer;
     private final ManualPluginLoader manualPluginLoader;
+    private final PluginCanaryService canaryService;
+    private final ReplicaRouter replicaRouter;
     private final Path pluginsDirectory = Paths.get("plugins-deploy");
+    private static final String CANARY_SUFFIX = ".canary"; // Not *.jar, so directory scans do not load it
 
     @Autowired
-    public PluginController(PluginService pluginService, ManualPluginLoader manualPluginLoader) {
+    public PluginController(PluginService pluginService, PluginCatalogService pluginCatalogService,
+                            PluginPipelineService pluginPipelineService, PluginProgressStreamer progressStreamer,
+                            ManualPluginLoader manualPluginLoader, PluginCanaryService canaryService,
+                            ReplicaRouter replicaRouter) {
         this.pluginService = pluginService;
+        this.pluginCatalogService = pluginCatalogService;
+        this.pluginPipelineService = pluginPipelineService;
+        this.progressStreamer = progressStreamer;
         this.manualPluginLoader = manualPluginLoader;
+        this.canaryService = canaryService;
+        this.replicaRouter = replicaRouter;
 
         try {
             if (!Files.exists(pluginsDirectory)) {
                 Files.createDirectories(pluginsDirectory);
             }
+            // Canaries do not survive a restart; the deployed JAR stays the current version
+            try (var leftovers = Files.newDirectoryStream(pluginsDirectory, "*.jar" + CANARY_SUFFIX)) {
+                for (Path leftover : leftovers) {
+                    log.info("Discarding canary JAR left from a previous run: {}", leftover.getFileName());
+                    Files.deleteIfExists(leftover);
+                }
+            }
             Path pluginsPath = Paths.get(System.getProperty("user.dir"), "plugins-deploy").toAbsolutePath();
             this.manualPluginLoader.loadPlugins(pluginsPath);
             log.info("PluginController: Initial plugin load attempted.");
@@ -54,25 +96,32 @@ public class PluginController {
     @GetMapping
     // No @PreAuthorize, allows anonymous access to this endpoint.
     // Access control is handled within the service.
-    public ResponseEntity<List<Map<String, Object>>> getPluginsForCurrentUser(Authentication authentication) {
+    public ResponseEntity<byte[]> getPluginsForCurrentUser(Authentication authentication) {
         String userIdentifier = (authentication != null ? authentication.getName() : "anonymous");
-        log.info("Request received for GET /api/plugins by user/identity: {}", userIdentifier);
+        log.debug("Request received for GET /api/plugins by user/identity: {}", userIdentifier);
 
         try {
-            // pluginService.getAccessiblePluginMetadata should now:
-            // 1. Get all plugins.
-            // 2. For each plugin, check its enabled/disabled status (e.g., from Firestore via isPluginEnabled).
-            // 3. If enabled, then check if the current user (anonymous or authenticated) can access it based on userType vs pluginAccessLevel.
-            // 4. Return metadata of only enabled AND accessible plugins.
-            List<Map<String, Object>> accessiblePlugins = pluginService.getAccessiblePluginMetadata(authentication);
-            log.info("Returning {} accessible and enabled plugins for user/identity: {}", accessiblePlugins.size(), userIdentifier);
-            return ResponseEntity.ok(accessiblePlugins);
+            // The catalog is pre-built per user tier (status + access flags included) and only rebuilt
+            // when plugins or tool statuses change. The ETag lets Spring answer 304 on repeat loads.
+            CatalogEntry catalog = pluginCatalogService.getPluginCatalog(pluginService.extractUserType(authentication));
+            return catalogResponse(catalog);
         } catch (Exception e) {
             log.error("Error retrieving accessible plugins for user/identity {}: {}", userIdentifier, e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("[]".getBytes(StandardCharsets.UTF_8));
         }
     }
 
+    static ResponseEntity<byte[]> catalogResponse(CatalogEntry catalog) {
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .cacheControl(CacheControl.noCache()) // Always revalidate, the body differs per tier
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalog.body());
+    }
+
     private ResponseEntity<Map<String, Object>> handleProcessRequest(
             String pluginName, Map<String, Object> input, Authentication authentication, boolean isDebug) {
 
@@ -87,6 +136,7 @@ public class PluginController {
             Map<String, Object> result = pluginService.processPlugin(pluginName, input, authentication);
 
             if (isDebug) {
+                result = new HashMap<>(result); // Never annotate a map the plugin or a coalesced call may share
                 result.put("debug_request_info", Map.of(
                         "plugin", pluginName,
                         "user", userIdentifier,
@@ -98,6 +148,19 @@ public class PluginController {
             log.warn("{} failed - Plugin '{}' is disabled. Reason: {}", logPrefix, pluginName, e.getMessage());
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE) // 503 might be more appropriate for "disabled"
                     .body(Map.of("success", false, "error", "Plugin disabled by administrator.", "message", e.getMessage()));
+        } catch (CircuitOpenException e) {
+            // Expected while a plugin keeps failing: no stack trace, no error log
+            log.debug("{} rejected - {}", logPrefix, e.getMessage());
+            return circuitOpenResponse(e);
+        } catch (InstanceUnavailableException e) {
+            log.warn("{} rejected - {}", logPrefix, e.getMessage());
+            return busyResponse(e);
+        } catch (ConcurrencyLimitExceededException | MemoryBudgetExceededException e) {
+            // Load shedding: logged at debug like an open breaker, it happens a lot under overload
+            log.debug("{} rejected - {}", logPrefix, e.getMessage());
+            return overloadedResponse(e);
+        } catch (CancellationException e) {
+            return cancelledResponse(e);
         } catch (IllegalArgumentException e) { // Typically for plugin not found
             log.warn("{} failed - Plugin not found: {}", logPrefix, pluginName, e);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("success", false, "error", e.getMessage()));
@@ -110,18 +173,130 @@ public class PluginController {
         }
     }
 
+    static ResponseEntity<Map<String, Object>> circuitOpenResponse(CircuitOpenException e) {
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfterMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of("success", false, "error", "Plugin temporarily unavailable.", "message", e.getMessage()));
+    }
+
+    static ResponseEntity<Map<String, Object>> busyResponse(InstanceUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("success", false, "error", "Plugin busy, try again.", "message", e.getMessage()));
+    }
+
+    static ResponseEntity<Map<String, Object>> overloadedResponse(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("success", false, "error", "Server overloaded, try again.", "message", e.getMessage()));
+    }
+
+    static ResponseEntity<Map<String, Object>> cancelledResponse(CancellationException e) {
+        // The plugin stopped at its deadline (a disconnected client never reads this)
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("success", false, "error", "Plugin invocation timed out.", "message", String.valueOf(e.getMessage())));
+    }
+
     @PostMapping("/{pluginName}/process")
     public ResponseEntity<Map<String, Object>> processPlugin(
             @PathVariable String pluginName,
-            @RequestBody Map<String, Object> input,
+            @PluginInput Map<String, Object> input,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestHeader(value = ReplicaRouter.ROUTED_HEADER, required = false) String routedFrom,
             Authentication authentication) {
+        // Cacheable calls owned by another replica are answered there (access checks included)
+        RoutedResponse routed = replicaRouter.route(pluginName, input, authorization, routedFrom);
+        if (routed != null) {
+            return routedResponse(routed);
+        }
         return handleProcessRequest(pluginName, input, authentication, false);
     }
 
+    static ResponseEntity<Map<String, Object>> routedResponse(RoutedResponse routed) {
+        return ResponseEntity.status(routed.status())
+                .headers(routed.headers())
+                .body(routed.body());
+    }
+
+    /**
+     * Same checks as /process, then streams the invocation as Server-Sent Events:
+     * "progress" events ({fraction, stage}) followed by a "result" or "error" event.
+     * Closing the connection cancels the invocation.
+     */
+    @PostMapping("/{pluginName}/process/stream")
+    public ResponseEntity<?> processPluginStream(
+            @PathVariable String pluginName,
+            @PluginInput Map<String, Object> input,
+            Authentication authentication) {
+        String userIdentifier = (authentication != null ? authentication.getName() : "anonymous");
+        log.info("Streaming request for plugin: {} by user/identity: {}", pluginName, userIdentifier);
+
+        try {
+            PluginInterface plugin = pluginService.resolveAccessiblePlugin(pluginName, authentication);
+            return ResponseEntity.ok(progressStreamer.stream(plugin, pluginName, input));
+        } catch (PluginDisabledException e) {
+            log.warn("Streaming failed - Plugin '{}' is disabled. Reason: {}", pluginName, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("success", false, "error", "Plugin disabled by administrator.", "message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Streaming failed - Plugin not found: {}", pluginName);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("success", false, "error", e.getMessage()));
+        } catch (AccessDeniedException e) {
+            log.warn("Streaming failed - Access denied for plugin {}: {}", pluginName, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", "No access permission for this plugin.", "message", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Streaming rejected for plugin {}: all streaming slots busy", pluginName);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("success", false, "error", "Too many streaming requests, try again."));
+        }
+    }
+
+    @PostMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> processPipeline(
+            @PluginInput Map<String, Object> body,
+            Authentication authentication) {
+        String userIdentifier = (authentication != null ? authentication.getName() : "anonymous");
+
+        try {
+            // Read like plugin inputs, so plugins.request.max-json-bytes caps pipelines too
+            PipelineRequest request = PipelineRequest.fromBody(body);
+            int stepCount = request.steps() != null ? request.steps().size() : 0;
+            log.info("Pipeline request with {} steps by user/identity: {}", stepCount, userIdentifier);
+            return ResponseEntity.ok(pluginPipelineService.runPipeline(request.steps(), authentication));
+        } catch (PluginDisabledException e) {
+            log.warn("Pipeline failed - a plugin is disabled. Reason: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("success", false, "error", "Plugin disabled by administrator.", "message", e.getMessage()));
+        } catch (CircuitOpenException e) {
+            log.debug("Pipeline rejected - {}", e.getMessage());
+            return circuitOpenResponse(e);
+        } catch (InstanceUnavailableException e) {
+            log.warn("Pipeline rejected - {}", e.getMessage());
+            return busyResponse(e);
+        } catch (ConcurrencyLimitExceededException | MemoryBudgetExceededException e) {
+            // Load shedding: logged at debug like an open breaker, it happens a lot under overload
+            log.debug("Pipeline rejected - {}", e.getMessage());
+            return overloadedResponse(e);
+        } catch (CancellationException e) {
+            return cancelledResponse(e);
+        } catch (IllegalArgumentException e) { // Unknown plugin or invalid pipeline
+            log.warn("Pipeline failed - invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("success", false, "error", e.getMessage()));
+        } catch (AccessDeniedException e) {
+            log.warn("Pipeline failed - access denied: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", "No access permission for this plugin.", "message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error running pipeline: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("success", false, "error", "Pipeline failed: " + e.getMessage()));
+        }
+    }
+
     @PostMapping("/debug/{pluginName}/process")
     public ResponseEntity<Map<String, Object>> processPluginDebug(
             @PathVariable String pluginName,
-            @RequestBody Map<String, Object> input,
+            @PluginInput Map<String, Object> input,
             Authentication authentication) {
         return handleProcessRequest(pluginName, input, authentication, true);
     }
@@ -189,15 +364,23 @@ public class PluginController {
     @PostMapping("/universal/{pluginName}/process")
     public ResponseEntity<Map<String, Object>> processUniversalPlugin(
             @PathVariable String pluginName,
-            @RequestBody Map<String, Object> input,
+            @PluginInput Map<String, Object> input,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestHeader(value = ReplicaRouter.ROUTED_HEADER, required = false) String routedFrom,
             Authentication authentication) {
-        // Delegate to the common handler
+        // Same routing as /{pluginName}/process, then the common handler
+        RoutedResponse routed = replicaRouter.route(pluginName, input, authorization, routedFrom);
+        if (routed != null) {
+            return routedResponse(routed);
+        }
         return handleProcessRequest(pluginName, input, authentication, false);
     }
 
     @PostMapping("/upload")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, String>> uploadPlugin(@RequestParam("file") MultipartFile file, Authentication authentication) {
+    public ResponseEntity<Map<String, String>> uploadPlugin(@RequestParam("file") MultipartFile file,
+                                                            @RequestParam(value = "canaryPercent", required = false) Integer canaryPercent,
+                                                            Authentication authentication) {
         log.info("Plugin upload attempt by user: {}", authentication.getName());
         try {
             if (file.isEmpty()) {
@@ -226,21 +409,59 @@ public class PluginController {
             }
             // --- END Directory Traversal Check ---
 
-            Files.copy(file.getInputStream(), targetPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            // Stage the upload next to the target, then compare its content hash with the loaded JARs
+            Path stagedPath = Files.createTempFile(pluginsDirectory, ".upload-", ".jar.tmp");
+            try {
+                Files.copy(file.getInputStream(), stagedPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                String sha256 = ManualPluginLoader.sha256(stagedPath);
+                Optional<Path> identicalJar = manualPluginLoader.findJarBySha256(sha256);
+                if (identicalJar.isPresent()) {
+                    log.info("Uploaded plugin JAR '{}' is identical to already loaded '{}' (sha256 {}). Nothing to do.",
+                            sanitizedFilename, identicalJar.get().getFileName(), sha256);
+                    Map<String, String> response = new HashMap<>();
+                    response.put("status", "unchanged");
+                    response.put("message", "Plugin '" + sanitizedFilename + "' is identical to the loaded '" + identicalJar.get().getFileName() + "'. No reload needed.");
+                    response.put("pluginFilename", identicalJar.get().getFileName().toString());
+                    response.put("sha256", sha256);
+                    return ResponseEntity.ok(response);
+                }
+                if (canaryPercent != null && manualPluginLoader.isJarIndexed(targetPath)) {
+                    // New build of a loaded JAR: serve a share of the calls from it until it is promoted or rolled back
+                    Path candidatePath = pluginsDirectory.resolve(sanitizedFilename + CANARY_SUFFIX);
+                    Files.move(stagedPath, candidatePath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                    JarLoadResult canary = canaryService.start(candidatePath, targetPath, canaryPercent);
+                    log.info("Plugin JAR '{}' uploaded as canary for {}% of calls: {}", sanitizedFilename, canaryPercent, canary.pluginNames());
+                    Map<String, String> response = new HashMap<>();
+                    response.put("status", "canary");
+                    response.put("message", "Plugin '" + sanitizedFilename + "' loaded as a canary for " + canaryPercent + "% of calls.");
+                    response.put("pluginFilename", sanitizedFilename);
+                    response.put("sha256", canary.sha256());
+                    response.put("canaryPlugins", String.join(",", canary.pluginNames()));
+                    response.put("canaryPercent", String.valueOf(canaryPercent));
+                    return ResponseEntity.ok(response);
+                }
+                Files.move(stagedPath, targetPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(stagedPath);
+            }
             log.info("Plugin JAR '{}' (original: '{}') uploaded successfully to: {}", sanitizedFilename, originalFilename, targetPath);
 
-            // After uploading, trigger a reload of plugins
-            Path pluginsPath = Paths.get(System.getProperty("user.dir"), "plugins-deploy").toAbsolutePath();
-            List<PluginInterface> plugins = manualPluginLoader.loadPlugins(pluginsPath);
-            log.info("Reloaded plugins after new JAR upload, {} plugins loaded", plugins.size());
+            // Load only this JAR; an existing JAR at the same path is replaced with its own class loader
+            JarLoadResult loadResult = manualPluginLoader.loadPluginJar(targetPath);
+            log.info("Loaded plugin JAR '{}' ({}): {}", sanitizedFilename, loadResult.status(), loadResult.pluginNames());
 
             Map<String, String> response = new HashMap<>();
             response.put("status", "success");
-            response.put("message", "Plugin '" + sanitizedFilename + "' uploaded and plugins reloaded successfully by admin.");
+            response.put("message", "Plugin '" + sanitizedFilename + "' uploaded and loaded successfully by admin.");
             response.put("pluginFilename", sanitizedFilename); // Return the sanitized name it was saved as
             response.put("pluginPath", targetPath.toString());
-            response.put("loadedCount", String.valueOf(plugins.size()));
+            response.put("loadStatus", loadResult.status().name());
+            response.put("sha256", loadResult.sha256());
+            response.put("loadedPlugins", String.join(",", loadResult.pluginNames()));
+            response.put("loadedCount", String.valueOf(manualPluginLoader.getLoadedPlugins().size()));
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) { // Invalid canary percentage
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
         } catch (IOException e) { // Catch specific IOException for file operations
             log.error("IOException during plugin upload by user {}: {}", authentication.getName(), e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("status", "error", "message", "Failed to save uploaded plugin file: " + e.getMessage()));
@@ -255,12 +476,11 @@ public class PluginController {
     public ResponseEntity<Map<String, String>> deletePlugin(@PathVariable String pluginName, Authentication authentication) {
         log.info("Plugin delete attempt for '{}' by user: {}", pluginName, authentication.getName());
         try {
+            // Unloads the plugin's JAR and closes its class loader; other plugins are left untouched
             boolean deleted = manualPluginLoader.deletePlugin(pluginName);
             if (!deleted) {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("status", "error", "message", "Failed to delete plugin file or plugin not found."));
             }
-            Path pluginsPath = Paths.get(System.getProperty("user.dir"), "plugins-deploy").toAbsolutePath();
-            manualPluginLoader.loadPlugins(pluginsPath);
             return ResponseEntity.ok(Map.of("status", "success", "message", "Plugin deleted successfully by admin."));
         } catch (Exception e) {
             log.error("Failed plugin delete for '{}' by user {}: {}", pluginName, authentication.getName(), e.getMessage(), e);
@@ -383,19 +603,15 @@ public class PluginController {
             if (!deleted) {
                 log.warn("Failed to delete plugin with ID: '{}' by user: {}",
                         pluginId, adminUsername);
-                // Assuming plugin was unloaded but JAR deletion might be pending
-                Path pluginsPath = pluginsDirectory.toAbsolutePath();
-                manualPluginLoader.loadPlugins(pluginsPath); // Refresh list
+                // The JAR index had no file for this plugin; nothing else was unloaded
                 return ResponseEntity.status(HttpStatus.ACCEPTED) // Or INTERNAL_SERVER_ERROR if immediate delete is critical
                         .body(Map.of(
                                 "status", "pending_or_failed_immediate_delete",
-                                "message", "Plugin unloaded. JAR deletion failed immediately (may be locked) or was scheduled for JVM exit. Plugins reloaded."
+                                "message", "Plugin JAR could not be located or deleted. Other plugins were not affected."
                         ));
             }
 
-            // Reload plugins after successful deletion
-            Path pluginsPath = pluginsDirectory.toAbsolutePath();
-            manualPluginLoader.loadPlugins(pluginsPath);
+            // deletePlugin already unloaded exactly this plugin's JAR, no reload needed
 
             log.info("Successfully deleted plugin with ID: '{}' by user: {}",
                     pluginId, adminUsername);
@@ -0,0 +1,376 @@
+// src/main/java/kostovite/controllers/PluginSocketHandler.java
+package kostovite.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.auth.FirebaseAuthException;
+import jakarta.annotation.PreDestroy;
+import kostovite.InvocationContext;
+import kostovite.PluginInterface;
+import kostovite.config.FirebaseTokenFilter;
+import kostovite.services.ArtifactStore;
+import kostovite.services.PluginCircuitBreakers.CircuitOpenException;
+import kostovite.services.PluginConcurrencyLimiter.ConcurrencyLimitExceededException;
+import kostovite.services.PluginInstanceProvider.InstanceUnavailableException;
+import kostovite.services.PluginMemoryAdmission.MemoryBudgetExceededException;
+import kostovite.services.PluginService;
+import kostovite.services.PluginService.PluginDisabledException;
+import kostovite.store.StatusStore.StoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket endpoint (/api/ws/plugins) for as-you-type tools: one connection, authenticated once,
+ * carries any number of plugin calls as JSON text messages.
+ * <ul>
+ *   <li>{"type":"auth","token":"&lt;Firebase ID token&gt;"}: authenticate (or refresh) the connection.
+ *       A token in the handshake's Authorization header works as well. Once the token has expired,
+ *       invoke is answered with status 401 until a fresh token is sent.</li>
+ *   <li>{"type":"invoke","id":"...","plugin":"HashText","input":{...},"channel":"..."}: call a plugin.
+ *       Calls on the same channel (the plugin name by default) are debounced: only the last one within
+ *       plugins.websocket.debounce-ms runs, and a newer call cancels the one still running.</li>
+ *   <li>{"type":"cancel","channel":"..."}: drop the pending and running call of a channel.</li>
+ * </ul>
+ * Replies carry the call's "id": {"type":"result","id":...,"result":{...}} or
+ * {"type":"error","id":...,"status":503,"error":"..."} with the status the HTTP endpoint would answer.
+ * Superseded calls get no reply.
+ */
+@Component
+public class PluginSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginSocketHandler.class);
+    private static final TypeReference<Map<String, Object>> MESSAGE_TYPE = new TypeReference<>() {};
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 1024 * 1024;
+
+    private final PluginService pluginService;
+    private final FirebaseTokenFilter tokenFilter;
+    private final ObjectMapper objectMapper;
+    private final ArtifactStore artifactStore;
+    private final long debounceMillis;
+    private final int maxChannels;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService debouncer;
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    public PluginSocketHandler(PluginService pluginService, FirebaseTokenFilter tokenFilter, ObjectMapper objectMapper,
+                               ArtifactStore artifactStore,
+                               @Value("${plugins.websocket.debounce-ms:150}") long debounceMillis,
+                               @Value("${plugins.websocket.max-channels:16}") int maxChannels,
+                               @Value("${plugins.websocket.threads:8}") int threads,
+                               @Value("${plugins.websocket.queue-size:64}") int queueSize) {
+        this.pluginService = pluginService;
+        this.tokenFilter = tokenFilter;
+        this.objectMapper = objectMapper;
+        this.artifactStore = artifactStore;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.maxChannels = Math.max(1, maxChannels);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "plugin-socket-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.debouncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "plugin-socket-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        debouncer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Sends come from worker threads; the decorator serializes them and drops a client that stops reading
+        WebSocketSession out = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        // Set by the token filter when the handshake carried an Authorization header
+        Authentication authentication = session.getPrincipal() instanceof Authentication auth ? auth : null;
+        connections.put(session.getId(), new Connection(out, authentication, artifactOrigin(session.getUri())));
+        log.debug("Plugin socket {} opened for {}", session.getId(), authentication != null ? authentication.getName() : "anonymous");
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.channels.values().forEach(channel -> channel.cancel("socket closed"));
+        }
+        log.debug("Plugin socket {} closed: {}", session.getId(), status);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+        Map<String, Object> request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), MESSAGE_TYPE);
+        } catch (JsonProcessingException e) {
+            send(connection, error(null, 400, "Malformed message: " + e.getOriginalMessage()));
+            return;
+        }
+        Object id = request.get("id");
+        String type = String.valueOf(request.get("type"));
+        switch (type) {
+            case "auth" -> authenticate(connection, id, request.get("token"));
+            case "invoke" -> invoke(connection, id, request);
+            case "cancel" -> {
+                Channel channel = connection.channels.get(String.valueOf(request.get("channel")));
+                if (channel != null) {
+                    channel.cancel("cancelled by client");
+                }
+            }
+            default -> send(connection, error(id, 400, "Unknown message type: " + type));
+        }
+    }
+
+    private void authenticate(Connection connection, Object id, Object token) {
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("type", "auth");
+        reply.put("id", id);
+        if (!(token instanceof String idToken) || idToken.isEmpty()) {
+            send(connection, error(id, 400, "Missing token."));
+            return;
+        }
+        try {
+            Authentication authentication = tokenFilter.authenticate(idToken);
+            connection.setAuthentication(authentication);
+            reply.put("success", true);
+            reply.put("user", authentication.getName());
+            send(connection, reply);
+        } catch (FirebaseAuthException e) {
+            send(connection, error(id, 401, "Invalid Firebase token: " + e.getMessage()));
+        } catch (StoreException e) {
+            log.error("Error fetching user data for plugin socket authentication", e);
+            send(connection, error(id, 401, "Error fetching user data."));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invoke(Connection connection, Object id, Map<String, Object> request) {
+        Object pluginName = request.get("plugin");
+        Object input = request.getOrDefault("input", Map.of());
+        if (!(pluginName instanceof String pluginId) || !(input instanceof Map<?, ?>)) {
+            send(connection, error(id, 400, "An invoke message needs \"plugin\" and an object \"input\"."));
+            return;
+        }
+        // The connection outlives its token: an expired one is not silently kept, the client must refresh it
+        if (connection.isTokenExpired()) {
+            send(connection, error(id, 401, "Firebase token expired; send a new auth message."));
+            return;
+        }
+        String channelKey = request.get("channel") != null ? String.valueOf(request.get("channel")) : pluginId;
+        Channel channel = connection.channels.get(channelKey);
+        if (channel == null) {
+            if (connection.channels.size() >= maxChannels) {
+                send(connection, error(id, 429, "Too many channels on this connection (max " + maxChannels + ")."));
+                return;
+            }
+            channel = connection.channels.computeIfAbsent(channelKey, key -> new Channel());
+        }
+        Call call = new Call(connection, channel, id, pluginId, (Map<String, Object>) input);
+        channel.schedule(call);
+    }
+
+    private void run(Call call) {
+        InvocationContext context = pluginService.newInvocationContext();
+        if (!call.channel.start(call, context)) {
+            return; // Superseded while queued
+        }
+        Authentication authentication = call.connection.authentication;
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        try {
+            PluginInterface plugin = pluginService.resolveAccessiblePlugin(call.pluginId, authentication);
+            Map<String, Object> result = pluginService.invokePlugin(plugin, call.pluginId, call.input, context);
+            Map<String, Object> reply = new LinkedHashMap<>();
+            reply.put("type", "result");
+            reply.put("id", call.id);
+            reply.put("plugin", call.pluginId);
+            reply.put("result", result);
+            reply(call, reply);
+        } catch (CancellationException e) {
+            if (context.isDeadlineExceeded()) {
+                reply(call, error(call.id, 504, "Plugin invocation timed out."));
+            }
+        } catch (PluginDisabledException e) {
+            reply(call, error(call.id, 503, "Plugin disabled by administrator."));
+        } catch (CircuitOpenException | InstanceUnavailableException | ConcurrencyLimitExceededException
+                 | MemoryBudgetExceededException e) {
+            reply(call, error(call.id, 503, e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            reply(call, error(call.id, 404, e.getMessage()));
+        } catch (AccessDeniedException e) {
+            reply(call, error(call.id, 403, "No access permission for this plugin."));
+        } catch (Exception e) {
+            log.error("Error in plugin socket call to {}: {}", call.pluginId, e.getMessage(), e);
+            reply(call, error(call.id, 500, "Processing failed: " + e.getMessage()));
+        } finally {
+            SecurityContextHolder.clearContext();
+            call.channel.finish(call);
+        }
+    }
+
+    // Only the latest call of a channel answers
+    private void reply(Call call, Map<String, Object> message) {
+        if (call.channel.isLatest(call)) {
+            send(call.connection, message);
+        }
+    }
+
+    private void send(Connection connection, Map<String, Object> message) {
+        // Sends run outside any request; artifact URLs are built from the handshake's origin
+        ArtifactStore.bindOrigin(connection.artifactOrigin);
+        try {
+            String payload = objectMapper.writeValueAsString(message);
+            connection.out.sendMessage(new TextMessage(payload));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not send to plugin socket {}: {}", connection.out.getId(), e.getMessage());
+        } finally {
+            ArtifactStore.bindOrigin(null);
+        }
+    }
+
+    // ws://host:port/api/ws/plugins -> http://host:port (plugins.artifacts.base-url still wins when set)
+    private String artifactOrigin(URI handshake) {
+        String configured = artifactStore.currentOrigin();
+        if (!configured.isEmpty() || handshake == null || handshake.getRawAuthority() == null) {
+            return configured.isEmpty() ? null : configured;
+        }
+        return ("wss".equalsIgnoreCase(handshake.getScheme()) ? "https" : "http") + "://" + handshake.getRawAuthority();
+    }
+
+    private static Map<String, Object> error(Object id, int status, String error) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "error");
+        message.put("id", id);
+        message.put("status", status);
+        message.put("error", error);
+        return message;
+    }
+
+    private static final class Connection {
+        private final WebSocketSession out;
+        private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+        private volatile Authentication authentication;
+        private volatile long tokenExpiresAt; // Epoch millis; 0 when anonymous or unknown
+        private final String artifactOrigin;
+
+        Connection(WebSocketSession out, Authentication authentication, String artifactOrigin) {
+            this.out = out;
+            this.artifactOrigin = artifactOrigin;
+            setAuthentication(authentication);
+        }
+
+        void setAuthentication(Authentication authentication) {
+            this.tokenExpiresAt = FirebaseTokenFilter.tokenExpiry(authentication);
+            this.authentication = authentication;
+        }
+
+        boolean isTokenExpired() {
+            long expiresAt = tokenExpiresAt;
+            return expiresAt != 0 && System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    private record Call(Connection connection, Channel channel, Object id, String pluginId, Map<String, Object> input) {
+    }
+
+    /**
+     * Debounce state of one channel: the call waiting for the debounce delay and the one running
+     */
+    private final class Channel {
+        // Guarded by this
+        private Call latest;
+        private ScheduledFuture<?> pending;
+        private Call running;
+        private InvocationContext runningContext;
+
+        synchronized void schedule(Call call) {
+            latest = call;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            if (runningContext != null) {
+                runningContext.cancel("superseded");
+            }
+            pending = debouncer.schedule(() -> submit(call), debounceMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void submit(Call call) {
+            try {
+                executor.execute(() -> run(call));
+            } catch (RejectedExecutionException e) {
+                reply(call, error(call.id, 503, "Too many plugin calls in progress, try again."));
+            }
+        }
+
+        synchronized boolean start(Call call, InvocationContext context) {
+            if (call != latest) {
+                return false;
+            }
+            pending = null;
+            running = call;
+            runningContext = context;
+            return true;
+        }
+
+        synchronized void finish(Call call) {
+            if (running == call) {
+                running = null;
+                runningContext = null;
+            }
+        }
+
+        synchronized boolean isLatest(Call call) {
+            return call == latest;
+        }
+
+        synchronized void cancel(String reason) {
+            latest = null;
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+            if (runningContext != null) {
+                runningContext.cancel(reason);
+            }
+        }
+    }
+}
@@ -4,19 +4,34 @@ package kostovite.controllers;
 import kostovite.ExtendedPluginInterface;
 import kostovite.ManualPluginLoader;
 import kostovite.PluginInterface;
+import jakarta.servlet.http.HttpServletRequest;
+import kostovite.config.PluginInput;
+import kostovite.services.BufferArena;
+import kostovite.services.BufferArena.PayloadTooLargeException;
+import kostovite.services.PluginCatalogService;
+import kostovite.services.PluginCircuitBreakers.CircuitOpenException;
+import kostovite.services.PluginConcurrencyLimiter.ConcurrencyLimitExceededException;
+import kostovite.services.PluginInstanceProvider.InstanceUnavailableException;
+import kostovite.services.PluginMemoryAdmission.MemoryBudgetExceededException;
 import kostovite.services.PluginService;
+import kostovite.services.PluginService.PluginDisabledException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -27,12 +42,20 @@ public class UniversalPluginController {
 
     private final ManualPluginLoader pluginLoader;
     private final PluginService pluginService;
+    private final PluginCatalogService pluginCatalogService;
+    private final BufferArena bufferArena;
+    private final long maxUploadBytes;
+    private static final String BINARY_INPUT_FLAG = "acceptsBinaryInput";
     private static final Logger logger = Logger.getLogger(UniversalPluginController.class.getName());
 
     @Autowired
-    public UniversalPluginController(ManualPluginLoader pluginLoader, PluginService pluginService) {
+    public UniversalPluginController(ManualPluginLoader pluginLoader, PluginService pluginService, PluginCatalogService pluginCatalogService,
+                                     BufferArena bufferArena, @Value("${plugins.buffers.max-upload-bytes:10485760}") long maxUploadBytes) {
         this.pluginLoader = pluginLoader;
         this.pluginService = pluginService;
+        this.pluginCatalogService = pluginCatalogService;
+        this.bufferArena = bufferArena;
+        this.maxUploadBytes = maxUploadBytes;
         logger.info("UniversalPluginController initialized with ManualPluginLoader and PluginService");
     }
 
@@ -92,13 +115,30 @@ public class UniversalPluginController {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
     }
 
-    // --- Helper Method for Unsupported Plugin Type ---
-    private ResponseEntity<Map<String, Object>> buildUnsupportedPluginResponse(String pluginName, String operation) {
-        logger.warning("Plugin " + pluginName + " does not support " + operation);
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("success", false);
-        errorResponse.put("errorMessage", "Plugin '" + pluginName + "' is not an ExtendedPluginInterface and does not support " + operation);
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    // --- Helper Method for resolveAccessiblePlugin failures on the upload endpoints ---
+    private ResponseEntity<Map<String, Object>> buildResolveFailureResponse(String pluginName, Exception e) {
+        if (e instanceof PluginDisabledException) {
+            logger.warning("Upload to disabled plugin " + pluginName + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("success", false, "errorMessage", e.getMessage()));
+        }
+        if (e instanceof AccessDeniedException) {
+            return buildAccessDeniedResponse(pluginName);
+        }
+        if (e instanceof IllegalArgumentException) {
+            return buildPluginNotFoundResponse(pluginName);
+        }
+        logger.log(Level.SEVERE, "Error resolving plugin " + pluginName, e);
+        return ResponseEntity.internalServerError().body(Map.of("success", false, "errorMessage", "Error resolving plugin: " + e.getMessage()));
+    }
+
+    // --- Helper method to hand uploaded bytes to a plugin ---
+    // Binary-aware plugins read the pooled buffer in place; the rest get Base64 as before, encoded straight from it
+    private Object toPluginPayload(PluginInterface plugin, ByteBuffer data) {
+        Map<String, Object> metadata = pluginService.getPluginMetadataSafely(plugin);
+        if (metadata != null && Boolean.TRUE.equals(metadata.get(BINARY_INPUT_FLAG))) {
+            return data.asReadOnlyBuffer();
+        }
+        return bufferArena.encodeBase64(data);
     }
 
     // --- Helper method to guess field name based on mime type ---
@@ -115,32 +155,12 @@ public class UniversalPluginController {
 
     // GET /api/plugins/universal - Allows anonymous access but filters results based on permissions
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllPlugins(Authentication authentication) { // Authentication can be null
-        String userType = pluginService.extractUserType(authentication); // Will return "normal" if null
-        logger.info("Getting all plugins list, checking access for user type: " + userType);
+    public ResponseEntity<byte[]> getAllPlugins(Authentication authentication) { // Authentication can be null
+        String userType = pluginService.extractUserType(authentication);
+        logger.fine("Getting all plugins list, checking access for user type: " + userType);
 
-        Map<String, Object> response = new HashMap<>();
-        List<PluginInterface> allPlugins = pluginLoader.getLoadedPlugins();
-
-        // Filter plugins based on user access level (uses "normal" for anonymous)
-        List<String> accessiblePlugins = allPlugins.stream()
-                .filter(plugin -> {
-                    try {
-                        Map<String, Object> metadata = plugin.getMetadata();
-                        String pluginAccessLevel = String.valueOf(metadata.getOrDefault("accessLevel", "normal")).toLowerCase();
-                        return pluginService.canUserAccess(userType, pluginAccessLevel);
-                    } catch (Exception e) {
-                        logger.log(Level.WARNING, "Error checking access for plugin " + plugin.getName(), e);
-                        return false;
-                    }
-                })
-                .map(PluginInterface::getName)
-                .collect(Collectors.toList());
-
-        response.put("count", accessiblePlugins.size());
-        response.put("plugins", accessiblePlugins);
-        response.put("userType", userType); // Reflects the type used for filtering
-        return ResponseEntity.ok(response);
+        // Pre-built per tier and invalidated on plugin changes; ETag gives 304 on repeat loads
+        return PluginController.catalogResponse(pluginCatalogService.getUniversalCatalog(userType));
     }
 
     /**
@@ -150,7 +170,7 @@ public class UniversalPluginController {
     @PostMapping("/{pluginName}")
     public ResponseEntity<Map<String, Object>> processPluginJsonData(
             @PathVariable String pluginName,
-            @RequestBody Map<String, Object> input,
+            @PluginInput Map<String, Object> input,
             Authentication authentication) { // Authentication can be null
 
         logger.info("Processing JSON request for plugin: " + pluginName + " by user: " +
@@ -206,7 +226,8 @@ public class UniversalPluginController {
 
     /**
      * Handles file uploads via multipart/form-data.
-     * Allows anonymous access but you can add access control if needed.
+     * Anonymous callers reach normal-tier plugins; disabled and higher-tier plugins are refused.
+     * The file is read into a pooled direct buffer that is returned when the request completes.
      */
     @PostMapping(value = "/{pluginName}/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Map<String, Object>> processPluginMultipartData(
@@ -219,14 +240,11 @@ public class UniversalPluginController {
         logger.info(String.format("Received multipart upload for plugin '%s': file='%s', size=%d, params=%s",
                 pluginName, file.getOriginalFilename(), file.getSize(), allParams.keySet()));
 
-        // Find plugin by name, does not check access level itself
-        PluginInterface plugin = findPluginByName(pluginName);
-        if (plugin == null) {
-            return buildPluginNotFoundResponse(pluginName);
-        }
-
-        if (!(plugin instanceof ExtendedPluginInterface extendedPlugin)) {
-            return buildUnsupportedPluginResponse(pluginName, "data processing via multipart upload");
+        PluginInterface plugin;
+        try {
+            plugin = pluginService.resolveAccessiblePlugin(pluginName, authentication);
+        } catch (Exception e) {
+            return buildResolveFailureResponse(pluginName, e);
         }
 
         try {
@@ -236,9 +254,6 @@ public class UniversalPluginController {
                 logger.warning("Received empty file for multipart upload to plugin: " + pluginName);
                 return ResponseEntity.badRequest().body(Map.of("success", false, "errorMessage", "Uploaded file is empty."));
             }
-            byte[] fileBytes = file.getBytes();
-            String base64Data = Base64.getEncoder().encodeToString(fileBytes);
-            logger.fine("Encoded multipart file to Base64 (length: " + base64Data.length() + ")");
 
             String dataFieldName = allParams.get("dataFieldName");
             if (dataFieldName == null || dataFieldName.isBlank()) {
@@ -253,8 +268,12 @@ public class UniversalPluginController {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "errorMessage", "Missing required form parameter: dataFieldName"));
             }
 
-            input.put(dataFieldName, base64Data);
-            logger.fine("Putting Base64 data into input map field: " + dataFieldName);
+            ByteBuffer fileData;
+            try (InputStream in = file.getInputStream()) {
+                fileData = bufferArena.readRequestBody(in, file.getSize(), maxUploadBytes).buffer();
+            }
+            input.put(dataFieldName, toPluginPayload(plugin, fileData));
+            logger.fine("Putting " + fileData.remaining() + " uploaded bytes into input map field: " + dataFieldName);
 
             String mimeTypeFieldName = allParams.get("mimeTypeFieldName");
             if (mimeTypeFieldName != null && !mimeTypeFieldName.isBlank() && file.getContentType() != null) {
@@ -270,11 +289,22 @@ public class UniversalPluginController {
             });
             logger.info("Constructed input map for plugin " + pluginName + ": " + input.keySet());
 
-            Map<String, Object> result = extendedPlugin.process(input);
+            Map<String, Object> result = pluginService.invokePlugin(plugin, pluginName, input);
             long duration = System.currentTimeMillis() - startTime;
             logger.info(String.format("Plugin '%s' processed multipart data successfully. Duration: %d ms", pluginName, duration));
             return ResponseEntity.ok(result);
 
+        } catch (CircuitOpenException e) {
+            return PluginController.circuitOpenResponse(e);
+        } catch (InstanceUnavailableException e) {
+            return PluginController.busyResponse(e);
+        } catch (ConcurrencyLimitExceededException | MemoryBudgetExceededException e) {
+            return PluginController.overloadedResponse(e);
+        } catch (CancellationException e) {
+            return PluginController.cancelledResponse(e);
+        } catch (PayloadTooLargeException e) {
+            logger.warning("Rejected multipart upload for plugin " + pluginName + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("success", false, "errorMessage", e.getMessage()));
         } catch (IOException ioException) {
             logger.log(Level.SEVERE, "IOException processing multipart file for plugin " + pluginName, ioException);
             return ResponseEntity.internalServerError().body(Map.of("success", false,"errorMessage", "Error reading uploaded file: " + ioException.getMessage()));
@@ -287,12 +317,13 @@ public class UniversalPluginController {
 
     /**
      * Handles file uploads as raw binary data in the request body.
-     * Allows anonymous access but you can add access control if needed.
+     * Same access rules as the multipart endpoint. The body is streamed into a pooled direct
+     * buffer (sized from Content-Length) instead of being bound to a byte[].
      */
     @PostMapping(value = "/{pluginName}/binary", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
     public ResponseEntity<Map<String, Object>> processPluginBinaryData(
             @PathVariable String pluginName,
-            @RequestBody byte[] fileData,
+            HttpServletRequest request,
             @RequestHeader("Content-Type") String contentType,
             @RequestHeader(value = "X-Data-Field-Name", required = false) String dataFieldNameHeader,
             @RequestHeader(value = "X-Mime-Type-Field-Name", required = false) String mimeTypeFieldNameHeader,
@@ -301,28 +332,18 @@ public class UniversalPluginController {
 
         long startTime = System.currentTimeMillis();
         logger.info(String.format("Received binary upload for plugin '%s': size=%d, Content-Type=%s",
-                pluginName, fileData.length, contentType));
-
-        // Find plugin by name, does not check access level itself
-        PluginInterface plugin = findPluginByName(pluginName);
-        if (plugin == null) {
-            return buildPluginNotFoundResponse(pluginName);
-        }
+                pluginName, request.getContentLengthLong(), contentType));
 
-        if (!(plugin instanceof ExtendedPluginInterface extendedPlugin)) {
-            return buildUnsupportedPluginResponse(pluginName, "data processing via binary upload");
+        PluginInterface plugin;
+        try {
+            plugin = pluginService.resolveAccessiblePlugin(pluginName, authentication);
+        } catch (Exception e) {
+            return buildResolveFailureResponse(pluginName, e);
         }
 
         try {
             Map<String, Object> input = new HashMap<>();
 
-            if (fileData.length == 0) {
-                logger.warning("Received empty binary data for plugin: " + pluginName);
-                return ResponseEntity.badRequest().body(Map.of("success", false, "errorMessage", "Received empty binary data payload."));
-            }
-            String base64Data = Base64.getEncoder().encodeToString(fileData);
-            logger.fine("Encoded binary data to Base64 (length: " + base64Data.length() + ")");
-
             String dataFieldName = dataFieldNameHeader;
             if (dataFieldName == null || dataFieldName.isBlank()) {
                 dataFieldName = guessDataFieldName(contentType);
@@ -336,8 +357,13 @@ public class UniversalPluginController {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "errorMessage", "Missing required header: X-Data-Field-Name"));
             }
 
-            input.put(dataFieldName, base64Data);
-            logger.fine("Putting Base64 data into input map field: " + dataFieldName);
+            ByteBuffer fileData = bufferArena.readRequestBody(request.getInputStream(), request.getContentLengthLong(), maxUploadBytes).buffer();
+            if (!fileData.hasRemaining()) {
+                logger.warning("Received empty binary data for plugin: " + pluginName);
+                return ResponseEntity.badRequest().body(Map.of("success", false, "errorMessage", "Received empty binary data payload."));
+            }
+            input.put(dataFieldName, toPluginPayload(plugin, fileData));
+            logger.fine("Putting " + fileData.remaining() + " uploaded bytes into input map field: " + dataFieldName);
 
             if (mimeTypeFieldNameHeader != null && !mimeTypeFieldNameHeader.isBlank() && contentType != null) {
                 input.put(mimeTypeFieldNameHeader, contentType);
@@ -351,11 +377,22 @@ public class UniversalPluginController {
 
             logger.info("Constructed input map for plugin " + pluginName + ": " + input.keySet());
 
-            Map<String, Object> result = extendedPlugin.process(input);
+            Map<String, Object> result = pluginService.invokePlugin(plugin, pluginName, input);
             long duration = System.currentTimeMillis() - startTime;
             logger.info(String.format("Plugin '%s' processed binary data successfully. Duration: %d ms", pluginName, duration));
             return ResponseEntity.ok(result);
 
+        } catch (CircuitOpenException e) {
+            return PluginController.circuitOpenResponse(e);
+        } catch (InstanceUnavailableException e) {
+            return PluginController.busyResponse(e);
+        } catch (ConcurrencyLimitExceededException | MemoryBudgetExceededException e) {
+            return PluginController.overloadedResponse(e);
+        } catch (CancellationException e) {
+            return PluginController.cancelledResponse(e);
+        } catch (PayloadTooLargeException e) {
+            logger.warning("Rejected binary upload for plugin " + pluginName + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("success", false, "errorMessage", e.getMessage()));
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error processing binary upload for plugin " + pluginName, e);
             return ResponseEntity.internalServerError().body(Map.of("success", false,"errorMessage", "Error processing binary data: " + e.getMessage()));
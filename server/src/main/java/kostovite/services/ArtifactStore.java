@@ -0,0 +1,358 @@
+// src/main/java/kostovite/services/ArtifactStore.java
+package kostovite.services;
+
+import kostovite.BinaryArtifact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local disk store for generated binary output ({@link BinaryArtifact}), keyed by the SHA-256 of the content.
+ * Plugin results carry the artifact; when the response is serialized it is stored here and replaced
+ * with its absolute URL, served by GET /api/artifacts/{id}. Identical output (the same QR code) is stored once.
+ * The frontend runs on another origin, so URLs are built from plugins.artifacts.base-url or, when that is
+ * empty, from the request being answered (or the origin bound with {@link #bindOrigin} for WebSocket and SSE sends).
+ * Output serialized with no origin at all (the job journal) keeps an "artifact:&lt;id&gt;" reference that
+ * {@link #resolveReferences} turns into a URL when it is read in a request.
+ * Total size is bounded by plugins.artifacts.max-bytes, evicting the least recently used files. Evicted files
+ * are deleted after a grace period, so a response that was already handed the file (sendfile) can still open it.
+ */
+@Service
+public class ArtifactStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ArtifactStore.class);
+    private static final Pattern ARTIFACT_ID = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,8}");
+    private static final Pattern ARTIFACT_URL = Pattern.compile("https?://[^/?#]+(?:/[^?#]*)?/api/artifacts/([0-9a-f]{64}\\.[a-z0-9]{1,8})");
+    private static final String TEMP_SUFFIX = ".tmp";
+    public static final String REFERENCE_PREFIX = "artifact:";
+    private static final long EVICTION_GRACE_MILLIS = 60_000;
+    private static final ThreadLocal<String> BOUND_ORIGIN = new ThreadLocal<>();
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/png", "png",
+            "image/jpeg", "jpg",
+            "image/gif", "gif",
+            "image/bmp", "bmp",
+            "image/webp", "webp",
+            "image/svg+xml", "svg",
+            "application/pdf", "pdf");
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final String baseUrl;
+
+    // Access-ordered: iteration starts at the least recently used artifact. Guarded by this.
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    // Evicted artifact -> time its file may be deleted. Guarded by this.
+    private final LinkedHashMap<String, Long> pendingDeletes = new LinkedHashMap<>();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public ArtifactStore(@Value("${plugins.artifacts.enabled:true}") boolean enabled,
+                         @Value("${plugins.artifacts.dir:data/artifacts}") String directory,
+                         @Value("${plugins.artifacts.max-bytes:536870912}") long maxBytes,
+                         @Value("${plugins.artifacts.base-url:}") String baseUrl) throws IOException {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.maxBytes = maxBytes;
+        this.baseUrl = baseUrl.replaceAll("/+$", "");
+        if (enabled) {
+            Files.createDirectories(this.directory);
+            loadExisting();
+        }
+    }
+
+    /**
+     * Store an artifact (if not present yet) and return the absolute URL clients fetch it from,
+     * or a {@link #REFERENCE_PREFIX} reference when no origin is known on this thread.
+     * Falls back to an inline data URI when the store is disabled or the write fails.
+     */
+    public String publish(BinaryArtifact artifact) {
+        if (!enabled) {
+            return artifact.toDataUri();
+        }
+        String id;
+        try {
+            id = store(artifact);
+        } catch (IOException e) {
+            log.warn("Could not store artifact ({}), returning it inline: {}", artifact, e.getMessage());
+            return artifact.toDataUri();
+        }
+        String origin = currentOrigin();
+        return origin.isEmpty() ? REFERENCE_PREFIX + id : url(origin, id);
+    }
+
+    /**
+     * @return The origin artifact URLs are built from on this thread, or "" when none is known
+     */
+    public String currentOrigin() {
+        if (!baseUrl.isEmpty()) {
+            return baseUrl;
+        }
+        String bound = BOUND_ORIGIN.get();
+        if (bound != null) {
+            return bound;
+        }
+        return RequestContextHolder.getRequestAttributes() != null
+                ? ServletUriComponentsBuilder.fromCurrentContextPath().toUriString()
+                : "";
+    }
+
+    /**
+     * Build artifact URLs on this thread from the given origin until it is unbound
+     * (sends to a WebSocket or SSE client, which happen outside the request)
+     * @param origin Origin such as "http://localhost:8081", or null to unbind
+     */
+    public static void bindOrigin(String origin) {
+        if (origin == null) {
+            BOUND_ORIGIN.remove();
+        } else {
+            BOUND_ORIGIN.set(origin);
+        }
+    }
+
+    /**
+     * Replace the artifact references in a result read back from the job journal with URLs for the current origin.
+     * Maps and lists are copied, everything else is returned as is.
+     */
+    public Object resolveReferences(Object value) {
+        String origin = currentOrigin();
+        if (origin.isEmpty()) {
+            return value;
+        }
+        return mapStrings(value, text -> {
+            if (text.startsWith(REFERENCE_PREFIX)) {
+                String id = text.substring(REFERENCE_PREFIX.length());
+                if (ARTIFACT_ID.matcher(id).matches()) {
+                    return url(origin, id);
+                }
+            }
+            return text;
+        });
+    }
+
+    /**
+     * Point the artifact URLs in a response of another replica at this server's current origin.
+     * The artifact stays on that replica; the "replica" parameter tells GET /api/artifacts/{id} where to fetch it.
+     * @param value Response body of the other replica
+     * @param replicaId Id of the replica that stored the artifacts
+     * @return The body with its artifact URLs rewritten (maps and lists are copied), or as is when no origin is known
+     */
+    public Object rehomeUrls(Object value, String replicaId) {
+        String origin = currentOrigin();
+        if (origin.isEmpty()) {
+            return value;
+        }
+        String query = "?replica=" + URLEncoder.encode(replicaId, StandardCharsets.UTF_8);
+        return mapStrings(value, text -> {
+            Matcher matcher = ARTIFACT_URL.matcher(text);
+            return matcher.matches() ? url(origin, matcher.group(1)) + query : text;
+        });
+    }
+
+    public static boolean isArtifactId(String id) {
+        return ARTIFACT_ID.matcher(id).matches();
+    }
+
+    private static Object mapStrings(Object value, UnaryOperator<String> mapper) {
+        if (value instanceof String text) {
+            return mapper.apply(text);
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> mapped = new LinkedHashMap<>();
+            map.forEach((key, entry) -> mapped.put(key, mapStrings(entry, mapper)));
+            return mapped;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> mapped = new ArrayList<>(list.size());
+            list.forEach(entry -> mapped.add(mapStrings(entry, mapper)));
+            return mapped;
+        }
+        return value;
+    }
+
+    private static String url(String origin, String id) {
+        return origin + "/api/artifacts/" + id;
+    }
+
+    /**
+     * @return The artifact ID ("&lt;sha256&gt;.&lt;ext&gt;")
+     */
+    public String store(BinaryArtifact artifact) throws IOException {
+        ByteBuffer data = artifact.getData();
+        String id = sha256(data.duplicate()) + '.' + extension(artifact.getContentType());
+        synchronized (this) {
+            if (sizes.get(id) != null) { // Also marks it recently used
+                deduplicated.increment();
+                return id;
+            }
+            pendingDeletes.remove(id); // Evicted but not deleted yet: it is written again below
+        }
+        Path target = directory.resolve(id);
+        Path temp = Files.createTempFile(directory, id, TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            // Readers only ever see complete files
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        synchronized (this) {
+            if (sizes.put(id, (long) artifact.size()) == null) {
+                totalBytes += artifact.size();
+                stored.increment();
+            }
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<String, Long>> eldest = sizes.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(id)) {
+                    continue;
+                }
+                totalBytes -= entry.getValue();
+                pendingDeletes.put(entry.getKey(), now + EVICTION_GRACE_MILLIS);
+                eldest.remove();
+                evicted.increment();
+            }
+            deleteEvicted(now);
+        }
+        return id;
+    }
+
+    // Under the lock, so a concurrent store of the same content cannot have its new file deleted. Caller holds this.
+    private void deleteEvicted(long now) {
+        Iterator<Map.Entry<String, Long>> pending = pendingDeletes.entrySet().iterator();
+        while (pending.hasNext()) {
+            Map.Entry<String, Long> entry = pending.next();
+            if (entry.getValue() > now) {
+                break; // Insertion order is deletion order
+            }
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+                pending.remove();
+            } catch (IOException e) {
+                // Still open on platforms that refuse that; try again on the next store
+                log.debug("Could not delete evicted artifact {} yet: {}", entry.getKey(), e.getMessage());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Open an artifact for reading and mark it recently used.
+     * An artifact evicted while it is being sent stays readable through the open channel.
+     * @return The open file, or null if the ID is unknown or evicted
+     */
+    public FileChannel open(String id) throws IOException {
+        if (!enabled || !ARTIFACT_ID.matcher(id).matches()) {
+            return null;
+        }
+        synchronized (this) {
+            if (sizes.get(id) == null) {
+                return null;
+            }
+        }
+        try {
+            return FileChannel.open(directory.resolve(id), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null; // Evicted in the meantime
+        }
+    }
+
+    public Path resolve(String id) {
+        return directory.resolve(id);
+    }
+
+    public String contentType(String id) {
+        String extension = id.substring(id.lastIndexOf('.') + 1);
+        return EXTENSIONS.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(extension))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse("application/octet-stream");
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("artifacts", sizes.size());
+        metrics.put("totalBytes", totalBytes);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("stored", stored.sum());
+        metrics.put("deduplicated", deduplicated.sum());
+        metrics.put("evicted", evicted.sum());
+        metrics.put("pendingDeletes", pendingDeletes.size());
+        return metrics;
+    }
+
+    // Rebuild the index from the directory, oldest modification first, so LRU order roughly survives restarts
+    private void loadExisting() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file); // Left over from a crash during a write
+                } else if (ARTIFACT_ID.matcher(name).matches()) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(file -> file.toFile().lastModified()));
+        for (Path file : files) {
+            long size = Files.size(file);
+            sizes.put(file.getFileName().toString(), size);
+            totalBytes += size;
+        }
+        log.info("Artifact store {}: {} artifacts, {} bytes", directory.toAbsolutePath(), sizes.size(), totalBytes);
+    }
+
+    private static String extension(String contentType) {
+        String extension = EXTENSIONS.get(contentType.toLowerCase());
+        return extension != null ? extension : "bin";
+    }
+
+    private static String sha256(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
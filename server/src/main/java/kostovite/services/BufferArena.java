@@ -0,0 +1,265 @@
+// src/main/java/kostovite/services/BufferArena.java
+package kostovite.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of direct ByteBuffers in power-of-two size classes for upload and image payloads.
+ * A buffer is leased for one request and goes back to its class when the lease is closed,
+ * so steady-state upload traffic reuses the same off-heap memory instead of allocating
+ * a fresh byte[] per request. Requests larger than the biggest class get an unpooled heap buffer.
+ */
+@Service
+public class BufferArena {
+
+    private static final int MIN_CLASS_SHIFT = 16; // 64 KB
+    private static final int TRANSFER_CHUNK = 48 * 1024;
+    // Per-thread copy buffer between streams and direct buffers; request threads are pooled, so this is allocated once each
+    private static final ThreadLocal<byte[]> TRANSFER = ThreadLocal.withInitial(() -> new byte[TRANSFER_CHUNK]);
+
+    private final int maxBufferBytes;
+    private final int maxPerClass;
+    private final long maxRetainedBytes;
+
+    private final List<ConcurrentLinkedQueue<ByteBuffer>> free; // Built once, indexed by size class
+    private final AtomicInteger[] freeCounts;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final AtomicLong leasedBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    public BufferArena(@Value("${plugins.buffers.max-buffer-bytes:16777216}") int maxBufferBytes,
+                       @Value("${plugins.buffers.max-per-class:8}") int maxPerClass,
+                       @Value("${plugins.buffers.max-retained-bytes:134217728}") long maxRetainedBytes) {
+        int largestShift = 32 - Integer.numberOfLeadingZeros(Math.max(maxBufferBytes, 1 << MIN_CLASS_SHIFT) - 1);
+        this.maxBufferBytes = 1 << largestShift;
+        this.maxPerClass = maxPerClass;
+        this.maxRetainedBytes = maxRetainedBytes;
+        int classes = largestShift - MIN_CLASS_SHIFT + 1;
+        this.free = new ArrayList<>(classes);
+        this.freeCounts = new AtomicInteger[classes];
+        for (int i = 0; i < classes; i++) {
+            free.add(new ConcurrentLinkedQueue<>());
+            freeCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Lease a buffer with room for at least the given number of bytes.
+     * The buffer is cleared with its limit set to the requested size. Close the lease to return it.
+     */
+    public Lease acquire(int minCapacity) {
+        if (minCapacity > maxBufferBytes) {
+            oversized.increment();
+            return new Lease(this, -1, ByteBuffer.allocate(minCapacity), minCapacity);
+        }
+        int sizeClass = sizeClass(minCapacity);
+        ByteBuffer buffer = free.get(sizeClass).poll();
+        if (buffer != null) {
+            freeCounts[sizeClass].decrementAndGet();
+            retainedBytes.addAndGet(-buffer.capacity());
+            hits.increment();
+        } else {
+            buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_CLASS_SHIFT));
+            misses.increment();
+        }
+        leasedBytes.addAndGet(buffer.capacity());
+        buffer.clear().limit(minCapacity);
+        return new Lease(this, sizeClass, buffer, minCapacity);
+    }
+
+    /**
+     * Read a stream to its end into a request-scoped buffer.
+     * @param in Stream to drain
+     * @param expectedBytes Size hint (content length), or a negative value when unknown
+     * @param maxBytes Largest accepted payload
+     * @return Lease whose buffer is flipped for reading (position 0, limit = bytes read)
+     * @throws PayloadTooLargeException if the stream holds more than maxBytes
+     */
+    public Lease readRequestBody(InputStream in, long expectedBytes, long maxBytes) throws IOException {
+        if (expectedBytes > maxBytes) {
+            throw new PayloadTooLargeException(expectedBytes, maxBytes);
+        }
+        int capacity = (int) (expectedBytes > 0 ? expectedBytes : Math.min(maxBytes, 1 << MIN_CLASS_SHIFT));
+        Lease lease = acquire(capacity);
+        byte[] chunk = TRANSFER.get();
+        try {
+            ByteBuffer buffer = lease.buffer();
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                long needed = (long) buffer.position() + read;
+                if (needed > maxBytes) {
+                    throw new PayloadTooLargeException(needed, maxBytes);
+                }
+                if (buffer.remaining() < read) {
+                    // Size hint was missing or wrong: move to the next class up
+                    Lease bigger = acquire((int) Math.min(maxBytes, Math.max(needed, (long) buffer.capacity() * 2)));
+                    bigger.buffer().put(buffer.flip());
+                    lease.close();
+                    lease = bigger;
+                    buffer = lease.buffer();
+                }
+                buffer.put(chunk, 0, read);
+            }
+            buffer.flip();
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+        // Released after the response is written, since a view of the buffer may end up in it.
+        // Outside a request the caller closes the lease itself.
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            Lease requestLease = lease;
+            attributes.registerDestructionCallback(BufferArena.class.getName() + '@' + System.identityHashCode(requestLease),
+                    requestLease::close, RequestAttributes.SCOPE_REQUEST);
+        }
+        return lease;
+    }
+
+    /**
+     * Base64-encode the remaining bytes of a buffer without copying them to a heap array first.
+     * The only allocations are the encoded bytes and the String made from them.
+     */
+    public String encodeBase64(ByteBuffer data) {
+        ByteBuffer source = data.duplicate();
+        byte[] encoded = new byte[4 * ((source.remaining() + 2) / 3)];
+        byte[] chunk = TRANSFER.get();
+        try (OutputStream out = Base64.getEncoder().wrap(new ArrayOutputStream(encoded))) {
+            while (source.hasRemaining()) {
+                int length = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Base64 encoding into a sized array cannot fail", e);
+        }
+        return new String(encoded, StandardCharsets.ISO_8859_1);
+    }
+
+    public Map<String, Object> getMetrics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRatio", hitCount + missCount == 0 ? 0.0 : hitCount / (double) (hitCount + missCount));
+        metrics.put("oversized", oversized.sum());
+        metrics.put("discarded", discarded.sum());
+        metrics.put("leasedBytes", leasedBytes.get());
+        metrics.put("retainedBytes", retainedBytes.get());
+        metrics.put("maxRetainedBytes", maxRetainedBytes);
+        Map<String, Integer> freeByClass = new LinkedHashMap<>();
+        for (int i = 0; i < free.size(); i++) {
+            freeByClass.put(String.valueOf(1 << (i + MIN_CLASS_SHIFT)), freeCounts[i].get());
+        }
+        metrics.put("freeBuffersByClass", freeByClass);
+        return metrics;
+    }
+
+    // Index of the smallest class holding capacity bytes; package-private for tests
+    static int sizeClass(int capacity) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+        return Math.max(0, shift - MIN_CLASS_SHIFT);
+    }
+
+    private void release(int sizeClass, ByteBuffer buffer) {
+        leasedBytes.addAndGet(-buffer.capacity());
+        // Keep at most maxPerClass buffers per class and maxRetainedBytes overall; the rest are left to the GC
+        if (freeCounts[sizeClass].incrementAndGet() > maxPerClass) {
+            freeCounts[sizeClass].decrementAndGet();
+            discarded.increment();
+            return;
+        }
+        if (retainedBytes.addAndGet(buffer.capacity()) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-buffer.capacity());
+            freeCounts[sizeClass].decrementAndGet();
+            discarded.increment();
+            return;
+        }
+        free.get(sizeClass).offer(buffer);
+    }
+
+    /**
+     * A leased buffer. Closing it more than once is harmless; using the buffer after close is not,
+     * since another request may already own it.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final BufferArena arena;
+        private final int sizeClass;
+        private final ByteBuffer buffer;
+        private final int requestedBytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(BufferArena arena, int sizeClass, ByteBuffer buffer, int requestedBytes) {
+            this.arena = arena;
+            this.sizeClass = sizeClass;
+            this.buffer = buffer;
+            this.requestedBytes = requestedBytes;
+        }
+
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        public int requestedBytes() {
+            return requestedBytes;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true) && sizeClass >= 0) {
+                arena.release(sizeClass, buffer);
+            }
+        }
+    }
+
+    public static class PayloadTooLargeException extends IOException {
+        public PayloadTooLargeException(long size, long maxBytes) {
+            super("Payload of " + size + " bytes exceeds the limit of " + maxBytes + " bytes");
+        }
+    }
+
+    // Writes into a pre-sized array; Base64's encoder stream needs an OutputStream target
+    private static final class ArrayOutputStream extends OutputStream {
+        private final byte[] target;
+        private int position;
+
+        ArrayOutputStream(byte[] target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) {
+            target[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            System.arraycopy(bytes, offset, target, position, length);
+            position += length;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+// src/main/java/kostovite/services/CacheSnapshotService.java
+package kostovite.services;
+
+import jakarta.annotation.PreDestroy;
+import kostovite.ManualPluginLoader;
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Warm restarts: on graceful shutdown, the warm state plugins return from {@link PluginInterface#saveSnapshot()}
+ * is written to one binary file; after the next start it is read back on a background thread.
+ * The file holds length-prefixed sections, one per plugin, each tagged with the plugin's JAR SHA-256.
+ * A section whose version differs from the running one (the plugin was redeployed) is skipped without being read.
+ * User tiers are deliberately not kept: a tier change must apply on the next request, restart or not.
+ */
+@Service
+public class CacheSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheSnapshotService.class);
+    private static final int MAGIC = 0x49545353; // "ITSS"
+    private static final short FORMAT_VERSION = 1;
+    private static final String PLUGIN_SECTION_PREFIX = "plugin:";
+
+    private final ManualPluginLoader manualPluginLoader;
+    private final boolean enabled;
+    private final Path file;
+    private final long maxAgeMillis;
+    private final int maxSectionBytes;
+
+    private volatile Map<String, Object> lastSave = Map.of();
+    private volatile Map<String, Object> lastRestore = Map.of();
+
+    public CacheSnapshotService(ManualPluginLoader manualPluginLoader,
+                                @Value("${plugins.snapshot.enabled:true}") boolean enabled,
+                                @Value("${plugins.snapshot.file:data/cache.snapshot}") String file,
+                                @Value("${plugins.snapshot.max-age-minutes:1440}") long maxAgeMinutes,
+                                @Value("${plugins.snapshot.max-section-bytes:16777216}") int maxSectionBytes) {
+        this.manualPluginLoader = manualPluginLoader;
+        this.enabled = enabled;
+        this.file = Paths.get(file);
+        this.maxAgeMillis = maxAgeMinutes * 60_000L;
+        this.maxSectionBytes = maxSectionBytes;
+    }
+
+    /**
+     * Plugins are loaded by now; restore without holding up the first requests
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreInBackground() {
+        if (!enabled || !Files.exists(file)) {
+            return;
+        }
+        Thread thread = new Thread(this::restore, "cache-snapshot-restore");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        if (enabled) {
+            try {
+                save();
+            } catch (IOException e) {
+                log.warn("Could not write cache snapshot {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the snapshot now, replacing the previous one atomically
+     */
+    public synchronized void save() throws IOException {
+        long start = System.nanoTime();
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        int sections = 0;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                for (PluginInterface plugin : manualPluginLoader.getLoadedPlugins()) {
+                    Optional<String> version = manualPluginLoader.getJarSha256(plugin.getName());
+                    if (version.isPresent()
+                            && writeSection(out, PLUGIN_SECTION_PREFIX + plugin.getName(), version.get(), savePlugin(plugin))) {
+                        sections++;
+                    }
+                }
+                out.writeUTF(""); // End of sections
+                out.flush();
+                channel.force(true);
+            }
+            long bytes = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            lastSave = Map.of("at", System.currentTimeMillis(), "sections", sections, "bytes", bytes, "millis", millis);
+            log.info("Wrote cache snapshot {} ({} sections, {} bytes) in {} ms", file, sections, bytes, millis);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private boolean writeSection(DataOutputStream out, String name, String version, byte[] data) throws IOException {
+        if (data == null) {
+            return false;
+        }
+        if (data.length > maxSectionBytes) {
+            log.warn("Snapshot section {} is {} bytes, over plugins.snapshot.max-section-bytes; not saved", name, data.length);
+            return false;
+        }
+        out.writeUTF(name);
+        out.writeUTF(version);
+        out.writeInt(data.length);
+        out.write(data);
+        return true;
+    }
+
+    private static byte[] savePlugin(PluginInterface plugin) {
+        try {
+            return plugin.saveSnapshot();
+        } catch (Exception | LinkageError e) {
+            log.warn("Snapshot of plugin {} failed: {}", plugin.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Package-private so tests can restore synchronously
+    void restore() {
+        long start = System.nanoTime();
+        int restored = 0;
+        int dropped = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != FORMAT_VERSION) {
+                log.warn("Ignoring cache snapshot {}: unknown format", file);
+                return;
+            }
+            long writtenAt = in.readLong();
+            if (System.currentTimeMillis() - writtenAt > maxAgeMillis) {
+                log.info("Ignoring cache snapshot {}: older than plugins.snapshot.max-age-minutes", file);
+                return;
+            }
+            String name;
+            while (!(name = in.readUTF()).isEmpty()) {
+                String version = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > maxSectionBytes) {
+                    throw new IOException("Section " + name + " has an invalid length " + length);
+                }
+                if (restoreSection(name, version, in, length)) {
+                    restored++;
+                } else {
+                    dropped++;
+                }
+            }
+        } catch (EOFException e) {
+            log.warn("Cache snapshot {} is truncated; restored the sections before the cut", file);
+        } catch (IOException e) {
+            log.warn("Could not read cache snapshot {}: {}", file, e.getMessage());
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        lastRestore = Map.of("at", System.currentTimeMillis(), "restored", restored, "dropped", dropped, "millis", millis);
+        log.info("Restored {} cache snapshot sections ({} dropped as stale) in {} ms", restored, dropped, millis);
+    }
+
+    // Skips the section's bytes without reading them into memory when it does not apply any more
+    private boolean restoreSection(String name, String version, DataInputStream in, int length) throws IOException {
+        PluginInterface plugin = name.startsWith(PLUGIN_SECTION_PREFIX)
+                ? manualPluginLoader.getPluginByName(name.substring(PLUGIN_SECTION_PREFIX.length()))
+                : null;
+        if (plugin == null || !manualPluginLoader.getJarSha256(plugin.getName()).map(version::equals).orElse(false)) {
+            in.skipNBytes(length);
+            return false;
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        try {
+            plugin.restoreSnapshot(data);
+            return true;
+        } catch (Exception | LinkageError e) {
+            log.warn("Plugin {} could not restore its snapshot: {}", plugin.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("file", file.toString());
+        metrics.put("lastSave", lastSave);
+        metrics.put("lastRestore", lastRestore);
+        return metrics;
+    }
+}
@@ -0,0 +1,190 @@
+// src/main/java/kostovite/services/InFlightRequestCoalescer.java
+package kostovite.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight table in front of plugin dispatch.
+ * Concurrent calls with the same plugin id and the same canonical input share one execution:
+ * the first caller (leader) runs the plugin, the others (followers) wait for its result.
+ * Only plugins whose metadata sets "coalesceRequests" to true take part.
+ */
+@Service
+public class InFlightRequestCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(InFlightRequestCoalescer.class);
+    public static final String METADATA_FLAG = "coalesceRequests";
+
+    private final boolean enabled;
+    private final long waitTimeoutMillis;
+    private final ObjectMapper canonicalMapper;
+
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Stats> statsByPlugin = new ConcurrentHashMap<>();
+    // Weak keys: the opt-in flag must not keep an unloaded plugin's class loader alive
+    private final Map<PluginInterface, Boolean> optInCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public InFlightRequestCoalescer(ObjectMapper objectMapper,
+                                    @Value("${plugins.coalescing.enabled:true}") boolean enabled,
+                                    @Value("${plugins.coalescing.wait-timeout-ms:2000}") long waitTimeoutMillis) {
+        this.enabled = enabled;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    }
+
+    /**
+     * Whether calls to this plugin are coalesced. The metadata flag is read once per plugin instance.
+     */
+    public boolean isCoalesced(PluginInterface plugin) {
+        if (!enabled) {
+            return false;
+        }
+        Boolean cached = optInCache.get(plugin);
+        if (cached != null) {
+            return cached;
+        }
+        boolean optIn;
+        try {
+            optIn = Boolean.TRUE.equals(plugin.getMetadata().get(METADATA_FLAG));
+        } catch (Exception e) {
+            log.warn("Could not read metadata of plugin {}, not coalescing: {}", plugin.getName(), e.getMessage());
+            optIn = false;
+        }
+        optInCache.put(plugin, optIn);
+        return optIn;
+    }
+
+    /**
+     * Run a call, sharing the execution with identical in-flight calls.
+     * A follower that waits longer than the configured timeout runs the call itself.
+     * A failure of the leader is rethrown to its followers, except a cancellation: followers then run the call themselves.
+     * @param pluginId Plugin the call targets
+     * @param input Plugin input, hashed in canonical (key-sorted) JSON form
+     * @param call The actual invocation
+     * @return The call's result; the leader and each follower get their own top-level map
+     */
+    public Map<String, Object> execute(String pluginId, Map<String, Object> input, Supplier<Map<String, Object>> call) {
+        String key = requestKey(pluginId, input);
+        if (key == null) {
+            return call.get();
+        }
+        Stats stats = statsByPlugin.computeIfAbsent(pluginId, id -> new Stats());
+
+        CompletableFuture<Map<String, Object>> leaderFuture = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlight.putIfAbsent(key, leaderFuture);
+        if (existing == null) {
+            stats.leaders.increment();
+            try {
+                Map<String, Object> result = call.get();
+                // Followers copy a frozen snapshot, so the leader's caller may still change its own map
+                leaderFuture.complete(result != null ? Collections.unmodifiableMap(new LinkedHashMap<>(result)) : null);
+                return result;
+            } catch (RuntimeException e) {
+                leaderFuture.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, leaderFuture);
+            }
+        }
+
+        stats.followers.increment();
+        try {
+            Map<String, Object> shared = existing.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            return shared != null ? new LinkedHashMap<>(shared) : null;
+        } catch (TimeoutException e) {
+            stats.timeouts.increment();
+            log.debug("Coalesced call to {} waited more than {} ms, running it directly", pluginId, waitTimeoutMillis);
+            return call.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                // The leader's own client or deadline stopped it; that says nothing about this request
+                stats.timeouts.increment();
+                return call.get();
+            }
+            stats.sharedFailures.increment();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a coalesced call to " + pluginId, e);
+        }
+    }
+
+    /**
+     * Per plugin: executions (leaders), calls served from another execution (followers),
+     * followers that ran the call themselves, and the share of calls that were coalesced
+     */
+    public List<Map<String, Object>> getMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        statsByPlugin.forEach((pluginId, stats) -> {
+            long leaders = stats.leaders.sum();
+            long followers = stats.followers.sum();
+            long timeouts = stats.timeouts.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("pluginId", pluginId);
+            entry.put("executions", leaders);
+            entry.put("coalesced", followers - timeouts);
+            entry.put("fallbacks", timeouts); // Followers that ran the call themselves (wait timeout or leader cancelled)
+            entry.put("sharedFailures", stats.sharedFailures.sum());
+            entry.put("coalescingRatio", leaders + followers == 0 ? 0.0 : (followers - timeouts) / (double) (leaders + followers));
+            metrics.add(entry);
+        });
+        return metrics;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    // Also the routing key of ReplicaRouter; null if the input cannot be serialized
+    String requestKey(String pluginId, Map<String, Object> input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // Stream the canonical form straight into the digest; inputs can carry large Base64 payloads
+            try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+                canonicalMapper.writeValue(out, input);
+            }
+            return pluginId + ':' + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (Exception e) {
+            log.debug("Input of {} is not serializable, not coalescing: {}", pluginId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class Stats {
+        final LongAdder leaders = new LongAdder();
+        final LongAdder followers = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder sharedFailures = new LongAdder();
+    }
+}
@@ -0,0 +1,332 @@
+// src/main/java/kostovite/services/PluginCanaryService.java
+package kostovite.services;
+
+import jakarta.annotation.PreDestroy;
+import kostovite.ManualPluginLoader;
+import kostovite.ManualPluginLoader.JarLoadResult;
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canary rollouts of uploaded plugin JARs.
+ * The new build is loaded beside the current one and receives a percentage of the calls; both
+ * versions keep a latency window and error counts. Once the candidate has enough calls it is
+ * promoted, unless its p99 latency or error rate regressed against the current version, in which
+ * case it is rolled back. Admins can decide early through the admin endpoints.
+ */
+@Service
+public class PluginCanaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginCanaryService.class);
+    private static final double[] PERCENTILES = {50, 90, 99};
+    private static final int EVALUATE_EVERY = 20; // Candidate calls between automatic evaluations
+    private static final int HISTORY_SIZE = 20;
+
+    public enum State { ACTIVE, PROMOTED, ROLLED_BACK }
+
+    private final ManualPluginLoader manualPluginLoader;
+    private final int windowSize;
+    private final int minSamples;
+    private final int promoteAfterSamples;
+    private final double maxP99Ratio;
+    private final long latencySlackNanos;
+    private final double maxErrorRateIncrease;
+
+    private final Map<String, Rollout> activeByPlugin = new ConcurrentHashMap<>();
+    private final Deque<Rollout> finished = new ConcurrentLinkedDeque<>();
+    private final ExecutorService decisions = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "plugin-canary");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PluginCanaryService(ManualPluginLoader manualPluginLoader,
+                               @Value("${plugins.canary.window-size:1024}") int windowSize,
+                               @Value("${plugins.canary.min-samples:100}") int minSamples,
+                               @Value("${plugins.canary.promote-after-samples:500}") int promoteAfterSamples,
+                               @Value("${plugins.canary.max-p99-ratio:1.5}") double maxP99Ratio,
+                               @Value("${plugins.canary.latency-slack-ms:5}") long latencySlackMillis,
+                               @Value("${plugins.canary.max-error-rate-increase:0.02}") double maxErrorRateIncrease) {
+        this.manualPluginLoader = manualPluginLoader;
+        this.windowSize = Math.max(1, windowSize);
+        this.minSamples = Math.max(1, minSamples);
+        this.promoteAfterSamples = Math.max(this.minSamples, promoteAfterSamples);
+        this.maxP99Ratio = maxP99Ratio;
+        this.latencySlackNanos = latencySlackMillis * 1_000_000L;
+        this.maxErrorRateIncrease = maxErrorRateIncrease;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        decisions.shutdownNow();
+    }
+
+    /**
+     * Load a new build of an already loaded JAR as a canary
+     * @param candidateFile Uploaded JAR, stored outside the *.jar names the directory scan picks up
+     * @param targetPath Loaded JAR the candidate replaces once promoted
+     * @param percent Share of calls (1-99) routed to the candidate
+     * @return Content hash and plugin names of the candidate
+     */
+    public synchronized JarLoadResult start(Path candidateFile, Path targetPath, int percent) throws IOException {
+        if (percent < 1 || percent > 99) {
+            throw new IllegalArgumentException("Canary percentage must be between 1 and 99: " + percent);
+        }
+        JarLoadResult candidate = manualPluginLoader.loadCandidateJar(candidateFile, targetPath);
+        Rollout rollout = new Rollout(targetPath, candidate.sha256(), candidate.pluginNames(), percent, windowSize);
+        for (String pluginName : candidate.pluginNames()) {
+            Rollout replaced = activeByPlugin.put(pluginName, rollout);
+            if (replaced != null && replaced != rollout && replaced.state == State.ACTIVE) {
+                if (!replaced.targetPath.equals(targetPath)) {
+                    manualPluginLoader.discardCandidate(replaced.targetPath);
+                }
+                replaced.finish(State.ROLLED_BACK, "Replaced by a newer candidate (sha256 " + candidate.sha256() + ")");
+                archive(replaced);
+            }
+        }
+        log.info("Canary started for {} (sha256 {}): {}% of calls to {}", targetPath.getFileName(), candidate.sha256(), percent, candidate.pluginNames());
+        return candidate;
+    }
+
+    /**
+     * Pick the version of a plugin that serves this call
+     * @param plugin The loaded plugin
+     * @return The plugin itself, or its candidate build for the canary share of calls
+     */
+    public PluginInterface route(PluginInterface plugin) {
+        if (activeByPlugin.isEmpty()) {
+            return plugin;
+        }
+        Rollout rollout = activeByPlugin.get(plugin.getName());
+        if (rollout == null || rollout.state != State.ACTIVE || ThreadLocalRandom.current().nextInt(100) >= rollout.percent) {
+            return plugin;
+        }
+        PluginInterface candidate = manualPluginLoader.getCandidatePlugin(plugin.getName());
+        return candidate != null ? candidate : plugin;
+    }
+
+    /**
+     * Record the outcome of a call routed by {@link #route}
+     * @param plugin The loaded plugin the call was for
+     * @param served The version that ran it
+     * @param elapsedNanos Wall time of the call
+     * @param failed Whether the call failed or blew its deadline
+     */
+    public void record(PluginInterface plugin, PluginInterface served, long elapsedNanos, boolean failed) {
+        if (activeByPlugin.isEmpty()) {
+            return;
+        }
+        Rollout rollout = activeByPlugin.get(plugin.getName());
+        if (rollout == null || rollout.state != State.ACTIVE) {
+            return;
+        }
+        boolean candidate = served != plugin;
+        VersionStats stats = candidate ? rollout.candidate : rollout.baseline;
+        long calls = stats.record(elapsedNanos, failed);
+        if (candidate && calls % EVALUATE_EVERY == 0 && rollout.evaluating.compareAndSet(false, true)) {
+            decisions.execute(() -> {
+                try {
+                    evaluate(rollout);
+                } finally {
+                    rollout.evaluating.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Promote the active candidate of a plugin now
+     * @return false if the plugin has no active canary
+     */
+    public boolean promote(String pluginName) throws IOException {
+        Rollout rollout = activeByPlugin.get(pluginName);
+        return rollout != null && promote(rollout, "Promoted by admin");
+    }
+
+    /**
+     * Roll back the active candidate of a plugin now
+     * @return false if the plugin has no active canary
+     */
+    public boolean rollback(String pluginName) {
+        Rollout rollout = activeByPlugin.get(pluginName);
+        return rollout != null && rollback(rollout, "Rolled back by admin");
+    }
+
+    /**
+     * Active rollouts, then the most recent finished ones
+     */
+    public List<Map<String, Object>> getReport() {
+        List<Map<String, Object>> report = new ArrayList<>();
+        activeByPlugin.values().stream().distinct().forEach(rollout -> report.add(rollout.toReport()));
+        finished.forEach(rollout -> report.add(rollout.toReport()));
+        return report;
+    }
+
+    private void evaluate(Rollout rollout) {
+        long candidateCalls = rollout.candidate.calls.get();
+        if (rollout.state != State.ACTIVE || candidateCalls < minSamples) {
+            return;
+        }
+        String regression = findRegression(rollout);
+        if (regression != null) {
+            rollback(rollout, regression);
+        } else if (candidateCalls >= promoteAfterSamples && rollout.baseline.calls.get() >= minSamples) {
+            try {
+                promote(rollout, "Promoted after " + candidateCalls + " calls without regression");
+            } catch (IOException e) {
+                log.error("Could not promote canary of {}: {}", rollout.targetPath.getFileName(), e.getMessage(), e);
+                rollback(rollout, "Promotion failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Null when the candidate is within the thresholds, otherwise why it is not
+    private String findRegression(Rollout rollout) {
+        double candidateErrors = rollout.candidate.errorRate();
+        double baselineErrors = rollout.baseline.errorRate();
+        if (candidateErrors > baselineErrors + maxErrorRateIncrease) {
+            return String.format("Error rate %.3f against %.3f for the current version", candidateErrors, baselineErrors);
+        }
+        if (rollout.baseline.calls.get() < minSamples) {
+            return null; // No latency reference yet
+        }
+        long candidateP99 = rollout.candidate.latency.percentiles(99)[0];
+        long baselineP99 = rollout.baseline.latency.percentiles(99)[0];
+        if (candidateP99 > baselineP99 * maxP99Ratio + latencySlackNanos) {
+            return String.format("p99 latency %.1f ms against %.1f ms for the current version",
+                    candidateP99 / 1e6, baselineP99 / 1e6);
+        }
+        return null;
+    }
+
+    private synchronized boolean promote(Rollout rollout, String reason) throws IOException {
+        if (rollout.state != State.ACTIVE) {
+            return false;
+        }
+        if (manualPluginLoader.promoteCandidate(rollout.targetPath) == null) {
+            rollout.finish(State.ROLLED_BACK, "Candidate no longer loaded");
+        } else {
+            rollout.finish(State.PROMOTED, reason);
+            log.info("Canary of {} promoted: {}", rollout.targetPath.getFileName(), reason);
+        }
+        archive(rollout);
+        return true;
+    }
+
+    private synchronized boolean rollback(Rollout rollout, String reason) {
+        if (rollout.state != State.ACTIVE) {
+            return false;
+        }
+        manualPluginLoader.discardCandidate(rollout.targetPath);
+        rollout.finish(State.ROLLED_BACK, reason);
+        log.warn("Canary of {} rolled back: {}", rollout.targetPath.getFileName(), reason);
+        archive(rollout);
+        return true;
+    }
+
+    private void archive(Rollout rollout) {
+        rollout.pluginNames.forEach(name -> activeByPlugin.remove(name, rollout));
+        finished.addFirst(rollout);
+        while (finished.size() > HISTORY_SIZE) {
+            finished.pollLast();
+        }
+    }
+
+    private static final class Rollout {
+        final Path targetPath;
+        final String sha256;
+        final List<String> pluginNames;
+        final int percent;
+        final long startedAt = System.currentTimeMillis();
+        final VersionStats baseline;
+        final VersionStats candidate;
+        final AtomicBoolean evaluating = new AtomicBoolean();
+        volatile State state = State.ACTIVE;
+        volatile String reason;
+        volatile long finishedAt;
+
+        Rollout(Path targetPath, String sha256, List<String> pluginNames, int percent, int windowSize) {
+            this.targetPath = targetPath;
+            this.sha256 = sha256;
+            this.pluginNames = pluginNames;
+            this.percent = percent;
+            this.baseline = new VersionStats(windowSize);
+            this.candidate = new VersionStats(windowSize);
+        }
+
+        void finish(State state, String reason) {
+            this.reason = reason;
+            this.finishedAt = System.currentTimeMillis();
+            this.state = state;
+        }
+
+        Map<String, Object> toReport() {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("jar", targetPath.getFileName().toString());
+            entry.put("candidateSha256", sha256);
+            entry.put("plugins", pluginNames);
+            entry.put("percent", percent);
+            entry.put("state", state.name());
+            entry.put("startedAt", startedAt);
+            if (state != State.ACTIVE) {
+                entry.put("finishedAt", finishedAt);
+                entry.put("reason", reason);
+            }
+            entry.put("current", baseline.toReport());
+            entry.put("candidate", candidate.toReport());
+            return entry;
+        }
+    }
+
+    private static final class VersionStats {
+        final SampleWindow latency;
+        final AtomicLong calls = new AtomicLong();
+        final LongAdder failures = new LongAdder();
+
+        VersionStats(int windowSize) {
+            this.latency = new SampleWindow(windowSize);
+        }
+
+        long record(long elapsedNanos, boolean failed) {
+            latency.record(elapsedNanos);
+            if (failed) {
+                failures.increment();
+            }
+            return calls.incrementAndGet();
+        }
+
+        double errorRate() {
+            long total = calls.get();
+            return total == 0 ? 0.0 : failures.sum() / (double) total;
+        }
+
+        Map<String, Object> toReport() {
+            long[] latencyNanos = latency.percentiles(PERCENTILES);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("calls", calls.get());
+            entry.put("failures", failures.sum());
+            entry.put("errorRate", errorRate());
+            entry.put("latencyNanos", Map.of("p50", latencyNanos[0], "p90", latencyNanos[1], "p99", latencyNanos[2]));
+            return entry;
+        }
+    }
+}
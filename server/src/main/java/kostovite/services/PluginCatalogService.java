@@ -0,0 +1,200 @@
+// src/main/java/kostovite/services/PluginCatalogService.java
+package kostovite.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import kostovite.ManualPluginLoader;
+import kostovite.PluginInterface;
+import kostovite.services.PluginService.PluginStatusCheckResult;
+import kostovite.store.StatusStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Pre-serialized plugin catalogs, one per user tier.
+ * The catalog only depends on the tier, the loaded plugin set and the tool statuses,
+ * so it is rebuilt when one of those changes instead of on every request.
+ * A catalog built while the status store was failing (plugins shown as disabled) is only kept
+ * for a few seconds, then rebuilt; one showing an open circuit is rebuilt when its open duration ends.
+ */
+@Service
+public class PluginCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginCatalogService.class);
+    public static final List<String> USER_TIERS = List.of("anonymous", "normal", "premium", "admin");
+    private static final long DEGRADED_SNAPSHOT_NANOS = 5_000_000_000L;
+
+    private final PluginService pluginService;
+    private final ManualPluginLoader manualPluginLoader;
+    private final PluginCircuitBreakers circuitBreakers;
+    private final StatusStore statusStore;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong statusGeneration = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public PluginCatalogService(PluginService pluginService, ManualPluginLoader manualPluginLoader,
+                                PluginCircuitBreakers circuitBreakers, StatusStore statusStore, ObjectMapper objectMapper) {
+        this.pluginService = pluginService;
+        this.manualPluginLoader = manualPluginLoader;
+        this.circuitBreakers = circuitBreakers;
+        this.statusStore = statusStore;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void registerStatusListener() {
+        // Catalog entries carry each plugin's circuit state
+        circuitBreakers.addStateListener((pluginId, state) -> invalidate());
+        // Any tool status change invalidates every tier
+        statusStore.addToolStatusListener(this::invalidate);
+    }
+
+    /**
+     * Force a rebuild on the next request, e.g. after a tool status changed.
+     */
+    public void invalidate() {
+        statusGeneration.incrementAndGet();
+    }
+
+    /**
+     * Catalog served by GET /api/plugins: full metadata with status and access flags.
+     * @param userType Effective user type
+     * @return Serialized catalog and its ETag
+     */
+    public CatalogEntry getPluginCatalog(String userType) {
+        return currentSnapshot().pluginCatalogs().get(normalizeTier(userType));
+    }
+
+    /**
+     * Catalog served by GET /api/plugins/universal: names of plugins the tier can access.
+     * @param userType Effective user type
+     * @return Serialized catalog and its ETag
+     */
+    public CatalogEntry getUniversalCatalog(String userType) {
+        return currentSnapshot().universalCatalogs().get(normalizeTier(userType));
+    }
+
+    private String normalizeTier(String userType) {
+        return USER_TIERS.contains(userType) ? userType : "anonymous";
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        long pluginGeneration = manualPluginLoader.getGeneration();
+        long currentStatusGeneration = statusGeneration.get();
+        if (current != null && current.isCurrent(pluginGeneration, currentStatusGeneration)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            pluginGeneration = manualPluginLoader.getGeneration();
+            currentStatusGeneration = statusGeneration.get();
+            if (current == null || !current.isCurrent(pluginGeneration, currentStatusGeneration)) {
+                current = buildSnapshot(pluginGeneration, currentStatusGeneration);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private Snapshot buildSnapshot(long pluginGeneration, long currentStatusGeneration) {
+        long start = System.nanoTime();
+        // Status is per plugin, not per tier: resolve each one once for all four tiers
+        Map<String, PluginStatusCheckResult> statuses = new HashMap<>();
+        List<PluginInterface> plugins = manualPluginLoader.getLoadedPlugins();
+
+        Map<String, CatalogEntry> pluginCatalogs = new HashMap<>();
+        Map<String, CatalogEntry> universalCatalogs = new HashMap<>();
+        for (String tier : USER_TIERS) {
+            List<Map<String, Object>> metadata = pluginService.getAccessiblePluginMetadata(tier,
+                    pluginId -> statuses.computeIfAbsent(pluginId, pluginService::isPluginEnabled));
+            pluginCatalogs.put(tier, serialize(metadata));
+
+            List<String> accessiblePlugins = plugins.stream()
+                    .filter(plugin -> {
+                        try {
+                            String pluginAccessLevel = String.valueOf(plugin.getMetadata().getOrDefault("accessLevel", "normal")).toLowerCase();
+                            return pluginService.canUserAccess(tier, pluginAccessLevel);
+                        } catch (Exception e) {
+                            log.warn("Error checking access for plugin {}: {}", plugin.getName(), e.getMessage());
+                            return false;
+                        }
+                    })
+                    .map(PluginInterface::getName)
+                    .collect(Collectors.toList());
+            Map<String, Object> universal = new HashMap<>();
+            universal.put("count", accessiblePlugins.size());
+            universal.put("plugins", accessiblePlugins);
+            universal.put("userType", tier);
+            universalCatalogs.put(tier, serialize(universal));
+        }
+
+        log.info("Rebuilt plugin catalogs for {} plugins in {} ms (plugin generation {}, status generation {})",
+                plugins.size(), (System.nanoTime() - start) / 1_000_000, pluginGeneration, currentStatusGeneration);
+        boolean degraded = statuses.values().stream().anyMatch(PluginStatusCheckResult::lookupFailed);
+        if (degraded) {
+            log.warn("Plugin catalogs built with failed status lookups; rebuilding them in {} ms", DEGRADED_SNAPSHOT_NANOS / 1_000_000);
+        }
+        long expiresAt = degraded ? System.nanoTime() + DEGRADED_SNAPSHOT_NANOS : 0;
+        // An open breaker turns half-open by itself, without a transition that would invalidate the catalog
+        long halfOpenAtMillis = circuitBreakers.nextHalfOpenAtMillis();
+        if (halfOpenAtMillis != 0) {
+            long halfOpenAt = System.nanoTime() + Math.max(0, halfOpenAtMillis - System.currentTimeMillis()) * 1_000_000L;
+            expiresAt = expiresAt == 0 ? halfOpenAt : Math.min(expiresAt, halfOpenAt);
+        }
+        return new Snapshot(pluginGeneration, currentStatusGeneration, expiresAt,
+                Map.copyOf(pluginCatalogs), Map.copyOf(universalCatalogs));
+    }
+
+    private CatalogEntry serialize(Object body) {
+        try {
+            byte[] bytes = objectMapper.writeValueAsBytes(body);
+            return new CatalogEntry(bytes, strongETag(bytes));
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize plugin catalog: {}", e.getMessage(), e);
+            byte[] empty = "[]".getBytes(StandardCharsets.UTF_8);
+            return new CatalogEntry(empty, strongETag(empty));
+        }
+    }
+
+    private static String strongETag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Serialized catalog body with its strong ETag (quoted, ready for the header).
+     */
+    public record CatalogEntry(byte[] body, String etag) {}
+
+    /**
+     * @param expiresAtNanos 0 for a snapshot that stays valid until invalidated; otherwise when it is rebuilt
+     *                       (failed status lookups, or an open circuit reaching its half-open time)
+     */
+    private record Snapshot(long pluginGeneration, long statusGeneration, long expiresAtNanos,
+                            Map<String, CatalogEntry> pluginCatalogs, Map<String, CatalogEntry> universalCatalogs) {
+        boolean isCurrent(long currentPluginGeneration, long currentStatusGeneration) {
+            return pluginGeneration == currentPluginGeneration && statusGeneration == currentStatusGeneration
+                    && (expiresAtNanos == 0 || System.nanoTime() - expiresAtNanos < 0);
+        }
+    }
+}
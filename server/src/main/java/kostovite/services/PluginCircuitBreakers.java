@@ -0,0 +1,341 @@
+// src/main/java/kostovite/services/PluginCircuitBreakers.java
+package kostovite.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * One circuit breaker per plugin around dispatch.
+ * Each breaker keeps a count-based rolling window of outcomes and opens when the failure rate
+ * or the slow-call rate crosses its threshold. While open, calls are rejected without running
+ * the plugin; after the open duration a few trial calls decide between closing and re-opening.
+ * A call fails when the plugin throws, answers success=false or runs past its deadline.
+ */
+@Service
+public class PluginCircuitBreakers {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginCircuitBreakers.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openDurationMillis;
+    private final int halfOpenPermittedCalls;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, State>> stateListeners = new CopyOnWriteArrayList<>();
+
+    public PluginCircuitBreakers(@Value("${plugins.circuit-breaker.window-size:20}") int windowSize,
+                                 @Value("${plugins.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                 @Value("${plugins.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                                 @Value("${plugins.circuit-breaker.slow-call-rate-threshold:80}") double slowCallRateThreshold,
+                                 @Value("${plugins.circuit-breaker.slow-call-duration-ms:5000}") long slowCallDurationMillis,
+                                 @Value("${plugins.circuit-breaker.open-duration-ms:30000}") long openDurationMillis,
+                                 @Value("${plugins.circuit-breaker.half-open-calls:3}") int halfOpenPermittedCalls) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDurationMillis * 1_000_000L;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenPermittedCalls = Math.max(1, halfOpenPermittedCalls);
+    }
+
+    /**
+     * Register a callback for state transitions (plugin id, new state)
+     */
+    public void addStateListener(BiConsumer<String, State> listener) {
+        stateListeners.add(listener);
+    }
+
+    /**
+     * Ask for permission to call a plugin
+     * @throws CircuitOpenException if the plugin's breaker is open (or half-open with all trial calls taken)
+     */
+    public void acquirePermission(String pluginId) throws CircuitOpenException {
+        breakerFor(pluginId).acquirePermission();
+    }
+
+    public void onSuccess(String pluginId, long durationNanos) {
+        breakerFor(pluginId).onResult(false, durationNanos);
+    }
+
+    public void onFailure(String pluginId, long durationNanos) {
+        breakerFor(pluginId).onResult(true, durationNanos);
+    }
+
+    /**
+     * Record a call that ended without telling anything about the plugin's health
+     * (e.g. cancelled by the client). Frees its trial slot when half-open.
+     */
+    public void onIgnored(String pluginId) {
+        breakerFor(pluginId).onIgnored();
+    }
+
+    /**
+     * State as callers see it: an OPEN breaker whose open duration is over reports HALF_OPEN,
+     * since the next call is let through as a trial.
+     */
+    public State getState(String pluginId) {
+        CircuitBreaker breaker = breakers.get(pluginId);
+        return breaker != null ? breaker.currentState() : State.CLOSED;
+    }
+
+    /**
+     * @return When the first currently open breaker starts letting trial calls through (epoch millis), or 0 if none is open
+     */
+    public long nextHalfOpenAtMillis() {
+        long next = 0;
+        for (CircuitBreaker breaker : breakers.values()) {
+            long halfOpenAt = breaker.halfOpenAtMillis();
+            if (halfOpenAt != 0 && (next == 0 || halfOpenAt < next)) {
+                next = halfOpenAt;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Force a plugin's breaker back to CLOSED with an empty window
+     * @return true if the plugin had a breaker
+     */
+    public boolean reset(String pluginId) {
+        CircuitBreaker breaker = breakers.get(pluginId);
+        if (breaker == null) {
+            return false;
+        }
+        breaker.reset();
+        return true;
+    }
+
+    /**
+     * Metrics for every breaker: state, rates over the window, rejected calls and transition counts
+     */
+    public List<Map<String, Object>> getMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        breakers.forEach((pluginId, breaker) -> metrics.add(breaker.metrics(pluginId)));
+        return metrics;
+    }
+
+    private CircuitBreaker breakerFor(String pluginId) {
+        return breakers.computeIfAbsent(pluginId, CircuitBreaker::new);
+    }
+
+    private void notifyStateChange(String pluginId, State from, State to) {
+        log.warn("Circuit breaker for plugin '{}' changed from {} to {}", pluginId, from, to);
+        for (BiConsumer<String, State> listener : stateListeners) {
+            try {
+                listener.accept(pluginId, to);
+            } catch (Exception e) {
+                log.error("Circuit breaker state listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private final class CircuitBreaker {
+        private static final byte FAILED = 1;
+        private static final byte SLOW = 2;
+
+        private final String pluginId;
+        private final byte[] outcomes = new byte[windowSize];
+        private final LongAdder rejectedCalls = new LongAdder();
+        private final Map<State, Long> transitions = new EnumMap<>(State.class);
+        private int next;
+        private int recorded;
+        private int failures;
+        private int slowCalls;
+        private volatile State state = State.CLOSED;
+        private long openUntilMillis;
+        private int halfOpenIssued;
+        private int halfOpenSucceeded;
+
+        CircuitBreaker(String pluginId) {
+            this.pluginId = pluginId;
+        }
+
+        // Reads state before openUntilMillis: the volatile write of OPEN publishes the deadline set just before it
+        State currentState() {
+            State current = state;
+            return current == State.OPEN && System.currentTimeMillis() >= openUntilMillis ? State.HALF_OPEN : current;
+        }
+
+        long halfOpenAtMillis() {
+            return state == State.OPEN ? openUntilMillis : 0;
+        }
+
+        void acquirePermission() {
+            if (state == State.CLOSED) {
+                return; // Fast path, no locking while healthy
+            }
+            boolean halfOpened = false;
+            CircuitOpenException rejection = null;
+            synchronized (this) {
+                if (state == State.OPEN && System.currentTimeMillis() >= openUntilMillis) {
+                    transitionTo(State.HALF_OPEN);
+                    halfOpened = true;
+                }
+                if (state == State.HALF_OPEN && halfOpenIssued < halfOpenPermittedCalls) {
+                    halfOpenIssued++;
+                } else if (state != State.CLOSED) {
+                    rejectedCalls.increment();
+                    rejection = new CircuitOpenException(pluginId, state, Math.max(0, openUntilMillis - System.currentTimeMillis()));
+                }
+            }
+            if (halfOpened) {
+                notifyStateChange(pluginId, State.OPEN, State.HALF_OPEN);
+            }
+            if (rejection != null) {
+                throw rejection;
+            }
+        }
+
+        void onResult(boolean failed, long durationNanos) {
+            boolean slow = durationNanos >= slowCallNanos;
+            State from;
+            State to;
+            synchronized (this) {
+                from = state;
+                if (from == State.HALF_OPEN) {
+                    if (failed || slow) {
+                        open();
+                    } else if (++halfOpenSucceeded >= halfOpenPermittedCalls) {
+                        clearWindow();
+                        transitionTo(State.CLOSED);
+                    }
+                } else if (from == State.CLOSED) {
+                    record(failed, slow);
+                    if (recorded >= minimumCalls && thresholdExceeded()) {
+                        open();
+                    }
+                }
+                // Results arriving while OPEN come from calls admitted before the breaker opened; ignore them
+                to = state;
+            }
+            if (from != to) {
+                notifyStateChange(pluginId, from, to);
+            }
+        }
+
+        synchronized void onIgnored() {
+            if (state == State.HALF_OPEN && halfOpenIssued > 0) {
+                halfOpenIssued--;
+            }
+        }
+
+        void reset() {
+            State from;
+            synchronized (this) {
+                from = state;
+                clearWindow();
+                transitionTo(State.CLOSED);
+            }
+            if (from != State.CLOSED) {
+                notifyStateChange(pluginId, from, State.CLOSED);
+            }
+        }
+
+        private void record(boolean failed, boolean slow) {
+            if (recorded == outcomes.length) {
+                byte evicted = outcomes[next];
+                if ((evicted & FAILED) != 0) failures--;
+                if ((evicted & SLOW) != 0) slowCalls--;
+            } else {
+                recorded++;
+            }
+            byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+            outcomes[next] = outcome;
+            next = (next + 1) % outcomes.length;
+            if (failed) failures++;
+            if (slow) slowCalls++;
+        }
+
+        private boolean thresholdExceeded() {
+            return failureRate() >= failureRateThreshold || slowCallRate() >= slowCallRateThreshold;
+        }
+
+        private double failureRate() {
+            return recorded == 0 ? 0 : failures * 100.0 / recorded;
+        }
+
+        private double slowCallRate() {
+            return recorded == 0 ? 0 : slowCalls * 100.0 / recorded;
+        }
+
+        private void open() {
+            openUntilMillis = System.currentTimeMillis() + openDurationMillis;
+            clearWindow();
+            transitionTo(State.OPEN);
+        }
+
+        private void clearWindow() {
+            next = 0;
+            recorded = 0;
+            failures = 0;
+            slowCalls = 0;
+            halfOpenIssued = 0;
+            halfOpenSucceeded = 0;
+        }
+
+        private void transitionTo(State newState) {
+            if (state != newState) {
+                transitions.merge(newState, 1L, Long::sum);
+            }
+            state = newState;
+        }
+
+        synchronized Map<String, Object> metrics(String id) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("pluginId", id);
+            metrics.put("state", currentState().name());
+            metrics.put("bufferedCalls", recorded);
+            metrics.put("failureRate", failureRate());
+            metrics.put("slowCallRate", slowCallRate());
+            metrics.put("rejectedCalls", rejectedCalls.sum());
+            metrics.put("transitionsToOpen", transitions.getOrDefault(State.OPEN, 0L));
+            metrics.put("transitionsToHalfOpen", transitions.getOrDefault(State.HALF_OPEN, 0L));
+            metrics.put("transitionsToClosed", transitions.getOrDefault(State.CLOSED, 0L));
+            if (currentState() == State.OPEN) {
+                metrics.put("openForMs", Math.max(0, openUntilMillis - System.currentTimeMillis()));
+            }
+            return metrics;
+        }
+    }
+
+    /**
+     * Thrown when a plugin's breaker rejects a call. Carries no stack trace: it is an expected,
+     * cheap rejection on the hot path, not an error to debug.
+     */
+    public static class CircuitOpenException extends RuntimeException {
+        private final String pluginId;
+        private final State state;
+        private final long retryAfterMillis;
+
+        public CircuitOpenException(String pluginId, State state, long retryAfterMillis) {
+            super("Plugin '" + pluginId + "' is temporarily unavailable (circuit " + state.name().toLowerCase() + ").",
+                    null, false, false);
+            this.pluginId = pluginId;
+            this.state = state;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public String getPluginId() { return pluginId; }
+        public State getState() { return state; }
+        public long getRetryAfterMillis() { return retryAfterMillis; }
+    }
+}
@@ -0,0 +1,323 @@
+// src/main/java/kostovite/services/PluginConcurrencyLimiter.java
+package kostovite.services;
+
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Adaptive limit on concurrent plugin dispatches, one per workload class (CPU-heavy and light).
+ * The limit follows a latency gradient: the average latency of each short window is compared with
+ * the no-load latency (the lowest window average, drifting up slowly so a lasting change is relearned);
+ * while they stay close the limit grows by about its square root, and once latency rises
+ * (calls start queueing for cores, instances or workers) it shrinks in proportion.
+ * Calls over the limit are rejected at once so the server answers 503 instead of queueing them.
+ * A plugin's class comes from its "workloadClass" metadata ("cpu" or "light"), else from plugins.limiter.cpu-plugins.
+ */
+@Service
+public class PluginConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginConcurrencyLimiter.class);
+    public static final String METADATA_FIELD = "workloadClass";
+
+    public enum WorkloadClass { CPU, LIGHT }
+
+    // The no-load latency moves 1/N of the way up to a higher window average, i.e. relearns in about N windows
+    private static final int BASELINE_WINDOWS = 120;
+    // Never shrink by more than half in one window
+    private static final double MIN_GRADIENT = 0.5;
+    // Applied to the limit when a call runs into its deadline
+    private static final double TIMEOUT_BACKOFF = 0.9;
+
+    private final boolean enabled;
+    private final Set<String> cpuPlugins;
+    private final int minLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final int minWindowSamples;
+
+    private final Map<WorkloadClass, Limit> limits = new EnumMap<>(WorkloadClass.class);
+    // Weak keys: the class must not keep an unloaded plugin's class loader alive
+    private final Map<PluginInterface, WorkloadClass> classCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public PluginConcurrencyLimiter(@Value("${plugins.limiter.enabled:true}") boolean enabled,
+                                    @Value("${plugins.limiter.cpu-plugins:}") String cpuPlugins,
+                                    @Value("${plugins.limiter.cpu.initial-limit:0}") int cpuInitialLimit,
+                                    @Value("${plugins.limiter.cpu.max-limit:0}") int cpuMaxLimit,
+                                    @Value("${plugins.limiter.light.initial-limit:50}") int lightInitialLimit,
+                                    @Value("${plugins.limiter.light.max-limit:500}") int lightMaxLimit,
+                                    @Value("${plugins.limiter.min-limit:1}") int minLimit,
+                                    @Value("${plugins.limiter.rtt-tolerance:1.5}") double rttTolerance,
+                                    @Value("${plugins.limiter.smoothing:0.2}") double smoothing,
+                                    @Value("${plugins.limiter.window-ms:500}") long windowMillis,
+                                    @Value("${plugins.limiter.min-window-samples:10}") int minWindowSamples) {
+        this.enabled = enabled;
+        this.cpuPlugins = Arrays.stream(cpuPlugins.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.minLimit = Math.max(1, minLimit);
+        this.rttTolerance = Math.max(1.0, rttTolerance);
+        this.smoothing = Math.min(1.0, Math.max(0.01, smoothing));
+        this.windowNanos = Math.max(1, windowMillis) * 1_000_000L;
+        this.minWindowSamples = Math.max(1, minWindowSamples);
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        limits.put(WorkloadClass.CPU, new Limit(WorkloadClass.CPU,
+                cpuInitialLimit > 0 ? cpuInitialLimit : cpus,
+                cpuMaxLimit > 0 ? cpuMaxLimit : 4 * cpus));
+        limits.put(WorkloadClass.LIGHT, new Limit(WorkloadClass.LIGHT, lightInitialLimit, lightMaxLimit));
+        if (enabled) {
+            log.info("Adaptive concurrency limits: cpu {} (max {}), light {} (max {})",
+                    limits.get(WorkloadClass.CPU).limit, limits.get(WorkloadClass.CPU).maxLimit,
+                    limits.get(WorkloadClass.LIGHT).limit, limits.get(WorkloadClass.LIGHT).maxLimit);
+        }
+    }
+
+    /**
+     * Take a slot for one dispatch of the plugin. The returned permit must be completed exactly once;
+     * later calls are ignored, so a finally block may complete it as ignored.
+     * @throws ConcurrencyLimitExceededException if the plugin's class is at its limit
+     */
+    public Permit acquire(PluginInterface plugin) throws ConcurrencyLimitExceededException {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        Limit limit = limits.get(classify(plugin));
+        if (!limit.tryAcquire()) {
+            limit.rejected.increment();
+            throw new ConcurrencyLimitExceededException(limit.workloadClass, limit.limit);
+        }
+        return new Permit(limit);
+    }
+
+    public WorkloadClass classify(PluginInterface plugin) {
+        WorkloadClass cached = classCache.get(plugin);
+        if (cached != null) {
+            return cached;
+        }
+        WorkloadClass workloadClass = cpuPlugins.contains(plugin.getName()) ? WorkloadClass.CPU : WorkloadClass.LIGHT;
+        try {
+            Object declared = plugin.getMetadata().get(METADATA_FIELD);
+            if (declared != null) {
+                workloadClass = WorkloadClass.valueOf(declared.toString().trim().toUpperCase());
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Plugin {} declares unknown workload class, using {}", plugin.getName(), workloadClass);
+        } catch (Exception e) {
+            log.warn("Could not read metadata of plugin {}, using workload class {}: {}",
+                    plugin.getName(), workloadClass, e.getMessage());
+        }
+        classCache.put(plugin, workloadClass);
+        return workloadClass;
+    }
+
+    /**
+     * Current limit, in-flight calls, latency averages and rejections per workload class
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        limits.forEach((workloadClass, limit) -> metrics.put(workloadClass.name().toLowerCase(), limit.metrics()));
+        return metrics;
+    }
+
+    /**
+     * @return 1 while the window latency stays within the tolerance of the no-load latency, less in proportion
+     *         once it rises above it, never below {@link #MIN_GRADIENT}
+     */
+    static double gradient(double rttTolerance, double baselineRttNanos, double rttNanos) {
+        return Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * baselineRttNanos / rttNanos));
+    }
+
+    /**
+     * @return The limit after one window, before clamping to [min-limit, max-limit]
+     */
+    static double nextLimit(double estimatedLimit, double gradient, double smoothing) {
+        // sqrt(limit) is the queue allowed on top; it lets the limit probe upwards while latency stays flat
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        return estimatedLimit * (1 - smoothing) + target * smoothing;
+    }
+
+    /**
+     * One admitted dispatch. Completing it frees the slot and, for successes and timeouts, feeds the limit.
+     */
+    public static class Permit {
+        static final Permit NONE = new Permit(null);
+
+        private final Limit limit;
+        private final long startNanos = System.nanoTime();
+        private boolean completed;
+
+        private Permit(Limit limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * The call returned; its latency is a sample for the limit
+         */
+        public void onSuccess() {
+            complete(System.nanoTime() - startNanos, false);
+        }
+
+        /**
+         * The call ran into its deadline: the limit backs off
+         */
+        public void onDropped() {
+            complete(System.nanoTime() - startNanos, true);
+        }
+
+        /**
+         * The call ended without a usable sample (failed fast, rejected further on, cancelled by the client)
+         */
+        public void onIgnored() {
+            complete(-1, false);
+        }
+
+        private void complete(long rttNanos, boolean dropped) {
+            if (completed || limit == null) {
+                return;
+            }
+            completed = true;
+            limit.release(rttNanos, dropped);
+        }
+    }
+
+    private final class Limit {
+        private final WorkloadClass workloadClass;
+        private final int maxLimit;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private volatile int limit;
+
+        // Guarded by this
+        private double estimatedLimit;
+        private double baselineRttNanos;
+        private double shortRttNanos;
+        private double gradient = 1.0;
+        private long windowStartNanos = System.nanoTime();
+        private long windowRttSum;
+        private int windowSamples;
+        private int windowMaxInFlight;
+        private boolean windowDropped;
+
+        Limit(WorkloadClass workloadClass, int initialLimit, int maxLimit) {
+            this.workloadClass = workloadClass;
+            this.maxLimit = Math.max(minLimit, maxLimit);
+            this.estimatedLimit = Math.max(minLimit, Math.min(this.maxLimit, initialLimit));
+            this.limit = (int) estimatedLimit;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release(long rttNanos, boolean timedOut) {
+            int inFlightBefore = inFlight.getAndDecrement();
+            if (rttNanos < 0) {
+                return;
+            }
+            if (timedOut) {
+                dropped.increment();
+            }
+            synchronized (this) {
+                windowRttSum += rttNanos;
+                windowSamples++;
+                windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+                windowDropped |= timedOut;
+                long now = System.nanoTime();
+                if (now - windowStartNanos >= windowNanos && windowSamples >= minWindowSamples) {
+                    update(Math.max(1.0, (double) windowRttSum / windowSamples), windowMaxInFlight, windowDropped);
+                    windowStartNanos = now;
+                    windowRttSum = 0;
+                    windowSamples = 0;
+                    windowMaxInFlight = 0;
+                    windowDropped = false;
+                }
+            }
+        }
+
+        // Called with the monitor held, once per window
+        private void update(double rttNanos, int maxInFlight, boolean timedOut) {
+            shortRttNanos = rttNanos;
+            if (baselineRttNanos == 0 || rttNanos < baselineRttNanos) {
+                baselineRttNanos = rttNanos;
+            } else {
+                baselineRttNanos += (rttNanos - baselineRttNanos) / BASELINE_WINDOWS;
+            }
+
+            double newLimit;
+            if (timedOut) {
+                newLimit = estimatedLimit * TIMEOUT_BACKOFF;
+            } else if (maxInFlight < estimatedLimit / 2) {
+                // Not using the limit: latency says nothing about a higher one, so do not grow
+                return;
+            } else {
+                gradient = gradient(rttTolerance, baselineRttNanos, rttNanos);
+                newLimit = nextLimit(estimatedLimit, gradient, smoothing);
+            }
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            int previous = limit;
+            limit = (int) estimatedLimit;
+            if (limit != previous) {
+                log.debug("Concurrency limit for {} plugins: {} -> {} (rtt {} ms, no-load rtt {} ms)",
+                        workloadClass.name().toLowerCase(), previous, limit,
+                        Math.round(rttNanos / 1e4) / 100.0, Math.round(baselineRttNanos / 1e4) / 100.0);
+            }
+        }
+
+        synchronized Map<String, Object> metrics() {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("limit", limit);
+            metrics.put("maxLimit", maxLimit);
+            metrics.put("inFlight", inFlight.get());
+            metrics.put("rttMs", Math.round(shortRttNanos / 1e4) / 100.0);
+            metrics.put("noLoadRttMs", Math.round(baselineRttNanos / 1e4) / 100.0);
+            metrics.put("gradient", Math.round(gradient * 1000) / 1000.0);
+            metrics.put("rejected", rejected.sum());
+            metrics.put("timedOut", dropped.sum());
+            return metrics;
+        }
+    }
+
+    /**
+     * Thrown when a workload class is at its concurrency limit. Expected under load, so it carries no stack trace.
+     */
+    public static class ConcurrencyLimitExceededException extends RuntimeException {
+        private final WorkloadClass workloadClass;
+        private final int limit;
+
+        public ConcurrencyLimitExceededException(WorkloadClass workloadClass, int limit) {
+            super("Too many concurrent " + workloadClass.name().toLowerCase() + " plugin calls (limit " + limit + ").",
+                    null, false, false);
+            this.workloadClass = workloadClass;
+            this.limit = limit;
+        }
+
+        public WorkloadClass getWorkloadClass() { return workloadClass; }
+        public int getLimit() { return limit; }
+    }
+}
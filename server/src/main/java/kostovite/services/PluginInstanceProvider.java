@@ -0,0 +1,289 @@
+// src/main/java/kostovite/services/PluginInstanceProvider.java
+package kostovite.services;
+
+import kostovite.ConcurrencyMode;
+import kostovite.ManualPluginLoader;
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out the plugin instance a request thread may call, according to the plugin's
+ * {@link ConcurrencyMode}: the loaded singleton for SHARED plugins, a per-thread instance for
+ * PER_THREAD plugins, and an instance borrowed from a bounded pool for POOLED plugins.
+ */
+@Service
+public class PluginInstanceProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginInstanceProvider.class);
+
+    private final ManualPluginLoader manualPluginLoader;
+    private final int poolSize;
+    private final long acquireTimeoutMillis;
+
+    // Keyed by the loaded singleton; entries of unloaded plugins are dropped when the loader generation moves
+    private final Map<PluginInterface, InstanceSource> sources = new ConcurrentHashMap<>();
+    private volatile long seenGeneration = -1;
+
+    public PluginInstanceProvider(ManualPluginLoader manualPluginLoader,
+                                  @Value("${plugins.instances.pool-size:0}") int poolSize,
+                                  @Value("${plugins.instances.acquire-timeout-ms:5000}") long acquireTimeoutMillis) {
+        this.manualPluginLoader = manualPluginLoader;
+        this.poolSize = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * Get an instance of a plugin for the current thread. Close the lease when the call is done.
+     * @param plugin The loaded plugin
+     * @return Lease on the instance to call
+     * @throws InstanceUnavailableException if every pooled instance stayed busy for the acquire timeout
+     */
+    public Lease acquire(PluginInterface plugin) throws InstanceUnavailableException {
+        ConcurrencyMode mode = concurrencyMode(plugin);
+        if (mode == ConcurrencyMode.SHARED) {
+            return new Lease(plugin, null);
+        }
+        pruneUnloaded();
+        InstanceSource source = sources.computeIfAbsent(plugin, p -> createSource(p, mode));
+        return source.acquire();
+    }
+
+    /**
+     * Instance counts and waits per non-shared plugin
+     */
+    public List<Map<String, Object>> getMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        sources.forEach((plugin, source) -> metrics.add(source.metrics(plugin.getName())));
+        return metrics;
+    }
+
+    private static ConcurrencyMode concurrencyMode(PluginInterface plugin) {
+        try {
+            ConcurrencyMode mode = plugin.getConcurrencyMode();
+            return mode != null ? mode : ConcurrencyMode.SHARED;
+        } catch (AbstractMethodError e) {
+            return ConcurrencyMode.SHARED; // Plugin built against an older plugin-api
+        }
+    }
+
+    private void pruneUnloaded() {
+        long generation = manualPluginLoader.getGeneration();
+        if (generation == seenGeneration) {
+            return;
+        }
+        Set<PluginInterface> loaded = Set.copyOf(manualPluginLoader.getLoadedPlugins());
+        // Dropping the source releases the extra instances, so they do not pin an unloaded class loader
+        sources.keySet().removeIf(plugin -> !loaded.contains(plugin));
+        seenGeneration = generation;
+    }
+
+    private InstanceSource createSource(PluginInterface plugin, ConcurrencyMode mode) {
+        try {
+            plugin.getClass().getConstructor();
+        } catch (NoSuchMethodException e) {
+            log.error("Plugin {} declares {} but has no public no-arg constructor; calls will be serialized on the loaded instance",
+                    plugin.getName(), mode);
+            return new LockedSource(plugin);
+        }
+        log.info("Plugin {} is not thread-safe, dispatching with {} instances", plugin.getName(), mode);
+        return mode == ConcurrencyMode.PER_THREAD ? new PerThreadSource(plugin) : new PooledSource(plugin, poolSize);
+    }
+
+    private static PluginInterface newInstance(PluginInterface prototype) {
+        try {
+            return prototype.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create an instance of plugin " + prototype.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A plugin instance checked out for one call
+     */
+    public static final class Lease implements AutoCloseable {
+        private final PluginInterface instance;
+        private final Runnable release;
+
+        Lease(PluginInterface instance, Runnable release) {
+            this.instance = instance;
+            this.release = release;
+        }
+
+        public PluginInterface instance() {
+            return instance;
+        }
+
+        @Override
+        public void close() {
+            if (release != null) {
+                release.run();
+            }
+        }
+    }
+
+    private interface InstanceSource {
+        Lease acquire() throws InstanceUnavailableException;
+
+        Map<String, Object> metrics(String pluginName);
+    }
+
+    private static final class PerThreadSource implements InstanceSource {
+        private final PluginInterface prototype;
+        // Keyed by thread id rather than a ThreadLocal: dropping the source releases every instance at once.
+        // The thread is only weakly held; entries of threads that ended are purged when a new thread shows up.
+        private final Map<Long, ThreadInstance> byThread = new ConcurrentHashMap<>();
+
+        PerThreadSource(PluginInterface prototype) {
+            this.prototype = prototype;
+        }
+
+        @Override
+        public Lease acquire() {
+            Thread current = Thread.currentThread();
+            ThreadInstance entry = byThread.get(current.getId());
+            if (entry == null) {
+                // Thread ids are never reused, so an entry only goes stale when its thread ends
+                byThread.values().removeIf(ThreadInstance::threadEnded);
+                entry = new ThreadInstance(new WeakReference<>(current), newInstance(prototype));
+                byThread.put(current.getId(), entry);
+            }
+            return new Lease(entry.instance(), null);
+        }
+
+        @Override
+        public Map<String, Object> metrics(String pluginName) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("plugin", pluginName);
+            metrics.put("mode", ConcurrencyMode.PER_THREAD.name());
+            metrics.put("instances", byThread.size());
+            return metrics;
+        }
+    }
+
+    private record ThreadInstance(WeakReference<Thread> thread, PluginInterface instance) {
+        boolean threadEnded() {
+            Thread owner = thread.get();
+            return owner == null || !owner.isAlive();
+        }
+    }
+
+    private final class PooledSource implements InstanceSource {
+        private final PluginInterface prototype;
+        private final int maxInstances;
+        private final BlockingQueue<PluginInterface> idle;
+        private final AtomicInteger created = new AtomicInteger();
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        PooledSource(PluginInterface prototype, int maxInstances) {
+            this.prototype = prototype;
+            this.maxInstances = maxInstances;
+            this.idle = new ArrayBlockingQueue<>(maxInstances);
+        }
+
+        @Override
+        public Lease acquire() throws InstanceUnavailableException {
+            PluginInterface instance = idle.poll();
+            if (instance == null) {
+                instance = createIfBelowLimit();
+            }
+            if (instance == null) {
+                waits.increment();
+                try {
+                    instance = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (instance == null) {
+                    timeouts.increment();
+                    throw new InstanceUnavailableException(prototype.getName(), acquireTimeoutMillis);
+                }
+            }
+            PluginInterface leased = instance;
+            return new Lease(leased, () -> idle.offer(leased));
+        }
+
+        private PluginInterface createIfBelowLimit() {
+            while (true) {
+                int current = created.get();
+                if (current >= maxInstances) {
+                    return null;
+                }
+                if (created.compareAndSet(current, current + 1)) {
+                    try {
+                        return newInstance(prototype);
+                    } catch (RuntimeException e) {
+                        created.decrementAndGet();
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Map<String, Object> metrics(String pluginName) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("plugin", pluginName);
+            metrics.put("mode", ConcurrencyMode.POOLED.name());
+            metrics.put("maxInstances", maxInstances);
+            metrics.put("instances", created.get());
+            metrics.put("idle", idle.size());
+            metrics.put("waits", waits.sum());
+            metrics.put("timeouts", timeouts.sum());
+            return metrics;
+        }
+    }
+
+    /**
+     * Fallback for non-thread-safe plugins that cannot be instantiated again: one call at a time
+     */
+    private static final class LockedSource implements InstanceSource {
+        private final PluginInterface plugin;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        LockedSource(PluginInterface plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public Lease acquire() {
+            lock.lock();
+            return new Lease(plugin, lock::unlock);
+        }
+
+        @Override
+        public Map<String, Object> metrics(String pluginName) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("plugin", pluginName);
+            metrics.put("mode", "LOCKED");
+            metrics.put("queuedThreads", lock.getQueueLength());
+            return metrics;
+        }
+    }
+
+    /**
+     * Thrown when no pooled instance became free within the acquire timeout
+     */
+    public static class InstanceUnavailableException extends RuntimeException {
+        public InstanceUnavailableException(String pluginName, long waitedMillis) {
+            super("All instances of plugin '" + pluginName + "' stayed busy for " + waitedMillis + " ms.", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// src/main/java/kostovite/services/PluginInvocationEvent.java
+package kostovite.services;
+
+import kostovite.BinaryArtifact;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * JDK Flight Recorder event around one plugin call. Visible in any recording (JMC, jfr print)
+ * and consumed in-process by {@link PluginProfiler} to attribute CPU and allocation samples.
+ */
+@Name(PluginInvocationEvent.NAME)
+@Label("Plugin Invocation")
+@Category({"IT-Tools", "Plugins"})
+@Description("One call of a plugin's process() method")
+@StackTrace(false)
+public class PluginInvocationEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "kostovite.PluginInvocation";
+
+    @Label("Plugin ID")
+    String pluginId;
+
+    @Label("User Tier")
+    String tier;
+
+    @Label("Input Size")
+    @DataAmount
+    long inputBytes;
+
+    @Label("Output Size")
+    @DataAmount
+    long outputBytes;
+
+    @Label("Outcome")
+    @Description("success, failure, timeout or cancelled")
+    String outcome;
+
+    @Label("Worker")
+    @Description("Whether the call ran in a worker JVM")
+    boolean offloaded;
+
+    /**
+     * Rough payload size: string lengths, byte arrays and buffers, walked through maps and lists.
+     * Only computed for committed events.
+     */
+    static long estimateBytes(Object value) {
+        return estimateBytes(value, 0);
+    }
+
+    private static long estimateBytes(Object value, int depth) {
+        if (value == null || depth > 8) {
+            return 0;
+        }
+        if (value instanceof CharSequence text) {
+            return text.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (value instanceof ByteBuffer buffer) {
+            return buffer.remaining();
+        }
+        if (value instanceof BinaryArtifact artifact) {
+            return artifact.size();
+        }
+        if (value instanceof Map<?, ?> map) {
+            long total = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                total += estimateBytes(entry.getKey(), depth + 1) + estimateBytes(entry.getValue(), depth + 1);
+            }
+            return total;
+        }
+        if (value instanceof Collection<?> items) {
+            long total = 0;
+            for (Object item : items) {
+                total += estimateBytes(item, depth + 1);
+            }
+            return total;
+        }
+        return 8; // Numbers, booleans
+    }
+}
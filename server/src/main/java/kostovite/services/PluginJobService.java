@@ -0,0 +1,690 @@
+// src/main/java/kostovite/services/PluginJobService.java
+package kostovite.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import kostovite.InvocationContext;
+import kostovite.PluginInterface;
+import kostovite.services.PluginCircuitBreakers.CircuitOpenException;
+import kostovite.services.PluginConcurrencyLimiter.ConcurrencyLimitExceededException;
+import kostovite.services.PluginInstanceProvider.InstanceUnavailableException;
+import kostovite.services.PluginMemoryAdmission.MemoryBudgetExceededException;
+import kostovite.services.PluginService.PluginDisabledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous plugin jobs: submit returns a job ID, the job runs on a small worker pool, and
+ * its status and result are polled. Every state change is appended to a journal (one JSON record
+ * per line) before it is visible, so queued and interrupted jobs are run again after a restart.
+ * <p>
+ * Scheduling is by submission time, with premium and admin jobs given a head start of
+ * plugins.jobs.priority-head-start-ms. A normal job that has waited longer than the head start
+ * runs before any newly submitted premium job, so it cannot starve.
+ */
+@Service
+public class PluginJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginJobService.class);
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {};
+    private static final int COMPACTION_MIN_RECORDS = 1000;
+    private static final long MIN_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
+    public enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final PluginService pluginService;
+    private final ObjectMapper objectMapper;
+    private final ArtifactStore artifactStore;
+    private final int maxQueued;
+    private final int maxQueuedPerClient;
+    private final long timeoutMillis;
+    private final long headStartMillis;
+    private final long retentionMillis;
+    private final Path journalFile;
+    private final boolean fsync;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>(64,
+            Comparator.comparingLong((Job job) -> job.priorityKey).thenComparingLong(job -> job.sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService housekeeping;
+    private final Object journalLock = new Object();
+    private FileChannel journal; // Guarded by journalLock
+    private long journalRecords; // Guarded by journalLock
+    private volatile boolean shuttingDown;
+
+    @Autowired
+    public PluginJobService(PluginService pluginService, ObjectMapper objectMapper, ArtifactStore artifactStore,
+                            @Value("${plugins.jobs.workers:2}") int workerCount,
+                            @Value("${plugins.jobs.max-queued:1000}") int maxQueued,
+                            @Value("${plugins.jobs.max-queued-per-client:20}") int maxQueuedPerClient,
+                            @Value("${plugins.jobs.timeout-ms:600000}") long timeoutMillis,
+                            @Value("${plugins.jobs.priority-head-start-ms:30000}") long headStartMillis,
+                            @Value("${plugins.jobs.retention-minutes:1440}") long retentionMinutes,
+                            @Value("${plugins.jobs.journal:data/jobs.journal}") String journalFile,
+                            @Value("${plugins.jobs.fsync:true}") boolean fsync) throws IOException {
+        this.pluginService = pluginService;
+        this.objectMapper = objectMapper;
+        this.artifactStore = artifactStore;
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerClient = maxQueuedPerClient;
+        this.timeoutMillis = timeoutMillis;
+        this.headStartMillis = headStartMillis;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.journalFile = Path.of(journalFile);
+        this.fsync = fsync;
+
+        Path parent = this.journalFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        recover();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, workerCount);
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "plugin-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::workLoop);
+        }
+        this.housekeeping = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "plugin-job-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeping.scheduleWithFixedDelay(this::purgeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs are not journaled as finished: they run again after the restart
+        shuttingDown = true;
+        for (Job job : jobs.values()) {
+            InvocationContext context = job.context;
+            if (context != null) {
+                context.cancel("server shutting down");
+            }
+        }
+        workers.shutdownNow();
+        housekeeping.shutdownNow();
+        synchronized (journalLock) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Could not close job journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queue a job. Callers check plugin access first ({@link PluginService#resolveAccessiblePlugin});
+     * it is checked again when the job starts.
+     * @param pluginId Plugin ID or name
+     * @param input Plugin input
+     * @param authentication Submitting user (null for anonymous); owner and tier of the job
+     * @param clientAddress Remote address of the request; tells anonymous clients apart for the per-client cap
+     * @return The queued job's status
+     * @throws JobQueueFullException if plugins.jobs.max-queued jobs are waiting in total,
+     * or plugins.jobs.max-queued-per-client for this client
+     */
+    public Map<String, Object> submit(String pluginId, Map<String, Object> input, Authentication authentication,
+                                      String clientAddress) throws IOException {
+        if (queue.size() >= maxQueued) {
+            throw new JobQueueFullException("Job queue is full (" + maxQueued + " jobs waiting)");
+        }
+        String tier = pluginService.extractUserType(authentication);
+        String owner = "anonymous".equals(tier) ? "anonymous" : authentication.getName();
+        String client = "anonymous".equals(owner) ? "anonymous@" + clientAddress : owner;
+        // One client cannot fill the shared queue and have everyone else shed with 503s
+        long queuedByClient = queue.stream().filter(queued -> queued.client.equals(client)).count();
+        if (queuedByClient >= maxQueuedPerClient) {
+            throw new JobQueueFullException("Too many jobs waiting for this client (" + maxQueuedPerClient + ")");
+        }
+        Job job = new Job(UUID.randomUUID().toString(), pluginId, owner, client, tier, System.currentTimeMillis(), input);
+
+        // Journal and index change together, so a compaction never drops a record
+        synchronized (journalLock) {
+            append(submitRecord(job, true));
+            jobs.put(job.id, job);
+        }
+        queue.add(job);
+        log.info("Queued job {} for plugin {} (owner {}, tier {})", job.id, pluginId, owner, tier);
+        return describe(job);
+    }
+
+    /**
+     * @return The job's status, or null if it does not exist (or has expired)
+     * @throws AccessDeniedException if the job belongs to another user
+     */
+    public Map<String, Object> getStatus(String jobId, Authentication authentication) {
+        Job job = findOwnJob(jobId, authentication);
+        return job != null ? describe(job) : null;
+    }
+
+    /**
+     * @return The finished job's plugin output or failure, its status while it is not finished, or null if unknown
+     * @throws AccessDeniedException if the job belongs to another user
+     */
+    public JobResult getResult(String jobId, Authentication authentication) {
+        Job job = findOwnJob(jobId, authentication);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.status == JobStatus.SUCCEEDED) {
+                // Generated images are journaled as artifact references; they become URLs for this request
+                @SuppressWarnings("unchecked")
+                Map<String, Object> body = (Map<String, Object>) artifactStore.resolveReferences(job.result);
+                return new JobResult(job.status, body);
+            }
+            if (job.status.isFinished()) {
+                Map<String, Object> failure = new LinkedHashMap<>();
+                failure.put("success", false);
+                failure.put("status", job.status.name());
+                failure.put("error", job.error);
+                return new JobResult(job.status, failure);
+            }
+        }
+        return new JobResult(job.status, describe(job));
+    }
+
+    /**
+     * Cancel a queued or running job
+     * @return The job's status afterwards, or null if unknown
+     * @throws AccessDeniedException if the job belongs to another user
+     */
+    public Map<String, Object> cancel(String jobId, Authentication authentication) throws IOException {
+        Job job = findOwnJob(jobId, authentication);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.status == JobStatus.QUEUED && queue.remove(job)) {
+                finish(job, JobStatus.CANCELLED, null, "Cancelled by user.");
+            } else if (job.status == JobStatus.QUEUED) {
+                job.cancelRequested = true; // Taken by a worker that has not started it; run() ends it
+            } else if (job.status == JobStatus.RUNNING) {
+                InvocationContext context = job.context;
+                if (context != null) {
+                    job.cancelRequested = true;
+                    context.cancel("cancelled by user");
+                }
+            }
+        }
+        return describe(job);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Integer> queuedByTier = new LinkedHashMap<>();
+        int running = 0;
+        int finished = 0;
+        for (Job job : jobs.values()) {
+            switch (job.status) {
+                case QUEUED -> queuedByTier.merge(job.tier, 1, Integer::sum);
+                case RUNNING -> running++;
+                default -> finished++;
+            }
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queued", queue.size());
+        metrics.put("queuedByTier", queuedByTier);
+        metrics.put("running", running);
+        metrics.put("retainedFinished", finished);
+        metrics.put("maxQueued", maxQueued);
+        metrics.put("maxQueuedPerClient", maxQueuedPerClient);
+        metrics.put("priorityHeadStartMs", headStartMillis);
+        synchronized (journalLock) {
+            metrics.put("journalRecords", journalRecords);
+        }
+        return metrics;
+    }
+
+    private void workLoop() {
+        while (!shuttingDown) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                run(job);
+            } catch (Exception e) {
+                log.error("Job {} could not be recorded: {}", job.id, e.getMessage(), e);
+                if (!shuttingDown && !job.status.isFinished()) {
+                    failUnrecorded(job, "Could not record the job's result.");
+                }
+            }
+        }
+    }
+
+    private void run(Job job) throws IOException {
+        InvocationContext context = InvocationContext.withTimeout(timeoutMillis);
+        context.setProgressListener((fraction, stage) -> {
+            job.progress = fraction;
+            job.stage = stage;
+        });
+        synchronized (job) {
+            if (job.status != JobStatus.QUEUED) {
+                return;
+            }
+            if (job.cancelRequested) {
+                finish(job, JobStatus.CANCELLED, null, "Cancelled by user.");
+                return;
+            }
+            job.context = context;
+            job.startedAt = System.currentTimeMillis();
+            job.status = JobStatus.RUNNING;
+        }
+        Map<String, Object> startRecord = new LinkedHashMap<>();
+        startRecord.put("type", "start");
+        startRecord.put("id", job.id);
+        startRecord.put("startedAt", job.startedAt);
+        try {
+            append(startRecord);
+        } catch (IOException e) {
+            // Never leave it RUNNING with no worker behind it; the journal still has it queued for the next start
+            log.error("Could not journal the start of job {}: {}", job.id, e.getMessage(), e);
+            failUnrecorded(job, "Could not record the job's start.");
+            return;
+        }
+
+        // The job runs as its submitter: access checks and per-tier accounting see the same identity
+        SecurityContextHolder.getContext().setAuthentication(jobAuthentication(job));
+        try {
+            PluginInterface plugin = pluginService.resolveAccessiblePlugin(job.pluginId, jobAuthentication(job));
+            Map<String, Object> result = invokeWithBackoff(plugin, job, context);
+            finish(job, JobStatus.SUCCEEDED, result, null);
+        } catch (CancellationException e) {
+            if (shuttingDown) {
+                return; // Left RUNNING in the journal, so it is queued again on restart
+            }
+            if (job.cancelRequested) {
+                finish(job, JobStatus.CANCELLED, null, "Cancelled by user.");
+            } else {
+                finish(job, JobStatus.FAILED, null, "Job stopped: " + context.getCancelReason());
+            }
+        } catch (PluginDisabledException | AccessDeniedException | CircuitOpenException | InstanceUnavailableException e) {
+            finish(job, JobStatus.FAILED, null, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            finish(job, JobStatus.FAILED, null, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Job {} for plugin {} failed: {}", job.id, job.pluginId, e.getMessage(), e);
+            finish(job, JobStatus.FAILED, null, "Processing failed: " + e.getMessage());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    // Jobs are not waited on by a client: when the call is shed (concurrency limit, memory budget), wait and try again
+    private Map<String, Object> invokeWithBackoff(PluginInterface plugin, Job job, InvocationContext context) {
+        long backoffMillis = MIN_BACKOFF_MILLIS;
+        while (true) {
+            try {
+                return pluginService.invokePlugin(plugin, job.pluginId, job.input, context);
+            } catch (ConcurrencyLimitExceededException | MemoryBudgetExceededException e) {
+                context.checkCancelled();
+                log.debug("Job {} deferred {} ms: {}", job.id, backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(Math.min(backoffMillis, Math.max(1, context.remainingMillis())));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("job worker interrupted");
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void finish(Job job, JobStatus status, Map<String, Object> result, String error) throws IOException {
+        long finishedAt = System.currentTimeMillis();
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", "finish");
+        record.put("id", job.id);
+        record.put("status", status.name());
+        record.put("finishedAt", finishedAt);
+        record.put("result", result);
+        record.put("error", error);
+        synchronized (journalLock) {
+            append(record);
+            job.result = result;
+            job.error = error;
+            job.finishedAt = finishedAt;
+            job.input = null; // Not needed any more; may be large
+            job.context = null;
+            job.status = status;
+        }
+        log.info("Job {} for plugin {} {}", job.id, job.pluginId, status);
+    }
+
+    // The journal is not writable: end the job in memory only, so pollers see a terminal state
+    private void failUnrecorded(Job job, String error) {
+        synchronized (journalLock) {
+            job.error = error;
+            job.finishedAt = System.currentTimeMillis();
+            job.context = null;
+            job.status = JobStatus.FAILED;
+        }
+        log.info("Job {} for plugin {} {} (not journaled)", job.id, job.pluginId, JobStatus.FAILED);
+    }
+
+    private Authentication jobAuthentication(Job job) {
+        if ("anonymous".equals(job.tier)) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(job.owner, null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + job.tier.toUpperCase())));
+    }
+
+    private Job findOwnJob(String jobId, Authentication authentication) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        // Anonymous jobs are only protected by their unguessable ID
+        if (!"anonymous".equals(job.owner)
+                && (authentication == null || !job.owner.equals(authentication.getName()))
+                && !"admin".equals(pluginService.extractUserType(authentication))) {
+            throw new AccessDeniedException("Job " + jobId + " belongs to another user");
+        }
+        return job;
+    }
+
+    private Map<String, Object> describe(Job job) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (job) {
+            status.put("jobId", job.id);
+            status.put("pluginId", job.pluginId);
+            status.put("status", job.status.name());
+            status.put("submittedAt", job.submittedAt);
+            if (job.startedAt > 0) {
+                status.put("startedAt", job.startedAt);
+            }
+            if (job.status == JobStatus.RUNNING && job.stage != null) {
+                status.put("progress", job.progress);
+                status.put("stage", job.stage);
+            }
+            if (job.finishedAt > 0) {
+                status.put("finishedAt", job.finishedAt);
+            }
+            if (job.error != null) {
+                status.put("error", job.error);
+            }
+        }
+        return status;
+    }
+
+    private Map<String, Object> submitRecord(Job job, boolean withInput) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", "submit");
+        record.put("id", job.id);
+        record.put("pluginId", job.pluginId);
+        record.put("owner", job.owner);
+        record.put("tier", job.tier);
+        record.put("submittedAt", job.submittedAt);
+        if (withInput) {
+            record.put("input", job.input);
+        }
+        return record;
+    }
+
+    // --- Journal ---
+
+    private void append(Map<String, Object> record) throws IOException {
+        // Jackson escapes line breaks inside strings, so one record is exactly one line
+        byte[] line = objectMapper.writeValueAsBytes(record);
+        synchronized (journalLock) {
+            ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            if (fsync) {
+                journal.force(false);
+            }
+            journalRecords++;
+        }
+    }
+
+    private void recover() throws IOException {
+        if (Files.exists(journalFile)) {
+            replay();
+        }
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        List<Job> pending = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.status.isFinished()) {
+                if (job.finishedAt < cutoff) {
+                    jobs.remove(job.id);
+                }
+            } else if (job.input == null) {
+                job.status = JobStatus.FAILED;
+                job.error = "Job input was lost.";
+                job.finishedAt = System.currentTimeMillis();
+            } else {
+                // Interrupted jobs run again from the start
+                job.status = JobStatus.QUEUED;
+                job.startedAt = 0;
+                pending.add(job);
+            }
+        }
+        pending.sort(Comparator.comparingLong(job -> job.sequence));
+        queue.addAll(pending);
+        synchronized (journalLock) {
+            compact();
+        }
+        if (!jobs.isEmpty()) {
+            log.info("Recovered {} jobs from {}, {} queued again", jobs.size(), journalFile, pending.size());
+        }
+    }
+
+    private void replay() throws IOException {
+        long validBytes = 0;
+        int lineNumber = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(journalFile))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                lineNumber++;
+                try {
+                    applyRecord(objectMapper.readValue(line.toByteArray(), RECORD_TYPE));
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Skipping unreadable record on line {} of job journal {}: {}", lineNumber, journalFile, e.getMessage());
+                }
+                line.reset();
+                validBytes = offset;
+            }
+            if (line.size() > 0) {
+                log.warn("Dropping torn last record of job journal {} ({} bytes)", journalFile, line.size());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyRecord(Map<String, Object> record) {
+        String id = String.valueOf(record.get("id"));
+        switch (String.valueOf(record.get("type"))) {
+            case "submit" -> {
+                String owner = (String) record.get("owner");
+                Job job = new Job(id, (String) record.get("pluginId"), owner, owner, (String) record.get("tier"),
+                        ((Number) record.get("submittedAt")).longValue(), (Map<String, Object>) record.get("input"));
+                jobs.put(id, job);
+            }
+            case "start" -> {
+                Job job = jobs.get(id);
+                if (job != null) {
+                    job.status = JobStatus.RUNNING;
+                    job.startedAt = ((Number) record.get("startedAt")).longValue();
+                }
+            }
+            case "finish" -> {
+                Job job = jobs.get(id);
+                if (job != null) {
+                    job.status = JobStatus.valueOf((String) record.get("status"));
+                    job.finishedAt = ((Number) record.get("finishedAt")).longValue();
+                    job.result = (Map<String, Object>) record.get("result");
+                    job.error = (String) record.get("error");
+                    job.input = null;
+                }
+            }
+            default -> log.warn("Unknown job journal record type: {}", record.get("type"));
+        }
+    }
+
+    // Rewrite the journal with only the retained jobs. Caller holds journalLock.
+    private void compact() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".compact");
+        journalRecords = 0;
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            List<Job> retained = new ArrayList<>(jobs.values());
+            retained.sort(Comparator.comparingLong(job -> job.sequence));
+            for (Job job : retained) {
+                writeLine(out, submitRecord(job, !job.status.isFinished()));
+                if (job.startedAt > 0 && !job.status.isFinished()) {
+                    Map<String, Object> start = new LinkedHashMap<>();
+                    start.put("type", "start");
+                    start.put("id", job.id);
+                    start.put("startedAt", job.startedAt);
+                    writeLine(out, start);
+                }
+                if (job.status.isFinished()) {
+                    Map<String, Object> finish = new LinkedHashMap<>();
+                    finish.put("type", "finish");
+                    finish.put("id", job.id);
+                    finish.put("status", job.status.name());
+                    finish.put("finishedAt", job.finishedAt);
+                    finish.put("result", job.result);
+                    finish.put("error", job.error);
+                    writeLine(out, finish);
+                }
+            }
+        }
+        try (FileChannel sync = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            sync.force(true);
+        }
+        Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> record) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(record));
+        out.write('\n');
+        journalRecords++;
+    }
+
+    private void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> job.status.isFinished() && job.finishedAt < cutoff);
+        try {
+            synchronized (journalLock) {
+                if (journalRecords > COMPACTION_MIN_RECORDS && journalRecords > 3L * jobs.size()) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not compact job journal {}: {}", journalFile, e.getMessage());
+        }
+    }
+
+    public record JobResult(JobStatus status, Map<String, Object> body) {
+    }
+
+    public static class JobQueueFullException extends RuntimeException {
+        public JobQueueFullException(String message) {
+            super(message);
+        }
+    }
+
+    private final class Job {
+        final String id;
+        final String pluginId;
+        final String owner;
+        final String client; // Per-client queue cap: the owner, or anonymous@address
+        final String tier;
+        final long submittedAt;
+        final long sequence;
+        final long priorityKey;
+        volatile JobStatus status = JobStatus.QUEUED;
+        volatile Map<String, Object> input;
+        volatile Map<String, Object> result;
+        volatile String error;
+        volatile long startedAt;
+        volatile long finishedAt;
+        volatile double progress;
+        volatile String stage;
+        volatile InvocationContext context;
+        volatile boolean cancelRequested;
+
+        Job(String id, String pluginId, String owner, String client, String tier, long submittedAt,
+            Map<String, Object> input) {
+            this.id = id;
+            this.pluginId = pluginId;
+            this.owner = owner != null ? owner : "anonymous";
+            this.client = client != null ? client : this.owner;
+            this.tier = tier != null ? tier : "anonymous";
+            this.submittedAt = submittedAt;
+            this.input = input;
+            this.sequence = PluginJobService.this.sequence.incrementAndGet();
+            boolean prioritized = "premium".equals(this.tier) || "admin".equals(this.tier);
+            this.priorityKey = prioritized ? submittedAt - headStartMillis : submittedAt;
+        }
+    }
+}
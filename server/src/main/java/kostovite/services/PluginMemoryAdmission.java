@@ -0,0 +1,314 @@
+// src/main/java/kostovite/services/PluginMemoryAdmission.java
+package kostovite.services;
+
+import jakarta.annotation.PreDestroy;
+import kostovite.InvocationContext;
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Heap budget for plugins that allocate a multiple of their input (image decoding, DOM parsing).
+ * Such plugins declare "memoryCostPerInputByte" in their metadata; before a call runs in-process,
+ * input size times that cost is reserved against a budget of plugins.memory.budget-fraction of the max heap.
+ * Calls that do not fit wait in FIFO order for reservations to be released, and are rejected after
+ * plugins.memory.queue-timeout-ms. A call larger than the whole budget runs alone.
+ * The MemoryMXBean reports heap pools still above plugins.memory.pressure-threshold after a collection;
+ * until a later collection gets below it, memory-heavy calls run one at a time.
+ */
+@Service
+public class PluginMemoryAdmission {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginMemoryAdmission.class);
+    public static final String METADATA_FIELD = "memoryCostPerInputByte";
+
+    // Waiters re-check the heap this often, since no notification says the pressure is over
+    private static final long PRESSURE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final boolean enabled;
+    private final long budgetBytes;
+    private final long queueTimeoutMillis;
+    private final int maxQueued;
+
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final List<MemoryPoolMXBean> monitoredPools = new ArrayList<>();
+    private final NotificationListener pressureListener = this::onMemoryNotification;
+    private volatile boolean underPressure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // Guarded by lock
+    private final ArrayDeque<Object> waiters = new ArrayDeque<>();
+    private long reservedBytes;
+    private long peakReservedBytes;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder pressureEvents = new LongAdder();
+    // Weak keys: the cost must not keep an unloaded plugin's class loader alive
+    private final Map<PluginInterface, Double> costCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public PluginMemoryAdmission(@Value("${plugins.memory.enabled:true}") boolean enabled,
+                                 @Value("${plugins.memory.budget-fraction:0.5}") double budgetFraction,
+                                 @Value("${plugins.memory.pressure-threshold:0.85}") double pressureThreshold,
+                                 @Value("${plugins.memory.queue-timeout-ms:5000}") long queueTimeoutMillis,
+                                 @Value("${plugins.memory.max-queued:32}") int maxQueued) {
+        this.enabled = enabled;
+        long maxHeap = memoryBean.getHeapMemoryUsage().getMax();
+        if (maxHeap <= 0) {
+            maxHeap = Runtime.getRuntime().maxMemory();
+        }
+        this.budgetBytes = (long) (maxHeap * Math.min(1.0, Math.max(0.01, budgetFraction)));
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxQueued = Math.max(0, maxQueued);
+        if (enabled) {
+            watchHeapPools(Math.min(1.0, Math.max(0.1, pressureThreshold)));
+            log.info("Plugin memory budget {} MB of {} MB heap, watching pools {}", budgetBytes >> 20, maxHeap >> 20,
+                    monitoredPools.stream().map(MemoryPoolMXBean::getName).toList());
+        }
+    }
+
+    /**
+     * Reserve heap for one in-process call. Plugins without a declared cost get an empty reservation.
+     * Waits while the reservation does not fit the budget.
+     * @throws MemoryBudgetExceededException if it still did not fit after the queue timeout, or the queue is full
+     * @throws CancellationException if the invocation was cancelled while waiting
+     */
+    public Reservation reserve(PluginInterface plugin, Map<String, Object> input, InvocationContext context)
+            throws MemoryBudgetExceededException {
+        double cost = enabled ? costPerInputByte(plugin) : 0;
+        if (cost <= 0) {
+            return Reservation.NONE;
+        }
+        long bytes = (long) Math.ceil(PluginInvocationEvent.estimateBytes(input) * cost);
+        lock.lock();
+        try {
+            refreshPressure();
+            if (waiters.isEmpty() && fits(bytes)) {
+                return admit(bytes);
+            }
+            if (waiters.size() >= maxQueued) {
+                rejected.increment();
+                throw new MemoryBudgetExceededException(plugin.getName(), bytes);
+            }
+            Object ticket = new Object();
+            waiters.addLast(ticket);
+            queued.increment();
+            long deadline = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(Math.min(queueTimeoutMillis, context.remainingMillis()));
+            try {
+                while (true) {
+                    if (waiters.peekFirst() == ticket && fits(bytes)) {
+                        return admit(bytes);
+                    }
+                    context.checkCancelled();
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        throw new MemoryBudgetExceededException(plugin.getName(), bytes);
+                    }
+                    released.awaitNanos(Math.min(remaining, PRESSURE_POLL_NANOS));
+                    refreshPressure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("interrupted while waiting for memory");
+            } finally {
+                waiters.remove(ticket);
+                released.signalAll(); // The next waiter may be at the head now
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("budgetBytes", budgetBytes);
+        metrics.put("underPressure", underPressure);
+        lock.lock();
+        try {
+            metrics.put("reservedBytes", reservedBytes);
+            metrics.put("peakReservedBytes", peakReservedBytes);
+            metrics.put("waiting", waiters.size());
+        } finally {
+            lock.unlock();
+        }
+        metrics.put("admitted", admitted.sum());
+        metrics.put("queued", queued.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("pressureEvents", pressureEvents.sum());
+        MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+        metrics.put("heapUsedBytes", heap.getUsed());
+        metrics.put("heapMaxBytes", heap.getMax());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled && memoryBean instanceof NotificationEmitter emitter) {
+            try {
+                emitter.removeNotificationListener(pressureListener);
+            } catch (ListenerNotFoundException e) {
+                // Not registered
+            }
+        }
+    }
+
+    // Called with the lock held
+    private boolean fits(long bytes) {
+        if (reservedBytes == 0) {
+            return true; // Alone it always runs: an oversized call, or pressure, must not block forever
+        }
+        return !underPressure && reservedBytes + bytes <= budgetBytes;
+    }
+
+    // Called with the lock held
+    private Reservation admit(long bytes) {
+        reservedBytes += bytes;
+        peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+        admitted.increment();
+        return new Reservation(this, bytes);
+    }
+
+    private void release(long bytes) {
+        lock.lock();
+        try {
+            reservedBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double costPerInputByte(PluginInterface plugin) {
+        Double cached = costCache.get(plugin);
+        if (cached != null) {
+            return cached;
+        }
+        double cost = 0;
+        try {
+            Object declared = plugin.getMetadata().get(METADATA_FIELD);
+            if (declared instanceof Number number) {
+                cost = number.doubleValue();
+            } else if (declared != null) {
+                cost = Double.parseDouble(declared.toString());
+            }
+        } catch (Exception e) {
+            log.warn("Could not read memory cost of plugin {}, not reserving memory: {}", plugin.getName(), e.getMessage());
+        }
+        costCache.put(plugin, cost);
+        return cost;
+    }
+
+    private void watchHeapPools(double pressureThreshold) {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            // Only the pools collections empty into (old generation) say anything about live data
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+                    && pool.isUsageThresholdSupported() && max > 0) {
+                pool.setCollectionUsageThreshold((long) (max * pressureThreshold));
+                monitoredPools.add(pool);
+            }
+        }
+        if (memoryBean instanceof NotificationEmitter emitter) {
+            emitter.addNotificationListener(pressureListener, null, null);
+        }
+    }
+
+    private void onMemoryNotification(Notification notification, Object handback) {
+        if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            return;
+        }
+        pressureEvents.increment();
+        if (!underPressure) {
+            underPressure = true;
+            log.warn("Heap still above the pressure threshold after a collection: memory-heavy plugins run one at a time");
+        }
+    }
+
+    private void refreshPressure() {
+        if (!underPressure) {
+            return;
+        }
+        for (MemoryPoolMXBean pool : monitoredPools) {
+            MemoryUsage afterCollection = pool.getCollectionUsage();
+            if (afterCollection != null && afterCollection.getUsed() >= pool.getCollectionUsageThreshold()) {
+                return;
+            }
+        }
+        underPressure = false;
+        log.info("Heap back below the pressure threshold after a collection");
+    }
+
+    /**
+     * Reserved heap for one call; closing it releases the reservation. Closing twice is harmless.
+     */
+    public static class Reservation implements AutoCloseable {
+        static final Reservation NONE = new Reservation(null, 0);
+
+        private final PluginMemoryAdmission owner;
+        private final long bytes;
+        private boolean closed;
+
+        private Reservation(PluginMemoryAdmission owner, long bytes) {
+            this.owner = owner;
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (closed || owner == null) {
+                return;
+            }
+            closed = true;
+            owner.release(bytes);
+        }
+    }
+
+    /**
+     * Thrown when a memory-heavy call found no room in the heap budget in time
+     */
+    public static class MemoryBudgetExceededException extends RuntimeException {
+        private final long requestedBytes;
+
+        public MemoryBudgetExceededException(String pluginName, long requestedBytes) {
+            super("Not enough memory available for plugin '" + pluginName + "' (needs about "
+                    + (requestedBytes >> 20) + " MB), try again later.", null, false, false);
+            this.requestedBytes = requestedBytes;
+        }
+
+        public long getRequestedBytes() { return requestedBytes; }
+    }
+}
@@ -0,0 +1,179 @@
+// src/main/java/kostovite/services/PluginPipelineService.java
+package kostovite.services;
+
+import kostovite.InvocationContext;
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs several plugins in one request, feeding each step's output fields into the next step's inputs.
+ * Intermediate results stay as in-memory maps; only the final step's output is serialized.
+ */
+@Service
+public class PluginPipelineService {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginPipelineService.class);
+    private final PluginService pluginService;
+    private final int maxSteps;
+
+    @Autowired
+    public PluginPipelineService(PluginService pluginService,
+                                 @Value("${plugins.pipeline.max-steps:10}") int maxSteps) {
+        this.pluginService = pluginService;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Execute a pipeline. Enabled and access checks run once per distinct plugin before any step executes.
+     * @param steps Ordered steps
+     * @param authentication The current authentication (may be null for anonymous users)
+     * @return Final output under "result" plus per-step timings under "steps"
+     * @throws IllegalArgumentException if the pipeline is empty, too long, or references an unknown plugin
+     */
+    public Map<String, Object> runPipeline(List<PipelineStep> steps, Authentication authentication)
+            throws PluginService.PluginDisabledException, IllegalArgumentException, AccessDeniedException {
+        if (steps == null || steps.isEmpty()) {
+            throw new IllegalArgumentException("Pipeline must contain at least one step.");
+        }
+        if (steps.size() > maxSteps) {
+            throw new IllegalArgumentException("Pipeline has " + steps.size() + " steps, the maximum is " + maxSteps + ".");
+        }
+
+        // Resolve every distinct plugin up front so a denied step fails before anything runs
+        Map<String, PluginInterface> plugins = new HashMap<>();
+        for (PipelineStep step : steps) {
+            if (step.plugin() == null || step.plugin().isBlank()) {
+                throw new IllegalArgumentException("Every pipeline step needs a 'plugin'.");
+            }
+            if (!plugins.containsKey(step.plugin())) {
+                plugins.put(step.plugin(), pluginService.resolveAccessiblePlugin(step.plugin(), authentication));
+            }
+        }
+
+        // One deadline for the whole pipeline, not one per step
+        InvocationContext context = pluginService.newInvocationContext();
+        long pipelineStart = System.nanoTime();
+        List<Map<String, Object>> timings = new ArrayList<>(steps.size());
+        Map<String, Object> previousOutput = Map.of();
+        boolean success = true;
+        int failedStep = -1;
+
+        for (int i = 0; i < steps.size(); i++) {
+            PipelineStep step = steps.get(i);
+            Map<String, Object> input = buildStepInput(step, previousOutput);
+
+            long stepStart = System.nanoTime();
+            Map<String, Object> output = pluginService.invokePlugin(plugins.get(step.plugin()), step.plugin(), input, context);
+            long stepNanos = System.nanoTime() - stepStart;
+
+            boolean stepSuccess = output != null && !Boolean.FALSE.equals(output.get("success"));
+            Map<String, Object> timing = new LinkedHashMap<>();
+            timing.put("index", i);
+            timing.put("plugin", step.plugin());
+            timing.put("durationMs", stepNanos / 1_000_000.0);
+            timing.put("success", stepSuccess);
+            timings.add(timing);
+
+            previousOutput = output != null ? output : Map.of();
+            if (!stepSuccess) {
+                log.warn("Pipeline stopped at step {} ({}): plugin reported failure", i, step.plugin());
+                success = false;
+                failedStep = i;
+                break;
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", success);
+        if (!success) {
+            response.put("failedStep", failedStep);
+        }
+        response.put("result", previousOutput);
+        response.put("steps", timings);
+        response.put("totalDurationMs", (System.nanoTime() - pipelineStart) / 1_000_000.0);
+        return response;
+    }
+
+    private Map<String, Object> buildStepInput(PipelineStep step, Map<String, Object> previousOutput) {
+        Map<String, Object> input = new HashMap<>();
+        if (step.input() != null) {
+            input.putAll(step.input());
+        }
+        if (step.map() != null) {
+            // map: target input field -> output field of the previous step
+            step.map().forEach((targetField, sourceField) -> {
+                if (previousOutput.containsKey(sourceField)) {
+                    input.put(targetField, previousOutput.get(sourceField));
+                } else {
+                    log.debug("Pipeline step '{}': previous output has no field '{}' for input '{}'", step.plugin(), sourceField, targetField);
+                }
+            });
+        }
+        return input;
+    }
+
+    /**
+     * One pipeline step.
+     * @param plugin Plugin ID or name
+     * @param input Static input fields for this step
+     * @param map Input field of this step -> output field of the previous step
+     */
+    public record PipelineStep(String plugin, Map<String, Object> input, Map<String, String> map) {}
+
+    /**
+     * Request body of POST /api/plugins/pipeline.
+     */
+    public record PipelineRequest(List<PipelineStep> steps) {
+
+        /**
+         * Build the request from a body already parsed (and size-capped) by {@link SpillingJsonReader}
+         * @throws IllegalArgumentException if the body does not have the pipeline's shape
+         */
+        @SuppressWarnings("unchecked")
+        public static PipelineRequest fromBody(Map<String, Object> body) {
+            Object steps = body.get("steps");
+            if (steps == null) {
+                return new PipelineRequest(null);
+            }
+            if (!(steps instanceof List<?> list)) {
+                throw new IllegalArgumentException("'steps' must be an array.");
+            }
+            List<PipelineStep> parsed = new ArrayList<>(list.size());
+            for (Object step : list) {
+                if (!(step instanceof Map<?, ?> fields)) {
+                    throw new IllegalArgumentException("Every pipeline step must be an object.");
+                }
+                Object plugin = fields.get("plugin");
+                Object input = fields.get("input");
+                Object map = fields.get("map");
+                if ((plugin != null && !(plugin instanceof CharSequence))
+                        || (input != null && !(input instanceof Map<?, ?>))
+                        || (map != null && !(map instanceof Map<?, ?>))) {
+                    throw new IllegalArgumentException("A pipeline step has 'plugin' (string), 'input' and 'map' (objects).");
+                }
+                Map<String, String> mapping = null;
+                if (map != null) {
+                    mapping = new LinkedHashMap<>();
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()) {
+                        mapping.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+                    }
+                }
+                parsed.add(new PipelineStep(plugin != null ? plugin.toString() : null,
+                        (Map<String, Object>) input, mapping));
+            }
+            return new PipelineRequest(parsed);
+        }
+    }
+}
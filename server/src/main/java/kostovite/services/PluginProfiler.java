@@ -0,0 +1,326 @@
+// src/main/java/kostovite/services/PluginProfiler.java
+package kostovite.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Continuous in-process profiling per plugin, built on JFR event streaming.
+ * A recording stream takes CPU samples (jdk.ExecutionSample), allocation samples
+ * (jdk.ObjectAllocationSample) and {@link PluginInvocationEvent}s. A sample belongs to a plugin
+ * when it was taken on the thread and within the time span of one of its invocations. Results are
+ * kept in time buckets so a report can cover any recent window up to the retention.
+ * Calls that run in a worker JVM are counted, but their samples are taken in the worker and not seen here.
+ */
+@Service
+public class PluginProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginProfiler.class);
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final long BUCKET_SECONDS = 10;
+    private static final int MAX_PENDING_SAMPLES = 100_000;
+
+    private final boolean enabled;
+    private final long executionPeriodMillis;
+    private final String allocationThrottle;
+    private final long retentionSeconds;
+    private final Duration pendingHorizon;
+
+    private RecordingStream stream;
+
+    // Everything below is written by the stream's single dispatch thread; readers lock on this
+    private final Map<Long, Deque<Sample>> pendingByThread = new HashMap<>();
+    private int pendingCount;
+    private final Deque<Bucket> buckets = new ArrayDeque<>();
+    private long droppedSamples;
+
+    public PluginProfiler(@Value("${plugins.profiling.enabled:true}") boolean enabled,
+                          @Value("${plugins.profiling.execution-period-ms:20}") long executionPeriodMillis,
+                          @Value("${plugins.profiling.allocation-throttle:150/s}") String allocationThrottle,
+                          @Value("${plugins.profiling.retention-seconds:900}") long retentionSeconds,
+                          @Value("${plugins.invocation.timeout-ms:30000}") long invocationTimeoutMillis) {
+        this.enabled = enabled;
+        this.executionPeriodMillis = Math.max(1, executionPeriodMillis);
+        this.allocationThrottle = allocationThrottle;
+        this.retentionSeconds = Math.max(BUCKET_SECONDS, retentionSeconds);
+        // A sample is matched when the invocation around it ends; no invocation outlives its deadline by much
+        this.pendingHorizon = Duration.ofMillis(Math.max(invocationTimeoutMillis, 10_000) + 10_000);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Plugin profiling disabled");
+            return;
+        }
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(EXECUTION_SAMPLE).withPeriod(Duration.ofMillis(executionPeriodMillis));
+            recording.enable(ALLOCATION_SAMPLE).with("throttle", allocationThrottle);
+            recording.enable(PluginInvocationEvent.NAME).withoutStackTrace();
+            recording.setMaxAge(Duration.ofSeconds(30)); // Only the in-process consumer reads it
+            recording.onEvent(EXECUTION_SAMPLE, event -> onSample(event, event.getThread("sampledThread"), false));
+            recording.onEvent(ALLOCATION_SAMPLE, event -> onSample(event, event.getThread(), true));
+            recording.onEvent(PluginInvocationEvent.NAME, this::onInvocation);
+            recording.onFlush(this::expire);
+            recording.startAsync();
+            this.stream = recording;
+            log.info("Plugin profiling started: execution sample every {} ms, allocation samples {}", executionPeriodMillis, allocationThrottle);
+        } catch (Exception | LinkageError e) {
+            // JFR can be missing or disabled (-XX:-FlightRecorder); the server works without profiles
+            log.warn("Plugin profiling unavailable: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    /**
+     * Profile per plugin over a recent window, plugins with the most CPU samples first
+     * @param windowSeconds How far back to look (capped by the retention)
+     * @param topN Entries per list
+     */
+    public synchronized Map<String, Object> getReport(long windowSeconds, int topN) {
+        long window = Math.max(BUCKET_SECONDS, Math.min(windowSeconds, retentionSeconds));
+        long oldestBucket = bucketOf(Instant.now()) - window / BUCKET_SECONDS;
+        Map<String, PluginProfile> merged = new HashMap<>();
+        for (Bucket bucket : buckets) {
+            if (bucket.index >= oldestBucket) {
+                bucket.profiles.forEach((pluginId, profile) -> merged.computeIfAbsent(pluginId, id -> new PluginProfile()).merge(profile));
+            }
+        }
+
+        List<Map<String, Object>> plugins = new ArrayList<>();
+        merged.forEach((pluginId, profile) -> plugins.add(profile.toReport(pluginId, Math.max(1, topN))));
+        plugins.sort(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("cpuSamples")).reversed());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("running", isRunning());
+        report.put("windowSeconds", window);
+        report.put("executionPeriodMs", executionPeriodMillis);
+        report.put("pendingSamples", pendingCount);
+        report.put("droppedSamples", droppedSamples);
+        report.put("plugins", plugins);
+        return report;
+    }
+
+    private synchronized void onSample(RecordedEvent event, RecordedThread thread, boolean allocation) {
+        if (thread == null || event.getStackTrace() == null) {
+            return;
+        }
+        if (pendingCount >= MAX_PENDING_SAMPLES) {
+            droppedSamples++;
+            return;
+        }
+        String site = topFrame(event.getStackTrace());
+        String type = null;
+        long weight = 1;
+        if (allocation) {
+            weight = event.getLong("weight");
+            type = event.getClass("objectClass").getName();
+        }
+        pendingByThread.computeIfAbsent(thread.getJavaThreadId(), id -> new ArrayDeque<>())
+                .addLast(new Sample(event.getStartTime(), allocation, site, type, weight));
+        pendingCount++;
+    }
+
+    private synchronized void onInvocation(RecordedEvent event) {
+        String pluginId = event.getString("pluginId");
+        RecordedThread thread = event.getThread();
+        if (pluginId == null || thread == null) {
+            return;
+        }
+        Instant start = event.getStartTime();
+        Instant end = event.getEndTime();
+        PluginProfile profile = bucketFor(end).profiles.computeIfAbsent(pluginId, id -> new PluginProfile());
+        profile.invocations++;
+        profile.totalNanos += event.getDuration().toNanos();
+        profile.inputBytes += event.getLong("inputBytes");
+        profile.outputBytes += event.getLong("outputBytes");
+        if (!"success".equals(event.getString("outcome"))) {
+            profile.unsuccessful++;
+        }
+
+        Deque<Sample> pending = pendingByThread.get(thread.getJavaThreadId());
+        if (pending == null) {
+            return;
+        }
+        // Samples of this thread up to the end of the call were either taken during it or outside any plugin
+        Iterator<Sample> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            Sample sample = iterator.next();
+            if (sample.time.isAfter(end)) {
+                break;
+            }
+            iterator.remove();
+            pendingCount--;
+            if (!sample.time.isBefore(start)) {
+                profile.add(sample);
+            }
+        }
+        if (pending.isEmpty()) {
+            pendingByThread.remove(thread.getJavaThreadId());
+        }
+    }
+
+    // Called after each stream flush: drop unmatched samples and buckets past the retention
+    private synchronized void expire() {
+        Instant horizon = Instant.now().minus(pendingHorizon);
+        Iterator<Deque<Sample>> threads = pendingByThread.values().iterator();
+        while (threads.hasNext()) {
+            Deque<Sample> pending = threads.next();
+            while (!pending.isEmpty() && pending.peekFirst().time.isBefore(horizon)) {
+                pending.pollFirst();
+                pendingCount--;
+            }
+            if (pending.isEmpty()) {
+                threads.remove();
+            }
+        }
+        long oldestBucket = bucketOf(Instant.now()) - retentionSeconds / BUCKET_SECONDS;
+        while (!buckets.isEmpty() && buckets.peekFirst().index < oldestBucket) {
+            buckets.pollFirst();
+        }
+    }
+
+    private Bucket bucketFor(Instant time) {
+        long index = bucketOf(time);
+        Bucket last = buckets.peekLast();
+        if (last != null && last.index == index) {
+            return last;
+        }
+        for (Bucket bucket : buckets) {
+            if (bucket.index == index) {
+                return bucket; // Event from a chunk that arrived late
+            }
+        }
+        Bucket bucket = new Bucket(index);
+        if (last == null || last.index < index) {
+            buckets.addLast(bucket);
+        } else {
+            buckets.addFirst(bucket);
+        }
+        return bucket;
+    }
+
+    private static long bucketOf(Instant time) {
+        return time.getEpochSecond() / BUCKET_SECONDS;
+    }
+
+    private static String topFrame(RecordedStackTrace stackTrace) {
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame()) {
+                return frame.getMethod().getType().getName() + '.' + frame.getMethod().getName() + ':' + frame.getLineNumber();
+            }
+        }
+        return "<unknown>";
+    }
+
+    private record Sample(Instant time, boolean allocation, String site, String type, long weight) {}
+
+    private static final class Bucket {
+        final long index;
+        final Map<String, PluginProfile> profiles = new HashMap<>();
+
+        Bucket(long index) {
+            this.index = index;
+        }
+    }
+
+    private static final class PluginProfile {
+        long invocations;
+        long unsuccessful;
+        long totalNanos;
+        long inputBytes;
+        long outputBytes;
+        long cpuSamples;
+        long allocatedBytes;
+        final Map<String, Long> hotMethods = new HashMap<>();
+        final Map<String, Long> allocationSites = new HashMap<>();
+        final Map<String, Long> allocatedTypes = new HashMap<>();
+
+        void add(Sample sample) {
+            if (sample.allocation) {
+                allocatedBytes += sample.weight;
+                allocationSites.merge(sample.site, sample.weight, Long::sum);
+                allocatedTypes.merge(sample.type, sample.weight, Long::sum);
+            } else {
+                cpuSamples++;
+                hotMethods.merge(sample.site, 1L, Long::sum);
+            }
+        }
+
+        void merge(PluginProfile other) {
+            invocations += other.invocations;
+            unsuccessful += other.unsuccessful;
+            totalNanos += other.totalNanos;
+            inputBytes += other.inputBytes;
+            outputBytes += other.outputBytes;
+            cpuSamples += other.cpuSamples;
+            allocatedBytes += other.allocatedBytes;
+            other.hotMethods.forEach((key, value) -> hotMethods.merge(key, value, Long::sum));
+            other.allocationSites.forEach((key, value) -> allocationSites.merge(key, value, Long::sum));
+            other.allocatedTypes.forEach((key, value) -> allocatedTypes.merge(key, value, Long::sum));
+        }
+
+        Map<String, Object> toReport(String pluginId, int topN) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("pluginId", pluginId);
+            entry.put("invocations", invocations);
+            entry.put("unsuccessful", unsuccessful);
+            entry.put("meanDurationMs", invocations == 0 ? 0.0 : totalNanos / 1e6 / invocations);
+            entry.put("inputBytes", inputBytes);
+            entry.put("outputBytes", outputBytes);
+            entry.put("cpuSamples", cpuSamples);
+            entry.put("sampledAllocationBytes", allocatedBytes);
+            entry.put("hotMethods", top(hotMethods, cpuSamples, topN, "method", "samples"));
+            entry.put("allocationSites", top(allocationSites, allocatedBytes, topN, "site", "bytes"));
+            entry.put("allocatedTypes", top(allocatedTypes, allocatedBytes, topN, "type", "bytes"));
+            return entry;
+        }
+
+        private static List<Map<String, Object>> top(Map<String, Long> counts, long total, int topN, String keyName, String valueName) {
+            return counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(topN)
+                    .map(entry -> {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put(keyName, entry.getKey());
+                        item.put(valueName, entry.getValue());
+                        item.put("share", total == 0 ? 0.0 : entry.getValue() / (double) total);
+                        return item;
+                    })
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+// src/main/java/kostovite/services/PluginProgressStreamer.java
+package kostovite.services;
+
+import jakarta.annotation.PreDestroy;
+import kostovite.InvocationContext;
+import kostovite.PluginInterface;
+import kostovite.ProgressListener;
+import kostovite.services.PluginCircuitBreakers.CircuitOpenException;
+import kostovite.services.PluginConcurrencyLimiter.ConcurrencyLimitExceededException;
+import kostovite.services.PluginInstanceProvider.InstanceUnavailableException;
+import kostovite.services.PluginMemoryAdmission.MemoryBudgetExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a plugin invocation off the request thread and streams it as Server-Sent Events:
+ * "progress" events ({fraction, stage}) while the plugin reports them, then one "result"
+ * event with the plugin output, or one "error" event. A client that disconnects cancels the invocation.
+ */
+@Service
+public class PluginProgressStreamer {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginProgressStreamer.class);
+    private static final long MIN_PROGRESS_INTERVAL_NANOS = 100_000_000L; // At most ~10 progress events per second
+    private static final double MIN_PROGRESS_STEP = 0.01;
+
+    private final PluginService pluginService;
+    private final ArtifactStore artifactStore;
+    private final ThreadPoolExecutor executor;
+    private final long emitterTimeoutMillis;
+
+    @Autowired
+    public PluginProgressStreamer(PluginService pluginService, ArtifactStore artifactStore,
+                                  @Value("${plugins.streaming.threads:8}") int threads,
+                                  @Value("${plugins.streaming.queue-size:32}") int queueSize,
+                                  @Value("${plugins.invocation.timeout-ms:30000}") long invocationTimeoutMillis) {
+        this.pluginService = pluginService;
+        this.artifactStore = artifactStore;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "plugin-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        // Slack over the invocation deadline so the plugin's own timeout is reported, not the emitter's
+        this.emitterTimeoutMillis = invocationTimeoutMillis > 0 ? invocationTimeoutMillis + 5_000 : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start streaming an invocation of an already resolved plugin
+     * @param plugin Plugin returned by {@link PluginService#resolveAccessiblePlugin}
+     * @param pluginId ID the plugin was requested by
+     * @param input Plugin input
+     * @return Emitter to return from the controller
+     * @throws RejectedExecutionException if all streaming slots are taken
+     */
+    public SseEmitter stream(PluginInterface plugin, String pluginId, Map<String, Object> input)
+            throws RejectedExecutionException {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        InvocationContext context = pluginService.newInvocationContext();
+        emitter.onCompletion(() -> context.cancel("stream closed"));
+        emitter.onTimeout(() -> context.cancel("stream timed out"));
+        emitter.onError(error -> context.cancel("client disconnected"));
+        context.setProgressListener(new ThrottledProgress(emitter, context));
+
+        // Tier-based accounting on the streaming thread sees the caller's identity
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // The result is serialized on the streaming thread; its artifact URLs use this request's origin
+        String artifactOrigin = artifactStore.currentOrigin();
+        executor.execute(() -> {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            ArtifactStore.bindOrigin(artifactOrigin.isEmpty() ? null : artifactOrigin);
+            try {
+                run(plugin, pluginId, input, emitter, context);
+            } finally {
+                ArtifactStore.bindOrigin(null);
+                SecurityContextHolder.clearContext();
+            }
+        });
+        return emitter;
+    }
+
+    private void run(PluginInterface plugin, String pluginId, Map<String, Object> input,
+                     SseEmitter emitter, InvocationContext context) {
+        try {
+            Map<String, Object> result = pluginService.invokePlugin(plugin, pluginId, input, context);
+            emitter.send(SseEmitter.event().name("result").data(result, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (CancellationException e) {
+            sendError(emitter, "Plugin invocation stopped.", context.getCancelReason());
+        } catch (CircuitOpenException | InstanceUnavailableException | ConcurrencyLimitExceededException
+                 | MemoryBudgetExceededException e) {
+            sendError(emitter, "Plugin temporarily unavailable.", e.getMessage());
+        } catch (IOException e) {
+            log.debug("Client of streamed plugin {} went away before the result: {}", pluginId, e.getMessage());
+            context.cancel("client disconnected");
+            emitter.completeWithError(e);
+        } catch (Exception e) {
+            log.error("Error streaming plugin {}: {}", pluginId, e.getMessage(), e);
+            sendError(emitter, "Processing failed: " + e.getMessage(), null);
+        }
+    }
+
+    private static void sendError(SseEmitter emitter, String error, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("error", error);
+        if (message != null) {
+            body.put("message", message);
+        }
+        try {
+            emitter.send(SseEmitter.event().name("error").data(body, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Forwards plugin progress as SSE events, dropping updates that come faster than the client
+     * can use them. A failed send means the client is gone and cancels the invocation.
+     */
+    private static final class ThrottledProgress implements ProgressListener {
+        private final SseEmitter emitter;
+        private final InvocationContext context;
+        private long lastSentNanos;
+        private double lastFraction = -1;
+        private String lastStage;
+
+        ThrottledProgress(SseEmitter emitter, InvocationContext context) {
+            this.emitter = emitter;
+            this.context = context;
+        }
+
+        @Override
+        public synchronized void onProgress(double fraction, String stage) {
+            long now = System.nanoTime();
+            boolean stageChanged = stage != null && !stage.equals(lastStage);
+            if (!stageChanged && (fraction - lastFraction < MIN_PROGRESS_STEP || now - lastSentNanos < MIN_PROGRESS_INTERVAL_NANOS)) {
+                return;
+            }
+            lastSentNanos = now;
+            lastFraction = fraction;
+            lastStage = stage;
+            try {
+                emitter.send(SseEmitter.event().name("progress")
+                        .data(Map.of("fraction", fraction, "stage", stage != null ? stage : ""), MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                context.cancel("client disconnected");
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+// src/main/java/kostovite/services/PluginResourceAccounting.java
+package kostovite.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Samples thread CPU time and allocated bytes of plugin invocations.
+ * Only a configurable fraction of calls is measured, so the cost on unsampled calls is one random draw.
+ */
+@Service
+public class PluginResourceAccounting {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginResourceAccounting.class);
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final boolean cpuTimeSupported;
+    private final boolean allocationSupported;
+    private final int windowSize;
+    private volatile double sampleRate;
+    private final Map<String, PluginStats> statsByPlugin = new ConcurrentHashMap<>();
+
+    public PluginResourceAccounting(@Value("${plugins.accounting.sample-rate:0.05}") double sampleRate,
+                                    @Value("${plugins.accounting.window-size:1024}") int windowSize) {
+        this.sampleRate = clampRate(sampleRate);
+        this.windowSize = windowSize;
+        this.threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        boolean cpu = threadMXBean.isCurrentThreadCpuTimeSupported();
+        if (cpu && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        boolean allocation = threadMXBean.isThreadAllocatedMemorySupported();
+        if (allocation && !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        this.cpuTimeSupported = cpu;
+        this.allocationSupported = allocation;
+        log.info("Plugin resource accounting: sampleRate={}, cpuTime={}, allocatedBytes={}", this.sampleRate, cpu, allocation);
+    }
+
+    /**
+     * Run a plugin call, measuring it if it is sampled. Exceptions from the call are rethrown unchanged.
+     * @param pluginId Plugin the call is accounted to
+     * @param call The plugin invocation
+     * @return The call's result
+     */
+    public <T> T measure(String pluginId, Supplier<T> call) {
+        PluginStats stats = statsByPlugin.computeIfAbsent(pluginId, id -> new PluginStats(windowSize));
+        stats.invocations.increment();
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return call.get();
+        }
+
+        long cpuStart = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+        long allocStart = allocationSupported ? threadMXBean.getCurrentThreadAllocatedBytes() : 0;
+        long wallStart = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            long wallNanos = System.nanoTime() - wallStart;
+            long cpuNanos = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() - cpuStart : 0;
+            long allocBytes = allocationSupported ? threadMXBean.getCurrentThreadAllocatedBytes() - allocStart : 0;
+            stats.record(cpuNanos, allocBytes, wallNanos);
+        }
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = clampRate(sampleRate);
+        log.info("Plugin resource accounting sample rate set to {}", this.sampleRate);
+    }
+
+    public void reset() {
+        statsByPlugin.clear();
+    }
+
+    /**
+     * Running totals and percentiles per plugin, heaviest CPU consumers first
+     * @return One entry per plugin that has been invoked
+     */
+    public List<Map<String, Object>> getReport() {
+        List<Map<String, Object>> report = new ArrayList<>();
+        statsByPlugin.forEach((pluginId, stats) -> report.add(stats.toReport(pluginId)));
+        report.sort(Comparator.comparingLong((Map<String, Object> entry) -> (Long) entry.get("totalCpuNanos")).reversed());
+        return report;
+    }
+
+    private static double clampRate(double rate) {
+        return Math.max(0.0, Math.min(1.0, rate));
+    }
+
+    private static final class PluginStats {
+        final LongAdder invocations = new LongAdder();
+        final LongAdder sampled = new LongAdder();
+        final LongAdder totalCpuNanos = new LongAdder();
+        final LongAdder totalAllocatedBytes = new LongAdder();
+        final LongAdder totalWallNanos = new LongAdder();
+        final SampleWindow cpuWindow;
+        final SampleWindow allocationWindow;
+
+        PluginStats(int windowSize) {
+            this.cpuWindow = new SampleWindow(windowSize);
+            this.allocationWindow = new SampleWindow(windowSize);
+        }
+
+        void record(long cpuNanos, long allocatedBytes, long wallNanos) {
+            sampled.increment();
+            totalCpuNanos.add(cpuNanos);
+            totalAllocatedBytes.add(allocatedBytes);
+            totalWallNanos.add(wallNanos);
+            cpuWindow.record(cpuNanos);
+            allocationWindow.record(allocatedBytes);
+        }
+
+        Map<String, Object> toReport(String pluginId) {
+            long sampledCount = sampled.sum();
+            long[] cpu = cpuWindow.percentiles(PERCENTILES);
+            long[] allocation = allocationWindow.percentiles(PERCENTILES);
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("pluginId", pluginId);
+            entry.put("invocations", invocations.sum());
+            entry.put("sampled", sampledCount);
+            entry.put("totalCpuNanos", totalCpuNanos.sum());
+            entry.put("totalAllocatedBytes", totalAllocatedBytes.sum());
+            entry.put("meanCpuNanos", sampledCount > 0 ? totalCpuNanos.sum() / sampledCount : 0);
+            entry.put("meanAllocatedBytes", sampledCount > 0 ? totalAllocatedBytes.sum() / sampledCount : 0);
+            entry.put("meanWallNanos", sampledCount > 0 ? totalWallNanos.sum() / sampledCount : 0);
+            entry.put("cpuNanos", Map.of("p50", cpu[0], "p90", cpu[1], "p99", cpu[2]));
+            entry.put("allocatedBytes", Map.of("p50", allocation[0], "p90", allocation[1], "p99", allocation[2]));
+            return entry;
+        }
+    }
+}
@@ -1,28 +1,36 @@
 // src/main/java/kostovite/services/PluginService.java
 package kostovite.services;
 
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
+import kostovite.InvocationContext;
 import kostovite.ManualPluginLoader;
 import kostovite.PluginInterface;
-import kostovite.ExtendedPluginInterface;
+import kostovite.services.PluginCircuitBreakers.CircuitOpenException;
+import kostovite.store.StatusStore;
+import kostovite.store.StatusStore.StoreException;
+import kostovite.store.StatusStore.ToolStatus;
+import kostovite.worker.WorkerPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ExecutionException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,14 +38,40 @@ public class PluginService {
 
     private static final Logger log = LoggerFactory.getLogger(PluginService.class);
     private final ManualPluginLoader manualPluginLoader;
-    private final Firestore firestore;
+    private final StatusStore statusStore;
+    private final PluginResourceAccounting resourceAccounting;
+    private final PluginCircuitBreakers circuitBreakers;
+    private final InFlightRequestCoalescer requestCoalescer;
+    private final PluginInstanceProvider instanceProvider;
+    private final WorkerPool workerPool;
+    private final PluginCanaryService canaryService;
+    private final PluginConcurrencyLimiter concurrencyLimiter;
+    private final PluginMemoryAdmission memoryAdmission;
+    private final PluginUsageCounters usageCounters;
+    private final long invocationTimeoutMillis;
     private final Path pluginsDirectory = Paths.get("plugins-deploy"); // Added for plugin management
 
     @Autowired
-    public PluginService(ManualPluginLoader manualPluginLoader, Firestore firestore) {
+    public PluginService(ManualPluginLoader manualPluginLoader, StatusStore statusStore,
+                         PluginResourceAccounting resourceAccounting, PluginCircuitBreakers circuitBreakers,
+                         InFlightRequestCoalescer requestCoalescer, PluginInstanceProvider instanceProvider,
+                         WorkerPool workerPool, PluginCanaryService canaryService,
+                         PluginConcurrencyLimiter concurrencyLimiter, PluginMemoryAdmission memoryAdmission,
+                         PluginUsageCounters usageCounters,
+                         @Value("${plugins.invocation.timeout-ms:30000}") long invocationTimeoutMillis) {
         this.manualPluginLoader = manualPluginLoader;
-        this.firestore = firestore;
-        log.info("[2025-05-06 18:16:29] Kostovite: PluginService initialized with ManualPluginLoader and Firestore.");
+        this.statusStore = statusStore;
+        this.resourceAccounting = resourceAccounting;
+        this.circuitBreakers = circuitBreakers;
+        this.requestCoalescer = requestCoalescer;
+        this.instanceProvider = instanceProvider;
+        this.workerPool = workerPool;
+        this.canaryService = canaryService;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.memoryAdmission = memoryAdmission;
+        this.usageCounters = usageCounters;
+        this.invocationTimeoutMillis = invocationTimeoutMillis;
+        log.info("[2025-05-06 18:16:29] Kostovite: PluginService initialized with ManualPluginLoader and status store.");
     }
 
     /**
@@ -69,13 +103,10 @@ public class PluginService {
     public boolean deletePluginJar(String pluginName) {
         log.info("[2025-05-06 18:16:29] Kostovite: Attempting to delete plugin JAR for '{}'", pluginName);
         try {
-            // deletePlugin method in ManualPluginLoader handles both unload and file deletion
+            // deletePlugin method in ManualPluginLoader handles both unload and file deletion.
+            // It only touches the plugin's own JAR and class loader, so no full reload is needed.
             boolean deletedImmediately = manualPluginLoader.deletePlugin(pluginName);
 
-            // Ensure plugins list is reloaded to reflect changes
-            log.info("[2025-05-06 18:16:29] Kostovite: Reloading plugin list after JAR deletion attempt for '{}'", pluginName);
-            manualPluginLoader.loadPlugins(pluginsDirectory.toAbsolutePath());
-
             if (deletedImmediately) {
                 log.info("[2025-05-06 18:16:29] Kostovite: Successfully deleted JAR file for plugin '{}'", pluginName);
             } else {
@@ -127,34 +158,38 @@ public class PluginService {
         if (pluginId == null || pluginId.isBlank()) {
             return new PluginStatusCheckResult(false, "Plugin ID cannot be empty.");
         }
-        String statusCollectionName = "tools"; // Matching frontend's Firestore collection
-
         try {
-            // Assuming pluginId is the document ID in Firestore 'tools' collection
-            DocumentSnapshot statusDoc = firestore.collection(statusCollectionName).document(pluginId).get().get();
+            // pluginId is the document ID in the 'tools' collection (Firestore backend)
+            Optional<ToolStatus> status = statusStore.findToolStatus(pluginId);
 
-            if (statusDoc.exists()) {
-                Boolean isEnabled = statusDoc.getBoolean("enabled");
-                if (Boolean.FALSE.equals(isEnabled)) {
-                    String message = statusDoc.getString("disabledMessage"); // Assuming you might add this field
+            if (status.isPresent()) {
+                if (!status.get().enabled()) {
+                    String message = status.get().disabledMessage();
                     return new PluginStatusCheckResult(false, message != null ? message : "Plugin is disabled by administrator.");
                 }
             } else {
-                // If no specific status document, assume enabled by default
-                log.warn("[2025-05-06 18:16:29] Kostovite: No status document found for plugin ID '{}' in '{}'. Assuming enabled by default.", pluginId, statusCollectionName);
-            }
-            return new PluginStatusCheckResult(true, null); // Enabled if doc doesn't exist or 'enabled' is not false
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("[2025-05-06 18:16:29] Kostovite: Error fetching Firestore plugin status for ID '{}': {}", pluginId, e.getMessage());
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
+                // If no specific status entry, assume enabled by default
+                log.debug("[2025-05-06 18:16:29] Kostovite: No status entry found for plugin ID '{}'. Assuming enabled by default.", pluginId);
             }
-            return new PluginStatusCheckResult(false, "Error checking plugin status."); // Fail-safe: consider disabled on error
+            return new PluginStatusCheckResult(true, null); // Enabled if there is no entry or 'enabled' is not false
+        } catch (StoreException e) {
+            log.error("[2025-05-06 18:16:29] Kostovite: Error fetching plugin status for ID '{}': {}", pluginId, e.getMessage());
+            return new PluginStatusCheckResult(false, "Error checking plugin status.", true); // Fail-safe: consider disabled on error
         }
     }
 
     public List<Map<String, Object>> getAccessiblePluginMetadata(Authentication authentication) {
-        String userType = extractUserType(authentication);
+        return getAccessiblePluginMetadata(extractUserType(authentication), this::isPluginEnabled);
+    }
+
+    /**
+     * Build the plugin list for a user type, resolving enabled/disabled status through the given lookup.
+     * Lets callers building several tiers at once share one status lookup per plugin.
+     * @param userType Effective user type ("anonymous", "normal", "premium" or "admin")
+     * @param statusLookup Function resolving a plugin ID to its enabled/disabled status
+     * @return Metadata of all loaded plugins with status and access flags for the user type
+     */
+    public List<Map<String, Object>> getAccessiblePluginMetadata(String userType, Function<String, PluginStatusCheckResult> statusLookup) {
         log.info("[2025-05-06 18:16:29] Kostovite: Filtering plugins for effective userType: '{}'", userType);
 
         List<PluginInterface> allLoadedPlugins = manualPluginLoader.getLoadedPlugins();
@@ -187,11 +222,13 @@ public class PluginService {
 
 
                     // 1. Get enabled/disabled status from Firestore
-                    PluginStatusCheckResult statusResult = isPluginEnabled(pluginId);
+                    PluginStatusCheckResult statusResult = statusLookup.apply(pluginId);
                     metadata.put("status", statusResult.isEnabled() ? "enabled" : "disabled");
                     if (!statusResult.isEnabled() && statusResult.message() != null) {
                         metadata.put("disabledMessage", statusResult.message());
                     }
+                    // Circuit breaker state, so the frontend can flag tools that are currently shedding load
+                    metadata.put("circuitState", circuitBreakers.getState(pluginId).name());
 
                     // 2. Determine effective access level (considering Firestore override if you implement it)
                     // For now, just using the JAR's accessLevel
@@ -258,9 +295,45 @@ public class PluginService {
 
     public Map<String, Object> processPlugin(String pluginId, Map<String, Object> inputData, Authentication authentication)
             throws PluginDisabledException, IllegalArgumentException, AccessDeniedException {
+        return processPlugin(pluginId, inputData, authentication, newInvocationContext());
+    }
+
+    public Map<String, Object> processPlugin(String pluginId, Map<String, Object> inputData, Authentication authentication,
+                                             InvocationContext context)
+            throws PluginDisabledException, IllegalArgumentException, AccessDeniedException {
+
+        PluginInterface plugin = resolveAccessiblePlugin(pluginId, authentication);
+
+        log.info("[2025-05-06 18:16:29] Kostovite: Access granted. Processing plugin '{}' (ID: '{}') for user '{}' (type '{}')",
+                plugin.getName(), pluginId, (authentication != null ? authentication.getName() : "anonymous"), extractUserType(authentication));
+
+        return invokePlugin(plugin, pluginId, inputData, context);
+    }
+
+    /**
+     * New invocation context with the configured deadline (plugins.invocation.timeout-ms).
+     * Callers that can detect a client disconnect cancel it themselves.
+     */
+    public InvocationContext newInvocationContext() {
+        return InvocationContext.withTimeout(invocationTimeoutMillis);
+    }
+
+    /**
+     * Run the enabled, lookup and access checks for a plugin without executing it.
+     * @param pluginId The plugin ID or name
+     * @param authentication The current authentication (may be null for anonymous users)
+     * @return The plugin, ready to be passed to {@link #invokePlugin}
+     * @throws PluginDisabledException if the plugin is disabled
+     * @throws IllegalArgumentException if the plugin is not loaded
+     * @throws AccessDeniedException if the user's tier cannot access the plugin
+     */
+    public PluginInterface resolveAccessiblePlugin(String pluginId, Authentication authentication)
+            throws PluginDisabledException, IllegalArgumentException, AccessDeniedException {
 
         // 1. Check if plugin is globally enabled via Firestore
+        long stageStart = RequestTiming.start();
         PluginStatusCheckResult statusResult = isPluginEnabled(pluginId);
+        RequestTiming.record(RequestTiming.Stage.TOOL_STATUS, stageStart);
         if (!statusResult.isEnabled()) {
             log.warn("[2025-05-06 18:16:29] Kostovite: Processing attempt failed - Plugin ID '{}' is disabled. Reason: {}",
                     pluginId, statusResult.message());
@@ -268,6 +341,8 @@ public class PluginService {
                     statusResult.message() : "Plugin is currently disabled.");
         }
 
+        // 2. Find the plugin
+        stageStart = RequestTiming.start();
         PluginInterface plugin = manualPluginLoader.getPluginByName(pluginId);
 
         if (plugin == null) {
@@ -299,25 +374,190 @@ public class PluginService {
             log.warn("[2025-05-06 18:16:29] Kostovite: {}", errorMessage);
             throw new AccessDeniedException(errorMessage);
         }
+        RequestTiming.record(RequestTiming.Stage.PLUGIN_LOOKUP, stageStart);
+        return plugin;
+    }
 
-        log.info("[2025-05-06 18:16:29] Kostovite: Access granted. Processing plugin '{}' (ID: '{}') for user '{}' (type '{}')",
-                plugin.getName(), pluginId, (authentication != null ? authentication.getName() : "anonymous"), userType);
+    /**
+     * Execute an already resolved plugin. Callers must have run {@link #resolveAccessiblePlugin} first.
+     * @param plugin The plugin to execute
+     * @param pluginId The ID the plugin was requested by (used for logging)
+     * @param inputData Input map passed to the plugin
+     * @return The plugin's output map
+     */
+    public Map<String, Object> invokePlugin(PluginInterface plugin, String pluginId, Map<String, Object> inputData)
+            throws CircuitOpenException {
+        return invokePlugin(plugin, pluginId, inputData, newInvocationContext());
+    }
 
+    /**
+     * Execute an already resolved plugin under an invocation context.
+     * @param context Deadline and cancellation flag the plugin checks while it runs
+     * @throws CancellationException if the plugin stopped because the context was cancelled or timed out
+     */
+    public Map<String, Object> invokePlugin(PluginInterface plugin, String pluginId, Map<String, Object> inputData,
+                                            InvocationContext context) throws CircuitOpenException, CancellationException {
+        context.checkCancelled();
+        long stageStart = RequestTiming.start();
+        PluginUsageCounters.Outcome outcome = PluginUsageCounters.Outcome.FAILURE;
         try {
-            if (plugin instanceof ExtendedPluginInterface extendedPlugin) {
-                return extendedPlugin.process(inputData);
-            } else {
-                plugin.execute();
-                log.warn("[2025-05-06 18:16:29] Kostovite: Plugin '{}' (ID: '{}') is not an ExtendedPluginInterface. Called execute().", plugin.getName(), pluginId);
-                Map<String, Object> result = new HashMap<>();
-                result.put("success", true);
-                result.put("message", "Basic plugin executed (may not process input or return structured data).");
-                return result;
+            Map<String, Object> input = materializeSpilledText(plugin, inputData);
+            Map<String, Object> result = requestCoalescer.isCoalesced(plugin)
+                    // Identical concurrent requests share one execution (and count once for breaker and accounting)
+                    ? requestCoalescer.execute(pluginId, input, () -> dispatch(plugin, pluginId, input, context))
+                    : dispatch(plugin, pluginId, input, context);
+            outcome = reportsFailure(result)
+                    ? PluginUsageCounters.Outcome.FAILURE : PluginUsageCounters.Outcome.SUCCESS;
+            return result;
+        } catch (CancellationException e) {
+            outcome = context.isDeadlineExceeded()
+                    ? PluginUsageCounters.Outcome.TIMEOUT : PluginUsageCounters.Outcome.CANCELLED;
+            throw e;
+        } catch (CircuitOpenException | PluginInstanceProvider.InstanceUnavailableException
+                 | PluginConcurrencyLimiter.ConcurrencyLimitExceededException
+                 | PluginMemoryAdmission.MemoryBudgetExceededException e) {
+            outcome = PluginUsageCounters.Outcome.REJECTED;
+            throw e;
+        } finally {
+            // Includes waiting for admission, an instance or a coalesced leader
+            RequestTiming.record(RequestTiming.Stage.EXECUTION, stageStart);
+            // Usage counts every call, coalesced followers included
+            usageCounters.record(pluginId, extractUserType(SecurityContextHolder.getContext().getAuthentication()), outcome);
+        }
+    }
+
+    /**
+     * Large request fields may arrive file-backed ({@link SpillingJsonReader}). Plugins that have not
+     * declared "acceptsSpilledText" cast their parameters to String, so they get a copy with Strings.
+     */
+    private Map<String, Object> materializeSpilledText(PluginInterface plugin, Map<String, Object> inputData) {
+        if (inputData == null) {
+            return null;
+        }
+        boolean spilled = false;
+        for (Object value : inputData.values()) {
+            if (value instanceof SpillingJsonReader.SpilledText) {
+                spilled = true;
+                break;
             }
-        } catch (Exception e) {
-            log.error("[2025-05-06 18:16:29] Kostovite: Error during execution of plugin '{}' (ID: '{}'): {}", plugin.getName(), pluginId, e.getMessage(), e);
-            throw new RuntimeException("Error processing plugin '" + plugin.getName() + "': " + e.getMessage(), e);
         }
+        if (!spilled) {
+            return inputData;
+        }
+        Map<String, Object> metadata = getPluginMetadataSafely(plugin);
+        if (metadata != null && Boolean.TRUE.equals(metadata.get(SpillingJsonReader.METADATA_FLAG))) {
+            return inputData;
+        }
+        Map<String, Object> materialized = new LinkedHashMap<>(inputData);
+        materialized.replaceAll((key, value) -> value instanceof SpillingJsonReader.SpilledText text ? text.toString() : value);
+        return materialized;
+    }
+
+    private Map<String, Object> dispatch(PluginInterface plugin, String pluginId, Map<String, Object> inputData,
+                                         InvocationContext context) {
+        // During a canary rollout a share of the calls runs the candidate build loaded beside the plugin
+        PluginInterface target = canaryService.route(plugin);
+        // Plugins that are not thread-safe run on a per-thread or pooled instance instead of the loaded singleton.
+        // Workers only know the deployed JARs, so a candidate always runs in-process.
+        boolean offloaded = target == plugin && workerPool.isOffloaded(plugin.getName());
+        // Rejected before any waiting (and without a stack trace) while the plugin's breaker is open
+        circuitBreakers.acquirePermission(pluginId);
+        boolean breakerRecorded = false;
+        try {
+            // Shed load before waiting for an instance or a worker: that wait is part of the latency the limit follows
+            PluginConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(plugin);
+            PluginMemoryAdmission.Reservation reservation = PluginMemoryAdmission.Reservation.NONE;
+            try {
+                // Memory-heavy plugins then wait for heap budget; a worker JVM has its own heap
+                if (!offloaded) {
+                    reservation = memoryAdmission.reserve(plugin, inputData, context);
+                }
+                try (PluginInstanceProvider.Lease lease = offloaded ? null : instanceProvider.acquire(target)) {
+                    long start = System.nanoTime();
+                    PluginInvocationEvent event = new PluginInvocationEvent();
+                    event.begin();
+                    Map<String, Object> result = null;
+                    String outcome = "failure";
+                    try {
+                        // Every plugin declares process(); the JARs implement PluginInterface directly
+                        result = offloaded
+                                // Heavy plugins run in a worker JVM; the breaker and deadline still apply here
+                                ? workerPool.invoke(plugin.getName(), inputData, context)
+                                : resourceAccounting.measure(pluginId, () -> lease.instance().process(inputData, context));
+                        long elapsed = System.nanoTime() - start;
+                        // Plugins report errors (a dead upstream API, a parse failure) as success=false rather than throwing
+                        boolean failed = reportsFailure(result);
+                        outcome = failed ? "failure" : "success";
+                        breakerRecorded = true;
+                        if (failed) {
+                            circuitBreakers.onFailure(pluginId, elapsed);
+                        } else {
+                            circuitBreakers.onSuccess(pluginId, elapsed);
+                        }
+                        canaryService.record(plugin, target, elapsed, failed);
+                        permit.onSuccess();
+                        return result;
+                    } catch (CancellationException e) {
+                        // A blown deadline counts against the plugin; a client that went away says nothing about it
+                        long elapsed = System.nanoTime() - start;
+                        breakerRecorded = true;
+                        if (context.isDeadlineExceeded()) {
+                            outcome = "timeout";
+                            permit.onDropped();
+                            circuitBreakers.onFailure(pluginId, elapsed);
+                            canaryService.record(plugin, target, elapsed, true);
+                        } else {
+                            outcome = "cancelled";
+                            circuitBreakers.onIgnored(pluginId);
+                        }
+                        log.warn("[2025-05-06 18:16:29] Kostovite: Plugin '{}' (ID: '{}') stopped after {} ms: {}",
+                                plugin.getName(), pluginId, elapsed / 1_000_000, context.getCancelReason());
+                        throw e;
+                    } catch (Exception e) {
+                        long elapsed = System.nanoTime() - start;
+                        breakerRecorded = true;
+                        circuitBreakers.onFailure(pluginId, elapsed);
+                        canaryService.record(plugin, target, elapsed, true);
+                        log.error("[2025-05-06 18:16:29] Kostovite: Error during execution of plugin '{}' (ID: '{}'): {}", plugin.getName(), pluginId, e.getMessage(), e);
+                        throw new RuntimeException("Error processing plugin '" + plugin.getName() + "': " + e.getMessage(), e);
+                    } finally {
+                        commitInvocationEvent(event, pluginId, inputData, result, outcome, offloaded);
+                    }
+                }
+            } finally {
+                reservation.close();
+                // Everything not completed above (busy pool, failures) frees the slot without a sample
+                permit.onIgnored();
+            }
+        } finally {
+            // Rejected by the limiter, the memory budget or the instance pool: frees a half-open trial slot
+            if (!breakerRecorded) {
+                circuitBreakers.onIgnored(pluginId);
+            }
+        }
+    }
+
+    /**
+     * Whether a plugin result reports an error: plugins return success=false instead of throwing
+     */
+    static boolean reportsFailure(Map<String, Object> result) {
+        return result != null && Boolean.FALSE.equals(result.get("success"));
+    }
+
+    // Fields are only filled when a recording (the in-process profiler, or an external one) wants the event
+    private void commitInvocationEvent(PluginInvocationEvent event, String pluginId, Map<String, Object> input,
+                                       Map<String, Object> output, String outcome, boolean offloaded) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.pluginId = pluginId;
+        event.tier = extractUserType(SecurityContextHolder.getContext().getAuthentication());
+        event.inputBytes = PluginInvocationEvent.estimateBytes(input);
+        event.outputBytes = PluginInvocationEvent.estimateBytes(output);
+        event.outcome = outcome;
+        event.offloaded = offloaded;
+        event.commit();
     }
 
     public PluginInterface getAccessiblePlugin(String pluginId, Authentication authentication) {
@@ -352,7 +592,14 @@ public class PluginService {
         return manualPluginLoader.getLoadedPlugins();
     }
 
-    public record PluginStatusCheckResult(boolean isEnabled, String message) {}
+    /**
+     * @param lookupFailed The store could not be read; isEnabled is then a fail-safe false, not the tool's real status
+     */
+    public record PluginStatusCheckResult(boolean isEnabled, String message, boolean lookupFailed) {
+        public PluginStatusCheckResult(boolean isEnabled, String message) {
+            this(isEnabled, message, false);
+        }
+    }
 
     public static class PluginDisabledException extends RuntimeException {
         public PluginDisabledException(String message) { super(message); }
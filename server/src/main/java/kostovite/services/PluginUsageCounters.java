@@ -0,0 +1,347 @@
+// src/main/java/kostovite/services/PluginUsageCounters.java
+package kostovite.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plugin usage per plugin, tier, outcome and (UTC) day.
+ * Calls increment a LongAdder picked from a per-plugin array, so counting costs one striped increment.
+ * Every plugins.usage.flush-interval-ms the increments since the last flush are added to the current
+ * day and that day's file (plugins.usage.dir/usage-YYYY-MM-DD.csv, "plugin,tier,outcome,count" lines)
+ * is rewritten; earlier days never change. Files are read back at startup and removed after
+ * plugins.usage.retention-days. Calls around midnight may land on the next day (up to one flush interval).
+ */
+@Service
+public class PluginUsageCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginUsageCounters.class);
+    private static final String FILE_PREFIX = "usage-";
+    private static final String FILE_SUFFIX = ".csv";
+    private static final String HEADER = "plugin,tier,outcome,count";
+
+    public enum Tier { ANONYMOUS, NORMAL, PREMIUM, ADMIN }
+
+    public enum Outcome { SUCCESS, FAILURE, TIMEOUT, CANCELLED, REJECTED }
+
+    private static final Tier[] TIERS = Tier.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final int CELLS = TIERS.length * OUTCOMES.length;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int retentionDays;
+    private final ScheduledExecutorService flusher;
+
+    private final Map<String, PluginCounters> counters = new ConcurrentHashMap<>();
+    // Flushed totals: day -> plugin -> cells. Guarded by this.
+    private final TreeMap<LocalDate, Map<String, long[]>> days = new TreeMap<>();
+    private long lastFlushMillis;
+
+    public PluginUsageCounters(@Value("${plugins.usage.enabled:true}") boolean enabled,
+                               @Value("${plugins.usage.dir:data/usage}") String directory,
+                               @Value("${plugins.usage.flush-interval-ms:60000}") long flushIntervalMillis,
+                               @Value("${plugins.usage.retention-days:90}") int retentionDays) throws IOException {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.retentionDays = Math.max(1, retentionDays);
+        if (!enabled) {
+            this.flusher = null;
+            return;
+        }
+        Files.createDirectories(this.directory);
+        load();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "plugin-usage-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Count one plugin call
+     * @param userType Tier as returned by {@link PluginService#extractUserType}
+     */
+    public void record(String pluginId, String userType, Outcome outcome) {
+        if (!enabled) {
+            return;
+        }
+        PluginCounters plugin = counters.get(pluginId);
+        if (plugin == null) {
+            plugin = counters.computeIfAbsent(pluginId, id -> new PluginCounters());
+        }
+        plugin.cells[tierOf(userType).ordinal() * OUTCOMES.length + outcome.ordinal()].increment();
+    }
+
+    /**
+     * Add the increments since the last flush to today and rewrite today's file
+     */
+    public synchronized void flush() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Map<String, long[]> day = days.computeIfAbsent(today, date -> new TreeMap<>());
+        boolean changed = false;
+        for (Map.Entry<String, PluginCounters> entry : counters.entrySet()) {
+            PluginCounters plugin = entry.getValue();
+            for (int cell = 0; cell < CELLS; cell++) {
+                // Cumulative sums, so increments racing with the flush are picked up next time
+                long sum = plugin.cells[cell].sum();
+                long delta = sum - plugin.flushed[cell];
+                if (delta != 0) {
+                    day.computeIfAbsent(entry.getKey(), id -> new long[CELLS])[cell] += delta;
+                    plugin.flushed[cell] = sum;
+                    changed = true;
+                }
+            }
+        }
+        if (changed) {
+            write(today, day);
+        }
+        lastFlushMillis = System.currentTimeMillis();
+        expire(today);
+    }
+
+    /**
+     * Usage per day (newest first), plugin, tier and outcome, including calls not flushed yet
+     * @param dayCount Number of days back from today
+     */
+    public synchronized Map<String, Object> getReport(int dayCount) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("lastFlush", lastFlushMillis);
+        Map<String, Object> byDay = new LinkedHashMap<>();
+        for (Map.Entry<LocalDate, Map<String, long[]>> day : days.descendingMap().entrySet()) {
+            if (day.getKey().isBefore(today.minusDays(Math.max(1, dayCount) - 1L))) {
+                break;
+            }
+            Map<String, long[]> plugins = new TreeMap<>();
+            day.getValue().forEach((pluginId, cells) -> plugins.put(pluginId, cells.clone()));
+            if (day.getKey().equals(today)) {
+                addUnflushed(plugins);
+            }
+            byDay.put(day.getKey().toString(), describe(plugins));
+        }
+        if (!days.containsKey(today)) {
+            Map<String, long[]> plugins = new TreeMap<>();
+            addUnflushed(plugins);
+            byDay.put(today.toString(), describe(plugins));
+        }
+        report.put("days", byDay);
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write plugin usage counters: {}", e.getMessage());
+        }
+    }
+
+    // Called with the monitor held
+    private void addUnflushed(Map<String, long[]> plugins) {
+        counters.forEach((pluginId, plugin) -> {
+            for (int cell = 0; cell < CELLS; cell++) {
+                long delta = plugin.cells[cell].sum() - plugin.flushed[cell];
+                if (delta != 0) {
+                    plugins.computeIfAbsent(pluginId, id -> new long[CELLS])[cell] += delta;
+                }
+            }
+        });
+    }
+
+    private static Map<String, Object> describe(Map<String, long[]> plugins) {
+        Map<String, Object> described = new LinkedHashMap<>();
+        plugins.forEach((pluginId, cells) -> {
+            Map<String, Object> tiers = new LinkedHashMap<>();
+            long total = 0;
+            for (Tier tier : TIERS) {
+                Map<String, Long> outcomes = new LinkedHashMap<>();
+                for (Outcome outcome : OUTCOMES) {
+                    long count = cells[tier.ordinal() * OUTCOMES.length + outcome.ordinal()];
+                    if (count != 0) {
+                        outcomes.put(outcome.name().toLowerCase(), count);
+                        total += count;
+                    }
+                }
+                if (!outcomes.isEmpty()) {
+                    tiers.put(tier.name().toLowerCase(), outcomes);
+                }
+            }
+            tiers.put("total", total);
+            described.put(pluginId, tiers);
+        });
+        return described;
+    }
+
+    private void write(LocalDate date, Map<String, long[]> day) throws IOException {
+        Path target = fileFor(date);
+        Path temp = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                         Channels.newOutputStream(channel), StandardCharsets.UTF_8))) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, long[]> entry : day.entrySet()) {
+                    long[] cells = entry.getValue();
+                    for (int cell = 0; cell < CELLS; cell++) {
+                        if (cells[cell] != 0) {
+                            writer.write(escape(entry.getKey()) + ',' + TIERS[cell / OUTCOMES.length].name().toLowerCase()
+                                    + ',' + OUTCOMES[cell % OUTCOMES.length].name().toLowerCase() + ',' + cells[cell]);
+                            writer.newLine();
+                        }
+                    }
+                }
+                writer.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void load() throws IOException {
+        LocalDate oldest = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file); // Left over from a crash during a flush
+                    continue;
+                }
+                LocalDate date = dateOf(name);
+                if (date == null) {
+                    continue;
+                }
+                if (date.isBefore(oldest)) {
+                    Files.deleteIfExists(file);
+                } else {
+                    days.put(date, read(file));
+                }
+            }
+        }
+        log.info("Plugin usage counters restored from {}: {} days", directory.toAbsolutePath(), days.size());
+    }
+
+    private Map<String, long[]> read(Path file) throws IOException {
+        Map<String, long[]> day = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.equals(HEADER)) {
+                    continue;
+                }
+                int last = line.lastIndexOf(',');
+                int outcomeStart = line.lastIndexOf(',', last - 1);
+                int tierStart = line.lastIndexOf(',', outcomeStart - 1);
+                try {
+                    String pluginId = unescape(line.substring(0, tierStart));
+                    Tier tier = Tier.valueOf(line.substring(tierStart + 1, outcomeStart).toUpperCase());
+                    Outcome outcome = Outcome.valueOf(line.substring(outcomeStart + 1, last).toUpperCase());
+                    long count = Long.parseLong(line.substring(last + 1));
+                    day.computeIfAbsent(pluginId, id -> new long[CELLS])[tier.ordinal() * OUTCOMES.length + outcome.ordinal()] += count;
+                } catch (RuntimeException e) {
+                    log.warn("Skipping malformed usage line in {}: {}", file.getFileName(), line);
+                }
+            }
+        }
+        return day;
+    }
+
+    // Called with the monitor held
+    private void expire(LocalDate today) throws IOException {
+        LocalDate oldest = today.minusDays(retentionDays);
+        while (!days.isEmpty() && days.firstKey().isBefore(oldest)) {
+            Files.deleteIfExists(fileFor(days.pollFirstEntry().getKey()));
+        }
+    }
+
+    private Path fileFor(LocalDate date) {
+        return directory.resolve(FILE_PREFIX + date + FILE_SUFFIX);
+    }
+
+    private static LocalDate dateOf(String fileName) {
+        if (!fileName.startsWith(FILE_PREFIX) || !fileName.endsWith(FILE_SUFFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Tier tierOf(String userType) {
+        if (userType == null) {
+            return Tier.ANONYMOUS;
+        }
+        return switch (userType) {
+            case "normal" -> Tier.NORMAL;
+            case "premium" -> Tier.PREMIUM;
+            case "admin" -> Tier.ADMIN;
+            default -> Tier.ANONYMOUS;
+        };
+    }
+
+    // Plugin IDs are class names in practice; commas are the only character that would break a line
+    private static String escape(String pluginId) {
+        return pluginId.replace("%", "%25").replace(",", "%2C").replace("\n", "%0A");
+    }
+
+    private static String unescape(String pluginId) {
+        return pluginId.replace("%0A", "\n").replace("%2C", ",").replace("%25", "%");
+    }
+
+    private static final class PluginCounters {
+        private final LongAdder[] cells = new LongAdder[CELLS];
+        // Sums already added to a day; guarded by the service monitor
+        private final long[] flushed = new long[CELLS];
+
+        PluginCounters() {
+            Arrays.setAll(cells, cell -> new LongAdder());
+        }
+    }
+}
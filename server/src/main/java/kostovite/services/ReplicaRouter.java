@@ -0,0 +1,383 @@
+// src/main/java/kostovite/services/ReplicaRouter.java
+package kostovite.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kostovite.BinaryArtifact;
+import kostovite.ManualPluginLoader;
+import kostovite.PluginInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional affinity routing across server replicas, so each cacheable request lands on the replica
+ * that already holds its warm caches (coalescing, artifacts, plugin instances).
+ * Membership is a static file of "id url" lines. The owner of a request is chosen by rendezvous hashing
+ * of the plugin id plus canonical input hash over the replica ids, so adding or removing a replica only
+ * moves the keys it owns. Only plugins whose metadata sets "cacheable" (output is a pure function of the input)
+ * are routed; everything else, and every request that was already routed once, runs locally.
+ * Artifact URLs in the owner's response are rewritten to this server's client-facing origin, with the owner
+ * named in a "replica" parameter so GET /api/artifacts/{id} can fetch the file from it ({@link #fetchArtifact}).
+ * When the owner cannot be reached it is skipped for plugins.routing.unreachable-backoff-ms and the
+ * request runs locally.
+ */
+@Service
+public class ReplicaRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+    /** Set on forwarded requests (value: the sender's id); the receiver always runs them locally */
+    public static final String ROUTED_HEADER = "X-IT-Tools-Routed-From";
+    /** Set on responses that were served by another replica (value: the owner's id) */
+    public static final String SERVED_BY_HEADER = "X-IT-Tools-Served-By";
+    // Owner response headers the client must still see (Retry-After of a shed call, caching of the result)
+    private static final List<String> PASSED_HEADERS = List.of(HttpHeaders.RETRY_AFTER, HttpHeaders.CACHE_CONTROL);
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+    public static final String METADATA_FLAG = "cacheable";
+
+    private final ManualPluginLoader manualPluginLoader;
+    private final InFlightRequestCoalescer requestCoalescer;
+    private final ArtifactStore artifactStore;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration requestTimeout;
+    private final long unreachableBackoffMillis;
+
+    private final List<Replica> replicas;
+    private final Replica self;
+    private final HttpClient httpClient;
+
+    private final LongAdder ownedLocally = new LongAdder();
+    private final LongAdder notRoutable = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder artifactFetches = new LongAdder();
+    // Weak keys: the flag must not keep an unloaded plugin's class loader alive
+    private final Map<PluginInterface, Boolean> cacheableCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public ReplicaRouter(ManualPluginLoader manualPluginLoader,
+                         InFlightRequestCoalescer requestCoalescer,
+                         ArtifactStore artifactStore,
+                         ObjectMapper objectMapper,
+                         @Value("${plugins.routing.enabled:false}") boolean enabled,
+                         @Value("${plugins.routing.replicas-file:replicas.conf}") String replicasFile,
+                         @Value("${plugins.routing.self:}") String selfId,
+                         @Value("${server.port:8080}") int serverPort,
+                         @Value("${plugins.routing.connect-timeout-ms:200}") long connectTimeoutMillis,
+                         @Value("${plugins.routing.request-timeout-ms:35000}") long requestTimeoutMillis,
+                         @Value("${plugins.routing.unreachable-backoff-ms:5000}") long unreachableBackoffMillis) {
+        this.manualPluginLoader = manualPluginLoader;
+        this.requestCoalescer = requestCoalescer;
+        this.artifactStore = artifactStore;
+        this.objectMapper = objectMapper;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.unreachableBackoffMillis = unreachableBackoffMillis;
+
+        List<Replica> members = enabled ? readReplicas(Paths.get(replicasFile)) : List.of();
+        Replica found = findSelf(members, selfId, serverPort);
+        if (enabled && found == null) {
+            log.warn("Replica routing disabled: this server (self='{}', port {}) is not listed in {}",
+                    selfId, serverPort, replicasFile);
+        }
+        this.enabled = enabled && found != null && members.size() > 1;
+        this.replicas = members;
+        this.self = found;
+        this.httpClient = this.enabled
+                ? HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                    .build()
+                : null;
+        if (this.enabled) {
+            log.info("Replica routing enabled as '{}' among {} replicas", self.id, replicas.size());
+        }
+    }
+
+    /**
+     * Forward the call to the replica that owns it, if that is another replica.
+     * Resolution and access checks happen on the owner, with the caller's own Authorization header.
+     * @param pluginId Plugin the call targets
+     * @param input Plugin input
+     * @param authorization Incoming Authorization header, passed through; may be null
+     * @param routedFrom Incoming {@link #ROUTED_HEADER}; a routed request is never routed again
+     * @return The owner's response, or null when the call should run locally
+     */
+    public RoutedResponse route(String pluginId, Map<String, Object> input, String authorization, String routedFrom) {
+        if (!enabled || routedFrom != null) {
+            return null;
+        }
+        PluginInterface plugin = manualPluginLoader.getPluginByName(pluginId);
+        if (plugin == null || !isCacheable(plugin)) {
+            notRoutable.increment();
+            return null;
+        }
+        String key = requestCoalescer.requestKey(pluginId, input);
+        if (key == null) {
+            notRoutable.increment();
+            return null;
+        }
+        Replica owner = ownerOf(key);
+        if (owner == self) {
+            ownedLocally.increment();
+            return null;
+        }
+        if (owner.isBackingOff()) {
+            fallbacks.increment();
+            return null;
+        }
+        return forward(owner, pluginId, input, authorization);
+    }
+
+    private RoutedResponse forward(Replica owner, String pluginId, Map<String, Object> input, String authorization) {
+        long forwardStart = RequestTiming.start();
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(owner.processUri(pluginId))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header(ROUTED_HEADER, self.id)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(input)));
+            if (authorization != null) {
+                request.header("Authorization", authorization);
+            }
+            HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            Map<String, Object> owned = objectMapper.readValue(response.body(), new TypeReference<>() {});
+            // The owner built its URLs from our internal request; clients get ours, fetched from the owner on demand
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = (Map<String, Object>) artifactStore.rehomeUrls(owned, owner.id);
+            owner.forwarded.increment();
+            HttpHeaders headers = new HttpHeaders();
+            for (String name : PASSED_HEADERS) {
+                response.headers().firstValue(name).ifPresent(value -> headers.set(name, value));
+            }
+            headers.set(SERVED_BY_HEADER, owner.id);
+            RequestTiming.recordUpstream("owner-", response.headers().firstValue(SERVER_TIMING_HEADER).orElse(null));
+            return new RoutedResponse(response.statusCode(), headers, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fallbacks.increment();
+            return null;
+        } catch (IOException e) {
+            // Connection refused, timeout or a response that is not ours: treat the owner as down for a while
+            owner.markUnreachable(unreachableBackoffMillis);
+            fallbacks.increment();
+            log.warn("Replica '{}' unreachable for {}, running locally: {}", owner.id, pluginId, e.toString());
+            return null;
+        } finally {
+            RequestTiming.record(RequestTiming.Stage.FORWARD, forwardStart);
+        }
+    }
+
+    /**
+     * Fetch an artifact from the replica that stored it
+     * @param replicaId Replica named in the artifact URL's "replica" parameter
+     * @param artifactId Artifact ID
+     * @return The artifact, or null when routing is off, the replica is unknown or it does not have the artifact
+     */
+    public BinaryArtifact fetchArtifact(String replicaId, String artifactId) {
+        Replica owner = enabled ? findReplica(replicaId) : null;
+        if (owner == null || owner == self || owner.isBackingOff()) {
+            return null;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(owner.artifactUri(artifactId))
+                    .timeout(requestTimeout)
+                    .header(ROUTED_HEADER, self.id)
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            artifactFetches.increment();
+            String contentType = response.headers().firstValue("Content-Type").orElse("application/octet-stream");
+            return new BinaryArtifact(contentType, response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException e) {
+            owner.markUnreachable(unreachableBackoffMillis);
+            log.warn("Replica '{}' unreachable for artifact {}: {}", owner.id, artifactId, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Whether the plugin's metadata sets "cacheable": its output depends only on its input, so any replica's
+     * answer is as good as a local one. The flag is read once per plugin instance.
+     */
+    boolean isCacheable(PluginInterface plugin) {
+        Boolean cached = cacheableCache.get(plugin);
+        if (cached != null) {
+            return cached;
+        }
+        boolean cacheable;
+        try {
+            cacheable = Boolean.TRUE.equals(plugin.getMetadata().get(METADATA_FLAG));
+        } catch (Exception e) {
+            log.warn("Could not read metadata of plugin {}, not routing it: {}", plugin.getName(), e.getMessage());
+            cacheable = false;
+        }
+        cacheableCache.put(plugin, cacheable);
+        return cacheable;
+    }
+
+    private Replica findReplica(String replicaId) {
+        for (Replica replica : replicas) {
+            if (replica.id.equals(replicaId)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    // Package-private for tests
+    String ownerIdOf(String key) {
+        return ownerOf(key).id;
+    }
+
+    // Rendezvous (highest random weight) hashing: every replica scores the key, the highest score owns it
+    private Replica ownerOf(String key) {
+        long keyHash = hash64(key);
+        Replica owner = null;
+        long best = 0;
+        for (Replica replica : replicas) {
+            long score = mix64(keyHash ^ replica.idHash);
+            if (owner == null || Long.compareUnsigned(score, best) > 0) {
+                owner = replica;
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    private static long hash64(String value) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix64(h);
+    }
+
+    // Finalizer of MurmurHash3 (fmix64): spreads every input bit over the whole word
+    private static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static List<Replica> readReplicas(Path file) {
+        List<Replica> members = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = trimmed.split("\\s+");
+                if (parts.length != 2) {
+                    log.warn("Ignoring malformed line in {}: '{}'", file, trimmed);
+                    continue;
+                }
+                members.add(new Replica(parts[0], URI.create(parts[1].replaceAll("/+$", ""))));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Could not read replica list {}: {}", file, e.getMessage());
+            return List.of();
+        }
+        return Collections.unmodifiableList(members);
+    }
+
+    // Without an explicit id, the entry on our own port is us (replicas on one machine differ by port)
+    private static Replica findSelf(List<Replica> members, String selfId, int serverPort) {
+        for (Replica replica : members) {
+            if (!selfId.isBlank() ? replica.id.equals(selfId) : replica.url.getPort() == serverPort) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("self", self != null ? self.id : null);
+        metrics.put("ownedLocally", ownedLocally.sum());
+        metrics.put("notRoutable", notRoutable.sum());
+        metrics.put("fallbacks", fallbacks.sum());
+        metrics.put("artifactFetches", artifactFetches.sum());
+        List<Map<String, Object>> members = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", replica.id);
+            entry.put("url", replica.url.toString());
+            entry.put("self", replica == self);
+            entry.put("forwarded", replica.forwarded.sum());
+            entry.put("unreachable", replica.isBackingOff());
+            members.add(entry);
+        }
+        metrics.put("replicas", members);
+        return metrics;
+    }
+
+    /**
+     * Response of the owning replica
+     * @param status HTTP status the owner answered with
+     * @param headers Owner's response headers to pass on, plus {@link #SERVED_BY_HEADER}
+     * @param body Owner's JSON body
+     */
+    public record RoutedResponse(int status, HttpHeaders headers, Map<String, Object> body) {
+    }
+
+    private static final class Replica {
+        final String id;
+        final URI url;
+        final long idHash;
+        final LongAdder forwarded = new LongAdder();
+        volatile long unreachableUntil;
+
+        Replica(String id, URI url) {
+            this.id = id;
+            this.url = url;
+            this.idHash = hash64(id);
+        }
+
+        URI processUri(String pluginId) {
+            return URI.create(url + "/api/plugins/" + URLEncoder.encode(pluginId, StandardCharsets.UTF_8) + "/process");
+        }
+
+        URI artifactUri(String artifactId) {
+            return URI.create(url + "/api/artifacts/" + artifactId);
+        }
+
+        boolean isBackingOff() {
+            return unreachableUntil != 0 && System.currentTimeMillis() < unreachableUntil;
+        }
+
+        void markUnreachable(long backoffMillis) {
+            unreachableUntil = System.currentTimeMillis() + backoffMillis;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+// src/main/java/kostovite/services/RequestTiming.java
+package kostovite.services;
+
+import java.util.Arrays;
+
+/**
+ * Per-request stage durations for the Server-Timing header.
+ * Each thread keeps one preallocated slot array; {@link #begin()} clears it for a new request and
+ * {@link #record} adds to it, so recording a stage does not allocate (building the header value and
+ * keeping upstream metrics do). Outside a timed request
+ * (worker threads, jobs, sockets) recording is a no-op. Stages may be recorded several times
+ * per request (pipelines); their durations add up.
+ */
+public final class RequestTiming {
+
+    public enum Stage {
+        TOKEN("token"),
+        USER_TYPE("usertype"),
+        TOOL_STATUS("status"),
+        PLUGIN_LOOKUP("lookup"),
+        FORWARD("forward"),
+        EXECUTION("exec"),
+        SERIALIZATION("serialize");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() { return metricName; }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    // Slots after the stage durations
+    private static final int RECORDED = STAGES.length;       // Bit mask of recorded stages
+    private static final int REQUEST_START = STAGES.length + 1; // 0 while no request is timed
+    private static final int SERIALIZATION_START = STAGES.length + 2;
+
+    private static final ThreadLocal<long[]> SLOTS = ThreadLocal.withInitial(() -> new long[STAGES.length + 3]);
+    private static final ThreadLocal<StringBuilder> HEADER = ThreadLocal.withInitial(() -> new StringBuilder(160));
+    private static final ThreadLocal<String> UPSTREAM = new ThreadLocal<>(); // Metrics of the replica that served the request
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Start timing a request on the current thread
+     */
+    public static void begin() {
+        long[] slots = SLOTS.get();
+        Arrays.fill(slots, 0);
+        UPSTREAM.remove();
+        slots[REQUEST_START] = System.nanoTime();
+    }
+
+    /**
+     * Stop timing; later records on this thread are ignored
+     */
+    public static void end() {
+        SLOTS.get()[REQUEST_START] = 0;
+        UPSTREAM.remove();
+    }
+
+    public static boolean isActive() {
+        return SLOTS.get()[REQUEST_START] != 0;
+    }
+
+    /**
+     * @return Start time to pass to {@link #record}, or 0 when no request is timed
+     */
+    public static long start() {
+        return SLOTS.get()[REQUEST_START] != 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Add the time since startNanos to a stage
+     * @param startNanos Value returned by {@link #start()}
+     */
+    public static void record(Stage stage, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        long[] slots = SLOTS.get();
+        if (slots[REQUEST_START] == 0) {
+            return;
+        }
+        slots[stage.ordinal()] += System.nanoTime() - startNanos;
+        slots[RECORDED] |= 1L << stage.ordinal();
+    }
+
+    /**
+     * Keep the Server-Timing value of the replica that served a forwarded request, so the client sees its
+     * stages too. They are sent after ours, with the prefix in front of each metric name (e.g. "owner-exec").
+     * @param prefix Metric name prefix
+     * @param serverTiming The other replica's Server-Timing header value; ignored when null
+     */
+    public static void recordUpstream(String prefix, String serverTiming) {
+        if (serverTiming == null || SLOTS.get()[REQUEST_START] == 0) {
+            return;
+        }
+        StringBuilder metrics = new StringBuilder(serverTiming.length() + 32);
+        for (String metric : serverTiming.split(",")) {
+            String trimmed = metric.strip();
+            if (!trimmed.isEmpty()) {
+                if (metrics.length() > 0) {
+                    metrics.append(", ");
+                }
+                metrics.append(prefix).append(trimmed);
+            }
+        }
+        UPSTREAM.set(metrics.toString());
+    }
+
+    /**
+     * Mark the point where the controller returned and the response body starts being written
+     */
+    public static void markSerializationStart() {
+        long[] slots = SLOTS.get();
+        if (slots[REQUEST_START] != 0 && slots[SERIALIZATION_START] == 0) {
+            slots[SERIALIZATION_START] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Close the serialization stage, if the body started being written
+     */
+    public static void finishSerialization() {
+        long[] slots = SLOTS.get();
+        if (slots[SERIALIZATION_START] != 0) {
+            record(Stage.SERIALIZATION, slots[SERIALIZATION_START]);
+            slots[SERIALIZATION_START] = 0;
+        }
+    }
+
+    /**
+     * @return Milliseconds since {@link #begin()}, 0 when no request is timed
+     */
+    public static double totalMillis() {
+        long start = SLOTS.get()[REQUEST_START];
+        return start != 0 ? (System.nanoTime() - start) / 1e6 : 0;
+    }
+
+    /**
+     * Server-Timing header value for the stages recorded so far, plus the total
+     * (e.g. "token;dur=12.4, exec;dur=3.1, total;dur=16.0")
+     */
+    public static String headerValue() {
+        long[] slots = SLOTS.get();
+        StringBuilder header = HEADER.get();
+        header.setLength(0);
+        for (Stage stage : STAGES) {
+            if ((slots[RECORDED] & (1L << stage.ordinal())) != 0) {
+                appendMetric(header, stage.metricName, slots[stage.ordinal()] / 1e6);
+            }
+        }
+        appendMetric(header, "total", totalMillis());
+        String upstream = UPSTREAM.get();
+        if (upstream != null && !upstream.isEmpty()) {
+            header.append(", ").append(upstream);
+        }
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, double millis) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        // One decimal, without String.format
+        long tenths = Math.round(millis * 10);
+        header.append(name).append(";dur=").append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
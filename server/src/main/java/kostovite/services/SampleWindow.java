@@ -0,0 +1,62 @@
+// src/main/java/kostovite/services/SampleWindow.java
+package kostovite.services;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of the most recent long samples (nanoseconds, bytes, ...) with percentile lookup.
+ * Writers and readers synchronize on the window; it is meant for sampled or per-call values,
+ * not for tight loops.
+ */
+public class SampleWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    public SampleWindow(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Sample window capacity must be positive: " + capacity);
+        }
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Percentiles over the samples currently in the window
+     * @param percentiles Values between 0 and 100
+     * @return One value per requested percentile, all 0 if the window is empty
+     */
+    public long[] percentiles(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, size);
+        }
+        long[] result = new long[percentiles.length];
+        if (sorted.length == 0) {
+            return result;
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] / 100.0 * sorted.length) - 1;
+            result[i] = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+        return result;
+    }
+}
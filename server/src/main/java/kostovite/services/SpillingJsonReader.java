@@ -0,0 +1,498 @@
+// src/main/java/kostovite/services/SpillingJsonReader.java
+package kostovite.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import kostovite.CharSequenceReader;
+import kostovite.services.BufferArena.PayloadTooLargeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming reader for plugin input bodies (a JSON object).
+ * Top-level string fields longer than the spill threshold are written, while they are parsed,
+ * to a temporary file that is then memory-mapped and handed over as a {@link SpilledText}
+ * CharSequence; they never exist as one heap String. Nested strings stay Strings whatever their length.
+ * Everything else parses to the same types Jackson produces for {@code Map<String, Object>}.
+ * The whole body is capped at a byte limit.
+ */
+@Service
+public class SpillingJsonReader {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillingJsonReader.class);
+    public static final String METADATA_FLAG = "acceptsSpilledText";
+    private static final int MAX_DEPTH = 256;
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    private static final int SPILL_BUFFER_BYTES = 64 * 1024;
+
+    private final int spillThresholdChars;
+    private final long maxBodyBytes;
+    private final Path spillDirectory;
+    private final LongAdder spilledFields = new LongAdder();
+    private final LongAdder spilledChars = new LongAdder();
+
+    public SpillingJsonReader(@Value("${plugins.request.spill-threshold-chars:262144}") int spillThresholdChars,
+                              @Value("${plugins.request.max-json-bytes:67108864}") long maxBodyBytes,
+                              @Value("${plugins.request.spill-dir:}") String spillDir) throws IOException {
+        this.spillThresholdChars = Math.max(1024, spillThresholdChars);
+        this.maxBodyBytes = maxBodyBytes;
+        this.spillDirectory = spillDir == null || spillDir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "it-tools-spill")
+                : Path.of(spillDir);
+        Files.createDirectories(spillDirectory);
+    }
+
+    /**
+     * Parse a JSON object body
+     * @param in Request body
+     * @param contentLength Declared length, or a negative value when unknown
+     * @return The object's fields; large top-level strings are {@link SpilledText}
+     * @throws PayloadTooLargeException if the body is larger than plugins.request.max-json-bytes
+     * @throws MalformedJsonException if the body is not a single JSON object
+     */
+    public Map<String, Object> readObject(InputStream in, long contentLength) throws IOException {
+        if (contentLength > maxBodyBytes) {
+            throw new PayloadTooLargeException(contentLength, maxBodyBytes);
+        }
+        Parser parser = new Parser(in);
+        try {
+            parser.skipWhitespace();
+            if (parser.peek() != '{') {
+                throw parser.error("Expected a JSON object");
+            }
+            Map<String, Object> result = parser.readObject(0);
+            parser.skipWhitespace();
+            if (parser.peek() != -1) {
+                throw parser.error("Unexpected content after the JSON object");
+            }
+            return result;
+        } finally {
+            parser.discardOpenSpill();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("spillThresholdChars", spillThresholdChars);
+        metrics.put("maxBodyBytes", maxBodyBytes);
+        metrics.put("spilledFields", spilledFields.sum());
+        metrics.put("spilledChars", spilledChars.sum());
+        return metrics;
+    }
+
+    /**
+     * A string field kept in a memory-mapped temporary file. The file is unlinked as soon as it is
+     * mapped, so its disk space goes away with the mapping once the value is unreachable.
+     * {@link #toString()} copies the text onto the heap; JSON serialization streams it.
+     */
+    @JsonSerialize(using = SpilledTextSerializer.class)
+    public static final class SpilledText implements CharSequence {
+        private final CharBuffer chars; // Read-only view; only absolute reads, so safe to share
+
+        SpilledText(CharBuffer chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int length() {
+            return chars.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new SpilledText(chars.subSequence(start, end));
+        }
+
+        @Override
+        public String toString() {
+            return chars.toString();
+        }
+    }
+
+    // Lets the coalescer digest and response serialization read the file instead of a heap copy
+    static final class SpilledTextSerializer extends StdSerializer<SpilledText> {
+        SpilledTextSerializer() {
+            super(SpilledText.class);
+        }
+
+        @Override
+        public void serialize(SpilledText value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(new CharSequenceReader(value), value.length());
+        }
+    }
+
+    public static class MalformedJsonException extends IOException {
+        public MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+
+    private final class Parser {
+        private final InputStream in;
+        private final byte[] buffer = new byte[READ_BUFFER_BYTES];
+        private int position;
+        private int limit;
+        private long consumed;
+
+        private char[] text = new char[256];
+        private int textLength;
+        private final StringBuilder number = new StringBuilder();
+
+        private Path spillFile;
+        private FileChannel spillChannel;
+        private ByteBuffer spillBuffer;
+
+        Parser(InputStream in) {
+            this.in = in;
+        }
+
+        Map<String, Object> readObject(int depth) throws IOException {
+            checkDepth(depth);
+            next(); // '{'
+            Map<String, Object> object = new LinkedHashMap<>();
+            skipWhitespace();
+            if (peek() == '}') {
+                next();
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (next() != '"') {
+                    throw error("Expected a field name");
+                }
+                String key = (String) readString(false);
+                skipWhitespace();
+                if (next() != ':') {
+                    throw error("Expected ':' after field name");
+                }
+                skipWhitespace();
+                // Only the top-level fields are plugin parameters worth spilling
+                object.put(key, readValue(depth + 1, depth == 0));
+                skipWhitespace();
+                int separator = next();
+                if (separator == '}') {
+                    return object;
+                }
+                if (separator != ',') {
+                    throw error("Expected ',' or '}' in object");
+                }
+            }
+        }
+
+        private List<Object> readArray(int depth) throws IOException {
+            checkDepth(depth);
+            next(); // '['
+            List<Object> array = new ArrayList<>();
+            skipWhitespace();
+            if (peek() == ']') {
+                next();
+                return array;
+            }
+            while (true) {
+                skipWhitespace();
+                array.add(readValue(depth + 1, false));
+                skipWhitespace();
+                int separator = next();
+                if (separator == ']') {
+                    return array;
+                }
+                if (separator != ',') {
+                    throw error("Expected ',' or ']' in array");
+                }
+            }
+        }
+
+        private Object readValue(int depth, boolean maySpill) throws IOException {
+            int c = peek();
+            switch (c) {
+                case '{':
+                    return readObject(depth);
+                case '[':
+                    return readArray(depth);
+                case '"':
+                    next();
+                    return readString(maySpill);
+                case 't':
+                    expectLiteral("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    expectLiteral("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    expectLiteral("null");
+                    return null;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw error(c == -1 ? "Unexpected end of input" : "Unexpected character '" + (char) c + "'");
+            }
+        }
+
+        // Called after the opening quote
+        private CharSequence readString(boolean maySpill) throws IOException {
+            textLength = 0;
+            while (true) {
+                int b = next();
+                if (b == '"') {
+                    break;
+                }
+                if (b == -1) {
+                    throw error("Unterminated string");
+                }
+                if (b == '\\') {
+                    append(readEscape(), maySpill);
+                } else if (b < 0x20) {
+                    throw error("Control character in string");
+                } else if (b < 0x80) {
+                    append((char) b, maySpill);
+                } else {
+                    int codePoint = readUtf8(b);
+                    if (codePoint > 0xFFFF) {
+                        append(Character.highSurrogate(codePoint), maySpill);
+                        append(Character.lowSurrogate(codePoint), maySpill);
+                    } else {
+                        append((char) codePoint, maySpill);
+                    }
+                }
+            }
+            return spillChannel != null ? finishSpill() : new String(text, 0, textLength);
+        }
+
+        private void append(char c, boolean maySpill) throws IOException {
+            if (spillChannel != null) {
+                if (!spillBuffer.hasRemaining()) {
+                    flushSpill();
+                }
+                spillBuffer.putChar(c);
+                return;
+            }
+            if (textLength == spillThresholdChars && maySpill) {
+                startSpill();
+                append(c, true);
+                return;
+            }
+            if (textLength == text.length) {
+                // Nested strings are only bounded by plugins.request.max-json-bytes
+                int capacity = maySpill ? Math.min(spillThresholdChars, text.length * 2) : text.length * 2;
+                text = Arrays.copyOf(text, capacity);
+            }
+            text[textLength++] = c;
+        }
+
+        private void startSpill() throws IOException {
+            spillFile = Files.createTempFile(spillDirectory, "body-", ".chars");
+            spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            spillBuffer = ByteBuffer.allocate(SPILL_BUFFER_BYTES);
+            for (int i = 0; i < textLength; i++) {
+                if (!spillBuffer.hasRemaining()) {
+                    flushSpill();
+                }
+                spillBuffer.putChar(text[i]);
+            }
+        }
+
+        private void flushSpill() throws IOException {
+            spillBuffer.flip();
+            while (spillBuffer.hasRemaining()) {
+                spillChannel.write(spillBuffer);
+            }
+            spillBuffer.clear();
+        }
+
+        private SpilledText finishSpill() throws IOException {
+            flushSpill();
+            long bytes = spillChannel.position();
+            MappedByteBuffer mapped = spillChannel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            discardOpenSpill(); // The mapping outlives the channel and the directory entry
+            spilledFields.increment();
+            spilledChars.add(bytes / 2);
+            return new SpilledText(mapped.asCharBuffer());
+        }
+
+        void discardOpenSpill() {
+            if (spillChannel == null) {
+                return;
+            }
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                log.debug("Could not close spill file {}: {}", spillFile, e.getMessage());
+            }
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                // Platforms that refuse to delete mapped files: remove it when the JVM exits
+                spillFile.toFile().deleteOnExit();
+            }
+            spillChannel = null;
+            spillBuffer = null;
+            spillFile = null;
+        }
+
+        private char readEscape() throws IOException {
+            int c = next();
+            return switch (c) {
+                case '"' -> '"';
+                case '\\' -> '\\';
+                case '/' -> '/';
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 't' -> '\t';
+                case 'u' -> {
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(next(), 16);
+                        if (digit < 0) {
+                            throw error("Invalid \\u escape");
+                        }
+                        value = (value << 4) | digit;
+                    }
+                    yield (char) value;
+                }
+                default -> throw error("Invalid escape sequence");
+            };
+        }
+
+        private int readUtf8(int first) throws IOException {
+            int extra;
+            int codePoint;
+            if ((first & 0xE0) == 0xC0) {
+                extra = 1;
+                codePoint = first & 0x1F;
+            } else if ((first & 0xF0) == 0xE0) {
+                extra = 2;
+                codePoint = first & 0x0F;
+            } else if ((first & 0xF8) == 0xF0) {
+                extra = 3;
+                codePoint = first & 0x07;
+            } else {
+                throw error("Invalid UTF-8 byte");
+            }
+            for (int i = 0; i < extra; i++) {
+                int b = next();
+                if ((b & 0xC0) != 0x80) {
+                    throw error("Invalid UTF-8 continuation byte");
+                }
+                codePoint = (codePoint << 6) | (b & 0x3F);
+            }
+            if (codePoint > Character.MAX_CODE_POINT) {
+                throw error("Invalid UTF-8 code point");
+            }
+            return codePoint;
+        }
+
+        private Number readNumber() throws IOException {
+            number.setLength(0);
+            boolean floating = false;
+            while (true) {
+                int c = peek();
+                if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+                    number.append((char) next());
+                } else if (c == '.' || c == 'e' || c == 'E') {
+                    floating = true;
+                    number.append((char) next());
+                } else {
+                    break;
+                }
+            }
+            String digits = number.toString();
+            try {
+                if (floating) {
+                    return Double.parseDouble(digits);
+                }
+                long value = Long.parseLong(digits);
+                if (value == (int) value) {
+                    return (int) value;
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                if (!floating && digits.matches("-?[0-9]+")) {
+                    return new BigInteger(digits);
+                }
+                throw error("Invalid number: " + digits);
+            }
+        }
+
+        private void expectLiteral(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (next() != literal.charAt(i)) {
+                    throw error("Expected '" + literal + "'");
+                }
+            }
+        }
+
+        void skipWhitespace() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                position++;
+            }
+        }
+
+        int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position] & 0xFF;
+        }
+
+        private int next() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            consumed += read;
+            if (consumed > maxBodyBytes) {
+                throw new PayloadTooLargeException(consumed, maxBodyBytes);
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+        private void checkDepth(int depth) throws MalformedJsonException {
+            if (depth >= MAX_DEPTH) {
+                throw error("JSON nested deeper than " + MAX_DEPTH + " levels");
+            }
+        }
+
+        MalformedJsonException error(String message) {
+            return new MalformedJsonException(message + " at byte " + (consumed - limit + position));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+// src/main/java/kostovite/store/FileStatusStore.java
+package kostovite.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded status store for nodes without Firestore: an append-only log replayed into the
+ * in-memory index at startup. Reads never touch the file.
+ * <p>
+ * One UTF-8 record per line, fields separated by tabs (backslash escapes for tab, newline and backslash):
+ * <pre>
+ * tool &lt;toolId&gt; &lt;true|false&gt; [disabledMessage]
+ * user &lt;uid&gt; &lt;userType&gt;
+ * </pre>
+ * Lines starting with '#' are comments, so the file can be seeded by hand. A torn last line
+ * (crash during append) is dropped. The log is compacted at startup once most records are superseded.
+ */
+public class FileStatusStore extends InMemoryStatusStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileStatusStore.class);
+    private static final int COMPACTION_MIN_RECORDS = 1024;
+
+    private final Path logFile;
+    private final boolean fsync;
+    private final FileChannel channel;
+    private long records;
+
+    public FileStatusStore(Path logFile, boolean fsync) throws IOException {
+        this.logFile = logFile;
+        this.fsync = fsync;
+        Path parent = logFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        replay();
+        int live = tools().size() + userTypes().size();
+        if (records > COMPACTION_MIN_RECORDS && records > 2L * live) {
+            compact();
+        }
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("File status store {}: {} tools, {} users from {} records",
+                logFile, tools().size(), userTypes().size(), records);
+    }
+
+    @Override
+    public synchronized void putToolStatus(String toolId, ToolStatus status) throws StoreException {
+        append(toolRecord(toolId, status));
+        super.putToolStatus(toolId, status);
+    }
+
+    @Override
+    public synchronized void putUserType(String uid, String userType) throws StoreException {
+        append(List.of("user", uid, userType));
+        super.putUserType(uid, userType);
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        Map<String, Object> description = super.describe();
+        description.put("backend", "file");
+        description.put("path", logFile.toAbsolutePath().toString());
+        synchronized (this) {
+            description.put("records", records);
+        }
+        return description;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close status store log {}: {}", logFile, e.getMessage());
+        }
+    }
+
+    // Callers hold the lock and update the index after this returns, so the index only shows values
+    // a restart would replay, and concurrent writes to one key land in the index in log order
+    private void append(List<String> fields) throws StoreException {
+        try {
+            ByteBuffer line = ByteBuffer.wrap(encode(fields).getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            records++;
+        } catch (IOException e) {
+            throw new StoreException("Could not append to status store log " + logFile, e);
+        }
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(logFile);
+        int start = 0;
+        int lineNumber = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+            lineNumber++;
+            apply(new String(content, start, i - start, StandardCharsets.UTF_8), lineNumber);
+            start = i + 1;
+        }
+        if (start < content.length) {
+            log.warn("Dropping torn last record of status store log {} ({} bytes)", logFile, content.length - start);
+            try (FileChannel truncate = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                truncate.truncate(start);
+            }
+        }
+    }
+
+    private void apply(String line, int lineNumber) {
+        if (line.isBlank() || line.startsWith("#")) {
+            return;
+        }
+        List<String> fields = decode(line);
+        String type = fields.get(0);
+        if ("tool".equals(type) && (fields.size() == 3 || fields.size() == 4)) {
+            tools().put(fields.get(1), new ToolStatus(Boolean.parseBoolean(fields.get(2)), fields.size() == 4 ? fields.get(3) : null));
+        } else if ("user".equals(type) && fields.size() == 3) {
+            userTypes().put(fields.get(1), fields.get(2));
+        } else {
+            log.warn("Skipping malformed record on line {} of status store log {}", lineNumber, logFile);
+            return;
+        }
+        records++;
+    }
+
+    private void compact() throws IOException {
+        Path temp = logFile.resolveSibling(logFile.getFileName() + ".compact");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, ToolStatus> entry : tools().entrySet()) {
+                writer.write(encode(toolRecord(entry.getKey(), entry.getValue())));
+            }
+            for (Map.Entry<String, String> entry : userTypes().entrySet()) {
+                writer.write(encode(List.of("user", entry.getKey(), entry.getValue())));
+            }
+        }
+        try (FileChannel sync = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            sync.force(true);
+        }
+        Files.move(temp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compacted status store log {} from {} to {} records", logFile, records, tools().size() + userTypes().size());
+        records = tools().size() + userTypes().size();
+    }
+
+    private static List<String> toolRecord(String toolId, ToolStatus status) {
+        List<String> fields = new ArrayList<>(List.of("tool", toolId, String.valueOf(status.enabled())));
+        if (status.disabledMessage() != null) {
+            fields.add(status.disabledMessage());
+        }
+        return fields;
+    }
+
+    private static String encode(List<String> fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            String field = fields.get(i);
+            for (int j = 0; j < field.length(); j++) {
+                char c = field.charAt(j);
+                switch (c) {
+                    case '\\' -> line.append("\\\\");
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    default -> line.append(c);
+                }
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    private static List<String> decode(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                field.append(switch (escaped) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> escaped;
+                });
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,155 @@
+// src/main/java/kostovite/store/FirestoreStatusStore.java
+package kostovite.store;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Status store backed by the Firestore 'tools' and 'users' collections.
+ * Tool statuses are served from a local mirror kept current by a snapshot listener (the collection
+ * is small and changes rarely); until the first snapshot arrives, or after the listener fails,
+ * lookups go to Firestore. User types are read from Firestore on every call unless
+ * plugins.store.user-cache-ttl-ms is set; a demoted or revoked user then keeps the old tier up to that long.
+ */
+public class FirestoreStatusStore implements StatusStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FirestoreStatusStore.class);
+    private static final String TOOLS_COLLECTION = "tools";
+    private static final String USERS_COLLECTION = "users";
+    private static final int MAX_CACHED_USERS = 100_000;
+
+    private final Firestore firestore;
+    private final long userCacheTtlNanos;
+    private final Map<String, CachedUserType> userCache = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private volatile Map<String, ToolStatus> toolMirror; // null while not in sync
+    private ListenerRegistration registration;
+
+    public FirestoreStatusStore(Firestore firestore, long userCacheTtlMillis) {
+        this.firestore = firestore;
+        this.userCacheTtlNanos = Math.max(0, userCacheTtlMillis) * 1_000_000L;
+        try {
+            registration = firestore.collection(TOOLS_COLLECTION).addSnapshotListener((snapshots, error) -> {
+                if (error != null || snapshots == null) {
+                    log.warn("Tool status listener failed, reading statuses from Firestore: {}",
+                            error != null ? error.getMessage() : "no snapshot");
+                    toolMirror = null;
+                } else {
+                    Map<String, ToolStatus> mirror = new HashMap<>();
+                    for (QueryDocumentSnapshot document : snapshots.getDocuments()) {
+                        mirror.put(document.getId(), toToolStatus(document));
+                    }
+                    toolMirror = mirror;
+                }
+                listeners.forEach(Runnable::run);
+            });
+        } catch (Exception e) {
+            log.error("Could not register tool status listener, every status check reads Firestore: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<ToolStatus> findToolStatus(String toolId) throws StoreException {
+        Map<String, ToolStatus> mirror = toolMirror;
+        if (mirror != null) {
+            return Optional.ofNullable(mirror.get(toolId));
+        }
+        DocumentSnapshot document = await(firestore.collection(TOOLS_COLLECTION).document(toolId).get(), "tool " + toolId);
+        return document.exists() ? Optional.of(toToolStatus(document)) : Optional.empty();
+    }
+
+    @Override
+    public Optional<String> findUserType(String uid) throws StoreException {
+        if (userCacheTtlNanos == 0) {
+            DocumentSnapshot document = await(firestore.collection(USERS_COLLECTION).document(uid).get(), "user " + uid);
+            return Optional.ofNullable(document.exists() ? document.getString("userType") : null);
+        }
+        long now = System.nanoTime();
+        CachedUserType cached = userCache.get(uid);
+        if (cached != null && now - cached.loadedAt() < userCacheTtlNanos) {
+            return Optional.ofNullable(cached.userType());
+        }
+        DocumentSnapshot document = await(firestore.collection(USERS_COLLECTION).document(uid).get(), "user " + uid);
+        String userType = document.exists() ? document.getString("userType") : null;
+        if (userCache.size() >= MAX_CACHED_USERS) {
+            userCache.values().removeIf(entry -> now - entry.loadedAt() >= userCacheTtlNanos);
+        }
+        if (userCache.size() < MAX_CACHED_USERS) {
+            userCache.put(uid, new CachedUserType(userType, now));
+        }
+        return Optional.ofNullable(userType);
+    }
+
+    @Override
+    public void putToolStatus(String toolId, ToolStatus status) throws StoreException {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("enabled", status.enabled());
+        fields.put("disabledMessage", status.disabledMessage() != null ? status.disabledMessage() : FieldValue.delete());
+        await(firestore.collection(TOOLS_COLLECTION).document(toolId).set(fields, SetOptions.merge()), "tool " + toolId);
+        // The snapshot listener refreshes the mirror and notifies listeners
+    }
+
+    @Override
+    public void putUserType(String uid, String userType) throws StoreException {
+        await(firestore.collection(USERS_COLLECTION).document(uid).set(Map.of("userType", userType), SetOptions.merge()), "user " + uid);
+        userCache.remove(uid);
+    }
+
+    @Override
+    public void addToolStatusListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        Map<String, ToolStatus> mirror = toolMirror;
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("backend", "firestore");
+        description.put("toolMirrorInSync", mirror != null);
+        description.put("tools", mirror != null ? mirror.size() : null);
+        description.put("cachedUsers", userCache.size());
+        return description;
+    }
+
+    @Override
+    public void close() {
+        if (registration != null) {
+            registration.remove();
+        }
+    }
+
+    private static ToolStatus toToolStatus(DocumentSnapshot document) {
+        // Only an explicit false disables a tool
+        return new ToolStatus(!Boolean.FALSE.equals(document.getBoolean("enabled")), document.getString("disabledMessage"));
+    }
+
+    private static <T> T await(ApiFuture<T> future, String what) throws StoreException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new StoreException("Firestore request for " + what + " failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StoreException("Interrupted while reading " + what + " from Firestore", e);
+        }
+    }
+
+    private record CachedUserType(String userType, long loadedAt) {
+    }
+}
@@ -0,0 +1,64 @@
+// src/main/java/kostovite/store/InMemoryStatusStore.java
+package kostovite.store;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Status store held in two concurrent maps. Starts empty (every tool enabled, every user 'normal');
+ * meant for tests and benchmarks, and as the index of {@link FileStatusStore}.
+ */
+public class InMemoryStatusStore implements StatusStore {
+
+    private final Map<String, ToolStatus> tools = new ConcurrentHashMap<>();
+    private final Map<String, String> userTypes = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Optional<ToolStatus> findToolStatus(String toolId) {
+        return Optional.ofNullable(tools.get(toolId));
+    }
+
+    @Override
+    public Optional<String> findUserType(String uid) {
+        return Optional.ofNullable(userTypes.get(uid));
+    }
+
+    @Override
+    public void putToolStatus(String toolId, ToolStatus status) throws StoreException {
+        tools.put(toolId, status);
+        listeners.forEach(Runnable::run);
+    }
+
+    @Override
+    public void putUserType(String uid, String userType) throws StoreException {
+        userTypes.put(uid, userType);
+    }
+
+    @Override
+    public void addToolStatusListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("backend", "memory");
+        description.put("tools", tools.size());
+        description.put("users", userTypes.size());
+        return description;
+    }
+
+    // Snapshot accessors for FileStatusStore compaction
+    Map<String, ToolStatus> tools() {
+        return tools;
+    }
+
+    Map<String, String> userTypes() {
+        return userTypes;
+    }
+}
@@ -0,0 +1,52 @@
+// src/main/java/kostovite/store/StatusStore.java
+package kostovite.store;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lookups behind plugin status and user tier checks: the 'tools' collection (enabled flag per tool)
+ * and the 'users' collection (userType per Firebase UID).
+ * The backend is chosen with plugins.store.backend: firestore, memory or file.
+ */
+public interface StatusStore extends AutoCloseable {
+
+    /**
+     * @param toolId Plugin ID (document ID in 'tools')
+     * @return The tool's status, or empty when the store has no entry (callers treat that as enabled)
+     */
+    Optional<ToolStatus> findToolStatus(String toolId) throws StoreException;
+
+    /**
+     * @param uid Firebase UID (document ID in 'users')
+     * @return The raw userType field, or empty when the user has no entry
+     */
+    Optional<String> findUserType(String uid) throws StoreException;
+
+    void putToolStatus(String toolId, ToolStatus status) throws StoreException;
+
+    void putUserType(String uid, String userType) throws StoreException;
+
+    /**
+     * Register a callback run after any tool status changes, e.g. to invalidate cached catalogs.
+     */
+    void addToolStatusListener(Runnable listener);
+
+    /**
+     * @return Backend name and entry counts for the admin report
+     */
+    Map<String, Object> describe();
+
+    @Override
+    default void close() {
+    }
+
+    record ToolStatus(boolean enabled, String disabledMessage) {
+    }
+
+    class StoreException extends Exception {
+        public StoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package kostovite.worker;
+
+import kostovite.InvocationContext;
+import kostovite.ManualPluginLoader;
+import kostovite.PluginClassLoaderTracker;
+import kostovite.PluginInterface;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Entry point of a worker JVM: loads the plugin JARs, listens on a Unix domain socket for the
+ * server's single connection and runs one request at a time. The worker exits when the server
+ * closes the connection, so it never outlives its supervisor.
+ * Usage: WorkerMain &lt;socket path&gt; &lt;plugins directory&gt;
+ */
+public final class WorkerMain {
+
+    private final SocketChannel channel;
+    private final ManualPluginLoader loader;
+    private final ExecutorService invoker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-invoker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long currentId = -1;
+    private volatile InvocationContext currentContext;
+    // CANCEL frames for requests that have not started yet; requests run in id order, so older ids are stale
+    private final Set<Long> cancelledIds = ConcurrentHashMap.newKeySet();
+
+    private WorkerMain(SocketChannel channel, ManualPluginLoader loader) {
+        this.channel = channel;
+        this.loader = loader;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: WorkerMain <socket path> <plugins directory>");
+            System.exit(2);
+        }
+        Path socketPath = Path.of(args[0]);
+        Path pluginsDir = Path.of(args[1]);
+
+        ManualPluginLoader loader = new ManualPluginLoader(new PluginClassLoaderTracker(0));
+        loader.loadPlugins(pluginsDir);
+
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            SocketChannel channel = server.accept();
+            Files.deleteIfExists(socketPath); // Connected; nobody else should find the socket
+            new WorkerMain(channel, loader).serve();
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+        System.exit(0);
+    }
+
+    private void serve() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        while (true) {
+            WorkerProtocol.Frame frame;
+            try {
+                frame = WorkerProtocol.readFrame(in);
+            } catch (EOFException e) {
+                return; // Server closed the connection
+            }
+            switch (frame.type()) {
+                case WorkerProtocol.REQUEST -> {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> input = (Map<String, Object>) frame.value();
+                    invoker.execute(() -> invoke(frame.id(), frame.plugin(), input));
+                }
+                case WorkerProtocol.CANCEL -> {
+                    cancelledIds.add(frame.id());
+                    InvocationContext context = currentContext;
+                    if (context != null && currentId == frame.id()) {
+                        context.cancel("cancelled by server");
+                    }
+                }
+                default -> throw new IOException("Unexpected frame type from server: " + frame.type());
+            }
+        }
+    }
+
+    private void invoke(long id, String pluginName, Map<String, Object> input) {
+        // The server enforces the deadline; the worker only reacts to CANCEL frames
+        InvocationContext context = InvocationContext.none();
+        context.setProgressListener((fraction, stage) -> {
+            try {
+                WorkerProtocol.writeProgress(channel, id, fraction, stage);
+            } catch (IOException ignored) {
+                context.cancel("server connection lost");
+            }
+        });
+        currentContext = context;
+        currentId = id;
+        try {
+            if (cancelledIds.contains(id)) {
+                respondQuietly(id, WorkerProtocol.STATUS_CANCELLED, "cancelled by server");
+                return;
+            }
+            PluginInterface plugin = loader.getPluginByName(pluginName);
+            if (plugin == null) {
+                WorkerProtocol.writeResponse(channel, id, WorkerProtocol.STATUS_ERROR, "Plugin not loaded in worker: " + pluginName);
+                return;
+            }
+            Map<String, Object> output = plugin.process(input, context);
+            WorkerProtocol.writeResponse(channel, id, WorkerProtocol.STATUS_OK, output);
+        } catch (CancellationException e) {
+            respondQuietly(id, WorkerProtocol.STATUS_CANCELLED, e.getMessage());
+        } catch (Throwable e) {
+            // Errors too (OutOfMemoryError, StackOverflowError): the server waits for an answer to every request
+            respondQuietly(id, WorkerProtocol.STATUS_ERROR, e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            currentContext = null;
+            currentId = -1;
+            cancelledIds.removeIf(cancelledId -> cancelledId <= id);
+        }
+    }
+
+    private void respondQuietly(long id, byte status, String message) {
+        try {
+            WorkerProtocol.writeResponse(channel, id, status, message);
+        } catch (IOException ignored) {
+            // Server is gone; serve() sees EOF and the worker exits
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package kostovite.worker;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kostovite.InvocationContext;
+import kostovite.ManualPluginLoader;
+import kostovite.services.PluginInstanceProvider.InstanceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Supervised pool of worker JVMs for plugins that should not run in the server JVM
+ * (heavy AWT/ImageIO work, large allocations). Each worker serves one request at a time over
+ * its own Unix domain socket; a worker that crashes, hangs past its deadline or runs an outdated
+ * plugin set is replaced with exponential backoff.
+ */
+@Component
+public class WorkerPool {
+    private static final Logger log = LoggerFactory.getLogger(WorkerPool.class);
+    private static final long POLL_MILLIS = 100;
+    private static final long MAX_RESTART_DELAY_MILLIS = 30_000;
+    private static final long STABLE_AFTER_MILLIS = 10_000;
+
+    private final ManualPluginLoader manualPluginLoader;
+    private final boolean enabled;
+    private final int workerCount;
+    private final Set<String> offloadedPlugins;
+    private final Path socketDir;
+    private final Path pluginsDir;
+    private final List<String> jvmOptions;
+    private final long startTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final long cancelGraceMillis;
+
+    private final LinkedBlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Worker[] slots;
+    private final AtomicLongArray restarts;
+    private final AtomicLongArray consecutiveFailures;
+    private final AtomicLong requestIds = new AtomicLong();
+    private final ScheduledExecutorService supervisor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean shuttingDown;
+
+    public WorkerPool(ManualPluginLoader manualPluginLoader,
+                      @Value("${plugins.worker.enabled:false}") boolean enabled,
+                      @Value("${plugins.worker.count:0}") int workerCount,
+                      @Value("${plugins.worker.plugins:}") String offloadedPlugins,
+                      @Value("${plugins.worker.socket-dir:}") String socketDir,
+                      @Value("${plugins.worker.jvm-options:-Xmx256m -XX:+UseSerialGC -XX:+ExitOnOutOfMemoryError}") String jvmOptions,
+                      @Value("${plugins.worker.start-timeout-ms:20000}") long startTimeoutMillis,
+                      @Value("${plugins.worker.acquire-timeout-ms:5000}") long acquireTimeoutMillis,
+                      @Value("${plugins.worker.cancel-grace-ms:2000}") long cancelGraceMillis) {
+        this.manualPluginLoader = manualPluginLoader;
+        this.workerCount = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        this.offloadedPlugins = Arrays.stream(offloadedPlugins.split(","))
+                .map(String::trim).filter(name -> !name.isEmpty()).collect(Collectors.toUnmodifiableSet());
+        this.enabled = enabled && !this.offloadedPlugins.isEmpty();
+        this.socketDir = socketDir.isBlank() ? Paths.get(System.getProperty("java.io.tmpdir"), "it-tools-workers") : Paths.get(socketDir);
+        this.pluginsDir = Paths.get(System.getProperty("user.dir"), "plugins-deploy").toAbsolutePath();
+        this.jvmOptions = Arrays.stream(jvmOptions.trim().split("\\s+")).filter(option -> !option.isEmpty()).toList();
+        this.startTimeoutMillis = startTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.cancelGraceMillis = cancelGraceMillis;
+        this.slots = new Worker[this.workerCount];
+        this.restarts = new AtomicLongArray(this.workerCount);
+        this.consecutiveFailures = new AtomicLongArray(this.workerCount);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(socketDir);
+        } catch (IOException e) {
+            log.error("Cannot create worker socket directory {}, plugins stay in-process: {}", socketDir, e.getMessage());
+            return;
+        }
+        log.info("Starting {} plugin workers for {}", workerCount, offloadedPlugins);
+        for (int slot = 0; slot < workerCount; slot++) {
+            int index = slot;
+            supervisor.execute(() -> launch(index));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        supervisor.shutdownNow();
+        for (Worker worker : slots) {
+            if (worker != null) {
+                worker.destroy();
+            }
+        }
+    }
+
+    /**
+     * Whether a plugin is dispatched to the worker pool instead of running in-process
+     */
+    public boolean isOffloaded(String pluginName) {
+        return enabled && offloadedPlugins.contains(pluginName);
+    }
+
+    /**
+     * Run a plugin in a worker JVM
+     * @throws InstanceUnavailableException if no worker became free in time
+     * @throws CancellationException if the context was cancelled or its deadline passed
+     */
+    public Map<String, Object> invoke(String pluginName, Map<String, Object> input, InvocationContext context) {
+        Worker worker = acquire(pluginName, context);
+        try {
+            return worker.call(requestIds.incrementAndGet(), pluginName, input, context);
+        } finally {
+            release(worker);
+        }
+    }
+
+    /**
+     * State of every worker slot
+     */
+    public Map<String, Object> getStatus() {
+        List<Map<String, Object>> workers = new ArrayList<>();
+        for (int slot = 0; slot < workerCount; slot++) {
+            Worker worker = slots[slot];
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("slot", slot);
+            entry.put("alive", worker != null && worker.isAlive());
+            entry.put("pid", worker != null ? worker.process.pid() : null);
+            entry.put("busy", worker != null && worker.busy);
+            entry.put("requests", worker != null ? worker.requests.get() : 0);
+            entry.put("uptimeMs", worker != null ? System.currentTimeMillis() - worker.startedAtMillis : 0);
+            entry.put("restarts", restarts.get(slot));
+            workers.add(entry);
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("plugins", offloadedPlugins);
+        status.put("idle", idle.size());
+        status.put("workers", workers);
+        return status;
+    }
+
+    private Worker acquire(String pluginName, InvocationContext context) {
+        long waitUntil = System.currentTimeMillis() + Math.min(acquireTimeoutMillis, context.remainingMillis());
+        while (true) {
+            context.checkCancelled();
+            Worker worker;
+            try {
+                worker = idle.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("interrupted");
+            }
+            if (worker != null && worker.isAlive()) {
+                worker.busy = true;
+                return worker;
+            }
+            if (System.currentTimeMillis() >= waitUntil) {
+                throw new InstanceUnavailableException(pluginName + " (worker pool)", acquireTimeoutMillis);
+            }
+        }
+    }
+
+    private void release(Worker worker) {
+        worker.busy = false;
+        if (!worker.isAlive()) {
+            return; // onExit schedules the replacement
+        }
+        if (worker.pluginGeneration != manualPluginLoader.getGeneration()) {
+            log.info("Recycling worker {} (pid {}): plugin set changed", worker.slot, worker.process.pid());
+            worker.destroy();
+            return;
+        }
+        idle.offer(worker);
+    }
+
+    private void launch(int slot) {
+        if (shuttingDown) {
+            return;
+        }
+        Path socketPath = socketDir.resolve("worker-" + slot + "-" + ProcessHandle.current().pid() + ".sock");
+        long generation = manualPluginLoader.getGeneration();
+        Process process = null;
+        try {
+            Files.deleteIfExists(socketPath);
+            ProcessBuilder builder = new ProcessBuilder(workerCommand(socketPath));
+            File logFile = socketDir.resolve("worker-" + slot + ".log").toFile();
+            builder.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.appendTo(logFile));
+            process = builder.start();
+
+            SocketChannel channel = connect(socketPath, process);
+            Worker worker = new Worker(slot, process, channel, generation);
+            slots[slot] = worker;
+            Process started = process;
+            process.onExit().thenRun(() -> onExit(worker, started));
+            worker.startReader();
+            idle.offer(worker);
+            log.info("Worker {} started (pid {})", slot, process.pid());
+        } catch (Exception e) {
+            log.error("Failed to start worker {}: {}", slot, e.getMessage());
+            if (process != null) {
+                process.destroyForcibly(); // onExit reschedules
+            } else {
+                scheduleRestart(slot);
+            }
+        }
+    }
+
+    private SocketChannel connect(Path socketPath, Process process) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + startTimeoutMillis;
+        IOException lastError = null;
+        while (System.currentTimeMillis() < deadline && process.isAlive()) {
+            if (Files.exists(socketPath)) {
+                try {
+                    SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+                    channel.connect(UnixDomainSocketAddress.of(socketPath));
+                    return channel;
+                } catch (IOException e) {
+                    lastError = e;
+                }
+            }
+            Thread.sleep(50);
+        }
+        throw new IOException("Worker did not open its socket within " + startTimeoutMillis + " ms"
+                + (lastError != null ? ": " + lastError.getMessage() : ""));
+    }
+
+    private void onExit(Worker worker, Process process) {
+        idle.remove(worker);
+        worker.failPending("Worker " + worker.slot + " exited with code " + process.exitValue());
+        if (shuttingDown) {
+            return;
+        }
+        if (System.currentTimeMillis() - worker.startedAtMillis >= STABLE_AFTER_MILLIS) {
+            consecutiveFailures.set(worker.slot, 0);
+        }
+        log.warn("Worker {} (pid {}) exited with code {}", worker.slot, process.pid(), process.exitValue());
+        scheduleRestart(worker.slot);
+    }
+
+    private void scheduleRestart(int slot) {
+        if (shuttingDown) {
+            return;
+        }
+        long failures = consecutiveFailures.incrementAndGet(slot);
+        restarts.incrementAndGet(slot);
+        long delay = Math.min(MAX_RESTART_DELAY_MILLIS, 250L << Math.min(failures, 7));
+        supervisor.schedule(() -> launch(slot), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Command line of a worker JVM. From a Spring Boot fat jar the classes live under BOOT-INF,
+     * so the jar is started through PropertiesLauncher with WorkerMain as loader.main;
+     * from an exploded classpath (IDE, bootRun) WorkerMain is started directly.
+     */
+    private List<String> workerCommand(Path socketPath) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        String classPath = System.getProperty("java.class.path");
+        boolean fatJar = !classPath.contains(File.pathSeparator) && classPath.endsWith(".jar");
+        command.add("-cp");
+        command.add(classPath);
+        if (fatJar) {
+            command.add("-Dloader.main=" + WorkerMain.class.getName());
+            command.add("org.springframework.boot.loader.PropertiesLauncher");
+        } else {
+            command.add(WorkerMain.class.getName());
+        }
+        command.add(socketPath.toString());
+        command.add(pluginsDir.toString());
+        return command;
+    }
+
+    private final class Worker {
+        final int slot;
+        final Process process;
+        final SocketChannel channel;
+        final long pluginGeneration;
+        final long startedAtMillis = System.currentTimeMillis();
+        final AtomicLong requests = new AtomicLong();
+        volatile boolean busy;
+        private volatile Pending pending;
+
+        Worker(int slot, Process process, SocketChannel channel, long pluginGeneration) {
+            this.slot = slot;
+            this.process = process;
+            this.channel = channel;
+            this.pluginGeneration = pluginGeneration;
+        }
+
+        boolean isAlive() {
+            return process.isAlive() && channel.isOpen();
+        }
+
+        void destroy() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Closing the connection alone makes a healthy worker exit
+            }
+            process.destroyForcibly();
+        }
+
+        void startReader() {
+            Thread reader = new Thread(this::readLoop, "worker-reader-" + slot);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readLoop() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+                while (true) {
+                    WorkerProtocol.Frame frame = WorkerProtocol.readFrame(in);
+                    Pending current = pending;
+                    if (current == null || current.id != frame.id()) {
+                        continue; // Late frame of an abandoned request
+                    }
+                    if (frame.type() == WorkerProtocol.PROGRESS) {
+                        current.context.reportProgress(frame.fraction(), (String) frame.value());
+                    } else if (frame.type() == WorkerProtocol.RESPONSE) {
+                        current.response.complete(frame);
+                    }
+                }
+            } catch (EOFException e) {
+                failPending("Worker " + slot + " closed its connection");
+            } catch (IOException e) {
+                failPending("Worker " + slot + " connection failed: " + e.getMessage());
+            }
+            destroy();
+        }
+
+        void failPending(String message) {
+            Pending current = pending;
+            if (current != null) {
+                current.response.completeExceptionally(new IllegalStateException(message));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> call(long id, String pluginName, Map<String, Object> input, InvocationContext context) {
+            Pending current = new Pending(id, context);
+            pending = current;
+            requests.incrementAndGet();
+            try {
+                WorkerProtocol.writeRequest(channel, id, pluginName, input);
+                long cancelSentAt = 0;
+                while (true) {
+                    try {
+                        WorkerProtocol.Frame frame = current.response.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        return switch (frame.status()) {
+                            case WorkerProtocol.STATUS_OK -> (Map<String, Object>) frame.value();
+                            case WorkerProtocol.STATUS_CANCELLED -> throw new CancellationException(context.getCancelReason());
+                            default -> throw new RuntimeException("Plugin " + pluginName + " failed in worker: " + frame.value());
+                        };
+                    } catch (TimeoutException e) {
+                        if (!context.isCancelled()) {
+                            continue;
+                        }
+                        if (cancelSentAt == 0) {
+                            cancelSentAt = System.currentTimeMillis();
+                            WorkerProtocol.writeCancel(channel, id);
+                        } else if (System.currentTimeMillis() - cancelSentAt > cancelGraceMillis) {
+                            // The plugin ignores cancellation; only killing the worker frees the core
+                            log.warn("Worker {} did not stop {} within {} ms of cancellation, restarting it", slot, pluginName, cancelGraceMillis);
+                            destroy();
+                            throw new CancellationException(context.getCancelReason());
+                        }
+                    }
+                }
+            } catch (WorkerProtocol.FrameTooLargeException e) {
+                // Nothing reached the worker; only this call fails
+                throw new IllegalStateException("Input for " + pluginName + " is too large to send to a worker: " + e.getMessage(), e);
+            } catch (IOException e) {
+                destroy();
+                throw new IllegalStateException("Worker " + slot + " connection failed: " + e.getMessage(), e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                destroy();
+                throw new CancellationException("interrupted");
+            } finally {
+                pending = null;
+            }
+        }
+    }
+
+    private record Pending(long id, InvocationContext context, CompletableFuture<WorkerProtocol.Frame> response) {
+        Pending(long id, InvocationContext context) {
+            this(id, context, new CompletableFuture<>());
+        }
+    }
+}
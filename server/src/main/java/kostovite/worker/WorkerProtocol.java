@@ -0,0 +1,279 @@
+package kostovite.worker;
+
+import kostovite.BinaryArtifact;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Framing and value codec between the server and its worker JVMs.
+ * A frame is a 4-byte length (type byte + payload), a type byte and the payload:
+ * <pre>
+ * REQUEST  id:long plugin:utf input:map
+ * RESPONSE id:long status:byte (OK: output:map | ERROR, CANCELLED: message:value)
+ * CANCEL   id:long
+ * PROGRESS id:long fraction:double stage:utf
+ * </pre>
+ * Values are tagged: null, booleans, int, long, double, UTF-8 strings, byte arrays (ByteBuffers are
+ * sent as byte arrays), lists and string-keyed maps. Other numbers travel as double, anything else as its string form.
+ */
+public final class WorkerProtocol {
+    public static final byte REQUEST = 1;
+    public static final byte RESPONSE = 2;
+    public static final byte CANCEL = 3;
+    public static final byte PROGRESS = 4;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+    public static final byte STATUS_CANCELLED = 2;
+
+    static final int MAX_FRAME_BYTES = 256 * 1024 * 1024;
+
+    private static final byte T_NULL = 0;
+    private static final byte T_FALSE = 1;
+    private static final byte T_TRUE = 2;
+    private static final byte T_INT = 3;
+    private static final byte T_LONG = 4;
+    private static final byte T_DOUBLE = 5;
+    private static final byte T_STRING = 6;
+    private static final byte T_BYTES = 7;
+    private static final byte T_LIST = 8;
+    private static final byte T_MAP = 9;
+    private static final byte T_ARTIFACT = 10;
+
+    private WorkerProtocol() {
+    }
+
+    /**
+     * One decoded frame. Fields not used by the frame type are null / 0.
+     */
+    public record Frame(byte type, long id, String plugin, byte status, Object value, double fraction) {}
+
+    public static void writeRequest(WritableByteChannel channel, long id, String plugin, Map<String, Object> input) throws IOException {
+        FrameBuilder frame = new FrameBuilder(REQUEST);
+        frame.out.writeLong(id);
+        frame.out.writeUTF(plugin);
+        writeValue(frame.out, input);
+        frame.writeTo(channel);
+    }
+
+    public static void writeResponse(WritableByteChannel channel, long id, byte status, Object value) throws IOException {
+        writeResponse(channel, id, status, value, MAX_FRAME_BYTES);
+    }
+
+    // The limit is a parameter so tests can hit it without building a 256 MB frame
+    static void writeResponse(WritableByteChannel channel, long id, byte status, Object value, int maxFrameBytes) throws IOException {
+        FrameBuilder frame = new FrameBuilder(RESPONSE);
+        frame.out.writeLong(id);
+        frame.out.writeByte(status);
+        writeValue(frame.out, value);
+        frame.writeTo(channel, maxFrameBytes);
+    }
+
+    public static void writeCancel(WritableByteChannel channel, long id) throws IOException {
+        FrameBuilder frame = new FrameBuilder(CANCEL);
+        frame.out.writeLong(id);
+        frame.writeTo(channel);
+    }
+
+    public static void writeProgress(WritableByteChannel channel, long id, double fraction, String stage) throws IOException {
+        FrameBuilder frame = new FrameBuilder(PROGRESS);
+        frame.out.writeLong(id);
+        frame.out.writeDouble(fraction);
+        frame.out.writeUTF(stage != null ? stage : "");
+        frame.writeTo(channel);
+    }
+
+    /**
+     * Read the next frame
+     * @throws EOFException when the peer closed the connection
+     */
+    public static Frame readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid worker frame length: " + length);
+        }
+        byte type = in.readByte();
+        long id = in.readLong();
+        return switch (type) {
+            case REQUEST -> new Frame(type, id, in.readUTF(), (byte) 0, readValue(in), 0);
+            case RESPONSE -> {
+                byte status = in.readByte();
+                yield new Frame(type, id, null, status, readValue(in), 0);
+            }
+            case CANCEL -> new Frame(type, id, null, (byte) 0, null, 0);
+            case PROGRESS -> {
+                double fraction = in.readDouble();
+                yield new Frame(type, id, null, (byte) 0, in.readUTF(), fraction);
+            }
+            default -> throw new IOException("Unknown worker frame type: " + type);
+        };
+    }
+
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? T_TRUE : T_FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(T_INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long l) {
+            out.writeByte(T_LONG);
+            out.writeLong(l);
+        } else if (value instanceof Number n) {
+            out.writeByte(T_DOUBLE);
+            out.writeDouble(n.doubleValue());
+        } else if (value instanceof byte[] bytes) {
+            out.writeByte(T_BYTES);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof ByteBuffer buffer) {
+            // Upload payloads leased from the buffer arena; travel as bytes and arrive as byte[]
+            ByteBuffer source = buffer.duplicate();
+            byte[] chunk = new byte[Math.min(8192, source.remaining())];
+            out.writeByte(T_BYTES);
+            out.writeInt(source.remaining());
+            while (source.hasRemaining()) {
+                int length = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        } else if (value instanceof BinaryArtifact artifact) {
+            // Generated output stays an artifact, so the server can store and link it
+            out.writeByte(T_ARTIFACT);
+            out.writeUTF(artifact.getContentType());
+            writeValue(out, artifact.getData());
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(T_MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(out, String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Iterable<?> iterable) {
+            List<Object> items = new ArrayList<>();
+            iterable.forEach(items::add);
+            out.writeByte(T_LIST);
+            out.writeInt(items.size());
+            for (Object item : items) {
+                writeValue(out, item);
+            }
+        } else {
+            out.writeByte(T_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case T_NULL -> null;
+            case T_FALSE -> Boolean.FALSE;
+            case T_TRUE -> Boolean.TRUE;
+            case T_INT -> in.readInt();
+            case T_LONG -> in.readLong();
+            case T_DOUBLE -> in.readDouble();
+            case T_STRING -> readString(in);
+            case T_BYTES -> {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                yield bytes;
+            }
+            case T_ARTIFACT -> {
+                String contentType = in.readUTF();
+                yield new BinaryArtifact(contentType, (byte[]) readValue(in));
+            }
+            case T_LIST -> {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield list;
+            }
+            case T_MAP -> {
+                int size = in.readInt();
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(16, size * 2));
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                yield map;
+            }
+            default -> throw new IOException("Unknown value tag: " + tag);
+        };
+    }
+
+    // writeUTF is limited to 64 KB; Base64 images are not
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A frame over {@link #MAX_FRAME_BYTES}. Thrown before anything is written, so the connection stays usable.
+     */
+    public static final class FrameTooLargeException extends IOException {
+        public FrameTooLargeException(int length, int maxFrameBytes) {
+            super("Worker frame of " + length + " bytes exceeds the " + maxFrameBytes + " byte limit");
+        }
+    }
+
+    private static final class FrameBuilder {
+        private final FrameBuffer buffer = new FrameBuffer();
+        private final DataOutputStream out = new DataOutputStream(buffer);
+
+        FrameBuilder(byte type) throws IOException {
+            out.writeInt(0); // Length, patched in writeTo
+            out.writeByte(type);
+        }
+
+        void writeTo(WritableByteChannel channel) throws IOException {
+            writeTo(channel, MAX_FRAME_BYTES);
+        }
+
+        void writeTo(WritableByteChannel channel, int maxFrameBytes) throws IOException {
+            out.flush();
+            ByteBuffer frame = buffer.frame();
+            int length = frame.remaining() - Integer.BYTES;
+            if (length > maxFrameBytes) {
+                throw new FrameTooLargeException(length, maxFrameBytes);
+            }
+            frame.putInt(0, length);
+            synchronized (channel) {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+            }
+        }
+    }
+
+    // Wraps the internal array instead of copying it out with toByteArray()
+    private static final class FrameBuffer extends ByteArrayOutputStream {
+        FrameBuffer() {
+            super(256);
+        }
+
+        ByteBuffer frame() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
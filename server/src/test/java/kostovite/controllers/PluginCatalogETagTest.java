@@ -0,0 +1,94 @@
+// src/test/java/kostovite/controllers/PluginCatalogETagTest.java
+package kostovite.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kostovite.ManualPluginLoader;
+import kostovite.services.PluginCatalogService;
+import kostovite.services.PluginCircuitBreakers;
+import kostovite.services.PluginService;
+import kostovite.store.InMemoryStatusStore;
+import kostovite.store.StatusStore.ToolStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PluginCatalogETagTest {
+
+    private final PluginService pluginService = mock(PluginService.class);
+    private final InMemoryStatusStore statusStore = new InMemoryStatusStore();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        PluginCatalogService catalogService = new PluginCatalogService(pluginService, mock(ManualPluginLoader.class),
+                new PluginCircuitBreakers(20, 10, 50, 80, 5000, 30000, 3), statusStore, new ObjectMapper());
+        catalogService.registerStatusListener();
+        catalog(Map.of("id", "Hash", "status", "enabled"));
+        mockMvc = MockMvcBuilders.standaloneSetup(new CatalogEndpoint(catalogService)).build();
+    }
+
+    @Test
+    void matchingIfNoneMatchAnswersNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/catalog"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/catalog").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void statusChangeGivesANewETag() throws Exception {
+        String etag = mockMvc.perform(get("/catalog")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        catalog(Map.of("id", "Hash", "status", "disabled"));
+        statusStore.putToolStatus("Hash", new ToolStatus(false, null));
+
+        String changed = mockMvc.perform(get("/catalog").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    private void catalog(Map<String, Object> entry) {
+        when(pluginService.getAccessiblePluginMetadata(anyString(), any())).thenReturn(List.of(entry));
+    }
+
+    // Serves the catalog the way GET /api/plugins does, without PluginController's plugin loading at construction
+    @RestController
+    static class CatalogEndpoint {
+        private final PluginCatalogService catalogService;
+
+        CatalogEndpoint(PluginCatalogService catalogService) {
+            this.catalogService = catalogService;
+        }
+
+        @GetMapping("/catalog")
+        ResponseEntity<byte[]> catalog() {
+            return PluginController.catalogResponse(catalogService.getPluginCatalog("anonymous"));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// src/test/java/kostovite/services/BufferArenaTest.java
+package kostovite.services;
+
+import kostovite.services.BufferArena.Lease;
+import kostovite.services.BufferArena.PayloadTooLargeException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferArenaTest {
+
+    private static final int KB = 1024;
+
+    // Classes of 64 KB, 128 KB, 256 KB, 512 KB and 1 MB; at most 2 free buffers each
+    private final BufferArena arena = new BufferArena(1024 * KB, 2, 64L * 1024 * KB);
+
+    @Test
+    void sizeClassIsTheSmallestPowerOfTwoThatFits() {
+        assertEquals(0, BufferArena.sizeClass(0));
+        assertEquals(0, BufferArena.sizeClass(1));
+        assertEquals(0, BufferArena.sizeClass(64 * KB));
+        assertEquals(1, BufferArena.sizeClass(64 * KB + 1));
+        assertEquals(1, BufferArena.sizeClass(128 * KB));
+        assertEquals(4, BufferArena.sizeClass(1024 * KB));
+    }
+
+    @Test
+    void leasesAreSizedByClassAndReused() {
+        ByteBuffer first;
+        try (Lease lease = arena.acquire(100 * KB)) {
+            first = lease.buffer();
+            assertTrue(first.isDirect());
+            assertEquals(128 * KB, first.capacity());
+            assertEquals(100 * KB, first.limit(), "The limit is the requested size, not the class size");
+        }
+        try (Lease lease = arena.acquire(65 * KB)) {
+            assertSame(first, lease.buffer(), "Same class, same buffer");
+        }
+        Map<String, Object> metrics = arena.getMetrics();
+        assertEquals(1L, metrics.get("hits"));
+        assertEquals(1L, metrics.get("misses"));
+        assertEquals(1, ((Map<?, ?>) metrics.get("freeBuffersByClass")).get(String.valueOf(128 * KB)));
+    }
+
+    @Test
+    void oversizedRequestsAreNotPooled() {
+        Lease lease = arena.acquire(1024 * KB + 1);
+        assertFalse(lease.buffer().isDirect());
+        lease.close();
+        assertEquals(1L, arena.getMetrics().get("oversized"));
+        assertEquals(0L, arena.getMetrics().get("retainedBytes"));
+    }
+
+    @Test
+    void keepsAtMostMaxPerClassFreeBuffers() {
+        Lease a = arena.acquire(KB);
+        Lease b = arena.acquire(KB);
+        Lease c = arena.acquire(KB);
+        a.close();
+        b.close();
+        c.close();
+        c.close(); // A second close is ignored
+
+        assertEquals(1L, arena.getMetrics().get("discarded"));
+        assertEquals(2L * 64 * KB, arena.getMetrics().get("retainedBytes"));
+    }
+
+    @Test
+    void readRequestBodyGrowsPastAWrongSizeHint() throws IOException {
+        byte[] body = new byte[300 * KB];
+        new Random(1).nextBytes(body);
+
+        try (Lease lease = arena.readRequestBody(new ByteArrayInputStream(body), -1, 1024 * KB)) {
+            ByteBuffer buffer = lease.buffer();
+            assertEquals(body.length, buffer.remaining());
+            assertEquals(512 * KB, buffer.capacity());
+            assertEquals(ByteBuffer.wrap(body), buffer);
+            assertEquals(Base64.getEncoder().encodeToString(body), arena.encodeBase64(buffer));
+        }
+        assertEquals(0L, arena.getMetrics().get("leasedBytes"), "The smaller leases were given back while growing");
+    }
+
+    @Test
+    void readRequestBodyEnforcesTheLimit() {
+        byte[] body = new byte[200 * KB];
+
+        assertThrows(PayloadTooLargeException.class, () -> arena.readRequestBody(new ByteArrayInputStream(body), body.length, 100 * KB));
+        assertThrows(PayloadTooLargeException.class, () -> arena.readRequestBody(new ByteArrayInputStream(body), -1, 100 * KB));
+        assertEquals(0L, arena.getMetrics().get("leasedBytes"));
+    }
+}
@@ -0,0 +1,126 @@
+// src/test/java/kostovite/services/CacheSnapshotServiceTest.java
+package kostovite.services;
+
+import kostovite.ManualPluginLoader;
+import kostovite.PluginInterface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheSnapshotServiceTest {
+
+    private static final byte[] HASH_STATE = "hash-state".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] QR_STATE = "qr-state".getBytes(StandardCharsets.UTF_8);
+
+    private final ManualPluginLoader loader = mock(ManualPluginLoader.class);
+    private final PluginInterface hash = plugin("Hash", HASH_STATE);
+    private final PluginInterface qr = plugin("QRCodeGenerator", QR_STATE);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresSectionsWhoseVersionStillMatches() throws IOException {
+        CacheSnapshotService service = newService();
+        deploy("v1", "v1");
+        service.save();
+
+        // QRCodeGenerator was redeployed since the snapshot was written
+        deploy("v1", "v2");
+        service.restore();
+
+        verify(hash).restoreSnapshot(HASH_STATE);
+        verify(qr, never()).restoreSnapshot(any());
+        assertEquals(Map.of("restored", 1, "dropped", 1), counts(service));
+    }
+
+    @Test
+    void truncatedFileKeepsTheSectionsBeforeTheCut() throws IOException {
+        CacheSnapshotService service = newService();
+        deploy("v1", "v1");
+        service.save();
+        Path file = dir.resolve("cache.snapshot");
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - QR_STATE.length));
+
+        service.restore();
+
+        verify(hash).restoreSnapshot(HASH_STATE);
+        verify(qr, never()).restoreSnapshot(any());
+        assertEquals(Map.of("restored", 1, "dropped", 0), counts(service));
+    }
+
+    @Test
+    void corruptOrForeignFilesRestoreNothing() throws IOException {
+        CacheSnapshotService service = newService();
+        deploy("v1", "v1");
+        Path file = dir.resolve("cache.snapshot");
+
+        Files.writeString(file, "not a snapshot at all", StandardCharsets.UTF_8);
+        service.restore();
+
+        // Right header, then a section claiming more bytes than plugins.snapshot.max-section-bytes
+        service.save();
+        byte[] content = Files.readAllBytes(file);
+        int lengthOffset = 4 + 2 + 8 + 2 + "plugin:Hash".length() + 2 + "v1".length();
+        content[lengthOffset] = 0x7F;
+        Files.write(file, content);
+        service.restore();
+
+        verify(hash, never()).restoreSnapshot(any());
+        verify(qr, never()).restoreSnapshot(any());
+    }
+
+    @Test
+    void pluginsWithoutStateOrOverTheLimitAreNotSaved() throws IOException {
+        when(qr.saveSnapshot()).thenReturn(new byte[2048]);
+        PluginInterface stateless = plugin("Base64", null);
+        when(loader.getLoadedPlugins()).thenReturn(List.of(hash, qr, stateless));
+        when(loader.getJarSha256("Base64")).thenReturn(Optional.of("v1"));
+        deploy("v1", "v1");
+
+        CacheSnapshotService service = newService();
+        service.save();
+
+        assertEquals(1, ((Map<?, ?>) service.getMetrics().get("lastSave")).get("sections"));
+    }
+
+    private CacheSnapshotService newService() {
+        return new CacheSnapshotService(loader, true, dir.resolve("cache.snapshot").toString(), 60, 1024);
+    }
+
+    private void deploy(String hashVersion, String qrVersion) {
+        when(loader.getLoadedPlugins()).thenReturn(List.of(hash, qr));
+        when(loader.getJarSha256("Hash")).thenReturn(Optional.of(hashVersion));
+        when(loader.getJarSha256("QRCodeGenerator")).thenReturn(Optional.of(qrVersion));
+        when(loader.getPluginByName("Hash")).thenReturn(hash);
+        when(loader.getPluginByName("QRCodeGenerator")).thenReturn(qr);
+    }
+
+    private static PluginInterface plugin(String name, byte[] state) {
+        PluginInterface plugin = mock(PluginInterface.class);
+        when(plugin.getName()).thenReturn(name);
+        when(plugin.saveSnapshot()).thenReturn(state);
+        return plugin;
+    }
+
+    private static Map<String, Object> counts(CacheSnapshotService service) {
+        Map<?, ?> lastRestore = (Map<?, ?>) service.getMetrics().get("lastRestore");
+        return Map.of("restored", lastRestore.get("restored"), "dropped", lastRestore.get("dropped"));
+    }
+}
@@ -0,0 +1,117 @@
+// src/test/java/kostovite/services/PluginCircuitBreakersTest.java
+package kostovite.services;
+
+import kostovite.services.PluginCircuitBreakers.CircuitOpenException;
+import kostovite.services.PluginCircuitBreakers.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginCircuitBreakersTest {
+
+    private static final String PLUGIN = "ExchangeRates";
+    private static final long FAST = 1_000_000L; // 1 ms
+    private static final long OPEN_MILLIS = 50;
+
+    // Window of 4 calls, opens at 50% failures once 4 calls are recorded, 2 trial calls when half-open
+    private final PluginCircuitBreakers breakers = new PluginCircuitBreakers(4, 4, 50, 100, 5000, OPEN_MILLIS, 2);
+
+    @Test
+    void opensOnFailureRateThenClosesAfterSuccessfulTrials() throws InterruptedException {
+        List<State> transitions = new ArrayList<>();
+        breakers.addStateListener((pluginId, state) -> transitions.add(state));
+
+        assertEquals(State.CLOSED, breakers.getState(PLUGIN));
+        call(false);
+        call(true);
+        call(false);
+        assertEquals(State.CLOSED, breakers.getState(PLUGIN), "Below the minimum number of calls");
+        call(true);
+        assertEquals(State.OPEN, breakers.getState(PLUGIN));
+
+        CircuitOpenException rejection = assertThrows(CircuitOpenException.class, () -> breakers.acquirePermission(PLUGIN));
+        assertEquals(State.OPEN, rejection.getState());
+
+        Thread.sleep(OPEN_MILLIS + 20);
+        assertDoesNotThrow(() -> breakers.acquirePermission(PLUGIN));
+        assertEquals(State.HALF_OPEN, breakers.getState(PLUGIN));
+        assertDoesNotThrow(() -> breakers.acquirePermission(PLUGIN));
+        assertThrows(CircuitOpenException.class, () -> breakers.acquirePermission(PLUGIN), "Only two trial calls");
+
+        breakers.onSuccess(PLUGIN, FAST);
+        assertEquals(State.HALF_OPEN, breakers.getState(PLUGIN));
+        breakers.onSuccess(PLUGIN, FAST);
+        assertEquals(State.CLOSED, breakers.getState(PLUGIN));
+        assertDoesNotThrow(() -> breakers.acquirePermission(PLUGIN));
+
+        assertEquals(List.of(State.OPEN, State.HALF_OPEN, State.CLOSED), transitions);
+    }
+
+    @Test
+    void reportsHalfOpenOnceTheOpenDurationIsOver() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(State.OPEN, breakers.getState(PLUGIN));
+        assertTrue(breakers.nextHalfOpenAtMillis() > 0);
+
+        // No call arrives to trigger the transition; the reported state must not stay OPEN
+        Thread.sleep(OPEN_MILLIS + 20);
+        assertEquals(State.HALF_OPEN, breakers.getState(PLUGIN));
+        assertEquals("HALF_OPEN", breakers.getMetrics().get(0).get("state"));
+        assertFalse(breakers.getMetrics().get(0).containsKey("openForMs"));
+    }
+
+    @Test
+    void failedTrialReopens() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(State.OPEN, breakers.getState(PLUGIN));
+
+        Thread.sleep(OPEN_MILLIS + 20);
+        breakers.acquirePermission(PLUGIN);
+        assertEquals(State.HALF_OPEN, breakers.getState(PLUGIN));
+        breakers.onFailure(PLUGIN, FAST);
+        assertEquals(State.OPEN, breakers.getState(PLUGIN));
+    }
+
+    @Test
+    void ignoredTrialFreesItsSlot() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        Thread.sleep(OPEN_MILLIS + 20);
+        breakers.acquirePermission(PLUGIN);
+        breakers.acquirePermission(PLUGIN);
+        assertThrows(CircuitOpenException.class, () -> breakers.acquirePermission(PLUGIN));
+
+        // A trial rejected later (e.g. by the concurrency limiter) gives its slot back
+        breakers.onIgnored(PLUGIN);
+        assertDoesNotThrow(() -> breakers.acquirePermission(PLUGIN));
+    }
+
+    @Test
+    void unsuccessfulResultCountsAsFailure() {
+        assertTrue(PluginService.reportsFailure(Map.of("success", false, "errorMessage", "upstream down")));
+        assertFalse(PluginService.reportsFailure(Map.of("success", true)));
+        assertFalse(PluginService.reportsFailure(Map.of("value", 1)));
+    }
+
+    private void call(boolean failed) {
+        breakers.acquirePermission(PLUGIN);
+        if (failed) {
+            breakers.onFailure(PLUGIN, FAST);
+        } else {
+            breakers.onSuccess(PLUGIN, FAST);
+        }
+    }
+}
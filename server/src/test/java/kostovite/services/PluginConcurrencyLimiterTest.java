@@ -0,0 +1,99 @@
+// src/test/java/kostovite/services/PluginConcurrencyLimiterTest.java
+package kostovite.services;
+
+import kostovite.PluginInterface;
+import kostovite.services.PluginConcurrencyLimiter.ConcurrencyLimitExceededException;
+import kostovite.services.PluginConcurrencyLimiter.Permit;
+import kostovite.services.PluginConcurrencyLimiter.WorkloadClass;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PluginConcurrencyLimiterTest {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    @Test
+    void gradientStaysAtOneWithinTheTolerance() {
+        assertEquals(1.0, PluginConcurrencyLimiter.gradient(TOLERANCE, 10, 10));
+        assertEquals(1.0, PluginConcurrencyLimiter.gradient(TOLERANCE, 10, 14));
+        assertEquals(1.0, PluginConcurrencyLimiter.gradient(TOLERANCE, 10, 5), "Faster than the baseline never counts as more than 1");
+    }
+
+    @Test
+    void gradientFallsWithLatencyAndIsFloored() {
+        assertEquals(0.75, PluginConcurrencyLimiter.gradient(TOLERANCE, 10, 20), 1e-9);
+        assertEquals(0.5, PluginConcurrencyLimiter.gradient(TOLERANCE, 10, 1000), "Never shrinks by more than half");
+    }
+
+    @Test
+    void limitProbesUpwardsByItsSquareRootWhileLatencyIsFlat() {
+        // Target 100 + sqrt(100) = 110, smoothed: 0.8 * 100 + 0.2 * 110
+        assertEquals(102.0, PluginConcurrencyLimiter.nextLimit(100, 1.0, SMOOTHING), 1e-9);
+        // Target 100 * 0.75 + 10 = 85, smoothed: 0.8 * 100 + 0.2 * 85
+        assertEquals(97.0, PluginConcurrencyLimiter.nextLimit(100, 0.75, SMOOTHING), 1e-9);
+        // Without smoothing the limit jumps straight to the target
+        assertEquals(85.0, PluginConcurrencyLimiter.nextLimit(100, 0.75, 1.0), 1e-9);
+    }
+
+    @Test
+    void rejectsOverTheLimitAndFreesSlotsOnCompletion() {
+        PluginConcurrencyLimiter limiter = newLimiter(2);
+        PluginInterface plugin = plugin("Hash", Map.of());
+
+        Permit first = limiter.acquire(plugin);
+        limiter.acquire(plugin);
+        ConcurrencyLimitExceededException rejection = assertThrows(ConcurrencyLimitExceededException.class, () -> limiter.acquire(plugin));
+        assertEquals(WorkloadClass.LIGHT, rejection.getWorkloadClass());
+        assertEquals(2, rejection.getLimit());
+
+        first.onIgnored();
+        first.onIgnored(); // Completing twice must not free a second slot
+        assertDoesNotThrow(() -> limiter.acquire(plugin));
+        assertThrows(ConcurrencyLimitExceededException.class, () -> limiter.acquire(plugin));
+    }
+
+    @Test
+    void timeoutBacksOffTheLimit() throws InterruptedException {
+        PluginConcurrencyLimiter limiter = newLimiter(10);
+        Permit permit = limiter.acquire(plugin("Hash", Map.of()));
+
+        Thread.sleep(5); // Past the 1 ms window
+        permit.onDropped();
+
+        Map<?, ?> light = (Map<?, ?>) limiter.getMetrics().get("light");
+        assertEquals(9, light.get("limit"));
+        assertEquals(1L, light.get("timedOut"));
+    }
+
+    @Test
+    void classifiesFromMetadataThenFromTheConfiguredList() {
+        PluginConcurrencyLimiter limiter = newLimiter(10);
+
+        assertEquals(WorkloadClass.CPU, limiter.classify(plugin("ImageResize", Map.of())));
+        assertEquals(WorkloadClass.LIGHT, limiter.classify(plugin("ImageResize2", Map.of("workloadClass", "light"))));
+        assertEquals(WorkloadClass.CPU, limiter.classify(plugin("Hash", Map.of("workloadClass", " CPU "))));
+        assertEquals(WorkloadClass.LIGHT, limiter.classify(plugin("Hash", Map.of("workloadClass", "gpu"))), "Unknown classes fall back");
+        assertTrue(limiter.getMetrics().containsKey("cpu"));
+    }
+
+    // One-millisecond windows that close on a single sample, so each completed call updates the limit
+    private static PluginConcurrencyLimiter newLimiter(int lightLimit) {
+        return new PluginConcurrencyLimiter(true, "ImageResize", 4, 8, lightLimit, 100, 1, TOLERANCE, SMOOTHING, 1, 1);
+    }
+
+    private static PluginInterface plugin(String name, Map<String, Object> metadata) {
+        PluginInterface plugin = mock(PluginInterface.class);
+        when(plugin.getName()).thenReturn(name);
+        when(plugin.getMetadata()).thenReturn(metadata);
+        return plugin;
+    }
+}
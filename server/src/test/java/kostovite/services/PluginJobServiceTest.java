@@ -0,0 +1,92 @@
+// src/test/java/kostovite/services/PluginJobServiceTest.java
+package kostovite.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PluginJobServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PluginService pluginService = mock(PluginService.class);
+    private PluginJobService jobService;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void shutdown() {
+        if (jobService != null) {
+            jobService.shutdown();
+        }
+    }
+
+    @Test
+    void replayDropsTornLastRecord() throws IOException {
+        Path journal = dir.resolve("jobs.journal");
+        String complete = """
+                {"type":"submit","id":"done","pluginId":"Hash","owner":"anonymous","tier":"anonymous","submittedAt":%d,"input":{"text":"a"}}
+                {"type":"start","id":"done","startedAt":%d}
+                {"type":"finish","id":"done","status":"SUCCEEDED","finishedAt":%d,"result":{"success":true},"error":null}
+                """.formatted(now(), now(), now());
+        // The process died halfway through writing the next record
+        String torn = "{\"type\":\"submit\",\"id\":\"torn\",\"pluginId\":\"Ha";
+        Files.writeString(journal, complete + torn, StandardCharsets.UTF_8);
+
+        jobService = newService(journal);
+
+        Map<String, Object> done = jobService.getStatus("done", null);
+        assertNotNull(done);
+        assertEquals("SUCCEEDED", done.get("status"));
+        assertNull(jobService.getStatus("torn", null), "A torn record is dropped, not half-applied");
+
+        String rewritten = Files.readString(journal, StandardCharsets.UTF_8);
+        assertTrue(rewritten.endsWith("\n"), "The journal ends on a whole record");
+        assertFalse(rewritten.contains("torn"));
+        for (String line : rewritten.strip().split("\n")) {
+            assertDoesNotThrow(() -> objectMapper.readTree(line), line);
+        }
+    }
+
+    @Test
+    void recordsAppendedAfterReplayStartOnANewLine() throws IOException {
+        Path journal = dir.resolve("jobs.journal");
+        Files.writeString(journal, "{\"type\":\"submit\",\"id\":\"torn\"", StandardCharsets.UTF_8);
+        when(pluginService.extractUserType(null)).thenReturn("anonymous");
+
+        jobService = newService(journal);
+        Map<String, Object> queued = jobService.submit("Hash", Map.of("text", "b"), null, "127.0.0.1");
+
+        List<String> lines = Files.readAllLines(journal, StandardCharsets.UTF_8);
+        assertFalse(lines.isEmpty());
+        Map<?, ?> first = objectMapper.readValue(lines.get(0), Map.class);
+        assertEquals("submit", first.get("type"));
+        assertEquals(queued.get("jobId"), first.get("id"));
+    }
+
+    private PluginJobService newService(Path journal) throws IOException {
+        return new PluginJobService(pluginService, objectMapper, mock(ArtifactStore.class), 1, 100, 5, 600_000, 30_000, 60,
+                journal.toString(), false);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,93 @@
+// src/test/java/kostovite/services/ReplicaRouterTest.java
+package kostovite.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kostovite.ManualPluginLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ReplicaRouterTest {
+
+    private static final int KEYS = 4000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void addingAReplicaOnlyMovesKeysToTheNewReplica() throws IOException {
+        ReplicaRouter before = router("a", "b", "c");
+        ReplicaRouter after = router("a", "b", "c", "d");
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = key(i);
+            String oldOwner = before.ownerIdOf(key);
+            String newOwner = after.ownerIdOf(key);
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals("d", newOwner, "A key only moves to the replica that joined");
+                moved++;
+            }
+        }
+        // The new replica takes about its fair share (1/4) and nothing more
+        assertTrue(moved > KEYS / 4 * 0.8 && moved < KEYS / 4 * 1.2, "Moved " + moved + " of " + KEYS);
+    }
+
+    @Test
+    void removingAReplicaOnlyMovesItsOwnKeys() throws IOException {
+        ReplicaRouter before = router("a", "b", "c", "d");
+        ReplicaRouter after = router("a", "b", "d");
+
+        for (int i = 0; i < KEYS; i++) {
+            String key = key(i);
+            String oldOwner = before.ownerIdOf(key);
+            if (!oldOwner.equals("c")) {
+                assertEquals(oldOwner, after.ownerIdOf(key), "Keys of the remaining replicas stay put");
+            }
+        }
+    }
+
+    @Test
+    void ownershipDependsOnIdsNotOnListOrder() throws IOException {
+        ReplicaRouter forward = router("a", "b", "c");
+        ReplicaRouter reversed = router("c", "b", "a");
+
+        Map<String, Integer> shares = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            String owner = forward.ownerIdOf(key(i));
+            assertEquals(owner, reversed.ownerIdOf(key(i)));
+            shares.merge(owner, 1, Integer::sum);
+        }
+        for (String id : List.of("a", "b", "c")) {
+            int share = shares.getOrDefault(id, 0);
+            assertTrue(share > KEYS / 3 * 0.8 && share < KEYS / 3 * 1.2, id + " owns " + share + " of " + KEYS);
+        }
+    }
+
+    private ReplicaRouter router(String... ids) throws IOException {
+        StringBuilder replicas = new StringBuilder("# id url\n");
+        for (int i = 0; i < ids.length; i++) {
+            replicas.append(ids[i]).append(" http://10.0.0.").append(i + 1).append(":8080/\n");
+        }
+        Path file = Files.createTempFile(dir, "replicas", ".conf");
+        Files.writeString(file, replicas, StandardCharsets.UTF_8);
+        return new ReplicaRouter(mock(ManualPluginLoader.class), mock(InFlightRequestCoalescer.class), mock(ArtifactStore.class),
+                new ObjectMapper(), true, file.toString(), ids[0], 8080, 200, 1000, 5000);
+    }
+
+    // Shaped like the coalescer's request keys: plugin id plus a digest of the input
+    private static String key(int i) {
+        return "QRCodeGenerator:" + Integer.toHexString(i * 0x9E3779B1);
+    }
+}
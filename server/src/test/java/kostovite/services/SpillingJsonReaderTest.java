@@ -0,0 +1,100 @@
+// src/test/java/kostovite/services/SpillingJsonReaderTest.java
+package kostovite.services;
+
+import kostovite.services.BufferArena.PayloadTooLargeException;
+import kostovite.services.SpillingJsonReader.MalformedJsonException;
+import kostovite.services.SpillingJsonReader.SpilledText;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillingJsonReaderTest {
+
+    private static final int THRESHOLD = 1024;
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void spillsTopLevelStringsAboveTheThreshold() throws IOException {
+        SpillingJsonReader reader = new SpillingJsonReader(THRESHOLD, 1 << 20, spillDir.toString());
+        String small = "x".repeat(THRESHOLD);
+        String large = "é€😀".repeat(THRESHOLD);
+
+        Map<String, Object> result = read(reader, "{\"small\":\"" + small + "\",\"large\":\"" + large + "\"}");
+
+        assertEquals(small, result.get("small"), "A string at the threshold stays on the heap");
+        SpilledText spilled = assertInstanceOf(SpilledText.class, result.get("large"));
+        assertEquals(large, spilled.toString());
+        assertEquals(1L, reader.getMetrics().get("spilledFields"));
+        try (var files = Files.list(spillDir)) {
+            assertEquals(0, files.count(), "The spill file is unlinked once mapped");
+        }
+    }
+
+    @Test
+    void nestedStringsAreNeverSpilled() throws IOException {
+        SpillingJsonReader reader = new SpillingJsonReader(THRESHOLD, 1 << 20, spillDir.toString());
+        String large = "y".repeat(4 * THRESHOLD);
+
+        Map<String, Object> result = read(reader, "{\"options\":{\"text\":\"" + large + "\"},\"list\":[\"" + large + "\"]}");
+
+        assertEquals(Map.of("text", large), result.get("options"));
+        assertEquals(List.of(large), result.get("list"));
+        assertEquals(0L, reader.getMetrics().get("spilledFields"));
+    }
+
+    @Test
+    void parsesScalarsAndEscapesLikeJackson() throws IOException {
+        SpillingJsonReader reader = new SpillingJsonReader(THRESHOLD, 1 << 20, spillDir.toString());
+
+        Map<String, Object> result = read(reader,
+                "{\"i\":42,\"l\":4294967296,\"d\":1.5,\"t\":true,\"n\":null,\"s\":\"a\\\"b\\u0041\\n\"}");
+
+        assertEquals(42, result.get("i"));
+        assertEquals(4294967296L, result.get("l"));
+        assertEquals(1.5, result.get("d"));
+        assertEquals(Boolean.TRUE, result.get("t"));
+        assertTrue(result.containsKey("n"));
+        assertEquals("a\"bA\n", result.get("s"));
+    }
+
+    @Test
+    void rejectsBodiesOverTheCap() throws IOException {
+        SpillingJsonReader reader = new SpillingJsonReader(THRESHOLD, 64 * 1024, spillDir.toString());
+        byte[] body = ("{\"text\":\"" + "z".repeat(128 * 1024) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        // Declared length over the cap fails before reading; an undeclared one fails while streaming
+        assertThrows(PayloadTooLargeException.class, () -> reader.readObject(new ByteArrayInputStream(body), body.length));
+        assertThrows(PayloadTooLargeException.class, () -> reader.readObject(new ByteArrayInputStream(body), -1));
+    }
+
+    @Test
+    void rejectsMalformedBodies() throws IOException {
+        SpillingJsonReader reader = new SpillingJsonReader(THRESHOLD, 1 << 20, spillDir.toString());
+
+        assertThrows(MalformedJsonException.class, () -> read(reader, "[1, 2]"));
+        assertThrows(MalformedJsonException.class, () -> read(reader, "{\"a\":1} trailing"));
+        assertThrows(MalformedJsonException.class, () -> read(reader, "{\"a\":\"" + "u".repeat(2 * THRESHOLD)));
+        try (var files = Files.list(spillDir)) {
+            assertEquals(0, files.count(), "A spill abandoned mid-string is deleted");
+        }
+    }
+
+    private static Map<String, Object> read(SpillingJsonReader reader, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        return reader.readObject(new ByteArrayInputStream(body), body.length);
+    }
+}
@@ -0,0 +1,83 @@
+// src/test/java/kostovite/store/FileStatusStoreTest.java
+package kostovite.store;
+
+import kostovite.store.StatusStore.ToolStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileStatusStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysWritesAfterRestart() throws Exception {
+        Path logFile = dir.resolve("status.log");
+        try (FileStatusStore store = new FileStatusStore(logFile, false)) {
+            store.putToolStatus("Hash", new ToolStatus(false, "Down for\tmaintenance\n"));
+            store.putToolStatus("Base64", new ToolStatus(true, null));
+            store.putUserType("uid-1", "premium");
+            store.putToolStatus("Base64", new ToolStatus(false, null));
+        }
+
+        try (FileStatusStore store = new FileStatusStore(logFile, false)) {
+            assertEquals(Optional.of(new ToolStatus(false, "Down for\tmaintenance\n")), store.findToolStatus("Hash"));
+            assertEquals(Optional.of(new ToolStatus(false, null)), store.findToolStatus("Base64"), "The last record wins");
+            assertEquals(Optional.of("premium"), store.findUserType("uid-1"));
+            assertEquals(4L, store.describe().get("records"));
+        }
+    }
+
+    @Test
+    void dropsTornLastRecordAndSkipsCommentsAndMalformedLines() throws Exception {
+        Path logFile = dir.resolve("status.log");
+        Files.writeString(logFile, """
+                # seeded by hand
+                tool\tHash\tfalse
+                bogus\trecord
+                user\tuid-1\tadmin
+                tool\tBase64\tfal""", StandardCharsets.UTF_8);
+
+        try (FileStatusStore store = new FileStatusStore(logFile, false)) {
+            assertEquals(Optional.of(new ToolStatus(false, null)), store.findToolStatus("Hash"));
+            assertEquals(Optional.of("admin"), store.findUserType("uid-1"));
+            assertEquals(Optional.empty(), store.findToolStatus("Base64"), "A torn record is not applied");
+            store.putUserType("uid-2", "normal");
+        }
+
+        List<String> lines = Files.readAllLines(logFile, StandardCharsets.UTF_8);
+        assertEquals("user\tuid-2\tnormal", lines.get(lines.size() - 1), "Appends start on a new line after the truncation");
+        try (FileStatusStore store = new FileStatusStore(logFile, false)) {
+            assertEquals(Optional.of("normal"), store.findUserType("uid-2"));
+        }
+    }
+
+    @Test
+    void compactsSupersededRecordsAtStartup() throws Exception {
+        Path logFile = dir.resolve("status.log");
+        try (FileStatusStore store = new FileStatusStore(logFile, false)) {
+            for (int i = 0; i < 2000; i++) {
+                store.putToolStatus("Hash", new ToolStatus(i % 2 == 0, null));
+            }
+            store.putUserType("uid-1", "premium");
+        }
+        assertEquals(2001, Files.readAllLines(logFile, StandardCharsets.UTF_8).size());
+
+        try (FileStatusStore store = new FileStatusStore(logFile, false)) {
+            assertEquals(Optional.of(new ToolStatus(false, null)), store.findToolStatus("Hash"));
+            assertEquals(Optional.of("premium"), store.findUserType("uid-1"));
+            assertEquals(2L, store.describe().get("records"));
+        }
+        assertEquals(2, Files.readAllLines(logFile, StandardCharsets.UTF_8).size());
+        assertTrue(Files.notExists(logFile.resolveSibling("status.log.compact")));
+    }
+}
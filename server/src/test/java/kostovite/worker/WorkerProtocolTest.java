@@ -0,0 +1,122 @@
+// src/test/java/kostovite/worker/WorkerProtocolTest.java
+package kostovite.worker;
+
+import kostovite.BinaryArtifact;
+import kostovite.worker.WorkerProtocol.Frame;
+import kostovite.worker.WorkerProtocol.FrameTooLargeException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkerProtocolTest {
+
+    private final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+    private final WritableByteChannel channel = Channels.newChannel(wire);
+
+    @Test
+    void requestRoundTripsEveryValueType() throws IOException {
+        byte[] upload = {1, 2, 3};
+        Map<String, Object> input = new LinkedHashMap<>();
+        input.put("null", null);
+        input.put("flag", true);
+        input.put("int", 7);
+        input.put("long", 1L << 40);
+        input.put("double", 0.25);
+        input.put("text", "é".repeat(40_000)); // Longer than writeUTF allows
+        input.put("bytes", upload);
+        input.put("buffer", ByteBuffer.wrap(upload));
+        input.put("list", List.of("a", 1));
+        input.put("map", Map.of("nested", false));
+
+        WorkerProtocol.writeRequest(channel, 42, "Hash", input);
+        Frame frame = readSingleFrame();
+
+        assertEquals(WorkerProtocol.REQUEST, frame.type());
+        assertEquals(42, frame.id());
+        assertEquals("Hash", frame.plugin());
+        Map<?, ?> decoded = assertInstanceOf(Map.class, frame.value());
+        assertEquals(List.copyOf(input.keySet()), List.copyOf(decoded.keySet()), "Field order is kept");
+        assertNull(decoded.get("null"));
+        assertEquals(true, decoded.get("flag"));
+        assertEquals(7, decoded.get("int"));
+        assertEquals(1L << 40, decoded.get("long"));
+        assertEquals(0.25, decoded.get("double"));
+        assertEquals(input.get("text"), decoded.get("text"));
+        assertArrayEquals(upload, (byte[]) decoded.get("bytes"));
+        assertArrayEquals(upload, (byte[]) decoded.get("buffer"), "ByteBuffers arrive as byte arrays");
+        assertEquals(List.of("a", 1), decoded.get("list"));
+        assertEquals(Map.of("nested", false), decoded.get("map"));
+    }
+
+    @Test
+    void responseCarriesArtifactsAndProgressCarriesStage() throws IOException {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G'};
+        WorkerProtocol.writeResponse(channel, 1, WorkerProtocol.STATUS_OK, Map.of("image", new BinaryArtifact("image/png", png)));
+        WorkerProtocol.writeProgress(channel, 1, 0.5, "encoding");
+        WorkerProtocol.writeCancel(channel, 1);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        Frame response = WorkerProtocol.readFrame(in);
+        assertEquals(WorkerProtocol.STATUS_OK, response.status());
+        BinaryArtifact artifact = assertInstanceOf(BinaryArtifact.class, ((Map<?, ?>) response.value()).get("image"));
+        assertEquals("image/png", artifact.getContentType());
+        assertEquals(ByteBuffer.wrap(png), artifact.getData());
+
+        Frame progress = WorkerProtocol.readFrame(in);
+        assertEquals(WorkerProtocol.PROGRESS, progress.type());
+        assertEquals(0.5, progress.fraction());
+        assertEquals("encoding", progress.value());
+
+        assertEquals(WorkerProtocol.CANCEL, WorkerProtocol.readFrame(in).type());
+    }
+
+    @Test
+    void oversizedFrameIsRejectedBeforeAnythingIsWritten() throws IOException {
+        byte[] payload = new byte[4096];
+
+        assertThrows(FrameTooLargeException.class,
+                () -> WorkerProtocol.writeResponse(channel, 1, WorkerProtocol.STATUS_OK, payload, 1024));
+        assertEquals(0, wire.size(), "The connection carries no partial frame");
+
+        // The next frame on the same connection is unaffected
+        WorkerProtocol.writeResponse(channel, 2, WorkerProtocol.STATUS_ERROR, "too large", 1024);
+        Frame frame = readSingleFrame();
+        assertEquals(2, frame.id());
+        assertEquals("too large", frame.value());
+    }
+
+    @Test
+    void readRejectsFramesOverTheLimit() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(WorkerProtocol.MAX_FRAME_BYTES + 1);
+        out.writeByte(WorkerProtocol.RESPONSE);
+        byte[] header = Arrays.copyOf(bytes.toByteArray(), 64);
+
+        assertThrows(IOException.class, () -> WorkerProtocol.readFrame(new DataInputStream(new ByteArrayInputStream(header))));
+    }
+
+    private Frame readSingleFrame() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(wire.toByteArray()));
+        Frame frame = WorkerProtocol.readFrame(in);
+        assertEquals(-1, in.read(), "Exactly one frame was written");
+        return frame;
+    }
+}